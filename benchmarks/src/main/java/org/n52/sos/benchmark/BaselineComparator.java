@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares a JMH JSON result file ({@code -rf json}) with a stored baseline
+ * and flags regressions.
+ * <p>
+ * A benchmark regressed if its score got worse by more than the threshold
+ * (default 10%) and the difference is larger than the combined score errors of
+ * both runs, i.e. the confidence intervals do not overlap. For throughput
+ * modes higher scores are better, for all time based modes lower scores are
+ * better.
+ * <p>
+ * Usage: {@code java -cp benchmarks.jar org.n52.sos.benchmark.BaselineComparator
+ * <baseline.json> <result.json> [threshold in percent]}. If the baseline does
+ * not exist, the result is stored as the new baseline. The process exits with
+ * status {@code 1} if at least one benchmark regressed.
+ */
+public class BaselineComparator {
+
+    public static final double DEFAULT_THRESHOLD = 0.10;
+
+    private static final String THROUGHPUT = "thrpt";
+
+    private final double threshold;
+
+    public BaselineComparator(double threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("The threshold must not be negative: " + threshold);
+        }
+        this.threshold = threshold;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineComparator <baseline.json> <result.json> [threshold in percent]");
+            System.exit(2);
+        }
+        Path baseline = Paths.get(args[0]);
+        Path result = Paths.get(args[1]);
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) / 100 : DEFAULT_THRESHOLD;
+        if (!Files.exists(baseline)) {
+            Files.copy(result, baseline, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("No baseline found, stored " + result + " as new baseline " + baseline);
+            return;
+        }
+        List<Comparison> comparisons = new BaselineComparator(threshold).compare(read(baseline), read(result));
+        print(comparisons, System.out);
+        if (comparisons.stream().anyMatch(Comparison::isRegression)) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Read the scores of a JMH JSON result file.
+     *
+     * @param file
+     *            the result file
+     * @return the scores by benchmark key
+     * @throws IOException
+     *             if the file can not be read
+     */
+    public static Map<String, Score> read(Path file) throws IOException {
+        return parse(new ObjectMapper().readTree(file.toFile()));
+    }
+
+    static Map<String, Score> parse(JsonNode results) {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode result : results) {
+            JsonNode metric = result.path("primaryMetric");
+            Score score = new Score(result.path("mode").asText(), metric.path("score").asDouble(),
+                    metric.path("scoreError").asDouble(0), metric.path("scoreUnit").asText());
+            scores.put(key(result), score);
+        }
+        return scores;
+    }
+
+    private static String key(JsonNode result) {
+        StringBuilder key = new StringBuilder(result.path("benchmark").asText());
+        JsonNode params = result.path("params");
+        if (params.size() > 0) {
+            Map<String, String> sorted = new TreeMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                sorted.put(field.getKey(), field.getValue().asText());
+            }
+            key.append(sorted);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Compare all benchmarks of the current run that are contained in the
+     * baseline. Benchmarks missing in either run are ignored.
+     *
+     * @param baseline
+     *            the baseline scores
+     * @param current
+     *            the current scores
+     * @return the comparisons
+     */
+    public List<Comparison> compare(Map<String, Score> baseline, Map<String, Score> current) {
+        List<Comparison> comparisons = new ArrayList<>(current.size());
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score base = baseline.get(entry.getKey());
+            if (base != null && base.getMode().equals(entry.getValue().getMode())) {
+                comparisons.add(compare(entry.getKey(), base, entry.getValue()));
+            }
+        }
+        return comparisons;
+    }
+
+    private Comparison compare(String benchmark, Score baseline, Score current) {
+        double difference = current.getValue() - baseline.getValue();
+        double degradation = baseline.getValue() == 0 ? 0 : difference / baseline.getValue();
+        if (THROUGHPUT.equals(current.getMode())) {
+            degradation = -degradation;
+        }
+        boolean significant = Math.abs(difference) > baseline.getError() + current.getError();
+        return new Comparison(benchmark, baseline, current, degradation, significant && degradation > threshold);
+    }
+
+    private static void print(List<Comparison> comparisons, PrintStream out) {
+        for (Comparison comparison : comparisons) {
+            out.println(String.format(Locale.ROOT, "%-10s %+7.1f%%  %14.3f -> %14.3f %-8s %s",
+                    comparison.isRegression() ? "REGRESSION" : "ok", comparison.getDegradation() * 100,
+                    comparison.getBaseline().getValue(), comparison.getCurrent().getValue(),
+                    comparison.getCurrent().getUnit(), comparison.getBenchmark()));
+        }
+    }
+
+    /**
+     * The primary score of a benchmark run.
+     */
+    public static class Score {
+
+        private final String mode;
+
+        private final double value;
+
+        private final double error;
+
+        private final String unit;
+
+        public Score(String mode, double value, double error, String unit) {
+            this.mode = Objects.requireNonNull(mode);
+            this.value = value;
+            this.error = Double.isNaN(error) ? 0 : error;
+            this.unit = unit;
+        }
+
+        public String getMode() {
+            return mode;
+        }
+
+        public double getValue() {
+            return value;
+        }
+
+        public double getError() {
+            return error;
+        }
+
+        public String getUnit() {
+            return unit;
+        }
+
+    }
+
+    /**
+     * The result of comparing one benchmark with its baseline.
+     */
+    public static class Comparison {
+
+        private final String benchmark;
+
+        private final Score baseline;
+
+        private final Score current;
+
+        private final double degradation;
+
+        private final boolean regression;
+
+        Comparison(String benchmark, Score baseline, Score current, double degradation, boolean regression) {
+            this.benchmark = benchmark;
+            this.baseline = baseline;
+            this.current = current;
+            this.degradation = degradation;
+            this.regression = regression;
+        }
+
+        public String getBenchmark() {
+            return benchmark;
+        }
+
+        public Score getBaseline() {
+            return baseline;
+        }
+
+        public Score getCurrent() {
+            return current;
+        }
+
+        /**
+         * @return the relative degradation, negative values are improvements
+         */
+        public double getDegradation() {
+            return degradation;
+        }
+
+        public boolean isRegression() {
+            return regression;
+        }
+
+    }
+
+}
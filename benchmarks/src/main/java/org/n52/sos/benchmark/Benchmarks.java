@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark;
+
+import org.n52.sos.util.GeometryHandler;
+
+/**
+ * Shared fixtures for the benchmarks.
+ */
+public final class Benchmarks {
+
+    public static final int EPSG_4979 = 4979;
+
+    public static final int EPSG_31466 = 31466;
+
+    private Benchmarks() {
+    }
+
+    public static GeometryHandler createGeometryHandler() {
+        return createGeometryHandler(SyntheticData.EPSG_4326);
+    }
+
+    /**
+     * Create an initialized {@link GeometryHandler} that stores geometries in
+     * EPSG:4326.
+     *
+     * @param responseEpsg
+     *            the default response EPSG code
+     * @return the geometry handler
+     */
+    public static GeometryHandler createGeometryHandler(int responseEpsg) {
+        GeometryHandler geometryHandler = new GeometryHandler();
+        geometryHandler.setAuthority("EPSG");
+        geometryHandler.setStorageEpsg(SyntheticData.EPSG_4326);
+        geometryHandler.setStorage3DEpsg(EPSG_4979);
+        geometryHandler.setDefaultResponseEpsg(responseEpsg);
+        geometryHandler.setDefaultResponse3DEpsg(EPSG_4979);
+        geometryHandler.setSupportedCRS(SyntheticData.EPSG_4326 + "," + EPSG_4979 + "," + EPSG_31466);
+        geometryHandler.setSpatialDatasource(true);
+        geometryHandler.init();
+        return geometryHandler;
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
+import org.n52.shetland.ogc.sos.request.GetFeatureOfInterestRequest;
+import org.n52.shetland.ogc.sos.response.GetFeatureOfInterestResponse;
+import org.n52.sos.converter.CoordinateTransformator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the transformation of a GetFeatureOfInterest response from the
+ * storage CRS (EPSG:4326) into a projected response CRS (EPSG:31466).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CoordinateTransformationBenchmark {
+
+    @Param({ "1000" })
+    private int features;
+
+    private final SyntheticData data = new SyntheticData();
+
+    private CoordinateTransformator transformator;
+
+    private GetFeatureOfInterestRequest request;
+
+    private GetFeatureOfInterestResponse response;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        transformator = new CoordinateTransformator();
+        transformator.setGeometryHandler(Benchmarks.createGeometryHandler(Benchmarks.EPSG_31466));
+        request = new GetFeatureOfInterestRequest();
+    }
+
+    /**
+     * The transformation replaces the geometries in place, so every invocation
+     * needs untransformed features.
+     *
+     * @throws OwsExceptionReport
+     *             if the features can not be created
+     */
+    @Setup(Level.Invocation)
+    public void createResponse() throws OwsExceptionReport {
+        response = new GetFeatureOfInterestResponse();
+        response.setAbstractFeature(data.features(features));
+    }
+
+    @Benchmark
+    public OwsServiceResponse transformFeatures() throws OwsExceptionReport {
+        return transformator.modifyResponse(request, response);
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.n52.sos.cache.InMemoryCacheImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the lookups the request checks perform on the
+ * {@link InMemoryCacheImpl} for every request, and the concurrent updates done
+ * by insertions, against a cache filled with a synthetic sensor network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InMemoryCacheBenchmark {
+
+    private static final int OBSERVABLE_PROPERTIES = 50;
+
+    private static final int FEATURES_PER_PROCEDURE = 10;
+
+    @Param({ "1000" })
+    private int procedures;
+
+    private InMemoryCacheImpl cache;
+
+    @Setup
+    public void setUp() {
+        cache = new InMemoryCacheImpl();
+        for (int p = 0; p < procedures; p++) {
+            String procedure = SyntheticData.procedure(p);
+            String offering = SyntheticData.offering(p);
+            String observableProperty = SyntheticData.observableProperty(p % OBSERVABLE_PROPERTIES);
+            cache.addProcedure(procedure);
+            cache.addOffering(offering);
+            cache.addProcedureForOffering(offering, procedure);
+            cache.addOfferingForProcedure(procedure, offering);
+            cache.addObservablePropertyForOffering(offering, observableProperty);
+            cache.addObservablePropertyForProcedure(procedure, observableProperty);
+            cache.addOfferingForObservableProperty(observableProperty, offering);
+            cache.addProcedureForObservableProperty(observableProperty, procedure);
+            for (int f = 0; f < FEATURES_PER_PROCEDURE; f++) {
+                String feature = SyntheticData.feature(p * FEATURES_PER_PROCEDURE + f);
+                cache.addFeatureOfInterest(feature);
+                cache.addFeatureOfInterestForOffering(offering, feature);
+                cache.addProcedureForFeatureOfInterest(feature, procedure);
+            }
+        }
+    }
+
+    @Benchmark
+    public Set<String> offeringsForProcedure(ThreadIndex index) {
+        return cache.getOfferingsForProcedure(SyntheticData.procedure(index.next(procedures)));
+    }
+
+    @Benchmark
+    public Set<String> proceduresForObservableProperty(ThreadIndex index) {
+        return cache.getProceduresForObservableProperty(
+                SyntheticData.observableProperty(index.next(OBSERVABLE_PROPERTIES)));
+    }
+
+    @Benchmark
+    public Set<String> featuresOfInterestForOffering(ThreadIndex index) {
+        return cache.getFeaturesOfInterestForOffering(SyntheticData.offering(index.next(procedures)));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Set<String> concurrentReadWrite(ThreadIndex index) {
+        int i = index.next(procedures);
+        cache.addObservablePropertyForProcedure(SyntheticData.procedure(i),
+                SyntheticData.observableProperty(i % OBSERVABLE_PROPERTIES));
+        return cache.getObservablePropertiesForOffering(SyntheticData.offering(i));
+    }
+
+    /**
+     * Per thread round robin index to spread the lookups over the cache.
+     */
+    @State(Scope.Thread)
+    public static class ThreadIndex {
+
+        private int current;
+
+        int next(int bound) {
+            current = (current + 1) % bound;
+            return current;
+        }
+
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
+import org.n52.sos.decode.kvp.v2.GetObservationKvpDecoderv20;
+import org.n52.svalbard.decode.exception.DecodingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the decoding of GetObservation KVP requests carrying temporal and
+ * spatial filters through the {@code AbstractSosKvpDecoder} parameter
+ * dispatch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KvpDecodingBenchmark {
+
+    private static final int REQUESTS = 256;
+
+    private GetObservationKvpDecoderv20 decoder;
+
+    private List<Map<String, String>> requests;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        decoder = new GetObservationKvpDecoderv20();
+        requests = new SyntheticData().getObservationKvpRequests(REQUESTS);
+    }
+
+    @Benchmark
+    public GetObservationRequest decodeGetObservation() throws DecodingException {
+        Map<String, String> request = requests.get(next);
+        next = (next + 1) % REQUESTS;
+        return decoder.decode(request);
+    }
+
+}
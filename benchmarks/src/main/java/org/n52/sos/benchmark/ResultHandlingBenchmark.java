@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.n52.series.db.beans.DataEntity;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.SosResultEncoding;
+import org.n52.shetland.ogc.sos.SosResultStructure;
+import org.n52.sos.ds.hibernate.util.ResultHandlingHelper;
+import org.n52.sos.ds.hibernate.util.observation.ObservationUnfolder;
+import org.n52.sos.util.GeometryHandler;
+import org.n52.svalbard.util.SweHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the two result handling hot paths of the transactional and the
+ * result handling profile: unfolding a SWE array observation into single
+ * observations and serializing stored observations into a text encoded result
+ * string.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResultHandlingBenchmark {
+
+    @Param({ "100", "10000" })
+    private int rows;
+
+    private SweHelper sweHelper;
+
+    private GeometryHandler geometryHandler;
+
+    private OmObservation arrayObservation;
+
+    private Collection<DataEntity<?>> observations;
+
+    private SosResultEncoding resultEncoding;
+
+    private SosResultStructure resultStructure;
+
+    private ResultHandlingHelper resultHandlingHelper;
+
+    @Setup
+    public void setUp() {
+        sweHelper = new SweHelper();
+        geometryHandler = Benchmarks.createGeometryHandler();
+        SyntheticData data = new SyntheticData();
+        arrayObservation = data.sweArrayObservation(rows);
+        observations = data.quantityObservations(rows);
+        resultEncoding = data.resultEncoding();
+        resultStructure = data.resultStructure();
+        resultHandlingHelper = new ResultHandlingHelper(geometryHandler, sweHelper);
+    }
+
+    @Benchmark
+    public List<OmObservation> unfoldObservation() throws OwsExceptionReport {
+        return new ObservationUnfolder(arrayObservation, sweHelper, geometryHandler).unfold();
+    }
+
+    @Benchmark
+    public String createResultValues() throws OwsExceptionReport {
+        return resultHandlingHelper.createResultValuesFromObservations(observations, resultEncoding,
+                resultStructure, "");
+    }
+
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.FeatureEntity;
+import org.n52.series.db.beans.OfferingEntity;
+import org.n52.series.db.beans.PhenomenonEntity;
+import org.n52.series.db.beans.ProcedureEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.shetland.ogc.gml.AbstractFeature;
+import org.n52.shetland.ogc.gml.CodeWithAuthority;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.MultiObservationValues;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.features.FeatureCollection;
+import org.n52.shetland.ogc.om.features.samplingFeatures.SamplingFeature;
+import org.n52.shetland.ogc.om.values.SweDataArrayValue;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.SosProcedureDescriptionUnknownType;
+import org.n52.shetland.ogc.sos.SosResultEncoding;
+import org.n52.shetland.ogc.sos.SosResultStructure;
+import org.n52.shetland.ogc.swe.SweDataArray;
+import org.n52.shetland.ogc.swe.SweDataRecord;
+import org.n52.shetland.ogc.swe.SweField;
+import org.n52.shetland.ogc.swe.encoding.SweTextEncoding;
+import org.n52.shetland.ogc.swe.simpleType.SweCount;
+import org.n52.shetland.ogc.swe.simpleType.SweQuantity;
+import org.n52.shetland.ogc.swe.simpleType.SweTime;
+
+/**
+ * Deterministic generator for the synthetic sensor network used by the
+ * benchmarks. All values are derived from a fixed seed so that two runs of the
+ * same benchmark operate on identical input, which is a precondition for
+ * comparing results against a stored baseline.
+ */
+public final class SyntheticData {
+
+    public static final DateTime START = new DateTime(2020, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    public static final String PROCEDURE = "http://www.52north.org/benchmark/procedure/";
+
+    public static final String OFFERING = "http://www.52north.org/benchmark/offering/";
+
+    public static final String OBSERVABLE_PROPERTY = "http://www.52north.org/benchmark/observableProperty/";
+
+    public static final String FEATURE = "http://www.52north.org/benchmark/feature/";
+
+    public static final String UNIT = "degC";
+
+    public static final String TOKEN_SEPARATOR = ",";
+
+    public static final String BLOCK_SEPARATOR = "@@";
+
+    public static final int EPSG_4326 = 4326;
+
+    private static final long SEED = 52L;
+
+    private final Random random = new Random(SEED);
+
+    private final GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(), EPSG_4326);
+
+    public static String procedure(int i) {
+        return PROCEDURE + i;
+    }
+
+    public static String offering(int i) {
+        return OFFERING + i;
+    }
+
+    public static String observableProperty(int i) {
+        return OBSERVABLE_PROPERTY + i;
+    }
+
+    public static String feature(int i) {
+        return FEATURE + i;
+    }
+
+    /**
+     * Create GetObservation KVP parameter maps with varying identifiers,
+     * temporal and spatial filters.
+     *
+     * @param count
+     *            the number of requests
+     * @return the parameter maps
+     */
+    public List<Map<String, String>> getObservationKvpRequests(int count) {
+        List<Map<String, String>> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, String> map = new HashMap<>();
+            map.put("service", "SOS");
+            map.put("version", "2.0.0");
+            map.put("request", "GetObservation");
+            map.put("procedure", procedure(i % 10) + "," + procedure(i % 10 + 1));
+            map.put("offering", offering(i % 10));
+            map.put("observedProperty", observableProperty(i % 5));
+            map.put("featureOfInterest", feature(i) + "," + feature(i + 1) + "," + feature(i + 2));
+            DateTime begin = START.plusHours(random.nextInt(24 * 365));
+            map.put("temporalFilter", "om:phenomenonTime," + begin + "/" + begin.plusDays(1 + random.nextInt(7)));
+            double lat = random.nextInt(80);
+            double lon = random.nextInt(170);
+            map.put("spatialFilter", "om:featureOfInterest/*/sams:shape," + lat + "," + lon + "," + (lat + 5) + ","
+                    + (lon + 5) + ",http://www.opengis.net/def/crs/EPSG/0/4326");
+            map.put("namespaces", "xmlns(om,http://www.opengis.net/om/2.0),"
+                    + "xmlns(sams,http://www.opengis.net/samplingSpatial/2.0)");
+            requests.add(map);
+        }
+        return requests;
+    }
+
+    /**
+     * Create a SWE array observation with a time and a quantity column.
+     *
+     * @param rows
+     *            the number of data array rows
+     * @return the observation
+     */
+    public OmObservation sweArrayObservation(int rows) {
+        SweDataRecord record = dataRecord();
+        SweDataArray array = new SweDataArray();
+        array.setElementType(record);
+        array.setEncoding(textEncoding());
+        array.setElementCount(new SweCount().setValue(rows));
+        for (int i = 0; i < rows; i++) {
+            List<String> block = new ArrayList<>(2);
+            block.add(START.plusMinutes(i).toString());
+            block.add(Double.toString(value()));
+            array.add(block);
+        }
+        SweDataArrayValue value = new SweDataArrayValue();
+        value.setValue(array);
+        MultiObservationValues<SweDataArray> observationValue = new MultiObservationValues<>();
+        observationValue.setValue(value);
+
+        OmObservationConstellation constellation = new OmObservationConstellation();
+        constellation.setProcedure(new SosProcedureDescriptionUnknownType(procedure(0)));
+        OmObservableProperty observableProperty = new OmObservableProperty(observableProperty(0));
+        observableProperty.setUnit(UNIT);
+        constellation.setObservableProperty(observableProperty);
+        constellation.setFeatureOfInterest(new SamplingFeature(new CodeWithAuthority(feature(0))));
+        constellation.setOfferings(Collections.singleton(offering(0)));
+        constellation.setObservationType(OmConstants.OBS_TYPE_SWE_ARRAY_OBSERVATION);
+
+        OmObservation observation = new OmObservation();
+        observation.setObservationConstellation(constellation);
+        observation.setResultTime(new TimeInstant(START));
+        observation.setValue(observationValue);
+        return observation;
+    }
+
+    /**
+     * Create detached quantity observations of a single dataset, as they would
+     * be loaded by a GetResult request.
+     *
+     * @param count
+     *            the number of observations
+     * @return the observations
+     */
+    public List<DataEntity<?>> quantityObservations(int count) {
+        DatasetEntity dataset = dataset(0);
+        List<DataEntity<?>> observations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            QuantityDataEntity observation = new QuantityDataEntity();
+            observation.setId((long) i);
+            observation.setDataset(dataset);
+            observation.setSamplingTimeStart(START.plusMinutes(i).toDate());
+            observation.setSamplingTimeEnd(observation.getSamplingTimeStart());
+            observation.setResultTime(observation.getSamplingTimeStart());
+            observation.setValue(BigDecimal.valueOf(value()));
+            observation.setDeleted(false);
+            observations.add(observation);
+        }
+        return observations;
+    }
+
+    /**
+     * Create an unsaved dataset with all its related entities.
+     *
+     * @param i
+     *            the index used for the identifiers
+     * @return the dataset
+     */
+    public DatasetEntity dataset(int i) {
+        ProcedureEntity procedure = new ProcedureEntity();
+        procedure.setIdentifier(procedure(i));
+        OfferingEntity offering = new OfferingEntity();
+        offering.setIdentifier(offering(i));
+        PhenomenonEntity phenomenon = new PhenomenonEntity();
+        phenomenon.setIdentifier(observableProperty(i));
+        FeatureEntity feature = new FeatureEntity();
+        feature.setIdentifier(feature(i));
+        DatasetEntity dataset = new DatasetEntity();
+        dataset.setProcedure(procedure);
+        dataset.setOffering(offering);
+        dataset.setObservableProperty(phenomenon);
+        dataset.setFeature(feature);
+        dataset.setDeleted(false);
+        dataset.setPublished(true);
+        return dataset;
+    }
+
+    public SosResultStructure resultStructure() {
+        return new SosResultStructure(dataRecord(), null);
+    }
+
+    public SosResultEncoding resultEncoding() {
+        return new SosResultEncoding(textEncoding(), null);
+    }
+
+    /**
+     * Create sampling features with point geometries spread over the globe.
+     *
+     * @param count
+     *            the number of features
+     * @return the feature collection
+     * @throws OwsExceptionReport
+     *             if a geometry can not be set
+     */
+    public FeatureCollection features(int count) throws OwsExceptionReport {
+        Map<String, AbstractFeature> features = new LinkedHashMap<>(count);
+        for (int i = 0; i < count; i++) {
+            SamplingFeature feature = new SamplingFeature(new CodeWithAuthority(feature(i)));
+            feature.setGeometry(geometryFactory.createPoint(
+                    new Coordinate(random.nextDouble() * 160 - 80, random.nextDouble() * 340 - 170)));
+            features.put(feature(i), feature);
+        }
+        return new FeatureCollection(features);
+    }
+
+    public double value() {
+        return Math.round(random.nextGaussian() * 1000) / 100.0;
+    }
+
+    private SweDataRecord dataRecord() {
+        SweDataRecord record = new SweDataRecord();
+        SweTime time = new SweTime();
+        time.setUom(OmConstants.PHEN_UOM_ISO8601);
+        time.setDefinition(OmConstants.PHENOMENON_TIME);
+        record.addField(new SweField("phenomenonTime", time));
+        SweQuantity quantity = new SweQuantity();
+        quantity.setDefinition(observableProperty(0));
+        quantity.setUom(UNIT);
+        record.addField(new SweField("value", quantity));
+        return record;
+    }
+
+    private SweTextEncoding textEncoding() {
+        SweTextEncoding encoding = new SweTextEncoding();
+        encoding.setTokenSeparator(TOKEN_SEPARATOR);
+        encoding.setBlockSeparator(BLOCK_SEPARATOR);
+        encoding.setDecimalSeparator(".");
+        return encoding;
+    }
+}
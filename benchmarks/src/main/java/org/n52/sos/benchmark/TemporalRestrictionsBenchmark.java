@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.Criteria;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.Projections;
+import org.joda.time.DateTime;
+import org.n52.series.db.beans.CategoryEntity;
+import org.n52.series.db.beans.CodespaceEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.FeatureEntity;
+import org.n52.series.db.beans.FormatEntity;
+import org.n52.series.db.beans.OfferingEntity;
+import org.n52.series.db.beans.PhenomenonEntity;
+import org.n52.series.db.beans.PlatformEntity;
+import org.n52.series.db.beans.ProcedureEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.shetland.ogc.filter.FilterConstants.TimeOperator;
+import org.n52.shetland.ogc.filter.TemporalFilter;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.ds.hibernate.H2Configuration;
+import org.n52.sos.ds.hibernate.util.SosTemporalRestrictions;
+import org.n52.sos.ds.hibernate.util.TemporalRestrictions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the creation of temporal filter criteria and their execution
+ * against an in-memory H2 database populated with a synthetic observation
+ * series.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemporalRestrictionsBenchmark {
+
+    private static final int FILTERS = 64;
+
+    @Param({ "10000" })
+    private int observations;
+
+    private final List<TemporalFilter> filters = new ArrayList<>(FILTERS);
+
+    private Session session;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws OwsExceptionReport {
+        H2Configuration.assertInitialized();
+        H2Configuration.recreate();
+        session = H2Configuration.getSession();
+        populate();
+        TimeOperator[] operators =
+                { TimeOperator.TM_During, TimeOperator.TM_After, TimeOperator.TM_Before, TimeOperator.TM_Equals };
+        for (int i = 0; i < FILTERS; i++) {
+            DateTime begin = SyntheticData.START.plusMinutes(i * observations / FILTERS);
+            TimeOperator operator = operators[i % operators.length];
+            filters.add(new TemporalFilter(operator,
+                    operator == TimeOperator.TM_During ? new TimePeriod(begin, begin.plusHours(12))
+                            : new TimeInstant(begin),
+                    TemporalRestrictions.PHENOMENON_TIME_VALUE_REFERENCE));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        H2Configuration.returnSession(session);
+        H2Configuration.truncate();
+    }
+
+    @Benchmark
+    public Criterion createCriterion() throws OwsExceptionReport {
+        return SosTemporalRestrictions.filter(nextFilter());
+    }
+
+    @Benchmark
+    public Object countMatchingObservations() throws OwsExceptionReport {
+        Criteria criteria = session.createCriteria(QuantityDataEntity.class)
+                .add(SosTemporalRestrictions.filter(nextFilter()))
+                .setProjection(Projections.rowCount());
+        return criteria.uniqueResult();
+    }
+
+    private TemporalFilter nextFilter() {
+        TemporalFilter filter = filters.get(next);
+        next = (next + 1) % FILTERS;
+        return filter;
+    }
+
+    private void populate() {
+        Transaction transaction = session.beginTransaction();
+        FormatEntity procedureFormat = new FormatEntity();
+        procedureFormat.setFormat("http://www.opengis.net/sensorml/2.0");
+        FormatEntity featureType = new FormatEntity();
+        featureType.setFormat("http://www.opengis.net/def/samplingFeatureType/OGC-OM/2.0/SF_SamplingPoint");
+        FormatEntity observationType = new FormatEntity();
+        observationType.setFormat(OmConstants.OBS_TYPE_MEASUREMENT);
+        CodespaceEntity codespace = new CodespaceEntity();
+        codespace.setName("benchmark");
+        ProcedureEntity procedure = new ProcedureEntity();
+        procedure.setIdentifier(SyntheticData.procedure(0));
+        procedure.setFormat(procedureFormat);
+        FeatureEntity feature = new FeatureEntity();
+        feature.setIdentifier(SyntheticData.feature(0));
+        feature.setFeatureType(featureType);
+        feature.setIdentifierCodespace(codespace);
+        PlatformEntity platform = new PlatformEntity();
+        platform.setIdentifier(SyntheticData.feature(0));
+        PhenomenonEntity phenomenon = new PhenomenonEntity();
+        phenomenon.setIdentifier(SyntheticData.observableProperty(0));
+        CategoryEntity category = new CategoryEntity();
+        category.setIdentifier(SyntheticData.observableProperty(0));
+        OfferingEntity offering = new OfferingEntity();
+        offering.setIdentifier(SyntheticData.offering(0));
+        DatasetEntity dataset = new DatasetEntity();
+        dataset.setProcedure(procedure);
+        dataset.setOffering(offering);
+        dataset.setObservableProperty(phenomenon);
+        dataset.setOmObservationType(observationType);
+        dataset.setFeature(feature);
+        dataset.setCategory(category);
+        dataset.setPlatform(platform);
+        dataset.setDeleted(false);
+        dataset.setHidden(false);
+        session.save(procedureFormat);
+        session.save(featureType);
+        session.save(observationType);
+        session.save(codespace);
+        session.save(procedure);
+        session.save(feature);
+        session.save(platform);
+        session.save(phenomenon);
+        session.save(category);
+        session.save(offering);
+        session.save(dataset);
+        SyntheticData data = new SyntheticData();
+        for (int i = 0; i < observations; i++) {
+            QuantityDataEntity observation = new QuantityDataEntity();
+            observation.setDataset(dataset);
+            observation.setSamplingTimeStart(SyntheticData.START.plusMinutes(i).toDate());
+            observation.setSamplingTimeEnd(observation.getSamplingTimeStart());
+            observation.setResultTime(observation.getSamplingTimeStart());
+            observation.setValue(BigDecimal.valueOf(data.value()));
+            observation.setStaIdentifier(Integer.toString(i));
+            observation.setDeleted(false);
+            session.save(observation);
+            if (i % 500 == 0) {
+                session.flush();
+                session.clear();
+            }
+        }
+        transaction.commit();
+        session.clear();
+    }
+
+}
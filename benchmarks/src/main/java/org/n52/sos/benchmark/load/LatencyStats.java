@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark.load;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the latencies of all requests per operation and reports counts,
+ * throughput and latency percentiles. All latencies are kept, which costs
+ * eight bytes per request but gives exact percentiles.
+ */
+public class LatencyStats {
+
+    private final ConcurrentMap<String, Recorder> recorders = new ConcurrentHashMap<>();
+
+    public void record(String operation, long nanos, boolean success) {
+        recorders.computeIfAbsent(operation, key -> new Recorder()).record(nanos, success);
+    }
+
+    /**
+     * @return the summaries by operation name
+     */
+    public Map<String, Summary> summarize() {
+        Map<String, Summary> summaries = new TreeMap<>();
+        recorders.forEach((operation, recorder) -> summaries.put(operation, recorder.summarize()));
+        return summaries;
+    }
+
+    /**
+     * Print one line per operation.
+     *
+     * @param out
+     *            the stream to print to
+     * @param elapsedNanos
+     *            the duration of the measurement used to calculate the
+     *            throughput
+     */
+    public void print(PrintStream out, long elapsedNanos) {
+        double seconds = Math.max(1, elapsedNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+        out.println(String.format(Locale.ROOT, "%-22s %9s %7s %10s %9s %9s %9s %9s %9s", "operation", "count",
+                "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        summarize().forEach((operation, summary) -> {
+            out.println(String.format(Locale.ROOT, "%-22s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f",
+                    operation, summary.getCount(), summary.getErrors(), summary.getCount() / seconds,
+                    toMillis(summary.getPercentile(0.5)), toMillis(summary.getPercentile(0.9)),
+                    toMillis(summary.getPercentile(0.99)), toMillis(summary.getPercentile(0.999)),
+                    toMillis(summary.getMax())));
+        });
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static final class Recorder {
+
+        private long[] latencies = new long[1024];
+
+        private int count;
+
+        private long errors;
+
+        synchronized void record(long nanos, boolean success) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, latencies.length * 2);
+            }
+            latencies[count++] = nanos;
+            if (!success) {
+                errors++;
+            }
+        }
+
+        synchronized Summary summarize() {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return new Summary(sorted, errors);
+        }
+
+    }
+
+    /**
+     * The latencies of one operation.
+     */
+    public static final class Summary {
+
+        private final long[] sorted;
+
+        private final long errors;
+
+        Summary(long[] sorted, long errors) {
+            this.sorted = sorted;
+            this.errors = errors;
+        }
+
+        public long getCount() {
+            return sorted.length;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getMax() {
+            return sorted.length == 0 ? 0 : sorted[sorted.length - 1];
+        }
+
+        /**
+         * @param quantile
+         *            the quantile in {@code [0, 1]}
+         * @return the latency in nanoseconds below or equal to which the given
+         *         fraction of the requests completed (nearest rank)
+         */
+        public long getPercentile(double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(quantile * sorted.length);
+            return sorted[Math.min(sorted.length - 1, Math.max(0, rank - 1))];
+        }
+
+    }
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark.load;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.n52.sos.benchmark.load.Workload.Operation;
+
+/**
+ * End-to-end load driver for a running SOS.
+ * <p>
+ * The driver first loads a {@link SyntheticNetwork} through the
+ * transactional operations (InsertSensor for all procedures in hierarchy
+ * order, then InsertObservation in parallel batches) and then replays a
+ * weighted mix of read and write operations with a number of concurrent
+ * clients. For both phases it prints the throughput and the latency
+ * percentiles per operation.
+ * <p>
+ * Options are given as {@code key=value}:
+ * <ul>
+ * <li>{@code url}: the SOS service endpoint, default
+ * {@code http://localhost:8080/52n-sos-webapp/service}</li>
+ * <li>network shape, see {@link NetworkSpec}: {@code procedures},
+ * {@code features}, {@code observations}, {@code properties},
+ * {@code children}, {@code levels}, {@code interval}, {@code seed}</li>
+ * <li>{@code populate}: load the network first, default {@code true}</li>
+ * <li>{@code batch}: observations per level and InsertObservation request
+ * while loading, default {@code 100}</li>
+ * <li>{@code mix}: the operation weights, default
+ * {@value Workload#DEFAULT_MIX}</li>
+ * <li>{@code threads}: concurrent clients, default {@code 4}</li>
+ * <li>{@code warmup} and {@code duration}: seconds, default {@code 10} and
+ * {@code 60}</li>
+ * <li>{@code window}: observations per series covered by a GetObservation,
+ * default {@code 144}</li>
+ * <li>{@code writeBatch}: observations per level and InsertObservation
+ * request during the replay, default {@code 1}</li>
+ * </ul>
+ * The transactional operations have to be enabled in the SOS.
+ */
+public final class LoadTest {
+
+    private static final String DEFAULT_URL = "http://localhost:8080/52n-sos-webapp/service";
+
+    private static final String INSERT_SENSOR = "InsertSensor";
+
+    private final SosClient client;
+
+    private final SyntheticNetwork network;
+
+    private final Map<String, String> options;
+
+    private final int threads;
+
+    private LoadTest(Map<String, String> options) {
+        this.options = options;
+        this.client = new SosClient(options.getOrDefault("url", DEFAULT_URL));
+        this.network = new SyntheticNetwork(NetworkSpec.of(options));
+        this.threads = NetworkSpec.getInt(options, "threads", 4);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            options.put(arg.substring(0, separator).replaceFirst("^--", ""), arg.substring(separator + 1));
+        }
+        new LoadTest(options).run(System.out);
+    }
+
+    private void run(PrintStream out) throws Exception {
+        out.println("Network: " + network.getSpec());
+        if (Boolean.parseBoolean(options.getOrDefault("populate", "true"))) {
+            populate(out);
+        }
+        replay(out);
+    }
+
+    private void populate(PrintStream out) throws Exception {
+        LatencyStats stats = new LatencyStats();
+        int batch = NetworkSpec.getInt(options, "batch", 100);
+        // bounded queue, the generating thread executes requests itself if the clients are busy
+        ExecutorService executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 2), new ThreadPoolExecutor.CallerRunsPolicy());
+        long start = System.nanoTime();
+        try {
+            network.forEachPopulationRequest(batch, request -> {
+                if (request.startsWith("<swes:InsertSensor")) {
+                    // sensors are inserted sequentially, parents before children
+                    execute(stats, INSERT_SENSOR, request, true);
+                } else {
+                    executor.execute(() -> execute(stats, Operation.InsertObservation.name(), request, true));
+                }
+            });
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+        long elapsed = System.nanoTime() - start;
+        long observations = network.getSpec().getSeries() * network.getSpec().getObservationsPerSeries();
+        out.println();
+        out.println(String.format("Loaded %d observations in %.1f s (%.0f observations/s)", observations,
+                elapsed / 1e9, observations / (elapsed / 1e9)));
+        stats.print(out, elapsed);
+    }
+
+    private void replay(PrintStream out) throws Exception {
+        Workload workload = new Workload(network, options.getOrDefault("mix", Workload.DEFAULT_MIX),
+                NetworkSpec.getInt(options, "window", 144), NetworkSpec.getInt(options, "writeBatch", 1));
+        long warmup = TimeUnit.SECONDS.toNanos(NetworkSpec.getInt(options, "warmup", 10));
+        long duration = TimeUnit.SECONDS.toNanos(NetworkSpec.getInt(options, "duration", 60));
+        LatencyStats stats = new LatencyStats();
+        long start = System.nanoTime();
+        long measurementStart = start + warmup;
+        long end = measurementStart + duration;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                Random random = new Random(network.getSpec().getSeed() + i);
+                futures.add(executor.submit(() -> {
+                    long now;
+                    while ((now = System.nanoTime()) < end) {
+                        Operation operation = workload.next(random);
+                        String request = workload.createRequest(operation, random);
+                        execute(now < measurementStart ? null : stats, operation.name(), request,
+                                operation.isWrite());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        out.println();
+        out.println(String.format("Replayed %s with %d clients for %d s", workload.getWeights(), threads,
+                TimeUnit.NANOSECONDS.toSeconds(duration)));
+        stats.print(out, duration);
+    }
+
+    private void execute(LatencyStats stats, String operation, String request, boolean post) {
+        long start = System.nanoTime();
+        boolean success;
+        try {
+            success = post ? client.post(request) : client.get(request);
+        } catch (IOException e) {
+            success = false;
+        }
+        if (stats != null) {
+            stats.record(operation, System.nanoTime() - start, success);
+        }
+    }
+
+}
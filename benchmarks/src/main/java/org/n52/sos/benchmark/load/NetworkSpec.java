@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark.load;
+
+import java.util.Map;
+
+/**
+ * The shape of a synthetic sensor network: how many procedures, features and
+ * observations are generated and how they are related.
+ */
+public class NetworkSpec {
+
+    public static final String PROCEDURES = "procedures";
+
+    public static final String FEATURES = "features";
+
+    public static final String OBSERVATIONS = "observations";
+
+    public static final String PROPERTIES = "properties";
+
+    public static final String CHILDREN = "children";
+
+    public static final String LEVELS = "levels";
+
+    public static final String INTERVAL = "interval";
+
+    public static final String SEED = "seed";
+
+    private final int procedures;
+
+    private final int featuresPerProcedure;
+
+    private final int observationsPerSeries;
+
+    private final int observableProperties;
+
+    private final int childrenPerProcedure;
+
+    private final int profileLevels;
+
+    private final int intervalMinutes;
+
+    private final long seed;
+
+    /**
+     * @param procedures
+     *            the number of procedures, each with its own offering
+     * @param featuresPerProcedure
+     *            the number of features observed by each procedure
+     * @param observationsPerSeries
+     *            the number of observations per procedure, feature and level
+     * @param observableProperties
+     *            the number of distinct observable properties shared by the
+     *            procedures
+     * @param childrenPerProcedure
+     *            the fan out of the procedure hierarchy, {@code 0} for a flat
+     *            network
+     * @param profileLevels
+     *            the number of depth levels per feature, {@code 0} for plain
+     *            time series
+     * @param intervalMinutes
+     *            the sampling interval
+     * @param seed
+     *            the random seed for coordinates and values
+     */
+    public NetworkSpec(int procedures, int featuresPerProcedure, int observationsPerSeries, int observableProperties,
+            int childrenPerProcedure, int profileLevels, int intervalMinutes, long seed) {
+        this.procedures = requirePositive(PROCEDURES, procedures);
+        this.featuresPerProcedure = requirePositive(FEATURES, featuresPerProcedure);
+        this.observationsPerSeries = requireNotNegative(OBSERVATIONS, observationsPerSeries);
+        this.observableProperties = requirePositive(PROPERTIES, observableProperties);
+        this.childrenPerProcedure = requireNotNegative(CHILDREN, childrenPerProcedure);
+        this.profileLevels = requireNotNegative(LEVELS, profileLevels);
+        this.intervalMinutes = requirePositive(INTERVAL, intervalMinutes);
+        this.seed = seed;
+    }
+
+    /**
+     * Create a specification from command line options, using defaults for
+     * missing options.
+     *
+     * @param options
+     *            the options
+     * @return the specification
+     */
+    public static NetworkSpec of(Map<String, String> options) {
+        return new NetworkSpec(getInt(options, PROCEDURES, 10), getInt(options, FEATURES, 2),
+                getInt(options, OBSERVATIONS, 1000), getInt(options, PROPERTIES, 5), getInt(options, CHILDREN, 0),
+                getInt(options, LEVELS, 0), getInt(options, INTERVAL, 10),
+                Long.parseLong(options.getOrDefault(SEED, "52")));
+    }
+
+    static int getInt(Map<String, String> options, String key, int defaultValue) {
+        String value = options.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static int requirePositive(String name, int value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(String.format("'%s' has to be positive: %d", name, value));
+        }
+        return value;
+    }
+
+    private static int requireNotNegative(String name, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException(String.format("'%s' must not be negative: %d", name, value));
+        }
+        return value;
+    }
+
+    public int getProcedures() {
+        return procedures;
+    }
+
+    public int getFeaturesPerProcedure() {
+        return featuresPerProcedure;
+    }
+
+    public int getObservationsPerSeries() {
+        return observationsPerSeries;
+    }
+
+    public int getObservableProperties() {
+        return observableProperties;
+    }
+
+    public int getChildrenPerProcedure() {
+        return childrenPerProcedure;
+    }
+
+    public int getProfileLevels() {
+        return profileLevels;
+    }
+
+    public int getIntervalMinutes() {
+        return intervalMinutes;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return the number of series, i.e. procedure, feature and level
+     *         combinations
+     */
+    public long getSeries() {
+        return (long) procedures * featuresPerProcedure * Math.max(1, profileLevels);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d procedures (fan out %d), %d features each, %d levels, %d observable properties, "
+                + "%d observations per series", procedures, childrenPerProcedure, featuresPerProcedure,
+                profileLevels, observableProperties, observationsPerSeries);
+    }
+
+}
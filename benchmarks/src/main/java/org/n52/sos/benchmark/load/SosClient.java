@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark.load;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal HTTP client for the KVP and POX bindings of a SOS. A request
+ * succeeds if the service answers with a 2xx status and the response does not
+ * start with an OWS exception report. The response body is always consumed
+ * completely so that the measured latency includes the response encoding.
+ */
+public class SosClient {
+
+    private static final int TIMEOUT = 60_000;
+
+    private static final int INSPECTED_BYTES = 2048;
+
+    private static final String EXCEPTION_REPORT = "ExceptionReport";
+
+    private final String endpoint;
+
+    public SosClient(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public boolean get(String query) throws IOException {
+        HttpURLConnection connection = open(endpoint + (endpoint.contains("?") ? "&" : "?") + query);
+        connection.setRequestMethod("GET");
+        return read(connection);
+    }
+
+    public boolean post(String document) throws IOException {
+        HttpURLConnection connection = open(endpoint);
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/xml; charset=UTF-8");
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(document.getBytes(StandardCharsets.UTF_8));
+        }
+        return read(connection);
+    }
+
+    private HttpURLConnection open(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(TIMEOUT);
+        connection.setReadTimeout(TIMEOUT);
+        connection.setRequestProperty("Accept", "application/xml");
+        return connection;
+    }
+
+    private boolean read(HttpURLConnection connection) throws IOException {
+        int status = connection.getResponseCode();
+        InputStream in = status < HttpURLConnection.HTTP_BAD_REQUEST ? connection.getInputStream()
+                : connection.getErrorStream();
+        if (in == null) {
+            return false;
+        }
+        byte[] head = new byte[INSPECTED_BYTES];
+        int length = 0;
+        try (InputStream body = in) {
+            int read;
+            while (length < head.length && (read = body.read(head, length, head.length - length)) > 0) {
+                length += read;
+            }
+            byte[] buffer = new byte[8192];
+            while (body.read(buffer) >= 0) {
+                // drain the response
+            }
+        }
+        return status / 100 == 2 && !new String(head, 0, length, StandardCharsets.UTF_8).contains(EXCEPTION_REPORT);
+    }
+
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark.load;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+/**
+ * Generates the identifiers, coordinates, values and SOS 2.0 requests of a
+ * synthetic sensor network described by a {@link NetworkSpec}. Everything is
+ * derived from the specification's seed and the element indexes, so the
+ * network can be regenerated by the load driver without keeping state and two
+ * generators with the same specification create identical requests.
+ */
+public class SyntheticNetwork {
+
+    public static final DateTime START = new DateTime(2020, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    public static final String PREFIX = "http://www.52north.org/load/";
+
+    private static final String UNIT = "degC";
+
+    private static final String OBSERVATION_TYPE =
+            "http://www.opengis.net/def/observationType/OGC-OM/2.0/OM_Measurement";
+
+    private static final String FEATURE_TYPE =
+            "http://www.opengis.net/def/samplingFeatureType/OGC-OM/2.0/SF_SamplingPoint";
+
+    private static final String EPSG_4326 = "http://www.opengis.net/def/crs/EPSG/0/4326";
+
+    private static final String NAMESPACES = " xmlns:sos=\"http://www.opengis.net/sos/2.0\""
+            + " xmlns:swes=\"http://www.opengis.net/swes/2.0\" xmlns:swe=\"http://www.opengis.net/swe/2.0\""
+            + " xmlns:sml=\"http://www.opengis.net/sensorml/2.0\" xmlns:om=\"http://www.opengis.net/om/2.0\""
+            + " xmlns:sams=\"http://www.opengis.net/samplingSpatial/2.0\""
+            + " xmlns:sf=\"http://www.opengis.net/sampling/2.0\" xmlns:gml=\"http://www.opengis.net/gml/3.2\""
+            + " xmlns:xlink=\"http://www.w3.org/1999/xlink\""
+            + " xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"";
+
+    private static final String KVP_PREFIX = "service=SOS&version=2.0.0&request=";
+
+    private final NetworkSpec spec;
+
+    public SyntheticNetwork(NetworkSpec spec) {
+        this.spec = spec;
+    }
+
+    public NetworkSpec getSpec() {
+        return spec;
+    }
+
+    public String procedure(int p) {
+        return PREFIX + "procedure/" + p;
+    }
+
+    public String offering(int p) {
+        return PREFIX + "offering/" + p;
+    }
+
+    public String feature(int p, int f) {
+        return PREFIX + "feature/" + p + "/" + f;
+    }
+
+    public String observableProperty(int p) {
+        return PREFIX + "observableProperty/" + (p % spec.getObservableProperties());
+    }
+
+    /**
+     * @param p
+     *            the procedure index
+     * @return the index of the parent procedure or {@code -1} if the
+     *         procedure is a root
+     */
+    public int parent(int p) {
+        if (spec.getChildrenPerProcedure() == 0 || p == 0) {
+            return -1;
+        }
+        return (p - 1) / spec.getChildrenPerProcedure();
+    }
+
+    public DateTime time(long k) {
+        return START.plusMinutes((int) (k * spec.getIntervalMinutes()));
+    }
+
+    /**
+     * @return the time after the last generated observation of each series
+     */
+    public DateTime end() {
+        return time(spec.getObservationsPerSeries());
+    }
+
+    public double depth(int level) {
+        return level * 5.0;
+    }
+
+    double[] coordinates(int p, int f) {
+        Random random = new Random(spec.getSeed() * 31 + p * 1_000_003L + f);
+        return new double[] { random.nextDouble() * 160 - 80, random.nextDouble() * 340 - 170 };
+    }
+
+    double value(int p, int f, int level, long k) {
+        Random random = new Random(spec.getSeed() ^ (p * 7_919L + f * 104_729L + level * 1_299_709L + k));
+        double value = 10 + 8 * Math.sin(k / 144.0) - level * 0.5 + random.nextGaussian();
+        return Math.round(value * 100) / 100.0;
+    }
+
+    /**
+     * Create the InsertSensor request for a procedure. Child procedures
+     * reference their parent with {@code sml:attachedTo}, so parents have to
+     * be inserted first.
+     *
+     * @param p
+     *            the procedure index
+     * @return the POX request
+     */
+    public String insertSensor(int p) {
+        double[] position = coordinates(p, 0);
+        StringBuilder xml = new StringBuilder(4096);
+        xml.append("<swes:InsertSensor service=\"SOS\" version=\"2.0.0\"").append(NAMESPACES).append('>');
+        xml.append("<swes:procedureDescriptionFormat>http://www.opengis.net/sensorml/2.0"
+                + "</swes:procedureDescriptionFormat>");
+        xml.append("<swes:procedureDescription>");
+        xml.append("<sml:PhysicalSystem gml:id=\"procedure").append(p).append("\">");
+        xml.append("<gml:identifier codeSpace=\"uniqueID\">").append(procedure(p)).append("</gml:identifier>");
+        xml.append("<sml:capabilities name=\"offerings\"><sml:CapabilityList><sml:capability name=\"offeringID\">");
+        xml.append("<swe:Text definition=\"urn:ogc:def:identifier:OGC:offeringID\"><swe:value>")
+                .append(offering(p)).append("</swe:value></swe:Text>");
+        xml.append("</sml:capability></sml:CapabilityList></sml:capabilities>");
+        xml.append("<sml:outputs><sml:OutputList><sml:output name=\"value\">");
+        xml.append("<swe:Quantity definition=\"").append(observableProperty(p)).append("\"><swe:uom code=\"")
+                .append(UNIT).append("\"/></swe:Quantity>");
+        xml.append("</sml:output></sml:OutputList></sml:outputs>");
+        int parent = parent(p);
+        if (parent >= 0) {
+            xml.append("<sml:attachedTo xlink:href=\"").append(procedure(parent)).append("\"/>");
+        }
+        xml.append("<sml:position><swe:Vector referenceFrame=\"").append(EPSG_4326).append("\">");
+        appendCoordinate(xml, "latitude", "y", "deg", position[0]);
+        appendCoordinate(xml, "longitude", "x", "deg", position[1]);
+        xml.append("</swe:Vector></sml:position>");
+        xml.append("</sml:PhysicalSystem></swes:procedureDescription>");
+        xml.append("<swes:observableProperty>").append(observableProperty(p)).append("</swes:observableProperty>");
+        xml.append("<swes:metadata><sos:SosInsertionMetadata>");
+        xml.append("<sos:observationType>").append(OBSERVATION_TYPE).append("</sos:observationType>");
+        xml.append("<sos:featureOfInterestType>").append(FEATURE_TYPE).append("</sos:featureOfInterestType>");
+        xml.append("</sos:SosInsertionMetadata></swes:metadata>");
+        xml.append("</swes:InsertSensor>");
+        return xml.toString();
+    }
+
+    /**
+     * Create an InsertObservation request with the observations
+     * {@code [first, first + count)} of all levels of a feature.
+     *
+     * @param p
+     *            the procedure index
+     * @param f
+     *            the feature index
+     * @param first
+     *            the index of the first observation
+     * @param count
+     *            the number of observations per level
+     * @return the POX request
+     */
+    public String insertObservation(int p, int f, long first, int count) {
+        int levels = Math.max(1, spec.getProfileLevels());
+        StringBuilder xml = new StringBuilder(1024 + count * levels * 1200);
+        xml.append("<sos:InsertObservation service=\"SOS\" version=\"2.0.0\"").append(NAMESPACES).append('>');
+        xml.append("<sos:offering>").append(offering(p)).append("</sos:offering>");
+        for (long k = first; k < first + count; k++) {
+            for (int level = 0; level < levels; level++) {
+                appendObservation(xml, p, f, level, k);
+            }
+        }
+        xml.append("</sos:InsertObservation>");
+        return xml.toString();
+    }
+
+    /**
+     * Create all requests to load the network: the InsertSensor requests in
+     * hierarchy order followed by the InsertObservation requests.
+     *
+     * @param batchSize
+     *            the maximum number of observations per level in one
+     *            InsertObservation request
+     * @param consumer
+     *            the consumer of the requests
+     */
+    public void forEachPopulationRequest(int batchSize, Consumer<String> consumer) {
+        for (int p = 0; p < spec.getProcedures(); p++) {
+            consumer.accept(insertSensor(p));
+        }
+        for (int p = 0; p < spec.getProcedures(); p++) {
+            for (int f = 0; f < spec.getFeaturesPerProcedure(); f++) {
+                for (long k = 0; k < spec.getObservationsPerSeries(); k += batchSize) {
+                    int count = (int) Math.min(batchSize, spec.getObservationsPerSeries() - k);
+                    consumer.accept(insertObservation(p, f, k, count));
+                }
+            }
+        }
+    }
+
+    public String getCapabilities() {
+        return KVP_PREFIX + "GetCapabilities&AcceptVersions=2.0.0&sections=Contents";
+    }
+
+    public String describeSensor(int p) {
+        return KVP_PREFIX + "DescribeSensor&procedure=" + encode(procedure(p))
+                + "&procedureDescriptionFormat=" + encode("http://www.opengis.net/sensorml/2.0");
+    }
+
+    public String getFeatureOfInterest(int p) {
+        return KVP_PREFIX + "GetFeatureOfInterest&procedure=" + encode(procedure(p));
+    }
+
+    public String getDataAvailability(int p) {
+        return KVP_PREFIX + "GetDataAvailability&procedure=" + encode(procedure(p));
+    }
+
+    /**
+     * Create a GetObservation request for a procedure and the time range of
+     * the observations {@code [first, last]}.
+     *
+     * @param p
+     *            the procedure index
+     * @param first
+     *            the index of the first observation
+     * @param last
+     *            the index of the last observation
+     * @return the KVP query
+     */
+    public String getObservation(int p, long first, long last) {
+        return KVP_PREFIX + "GetObservation&procedure=" + encode(procedure(p)) + "&offering="
+                + encode(offering(p)) + "&temporalFilter=" + encode("om:phenomenonTime," + time(first) + "/"
+                        + time(last));
+    }
+
+    private void appendObservation(StringBuilder xml, int p, int f, int level, long k) {
+        String id = p + "_" + f + "_" + level + "_" + k;
+        double[] coordinates = coordinates(p, f);
+        xml.append("<sos:observation><om:OM_Observation gml:id=\"o").append(id).append("\">");
+        xml.append("<om:type xlink:href=\"").append(OBSERVATION_TYPE).append("\"/>");
+        xml.append("<om:phenomenonTime><gml:TimeInstant gml:id=\"t").append(id).append("\"><gml:timePosition>")
+                .append(time(k)).append("</gml:timePosition></gml:TimeInstant></om:phenomenonTime>");
+        xml.append("<om:resultTime xlink:href=\"#t").append(id).append("\"/>");
+        if (spec.getProfileLevels() > 0) {
+            xml.append("<om:parameter><om:NamedValue><om:name xlink:href=\"depth\"/>");
+            xml.append("<om:value xsi:type=\"gml:MeasureType\" uom=\"m\">").append(format(depth(level)))
+                    .append("</om:value></om:NamedValue></om:parameter>");
+        }
+        xml.append("<om:procedure xlink:href=\"").append(procedure(p)).append("\"/>");
+        xml.append("<om:observedProperty xlink:href=\"").append(observableProperty(p)).append("\"/>");
+        xml.append("<om:featureOfInterest><sams:SF_SpatialSamplingFeature gml:id=\"f").append(id).append("\">");
+        xml.append("<gml:identifier codeSpace=\"\">").append(feature(p, f)).append("</gml:identifier>");
+        xml.append("<sf:type xlink:href=\"").append(FEATURE_TYPE).append("\"/>");
+        xml.append("<sf:sampledFeature xlink:href=\"http://www.opengis.net/def/nil/OGC/0/unknown\"/>");
+        xml.append("<sams:shape><gml:Point gml:id=\"g").append(id).append("\"><gml:pos srsName=\"")
+                .append(EPSG_4326).append("\">").append(format(coordinates[0])).append(' ')
+                .append(format(coordinates[1])).append("</gml:pos></gml:Point></sams:shape>");
+        xml.append("</sams:SF_SpatialSamplingFeature></om:featureOfInterest>");
+        xml.append("<om:result xsi:type=\"gml:MeasureType\" uom=\"").append(UNIT).append("\">")
+                .append(format(value(p, f, level, k))).append("</om:result>");
+        xml.append("</om:OM_Observation></sos:observation>");
+    }
+
+    private static void appendCoordinate(StringBuilder xml, String name, String axis, String uom, double value) {
+        xml.append("<swe:coordinate name=\"").append(name).append("\"><swe:Quantity axisID=\"").append(axis)
+                .append("\"><swe:uom code=\"").append(uom).append("\"/><swe:value>").append(format(value))
+                .append("</swe:value></swe:Quantity></swe:coordinate>");
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
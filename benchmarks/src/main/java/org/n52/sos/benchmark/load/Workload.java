@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark.load;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A weighted mix of read and write operations on a {@link SyntheticNetwork}.
+ * Reads target random procedures and time windows inside the generated data,
+ * writes append new observations after the generated time range.
+ */
+public class Workload {
+
+    public static final String DEFAULT_MIX =
+            "GetObservation:60,GetCapabilities:5,DescribeSensor:10,GetFeatureOfInterest:10,"
+                    + "GetDataAvailability:5,InsertObservation:10";
+
+    private final SyntheticNetwork network;
+
+    private final Map<Operation, Integer> weights;
+
+    private final int totalWeight;
+
+    private final int window;
+
+    private final int writeBatch;
+
+    private final AtomicLong writeSequence = new AtomicLong();
+
+    /**
+     * @param network
+     *            the network to query
+     * @param mix
+     *            the operation weights, e.g.
+     *            {@code GetObservation:60,InsertObservation:10}
+     * @param window
+     *            the number of observations per series a GetObservation
+     *            request covers
+     * @param writeBatch
+     *            the number of observations per level of one
+     *            InsertObservation request
+     */
+    public Workload(SyntheticNetwork network, String mix, int window, int writeBatch) {
+        this.network = network;
+        this.weights = parse(mix);
+        this.totalWeight = weights.values().stream().mapToInt(Integer::intValue).sum();
+        if (totalWeight <= 0) {
+            throw new IllegalArgumentException("The operation mix contains no operation: " + mix);
+        }
+        this.window = Math.max(1, window);
+        this.writeBatch = Math.max(1, writeBatch);
+    }
+
+    static Map<Operation, Integer> parse(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            if (entry.trim().isEmpty()) {
+                continue;
+            }
+            String[] kv = entry.split(":");
+            if (kv.length != 2) {
+                throw new IllegalArgumentException("Invalid operation weight, expected <operation>:<weight>: "
+                        + entry);
+            }
+            int weight = Integer.parseInt(kv[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative operation weight: " + entry);
+            }
+            weights.put(Operation.valueOf(kv[0].trim()), weight);
+        }
+        return weights;
+    }
+
+    public Map<Operation, Integer> getWeights() {
+        return weights;
+    }
+
+    /**
+     * Select the next operation according to the weights.
+     *
+     * @param random
+     *            the random of the calling thread
+     * @return the operation
+     */
+    public Operation next(Random random) {
+        int value = random.nextInt(totalWeight);
+        for (Map.Entry<Operation, Integer> entry : weights.entrySet()) {
+            value -= entry.getValue();
+            if (value < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Create the request for an operation.
+     *
+     * @param operation
+     *            the operation
+     * @param random
+     *            the random of the calling thread
+     * @return the KVP query for reads or the POX document for writes
+     */
+    public String createRequest(Operation operation, Random random) {
+        NetworkSpec spec = network.getSpec();
+        int p = random.nextInt(spec.getProcedures());
+        switch (operation) {
+            case GetCapabilities:
+                return network.getCapabilities();
+            case DescribeSensor:
+                return network.describeSensor(p);
+            case GetFeatureOfInterest:
+                return network.getFeatureOfInterest(p);
+            case GetDataAvailability:
+                return network.getDataAvailability(p);
+            case GetObservation:
+                long first = spec.getObservationsPerSeries() <= window ? 0
+                        : (long) (random.nextDouble() * (spec.getObservationsPerSeries() - window));
+                return network.getObservation(p, first, first + window - 1);
+            case InsertObservation:
+                long k = spec.getObservationsPerSeries() + writeSequence.getAndAdd(writeBatch);
+                return network.insertObservation(p, random.nextInt(spec.getFeaturesPerProcedure()), k, writeBatch);
+            default:
+                throw new IllegalArgumentException("Unsupported operation: " + operation);
+        }
+    }
+
+    /**
+     * The operations a workload can contain.
+     */
+    public enum Operation {
+        GetCapabilities(false),
+        DescribeSensor(false),
+        GetObservation(false),
+        GetFeatureOfInterest(false),
+        GetDataAvailability(false),
+        InsertObservation(true);
+
+        private final boolean write;
+
+        Operation(boolean write) {
+            this.write = write;
+        }
+
+        public boolean isWrite() {
+            return write;
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.n52.sos.benchmark.BaselineComparator.Comparison;
+import org.n52.sos.benchmark.BaselineComparator.Score;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class BaselineComparatorTest {
+
+    private static final String BENCHMARK = "org.n52.sos.benchmark.KvpDecodingBenchmark.decodeGetObservation";
+
+    private final BaselineComparator comparator = new BaselineComparator(BaselineComparator.DEFAULT_THRESHOLD);
+
+    @Test
+    public void shouldParseJmhResultsWithParams() throws IOException {
+        Map<String, Score> scores = parse(result(BENCHMARK, "avgt", 10.0, 0.5, "{\"rows\":\"100\"}"));
+        assertThat(scores, hasKey(BENCHMARK + "{rows=100}"));
+        Score score = scores.get(BENCHMARK + "{rows=100}");
+        assertThat(score.getValue(), closeTo(10.0, 0.0001));
+        assertThat(score.getError(), closeTo(0.5, 0.0001));
+        assertThat(score.getUnit(), is("us/op"));
+    }
+
+    @Test
+    public void shouldFlagSlowerAverageTimeAsRegression() throws IOException {
+        List<Comparison> comparisons = comparator.compare(parse(result(BENCHMARK, "avgt", 10.0, 0.5, null)),
+                parse(result(BENCHMARK, "avgt", 12.0, 0.5, null)));
+        assertThat(comparisons, hasSize(1));
+        assertThat(comparisons.get(0).isRegression(), is(true));
+        assertThat(comparisons.get(0).getDegradation(), closeTo(0.2, 0.0001));
+    }
+
+    @Test
+    public void shouldNotFlagFasterAverageTime() throws IOException {
+        List<Comparison> comparisons = comparator.compare(parse(result(BENCHMARK, "avgt", 10.0, 0.5, null)),
+                parse(result(BENCHMARK, "avgt", 5.0, 0.5, null)));
+        assertThat(comparisons.get(0).isRegression(), is(false));
+    }
+
+    @Test
+    public void shouldFlagLowerThroughputAsRegression() throws IOException {
+        List<Comparison> comparisons = comparator.compare(parse(result(BENCHMARK, "thrpt", 1000, 10, null)),
+                parse(result(BENCHMARK, "thrpt", 800, 10, null)));
+        assertThat(comparisons.get(0).isRegression(), is(true));
+    }
+
+    @Test
+    public void shouldIgnoreDifferencesWithinTheScoreError() throws IOException {
+        List<Comparison> comparisons = comparator.compare(parse(result(BENCHMARK, "avgt", 10.0, 2.0, null)),
+                parse(result(BENCHMARK, "avgt", 13.0, 2.0, null)));
+        assertThat(comparisons.get(0).isRegression(), is(false));
+    }
+
+    @Test
+    public void shouldIgnoreBenchmarksMissingInBaseline() throws IOException {
+        List<Comparison> comparisons = comparator.compare(parse(result("other", "avgt", 10.0, 0.5, null)),
+                parse(result(BENCHMARK, "avgt", 20.0, 0.5, null)));
+        assertThat(comparisons, hasSize(0));
+    }
+
+    private Map<String, Score> parse(String json) throws IOException {
+        return BaselineComparator.parse(new ObjectMapper().readTree(json));
+    }
+
+    private String result(String benchmark, String mode, double score, double error, String params) {
+        return "[{\"benchmark\":\"" + benchmark + "\",\"mode\":\"" + mode + "\","
+                + (params != null ? "\"params\":" + params + "," : "")
+                + "\"primaryMetric\":{\"score\":" + score + ",\"scoreError\":" + error
+                + ",\"scoreUnit\":\"us/op\"}}]";
+    }
+
+}
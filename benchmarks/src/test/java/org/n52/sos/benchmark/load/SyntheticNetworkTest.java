@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark.load;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SyntheticNetworkTest {
+
+    private final NetworkSpec spec = new NetworkSpec(7, 2, 5, 3, 2, 3, 10, 52L);
+
+    private final SyntheticNetwork network = new SyntheticNetwork(spec);
+
+    @Test
+    public void shouldBuildProcedureTree() {
+        assertThat(network.parent(0), is(-1));
+        assertThat(network.parent(1), is(0));
+        assertThat(network.parent(2), is(0));
+        assertThat(network.parent(3), is(1));
+        assertThat(network.parent(6), is(2));
+        assertThat(network.insertSensor(3),
+                containsString("<sml:attachedTo xlink:href=\"" + network.procedure(1) + "\"/>"));
+        assertThat(network.insertSensor(0), not(containsString("sml:attachedTo")));
+    }
+
+    @Test
+    public void shouldCreateEveryObservationOnce() {
+        List<String> requests = new ArrayList<>();
+        network.forEachPopulationRequest(2, requests::add);
+        // 7 sensors, 7 * 2 series with 3 batches of at most 2 observations
+        assertThat(requests.size(), is(7 + 7 * 2 * 3));
+        long observations = requests.stream().mapToLong(r -> r.split("<om:OM_Observation ", -1).length - 1).sum();
+        assertThat(observations, is(spec.getSeries() * spec.getObservationsPerSeries()));
+        assertThat(requests.get(0), containsString("<swes:InsertSensor"));
+        assertThat(requests.get(7), containsString("<sos:InsertObservation"));
+    }
+
+    @Test
+    public void shouldBeDeterministic() {
+        SyntheticNetwork other = new SyntheticNetwork(new NetworkSpec(7, 2, 5, 3, 2, 3, 10, 52L));
+        assertThat(other.insertObservation(4, 1, 0, 5), is(network.insertObservation(4, 1, 0, 5)));
+        assertThat(other.insertSensor(5), is(network.insertSensor(5)));
+    }
+
+    @Test
+    public void shouldSelectOnlyWeightedOperations() {
+        Workload workload = new Workload(network, "GetObservation:1,InsertObservation:0", 10, 1);
+        Random random = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            assertThat(workload.next(random), is(Workload.Operation.GetObservation));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNonPositiveProcedures() {
+        new NetworkSpec(0, 1, 1, 1, 0, 0, 1, 1L);
+    }
+
+}
@@ -60,6 +60,7 @@ import org.n52.shetland.ogc.om.values.GeometryValue;
 import org.n52.shetland.ogc.om.values.QuantityValue;
 import org.n52.shetland.ogc.om.values.Value;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.netcdf.data.SensorDataColumns;
 import org.n52.sos.netcdf.data.dataset.IdentifierDatasetSensor;
 import org.n52.sos.netcdf.data.dataset.TimeSeriesProfileSensorDataset;
 import org.n52.sos.netcdf.data.dataset.TimeSeriesSensorDataset;
@@ -105,9 +106,10 @@ public interface NetCDFUtil {
      */
     default List<NetCDFObservation> createNetCDFSosObservations(ObservationStream omObservations)
             throws EncodingException, OwsExceptionReport {
-        // the main map of observation value strings by asset, time, phenomenon,
-        // and subsensor (height, profile bin, etc)
-        Map<String, Map<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>>> obsValuesMap = new HashMap<>();
+        // the main map of observation value columns by asset, the columns are
+        // by phenomenon and subsensor (height, profile bin, etc), the rows by
+        // time
+        Map<String, SensorDataColumns> obsValuesMap = new HashMap<>();
 
         SetMultimap<String, OmObservableProperty> sensorPhens = HashMultimap.create();
         Map<String, AbstractFeature> sensorProcedure = Maps.newHashMap();
@@ -173,12 +175,10 @@ public interface NetCDFUtil {
         Envelope trajectoryEnvelope = new Envelope();
         Envelope trajectoryProfileEnvelope = new Envelope();
 
-        for (Map.Entry<String, Map<Time, Map<OmObservableProperty,
-                Map<SubSensor, Value<?>>>>> obsValuesEntry : obsValuesMap
-                .entrySet()) {
+        for (Map.Entry<String, SensorDataColumns> obsValuesEntry : obsValuesMap.entrySet()) {
             IdentifierDatasetSensor datasetSensor = new IdentifierDatasetSensor(obsValuesEntry.getKey());
             String sensor = datasetSensor.getSensorIdentifier();
-            Set<Time> sensorTimes = obsValuesEntry.getValue().keySet();
+            Set<Time> sensorTimes = obsValuesEntry.getValue().getTimes();
 
             int lngCount = sensorLngs.get(sensor).size();
             int latCount = sensorLats.get(sensor).size();
@@ -301,7 +301,7 @@ public interface NetCDFUtil {
     default void processObservation(OmObservation sosObs, SetMultimap<String, OmObservableProperty> sensorPhens,
             Map<String, AbstractFeature> sensorProcedure, SetMultimap<String, Double> sensorLngs,
             SetMultimap<String, Double> sensorLats, SetMultimap<String, Double> sensorHeights,
-            Map<String, Map<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>>> obsValuesMap)
+            Map<String, SensorDataColumns> obsValuesMap)
             throws EncodingException {
 
         OmObservationConstellation obsConst = sosObs.getObservationConstellation();
@@ -415,32 +415,20 @@ public interface NetCDFUtil {
             }
         }
 
-        // get the sensor's data map
-        Map<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>> sensorObsMap = obsValuesMap.get(sensor);
-        if (sensorObsMap == null) {
-            sensorObsMap = new HashMap<>();
-            obsValuesMap.put(sensor, sensorObsMap);
-        }
-
-        // get the map of the asset's phenomena by time
-        Map<OmObservableProperty, Map<SubSensor, Value<?>>> obsPropMap = sensorObsMap.get(obsTime);
-        if (obsPropMap == null) {
-            obsPropMap = new HashMap<>();
-            sensorObsMap.put(obsTime, obsPropMap);
-        }
+        // get the sensor's data columns
+        SensorDataColumns sensorColumns = obsValuesMap.computeIfAbsent(sensor, s -> new SensorDataColumns());
 
         OmObservableProperty phen = phenomenaMap.get(phenId);
-        Map<SubSensor, Value<?>> subSensorMap = obsPropMap.get(phen);
-        if (subSensorMap == null) {
-            subSensorMap = new HashMap<>();
-            obsPropMap.put(phen, subSensorMap);
+        if (quantityValue.getValue() == null) {
+            return;
         }
+        double value = quantityValue.getValue().doubleValue();
 
-        // add obs value to subsensor map (null subsensors are ok)
+        // add obs value to subsensor column (null subsensors are ok)
         if (sosObs.isSetParameter() && hasSamplingGeometry(sosObs)) {
-            subSensorMap.put(createSubSensor(sensor, getSamplingGeometryGeometry(sosObs)), obsValue);
+            sensorColumns.add(obsTime, phen, createSubSensor(sensor, getSamplingGeometryGeometry(sosObs)), value);
         } else {
-            subSensorMap.put(createSubSensor(sensor, foi), obsValue);
+            sensorColumns.add(obsTime, phen, createSubSensor(sensor, foi), value);
         }
     }
 
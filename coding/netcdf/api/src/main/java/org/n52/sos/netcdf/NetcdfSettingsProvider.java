@@ -59,4 +59,10 @@ public interface NetcdfSettingsProvider {
 
     String NETCDF_PHEN_Z = "netcdf.phenomenon.z";
 
+    String NETCDF_ZIP_THREADS = "netcdf.zip.threads";
+
+    String NETCDF_ZIP_MAX_TEMP_FILES = "netcdf.zip.maxTempFiles";
+
+    String NETCDF_ZIP_MAX_TEMP_DISK_USAGE = "netcdf.zip.maxTempDiskUsage";
+
 }
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.netcdf.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.sos.netcdf.data.subsensor.SubSensor;
+
+/**
+ * Columnar storage of the values of a sensor. Each distinct time is a row,
+ * each observable property and sub sensor combination is a column of
+ * primitive doubles. Missing values are {@link Double#NaN}.
+ *
+ * The rows are stored in insertion order, {@link #getSortedRows()} provides
+ * the row indices ordered by time.
+ */
+public class SensorDataColumns {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final Map<Time, Integer> rows = new HashMap<>();
+
+    private final List<Time> times = new ArrayList<>();
+
+    private final Map<OmObservableProperty, Map<SubSensor, double[]>> columns = new LinkedHashMap<>();
+
+    private int[] sortedRows;
+
+    /**
+     * Add a value. An existing value for the same time, observable property
+     * and sub sensor is replaced.
+     *
+     * @param time
+     *            the time of the value
+     * @param phenomenon
+     *            the observable property
+     * @param subSensor
+     *            the sub sensor, may be <code>null</code>
+     * @param value
+     *            the value
+     */
+    public void add(Time time, OmObservableProperty phenomenon, SubSensor subSensor, double value) {
+        int row = getRow(time);
+        Map<SubSensor, double[]> subSensorColumns = columns.computeIfAbsent(phenomenon, p -> new HashMap<>());
+        double[] column = subSensorColumns.get(subSensor);
+        if (column == null || column.length <= row) {
+            column = grow(column, row);
+            subSensorColumns.put(subSensor, column);
+        }
+        column[row] = value;
+    }
+
+    private int getRow(Time time) {
+        Integer row = rows.get(time);
+        if (row == null) {
+            row = times.size();
+            rows.put(time, row);
+            times.add(time);
+            sortedRows = null;
+        }
+        return row;
+    }
+
+    private double[] grow(double[] column, int row) {
+        int length = column != null ? column.length : 0;
+        int capacity = Math.max(INITIAL_CAPACITY, Math.max(length * 2, row + 1));
+        double[] grown = column != null ? Arrays.copyOf(column, capacity) : new double[capacity];
+        Arrays.fill(grown, length, capacity, Double.NaN);
+        return grown;
+    }
+
+    /**
+     * @return the number of rows
+     */
+    public int size() {
+        return times.size();
+    }
+
+    public boolean isEmpty() {
+        return times.isEmpty();
+    }
+
+    /**
+     * @return the distinct times
+     */
+    public Set<Time> getTimes() {
+        return Collections.unmodifiableSet(rows.keySet());
+    }
+
+    /**
+     * @return the times ordered ascending
+     */
+    public List<Time> getSortedTimes() {
+        return Arrays.stream(getSortedRows()).mapToObj(times::get).collect(Collectors.toList());
+    }
+
+    /**
+     * @return the row indices ordered by the time of the rows
+     */
+    public int[] getSortedRows() {
+        if (sortedRows == null) {
+            sortedRows = IntStream.range(0, times.size()).boxed()
+                    .sorted(Comparator.comparing(times::get)).mapToInt(Integer::intValue).toArray();
+        }
+        return sortedRows.clone();
+    }
+
+    /**
+     * @return the observable properties with values
+     */
+    public Set<OmObservableProperty> getPhenomena() {
+        return Collections.unmodifiableSet(columns.keySet());
+    }
+
+    /**
+     * @return the sub sensors with values, without <code>null</code>
+     */
+    public Set<SubSensor> getSubSensors() {
+        return columns.values().stream().flatMap(m -> m.keySet().stream()).filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * @param phenomenon
+     *            the observable property
+     * @return the sub sensors with values of the observable property, may
+     *         contain <code>null</code>
+     */
+    public Set<SubSensor> getSubSensors(OmObservableProperty phenomenon) {
+        Map<SubSensor, double[]> subSensorColumns = columns.get(phenomenon);
+        return subSensorColumns != null ? Collections.unmodifiableSet(subSensorColumns.keySet())
+                : Collections.emptySet();
+    }
+
+    /**
+     * Get a value.
+     *
+     * @param phenomenon
+     *            the observable property
+     * @param subSensor
+     *            the sub sensor, may be <code>null</code>
+     * @param row
+     *            the row index
+     * @return the value or {@link Double#NaN} if there is no value
+     */
+    public double getValue(OmObservableProperty phenomenon, SubSensor subSensor, int row) {
+        Map<SubSensor, double[]> subSensorColumns = columns.get(phenomenon);
+        if (subSensorColumns == null) {
+            return Double.NaN;
+        }
+        double[] column = subSensorColumns.get(subSensor);
+        return column != null && row < column.length ? column[row] : Double.NaN;
+    }
+}
@@ -31,19 +31,16 @@ package org.n52.sos.netcdf.data.dataset;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 
 import org.n52.shetland.ogc.gml.AbstractFeature;
 import org.n52.shetland.ogc.gml.time.Time;
 import org.n52.shetland.ogc.om.OmObservableProperty;
-import org.n52.shetland.ogc.om.values.Value;
 import org.n52.shetland.util.CollectionHelper;
+import org.n52.sos.netcdf.data.SensorDataColumns;
 import org.n52.sos.netcdf.data.subsensor.SubSensor;
 
 import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
 
 import ucar.nc2.constants.CF;
 
@@ -69,47 +66,23 @@ public abstract class AbstractSensorDataset implements Comparable<AbstractSensor
 
     private List<SubSensor> subSensors;
 
-    private Map<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>> dataValues;
+    private SensorDataColumns dataColumns;
 
-    public AbstractSensorDataset(CF.FeatureType featureType, DatasetSensor sensor,
-            Map<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>> dataValues, AbstractFeature procedure) {
+    public AbstractSensorDataset(CF.FeatureType featureType, DatasetSensor sensor, SensorDataColumns dataColumns,
+            AbstractFeature procedure) {
         this.featureType = featureType;
         this.sensor = sensor;
         this.procedure = procedure;
-        // make the sensorDataValues unmodifiable, since some data summaries
-        // will be made below and we don't want the data changing
-        this.dataValues = Collections.unmodifiableMap(dataValues);
+        this.dataColumns = dataColumns;
 
         // set times, phenomena, and subsensors
-        Set<Time> timeSet = Sets.newHashSet();
-        Set<OmObservableProperty> obsPropSet = Sets.newHashSet();
-        Set<SubSensor> subSensorSet = Sets.newHashSet();
-        for (Entry<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>> dataValuesEntry : dataValues
-                .entrySet()) {
-            Time time = dataValuesEntry.getKey();
-            timeSet.add(time);
-            for (Map.Entry<OmObservableProperty, Map<SubSensor, Value<?>>> phenObsEntry : dataValuesEntry.getValue()
-                    .entrySet()) {
-                OmObservableProperty phen = phenObsEntry.getKey();
-                Set<SubSensor> phenSubSensors = phenObsEntry.getValue().keySet();
-                obsPropSet.add(phen);
-                for (SubSensor subSensor : phenSubSensors) {
-                    if (subSensor != null) {
-                        subSensorSet.add(subSensor);
-                    }
-                }
-            }
-        }
-
-        List<Time> timeList = Lists.newArrayList(timeSet);
-        Collections.sort(timeList);
-        times = Collections.unmodifiableList(timeList);
+        times = Collections.unmodifiableList(dataColumns.getSortedTimes());
 
-        List<OmObservableProperty> obsPropList = Lists.newArrayList(obsPropSet);
+        List<OmObservableProperty> obsPropList = Lists.newArrayList(dataColumns.getPhenomena());
         Collections.sort(obsPropList);
         obsProps = Collections.unmodifiableList(obsPropList);
 
-        List<SubSensor> subSensorList = Lists.newArrayList(subSensorSet);
+        List<SubSensor> subSensorList = Lists.newArrayList(dataColumns.getSubSensors());
         Collections.sort(subSensorList);
         subSensors = Collections.unmodifiableList(subSensorList);
     }
@@ -142,8 +115,12 @@ public abstract class AbstractSensorDataset implements Comparable<AbstractSensor
         return times;
     }
 
-    public Map<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>> getDataValues() {
-        return dataValues;
+    /**
+     * @return the values of the sensor, the order of {@link #getTimes()}
+     *         corresponds to {@link SensorDataColumns#getSortedRows()}
+     */
+    public SensorDataColumns getDataColumns() {
+        return dataColumns;
     }
 
     public static Set<AbstractSensorDataset> getAbstractAssetDatasets(
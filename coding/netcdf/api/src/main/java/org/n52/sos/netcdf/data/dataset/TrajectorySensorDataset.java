@@ -28,13 +28,8 @@
  */
 package org.n52.sos.netcdf.data.dataset;
 
-import java.util.Map;
-
 import org.n52.shetland.ogc.gml.AbstractFeature;
-import org.n52.shetland.ogc.gml.time.Time;
-import org.n52.shetland.ogc.om.OmObservableProperty;
-import org.n52.shetland.ogc.om.values.Value;
-import org.n52.sos.netcdf.data.subsensor.SubSensor;
+import org.n52.sos.netcdf.data.SensorDataColumns;
 
 import ucar.nc2.constants.CF;
 
@@ -51,8 +46,8 @@ public class TrajectorySensorDataset extends AbstractSensorDataset implements St
     private Double alt;
 
     public TrajectorySensorDataset(DatasetSensor sensor, Double alt,
-            Map<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>> dataValues, AbstractFeature procedure) {
-        super(CF.FeatureType.trajectory, sensor, dataValues, procedure);
+            SensorDataColumns dataColumns, AbstractFeature procedure) {
+        super(CF.FeatureType.trajectory, sensor, dataColumns, procedure);
         this.alt = alt;
     }
 
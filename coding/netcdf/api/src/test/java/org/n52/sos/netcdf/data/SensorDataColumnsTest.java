@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.netcdf.data;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Assert;
+import org.junit.Test;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.sos.netcdf.data.subsensor.PointProfileSubSensor;
+import org.n52.sos.netcdf.data.subsensor.SubSensor;
+
+public class SensorDataColumnsTest {
+
+    private static final OmObservableProperty TEMPERATURE = new OmObservableProperty("temperature");
+
+    private static final OmObservableProperty SALINITY = new OmObservableProperty("salinity");
+
+    @Test
+    public void shouldSortRowsByTime() {
+        SensorDataColumns columns = new SensorDataColumns();
+        columns.add(time(3), TEMPERATURE, null, 3.0);
+        columns.add(time(1), TEMPERATURE, null, 1.0);
+        columns.add(time(2), TEMPERATURE, null, 2.0);
+        Assert.assertEquals(3, columns.size());
+        Assert.assertArrayEquals(new int[] { 1, 2, 0 }, columns.getSortedRows());
+        Assert.assertEquals(time(1), columns.getSortedTimes().get(0));
+        Assert.assertEquals(time(3), columns.getSortedTimes().get(2));
+    }
+
+    @Test
+    public void shouldShareRowsBetweenColumns() {
+        SensorDataColumns columns = new SensorDataColumns();
+        SubSensor subSensor = new PointProfileSubSensor(-10.0);
+        columns.add(time(1), TEMPERATURE, null, 1.0);
+        columns.add(time(1), SALINITY, subSensor, 35.0);
+        columns.add(time(2), SALINITY, subSensor, 36.0);
+        Assert.assertEquals(2, columns.size());
+        Assert.assertEquals(1.0, columns.getValue(TEMPERATURE, null, 0), 0.0);
+        Assert.assertTrue(Double.isNaN(columns.getValue(TEMPERATURE, null, 1)));
+        Assert.assertEquals(36.0, columns.getValue(SALINITY, subSensor, 1), 0.0);
+        Assert.assertTrue(Double.isNaN(columns.getValue(SALINITY, null, 0)));
+        Assert.assertEquals(1, columns.getSubSensors().size());
+        Assert.assertEquals(2, columns.getPhenomena().size());
+    }
+
+    @Test
+    public void shouldGrowColumns() {
+        SensorDataColumns columns = new SensorDataColumns();
+        for (int i = 0; i < 1000; i++) {
+            columns.add(time(i), TEMPERATURE, null, i);
+        }
+        columns.add(time(0), TEMPERATURE, null, -1.0);
+        Assert.assertEquals(1000, columns.size());
+        Assert.assertEquals(-1.0, columns.getValue(TEMPERATURE, null, 0), 0.0);
+        Assert.assertEquals(999.0, columns.getValue(TEMPERATURE, null, 999), 0.0);
+    }
+
+    private Time time(int minutes) {
+        return new TimeInstant(new DateTime(2020, 1, 1, 0, 0, DateTimeZone.UTC).plusMinutes(minutes));
+    }
+}
@@ -31,6 +31,7 @@ package org.n52.sos.encode;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashSet;
@@ -59,7 +60,6 @@ import org.n52.shetland.ogc.gml.time.TimeInstant;
 import org.n52.shetland.ogc.om.ObservationStream;
 import org.n52.shetland.ogc.om.OmConstants;
 import org.n52.shetland.ogc.om.OmObservableProperty;
-import org.n52.shetland.ogc.om.values.Value;
 import org.n52.shetland.ogc.ows.OwsAddress;
 import org.n52.shetland.ogc.ows.OwsContact;
 import org.n52.shetland.ogc.ows.OwsOnlineResource;
@@ -92,6 +92,7 @@ import org.n52.sos.netcdf.Nc4ForceTimeChunkingStategy;
 import org.n52.sos.netcdf.NetCDFUtil;
 import org.n52.sos.netcdf.NetcdfConstants;
 import org.n52.sos.netcdf.NetcdfHelper;
+import org.n52.sos.netcdf.data.SensorDataColumns;
 import org.n52.sos.netcdf.data.dataset.AbstractSensorDataset;
 import org.n52.sos.netcdf.data.dataset.StaticLocationDataset;
 import org.n52.sos.netcdf.data.subsensor.BinProfileSubSensor;
@@ -155,6 +156,7 @@ public abstract class AbstractNetcdfEncoder
     private ProcedureDescriptionFormatRepository procedureDescriptionFormatRepository;
     private GeometryHandler geometryHandler;
     private NetcdfHelper netcdfHelper;
+    private NetcdfZipWriter netcdfZipWriter;
 
     public AbstractNetcdfEncoder() {
 
@@ -191,6 +193,11 @@ public abstract class AbstractNetcdfEncoder
         this.netcdfHelper = netcdfHelper;
     }
 
+    @Inject
+    public void setNetcdfZipWriter(NetcdfZipWriter netcdfZipWriter) {
+        this.netcdfZipWriter = netcdfZipWriter;
+    }
+
     @Override
     public Set<String> getConformanceClasses(String service, String version) {
         if (SosConstants.SOS.equals(service) && Sos2Constants.SERVICEVERSION.equals(version)) {
@@ -330,6 +337,45 @@ public abstract class AbstractNetcdfEncoder
                 getNetcdfHelper().getChunkSizeTime()));
     }
 
+    /**
+     * Encode each sensor dataset to a separate netCDF file and zip them. The
+     * files are encoded concurrently by the {@link NetcdfZipWriter}, netCDF-4
+     * files one after the other.
+     *
+     * @param netCDFObsList
+     *            the netCDF observations
+     * @param version
+     *            the netCDF version
+     * @return the zip
+     * @throws EncodingException
+     *             if the encoding fails
+     */
+    protected byte[] encodeSensorDataToZip(List<NetCDFObservation> netCDFObsList, Version version)
+            throws EncodingException {
+        List<AbstractSensorDataset> sensorDatasets = new ArrayList<>();
+        for (NetCDFObservation netCDFObs : netCDFObsList) {
+            sensorDatasets.addAll(netCDFObs.getSensorDatasets());
+        }
+        return netcdfZipWriter.write(sensorDatasets, new NetcdfZipWriter.DatasetEncoder() {
+            @Override
+            public String getFilename(AbstractSensorDataset sensorDataset) throws EncodingException {
+                return AbstractNetcdfEncoder.this.getFilename(sensorDataset);
+            }
+
+            @Override
+            public void encode(File file, AbstractSensorDataset sensorDataset)
+                    throws IOException, EncodingException {
+                encodeSensorDataToNetcdf(file, sensorDataset, version);
+            }
+
+            @Override
+            public boolean isThreadSafe() {
+                // netCDF-4 is written by the native library, which is not thread safe
+                return !version.isNetdf4format();
+            }
+        });
+    }
+
     protected void encodeSensorDataToNetcdf(File netcdfFile, AbstractSensorDataset sensorDataset, Version version)
             throws EncodingException, IOException {
         String sensor = sensorDataset.getSensorIdentifier();
@@ -398,9 +444,6 @@ public abstract class AbstractNetcdfEncoder
         if (numTimes > 1 && writer.getVersion().isNetdf4format()) {
             vTime.addAttribute(new Attribute(CDM.CHUNK_SIZES, getNetcdfHelper().getChunkSizeTime()));
         }
-        ArrayDouble timeArray = new ArrayDouble(getDimShapes(timeDims));
-        initArrayWithFillValue(timeArray, getNetcdfHelper().getFillValue());
-
         Array latArray = getLatitudeArray(sensorDataset);
         Array lonArray = getLongitudeArray(sensorDataset);
 
@@ -446,17 +489,11 @@ public abstract class AbstractNetcdfEncoder
                         Lists.newArrayList(vTime.getFullName(), vLat.getFullName(), vLon.getFullName(),
                                 vHeightDepth.getFullName()));
 
-        Map<OmObservableProperty, Variable> obsPropVarMap = Maps.newHashMap();
-        Map<Variable, Array> varDataArrayMap = Maps.newHashMap();
+        Map<OmObservableProperty, Variable> obsPropVarMap = Maps.newLinkedHashMap();
         for (OmObservableProperty obsProp : sensorDataset.getPhenomena()) {
             // obs prop var
-            Variable vObsProp = addVariableForObservedProperty(writer, obsProp, obsPropDims, coordinateString);
-            obsPropVarMap.put(obsProp, vObsProp);
-
-            // init obs prop data array
-            Array obsPropArray = getArray(obsPropDims);
-            initArrayWithFillValue(obsPropArray, getNetcdfHelper().getFillValue());
-            varDataArrayMap.put(vObsProp, obsPropArray);
+            obsPropVarMap.put(obsProp,
+                    addVariableForObservedProperty(writer, obsProp, obsPropDims, coordinateString));
         }
 
         // populate heights array for profile
@@ -477,60 +514,7 @@ public abstract class AbstractNetcdfEncoder
 
         }
 
-        // iterate through sensorDataset, set values
-        int timeCounter = 0;
-        for (Time time : sensorDataset.getTimes()) {
-            // set time value
-            Index timeIndex = timeArray.getIndex();
-            int timeIndexCounter = 0;
-            // if (hasDimension(timeDims, dFeatureTypeInstance)) {
-            // timeIndex.setDim(timeIndexCounter++, 0);
-            // }
-            if (hasDimension(timeDims, dTime)) {
-                timeIndex.setDim(timeIndexCounter++, timeCounter++);
-            }
-            timeArray.set(timeIndex, getTimeValue(time));
-
-            // data values
-            Map<OmObservableProperty, Map<SubSensor, Value<?>>> obsPropMap = sensorDataset.getDataValues().get(time);
-            for (Entry<OmObservableProperty, Map<SubSensor, Value<?>>> entry : obsPropMap.entrySet()) {
-                OmObservableProperty obsProp = entry.getKey();
-                Variable variable = obsPropVarMap.get(obsProp);
-                Array array = varDataArrayMap.get(variable);
-                for (Entry<SubSensor, Value<?>> subSensorEntry : obsPropMap.get(obsProp).entrySet()) {
-                    SubSensor subSensor = subSensorEntry.getKey();
-                    Value<?> value = subSensorEntry.getValue();
-                    Object valObj = value.getValue();
-                    if (!(valObj instanceof Number)) {
-                        throw new EncodingException("Value class %s not supported",
-                                valObj.getClass().getCanonicalName());
-                    }
-                    Index index = array.getIndex();
-                    int obsPropDimCounter = 0;
-                    for (Dimension dim : obsPropDims) {
-                        // if (dim.equals(dFeatureTypeInstance)){
-                        // feature type instance index
-                        // index.setDim(obsPropDimCounter++, 0);
-                        // } else if (dim.equals(dTime)){
-                        if (dim.equals(dTime)) {
-                            // time index dim
-                            index.setDim(obsPropDimCounter++, timeCounter - 1);
-                        } else if (dim.equals(dZ) && dim.getLength() > 1) {
-                            // height/depth index dim
-                            index.setDim(obsPropDimCounter++, sensorDataset.getSubSensors().indexOf(subSensor));
-                        }
-                    }
-                    if (array instanceof ArrayFloat) {
-                        ((ArrayFloat) array).set(index, ((Number) valObj).floatValue());
-                    } else {
-                        ((ArrayDouble) array).set(index, ((Number) valObj).doubleValue());
-                    }
-                }
-            }
-        }
-
         // create the empty netCDF with dims/vars/attributes defined
-        variableArrayMap.put(vTime, timeArray);
         if (latArray != null) {
             variableArrayMap.put(vLat, latArray);
         }
@@ -540,12 +524,53 @@ public abstract class AbstractNetcdfEncoder
         if (heightDephtArray != null) {
             variableArrayMap.put(vHeightDepth, heightDephtArray);
         }
-        variableArrayMap.putAll(varDataArrayMap);
-        // create the empty netCDF with dims/vars/attributes defined
         writeToFile(writer, variableArrayMap);
+        // the time dependent variables are written in slabs of the time chunk
+        // size, so only one chunk of each variable is held in memory
+        writeTimeSlabs(writer, sensorDataset, vTime, obsPropVarMap, numHeightDepth, dZ.getLength() > 1);
         writer.close();
     }
 
+    private void writeTimeSlabs(NetcdfFileWriter writer, AbstractSensorDataset sensorDataset, Variable vTime,
+            Map<OmObservableProperty, Variable> obsPropVarMap, int numHeightDepth, boolean indexSubSensors)
+            throws EncodingException, IOException {
+        SensorDataColumns columns = sensorDataset.getDataColumns();
+        List<Time> times = sensorDataset.getTimes();
+        int[] rows = columns.getSortedRows();
+        int slabSize = Math.max(1, getNetcdfHelper().getChunkSizeTime());
+        try {
+            for (int start = 0; start < times.size(); start += slabSize) {
+                int length = Math.min(slabSize, times.size() - start);
+                ArrayDouble.D1 timeSlab = new ArrayDouble.D1(length);
+                for (int i = 0; i < length; i++) {
+                    timeSlab.set(i, getTimeValue(times.get(start + i)));
+                }
+                writer.write(vTime, new int[] { start }, timeSlab);
+                for (Entry<OmObservableProperty, Variable> entry : obsPropVarMap.entrySet()) {
+                    OmObservableProperty obsProp = entry.getKey();
+                    Array slab = getArray(new int[] { length, numHeightDepth });
+                    initArrayWithFillValue(slab, getNetcdfHelper().getFillValue());
+                    Index index = slab.getIndex();
+                    for (SubSensor subSensor : columns.getSubSensors(obsProp)) {
+                        int z = indexSubSensors ? sensorDataset.getSubSensors().indexOf(subSensor) : 0;
+                        if (z < 0) {
+                            continue;
+                        }
+                        for (int i = 0; i < length; i++) {
+                            double value = columns.getValue(obsProp, subSensor, rows[start + i]);
+                            if (!Double.isNaN(value)) {
+                                slab.setDouble(index.set(i, z), value);
+                            }
+                        }
+                    }
+                    writer.write(entry.getValue(), new int[] { start, 0 }, slab);
+                }
+            }
+        } catch (InvalidRangeException e) {
+            throw new EncodingException("Error writing netCDF variable data", e);
+        }
+    }
+
     protected void addGlobaleAttributes(NetcdfFileWriter writer, AbstractSensorDataset sensorDataset)
             throws EncodingException {
         // convetion
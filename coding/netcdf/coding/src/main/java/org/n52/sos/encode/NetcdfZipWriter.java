@@ -0,0 +1,335 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.encode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
+import org.n52.janmayen.lifecycle.Constructable;
+import org.n52.janmayen.lifecycle.Destroyable;
+import org.n52.sos.netcdf.NetcdfSettingsProvider;
+import org.n52.sos.netcdf.data.dataset.AbstractSensorDataset;
+import org.n52.svalbard.encode.exception.EncodingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.io.Files;
+
+/**
+ * Encodes the netCDF files of a zipped response concurrently and adds them to
+ * the zip in the order of their completion. The number of temporary files and
+ * the disk space they use are limited across all concurrent responses.
+ * Encoders that are not thread safe, e.g. writing netCDF-4 with the native
+ * library, are serialized across all responses.
+ */
+@Configurable
+public class NetcdfZipWriter implements Constructable, Destroyable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NetcdfZipWriter.class);
+
+    private static final long MEGABYTE = 1024L * 1024L;
+
+    private static final Object NOT_THREAD_SAFE_LOCK = new Object();
+
+    private final AtomicLong tempDiskUsage = new AtomicLong();
+
+    private ThreadPoolExecutor executor;
+
+    private int threads;
+
+    private volatile long maxTempDiskUsage = 1024L * MEGABYTE;
+
+    private Semaphore tempFiles = new Semaphore(16);
+
+    /**
+     * @param threads
+     *            the number of encoding threads, <code>0</code> uses the
+     *            number of available processors
+     */
+    @Setting(NetcdfSettingsProvider.NETCDF_ZIP_THREADS)
+    public synchronized void setThreads(int threads) {
+        this.threads = threads;
+        if (executor != null) {
+            int size = getPoolSize();
+            if (size > executor.getMaximumPoolSize()) {
+                executor.setMaximumPoolSize(size);
+                executor.setCorePoolSize(size);
+            } else {
+                executor.setCorePoolSize(size);
+                executor.setMaximumPoolSize(size);
+            }
+        }
+    }
+
+    /**
+     * @param maxTempFiles
+     *            the maximum number of temporary files
+     */
+    @Setting(NetcdfSettingsProvider.NETCDF_ZIP_MAX_TEMP_FILES)
+    public synchronized void setMaxTempFiles(int maxTempFiles) {
+        this.tempFiles = new Semaphore(Math.max(1, maxTempFiles));
+    }
+
+    /**
+     * @param maxTempDiskUsage
+     *            the maximum disk usage of the temporary files in megabytes
+     */
+    @Setting(NetcdfSettingsProvider.NETCDF_ZIP_MAX_TEMP_DISK_USAGE)
+    public void setMaxTempDiskUsage(int maxTempDiskUsage) {
+        this.maxTempDiskUsage = maxTempDiskUsage * MEGABYTE;
+    }
+
+    @Override
+    public synchronized void init() {
+        this.executor = createExecutor();
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (executor != null) {
+            // pending tasks of running zips are still executed to let them finish
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    private ThreadPoolExecutor createExecutor() {
+        int size = getPoolSize();
+        return new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                new GroupedAndNamedThreadFactory("52n-netcdf-zip"));
+    }
+
+    private int getPoolSize() {
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Encode the sensor datasets to netCDF files and zip them.
+     *
+     * @param sensorDatasets
+     *            the sensor datasets
+     * @param encoder
+     *            the encoder creating the file name and the file of a sensor
+     *            dataset
+     * @return the zip
+     * @throws EncodingException
+     *             if the encoding of a dataset fails
+     */
+    public byte[] write(List<AbstractSensorDataset> sensorDatasets, DatasetEncoder encoder)
+            throws EncodingException {
+        ExecutorService executorService;
+        Semaphore permits;
+        synchronized (this) {
+            if (executor == null) {
+                executor = createExecutor();
+            }
+            executorService = executor;
+            permits = tempFiles;
+        }
+        File tempDir = Files.createTempDir();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        CompletionService<File> completionService = new ExecutorCompletionService<>(executorService);
+        Map<Future<File>, File> pending = new HashMap<>();
+        Set<String> names = new HashSet<>();
+        AtomicBoolean aborted = new AtomicBoolean();
+        try (ZipOutputStream zip = new ZipOutputStream(bos)) {
+            Iterator<AbstractSensorDataset> iterator = sensorDatasets.iterator();
+            AbstractSensorDataset next = null;
+            File nextFile = null;
+            while (next != null || iterator.hasNext() || !pending.isEmpty()) {
+                if (next == null && iterator.hasNext()) {
+                    // before acquiring a permit, a failure would not release it
+                    next = iterator.next();
+                    nextFile = new File(tempDir, getUniqueFilename(encoder.getFilename(next), names));
+                }
+                if (next != null && acquire(permits, pending.isEmpty())) {
+                    AbstractSensorDataset sensorDataset = next;
+                    File file = nextFile;
+                    next = null;
+                    try {
+                        pending.put(completionService.submit(() -> encode(encoder, file, sensorDataset, aborted)),
+                                file);
+                    } catch (RuntimeException e) {
+                        permits.release();
+                        throw e;
+                    }
+                } else {
+                    Future<File> future = completionService.take();
+                    File file = pending.remove(future);
+                    try {
+                        getResult(future);
+                        addToZip(zip, file);
+                    } finally {
+                        delete(file);
+                        permits.release();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new EncodingException("Couldn't create netCDF zip file", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EncodingException("Interrupted while creating netCDF zip file", e);
+        } finally {
+            aborted.set(true);
+            for (Entry<Future<File>, File> entry : pending.entrySet()) {
+                await(entry.getKey());
+                delete(entry.getValue());
+                permits.release();
+            }
+            LOGGER.debug("Temporary directory deleted: {}", tempDir.delete());
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * Acquire a temporary file permit if the disk usage allows a further file.
+     * If no file is pending, this blocks until a permit is available to make
+     * progress.
+     */
+    private boolean acquire(Semaphore permits, boolean block) throws InterruptedException {
+        if (block) {
+            permits.acquire();
+            return true;
+        }
+        return tempDiskUsage.get() < maxTempDiskUsage && permits.tryAcquire();
+    }
+
+    /**
+     * Append a counter to the file name if it is already used in the zip.
+     */
+    private String getUniqueFilename(String filename, Set<String> names) {
+        String name = filename;
+        int extension = filename.lastIndexOf('.');
+        String base = extension > 0 ? filename.substring(0, extension) : filename;
+        String suffix = extension > 0 ? filename.substring(extension) : "";
+        for (int i = 1; !names.add(name); i++) {
+            name = base + "_" + i + suffix;
+        }
+        return name;
+    }
+
+    private File encode(DatasetEncoder encoder, File file, AbstractSensorDataset sensorDataset,
+            AtomicBoolean aborted) throws IOException, EncodingException {
+        if (!aborted.get()) {
+            try {
+                if (encoder.isThreadSafe()) {
+                    encoder.encode(file, sensorDataset);
+                } else {
+                    synchronized (NOT_THREAD_SAFE_LOCK) {
+                        encoder.encode(file, sensorDataset);
+                    }
+                }
+            } finally {
+                tempDiskUsage.addAndGet(file.length());
+            }
+        }
+        return file;
+    }
+
+    private void getResult(Future<File> future) throws EncodingException, InterruptedException {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof EncodingException) {
+                throw (EncodingException) e.getCause();
+            }
+            throw new EncodingException(e.getCause());
+        }
+    }
+
+    /**
+     * Wait for a task of an aborted zip to finish, so that its file can be
+     * deleted.
+     */
+    private void await(Future<File> future) {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            LOGGER.debug("Ignoring failed netCDF encoding of aborted zip", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void addToZip(ZipOutputStream zip, File file) throws IOException {
+        zip.putNextEntry(new ZipEntry(file.getName()));
+        Files.copy(file, zip);
+        zip.closeEntry();
+    }
+
+    private void delete(File file) {
+        long length = file.length();
+        if (file.exists() && file.delete()) {
+            tempDiskUsage.addAndGet(-length);
+        }
+    }
+
+    /**
+     * Encoding of a single sensor dataset.
+     */
+    public interface DatasetEncoder {
+
+        String getFilename(AbstractSensorDataset sensorDataset) throws EncodingException;
+
+        void encode(File file, AbstractSensorDataset sensorDataset) throws IOException, EncodingException;
+
+        /**
+         * @return if files may be encoded concurrently, otherwise the encoding
+         *         is serialized across all zips
+         */
+        default boolean isThreadSafe() {
+            return true;
+        }
+    }
+}
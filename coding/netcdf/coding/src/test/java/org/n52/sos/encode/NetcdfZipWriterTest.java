@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.encode;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.sos.netcdf.data.dataset.AbstractSensorDataset;
+import org.n52.svalbard.encode.exception.EncodingException;
+
+import com.google.common.io.Files;
+
+public class NetcdfZipWriterTest {
+
+    private static final int DATASETS = 20;
+
+    private NetcdfZipWriter writer;
+
+    @Before
+    public void setUp() {
+        writer = new NetcdfZipWriter();
+        writer.setThreads(4);
+        writer.setMaxTempFiles(3);
+        writer.setMaxTempDiskUsage(1);
+        writer.init();
+    }
+
+    @After
+    public void tearDown() {
+        writer.destroy();
+    }
+
+    @Test
+    public void shouldZipAllFiles() throws EncodingException, IOException {
+        Assert.assertEquals(DATASETS, getNames(writer.write(datasets(), new TestEncoder(-1))).size());
+    }
+
+    @Test
+    public void shouldFailAndCleanUp() throws IOException {
+        TestEncoder encoder = new TestEncoder(5);
+        try {
+            writer.write(datasets(), encoder);
+            Assert.fail("Expected EncodingException");
+        } catch (EncodingException e) {
+            Assert.assertEquals("failed", e.getMessage());
+        }
+        for (File file : encoder.files) {
+            Assert.assertFalse(file.getName(), file.exists());
+        }
+    }
+
+    @Test
+    public void shouldMakeFilenamesUnique() throws EncodingException, IOException {
+        TestEncoder encoder = new TestEncoder(-1) {
+            @Override
+            public String getFilename(AbstractSensorDataset sensorDataset) {
+                return "sensor.nc";
+            }
+        };
+        Set<String> names = getNames(writer.write(datasets(), encoder));
+        Assert.assertEquals(DATASETS, names.size());
+        Assert.assertTrue(names.contains("sensor.nc"));
+        Assert.assertTrue(names.contains("sensor_1.nc"));
+    }
+
+    @Test(timeout = 10000)
+    public void shouldReleasePermitsIfFilenameFails() throws EncodingException, IOException {
+        for (int i = 0; i < 5; i++) {
+            TestEncoder encoder = new TestEncoder(-1) {
+                @Override
+                public String getFilename(AbstractSensorDataset sensorDataset) throws EncodingException {
+                    String filename = super.getFilename(sensorDataset);
+                    if (filename.equals("sensor_2.nc")) {
+                        throw new EncodingException("failed");
+                    }
+                    return filename;
+                }
+            };
+            try {
+                writer.write(datasets(), encoder);
+                Assert.fail("Expected EncodingException");
+            } catch (EncodingException e) {
+                Assert.assertEquals("failed", e.getMessage());
+            }
+        }
+        Assert.assertEquals(DATASETS, getNames(writer.write(datasets(), new TestEncoder(-1))).size());
+    }
+
+    @Test
+    public void shouldSerializeNotThreadSafeEncoders() throws EncodingException, IOException {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        TestEncoder encoder = new TestEncoder(-1) {
+            @Override
+            public void encode(File file, AbstractSensorDataset sensorDataset)
+                    throws IOException, EncodingException {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(5);
+                    super.encode(file, sensorDataset);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    running.decrementAndGet();
+                }
+            }
+
+            @Override
+            public boolean isThreadSafe() {
+                return false;
+            }
+        };
+        Assert.assertEquals(DATASETS, getNames(writer.write(datasets(), encoder)).size());
+        Assert.assertEquals(1, maxRunning.get());
+    }
+
+    private static Set<String> getNames(byte[] zip) throws IOException {
+        Set<String> names = new HashSet<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                names.add(entry.getName());
+            }
+        }
+        return names;
+    }
+
+    private static List<AbstractSensorDataset> datasets() {
+        return Collections.nCopies(DATASETS, null);
+    }
+
+    private static class TestEncoder implements NetcdfZipWriter.DatasetEncoder {
+
+        private final AtomicInteger names = new AtomicInteger();
+
+        private final AtomicInteger encoded = new AtomicInteger();
+
+        private final int failAt;
+
+        private final Set<File> files = Collections.synchronizedSet(new HashSet<>());
+
+        TestEncoder(int failAt) {
+            this.failAt = failAt;
+        }
+
+        @Override
+        public String getFilename(AbstractSensorDataset sensorDataset) {
+            return "sensor_" + names.incrementAndGet() + ".nc";
+        }
+
+        @Override
+        public void encode(File file, AbstractSensorDataset sensorDataset) throws IOException, EncodingException {
+            files.add(file);
+            Files.write(file.getName().getBytes(StandardCharsets.UTF_8), file);
+            if (encoded.incrementAndGet() == failAt) {
+                throw new EncodingException("failed");
+            }
+        }
+    }
+}
@@ -42,7 +42,6 @@ import java.util.stream.Stream;
 import javax.inject.Inject;
 
 import org.n52.iceland.cache.ContentCacheController;
-import org.n52.iceland.convert.RequestResponseModifier;
 import org.n52.iceland.convert.RequestResponseModifierFacilitator;
 import org.n52.janmayen.function.Functions;
 import org.n52.janmayen.function.Predicates;
@@ -104,7 +103,7 @@ import org.n52.sos.service.profile.ProfileHandler;
 import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
 
-public abstract class AbstractIdentifierModifier implements RequestResponseModifier {
+public abstract class AbstractIdentifierModifier implements IdentifierModifier {
 
     private ContentCacheController contentCacheController;
     private ProfileHandler profileHandler;
@@ -140,6 +139,11 @@ public abstract class AbstractIdentifierModifier implements RequestResponseModif
         return new RequestResponseModifierFacilitator().setAdderRemover(true);
     }
 
+    @Override
+    public boolean isModifyingIdentifiers(OwsServiceRequest request) throws OwsExceptionReport {
+        return checkForFlag(request, null);
+    }
+
     protected abstract boolean checkForFlag(OwsServiceRequest request, OwsServiceResponse response) throws
             InvalidParameterValueException;
 
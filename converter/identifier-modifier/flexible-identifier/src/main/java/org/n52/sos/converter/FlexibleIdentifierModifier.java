@@ -47,6 +47,7 @@ import org.n52.shetland.ogc.ows.service.GetCapabilitiesResponse;
 import org.n52.shetland.ogc.gml.AbstractFeature;
 import org.n52.shetland.ogc.gml.ReferenceType;
 import org.n52.shetland.ogc.ows.exception.InvalidParameterValueException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.sos.convert.AbstractIdentifierModifier;
 import org.n52.sos.converter.util.FlexibleIdentifierHelper;
 import org.n52.shetland.ogc.sos.SosOffering;
@@ -139,6 +140,15 @@ public class FlexibleIdentifierModifier extends AbstractIdentifierModifier {
 
 
 
+    @Override
+    public boolean isModifyingIdentifiers(OwsServiceRequest request) throws OwsExceptionReport {
+        if (getFlexibleIdentifierHelper()
+                .checkIsReturnHumanReadableIdentifierFlagExtensionSet(request.getExtensions())) {
+            return checkRequestForReturnHumanReadableIdentifierFlag(request);
+        }
+        return getFlexibleIdentifierHelper().isSetReturnHumanReadableIdentifier();
+    }
+
     private boolean checkResponseForReturnHumanReadableIdentifierFlag(OwsServiceResponse response)
             throws InvalidParameterValueException {
         return getFlexibleIdentifierHelper().checkForReturnHumanReadableIdentifierFlagExtension(
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.converter;
+
+import org.n52.janmayen.AbstractThrowingIterator;
+import org.n52.shetland.ogc.om.ObservationMergeIndicator;
+import org.n52.shetland.ogc.om.ObservationStream;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.response.AbstractStreaming;
+
+/**
+ * {@link ObservationStream} that merges the observations lazily. The values
+ * of a streaming observation are pulled one after another and merged into
+ * the current observation as long as the merge indicator allows it; the
+ * merged observation is emitted as soon as a value cannot be merged, so only
+ * one merged observation is held in memory at a time instead of the whole
+ * series. In contrast to {@link AbstractStreaming#merge(ObservationMergeIndicator)}
+ * only consecutive values are merged.
+ */
+public class MergingObservationStream extends AbstractThrowingIterator<OmObservation, OwsExceptionReport>
+        implements ObservationStream {
+
+    private final ObservationStream observations;
+
+    private final ObservationMergeIndicator indicator;
+
+    private AbstractStreaming current;
+
+    private OmObservation pending;
+
+    /**
+     * constructor
+     *
+     * @param observations
+     *            the merged observations
+     * @param indicator
+     *            the indicator to merge the values of streaming observations
+     */
+    public MergingObservationStream(ObservationStream observations, ObservationMergeIndicator indicator) {
+        this.observations = observations;
+        this.indicator = indicator;
+    }
+
+    @Override
+    protected OmObservation computeNext() throws OwsExceptionReport {
+        while (true) {
+            if (current != null) {
+                OmObservation merged = nextValue();
+                if (merged != null) {
+                    return merge(merged);
+                }
+                current = null;
+            }
+            if (!observations.hasNext()) {
+                return endOfData();
+            }
+            OmObservation observation = observations.next();
+            if (observation.getValue() instanceof AbstractStreaming) {
+                current = (AbstractStreaming) observation.getValue();
+            } else {
+                return observation;
+            }
+        }
+    }
+
+    private OmObservation nextValue() throws OwsExceptionReport {
+        if (pending != null) {
+            OmObservation value = pending;
+            pending = null;
+            return value;
+        }
+        return current.hasNext() ? current.next() : null;
+    }
+
+    private OmObservation merge(OmObservation merged) throws OwsExceptionReport {
+        while (current.hasNext()) {
+            OmObservation value = current.next();
+            if (!merged.checkForMerge(value, indicator)) {
+                pending = value;
+                return merged;
+            }
+            merged.mergeWithObservation(value);
+        }
+        return merged;
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.converter;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.Is;
+import org.hamcrest.core.IsSame;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.n52.shetland.ogc.om.ObservationMergeIndicator;
+import org.n52.shetland.ogc.om.ObservationStream;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.response.AbstractStreaming;
+
+import com.google.common.collect.Lists;
+
+public class MergingObservationStreamTest {
+
+    @Test
+    public void shouldPassNotStreamingObservations() throws OwsExceptionReport {
+        OmObservation first = new OmObservation();
+        OmObservation second = new OmObservation();
+        ObservationStream stream = new MergingObservationStream(ObservationStream.of(Lists.newArrayList(first, second)),
+                ObservationMergeIndicator.sameObservationConstellation());
+        MatcherAssert.assertThat(stream.hasNext(), Is.is(true));
+        MatcherAssert.assertThat(stream.next(), IsSame.sameInstance(first));
+        MatcherAssert.assertThat(stream.next(), IsSame.sameInstance(second));
+        MatcherAssert.assertThat(stream.hasNext(), Is.is(false));
+    }
+
+    @Test
+    public void shouldMergeStreamingValuesWhenPulled() throws OwsExceptionReport {
+        ObservationMergeIndicator indicator = ObservationMergeIndicator.sameObservationConstellation();
+        OmObservation first = new OmObservation();
+        OmObservation value1 = Mockito.mock(OmObservation.class);
+        OmObservation value2 = Mockito.mock(OmObservation.class);
+        OmObservation value3 = Mockito.mock(OmObservation.class);
+        Mockito.when(value1.checkForMerge(value2, indicator)).thenReturn(true);
+        Mockito.when(value1.checkForMerge(value3, indicator)).thenReturn(false);
+        AbstractStreaming streaming = Mockito.mock(AbstractStreaming.class);
+        Mockito.when(streaming.hasNext()).thenReturn(true, true, true, false);
+        Mockito.when(streaming.next()).thenReturn(value1, value2, value3);
+        OmObservation streamingObservation = new OmObservation();
+        streamingObservation.setValue(streaming);
+        ObservationStream stream = new MergingObservationStream(
+                ObservationStream.of(Lists.newArrayList(first, streamingObservation)), indicator);
+        MatcherAssert.assertThat(stream.next(), IsSame.sameInstance(first));
+        Mockito.verify(streaming, Mockito.never()).next();
+        MatcherAssert.assertThat(stream.next(), IsSame.sameInstance(value1));
+        Mockito.verify(value1).mergeWithObservation(value2);
+        Mockito.verify(streaming, Mockito.times(3)).next();
+        MatcherAssert.assertThat(stream.next(), IsSame.sameInstance(value3));
+        MatcherAssert.assertThat(stream.hasNext(), Is.is(false));
+        Mockito.verify(value1, Mockito.never()).mergeWithObservation(value3);
+        Mockito.verify(streaming, Mockito.never()).merge(indicator);
+    }
+
+    @Test
+    public void shouldHandleEmptyStream() throws OwsExceptionReport {
+        ObservationStream stream = new MergingObservationStream(ObservationStream.empty(),
+                ObservationMergeIndicator.sameObservationConstellation());
+        MatcherAssert.assertThat(stream.hasNext(), Is.is(false));
+    }
+}
@@ -38,10 +38,18 @@ import org.n52.iceland.coding.encode.ResponseProxy;
 import org.n52.iceland.coding.encode.ResponseWriter;
 import org.n52.iceland.coding.encode.ResponseWriterKey;
 import org.n52.iceland.coding.encode.ResponseWriterRepository;
+import org.n52.janmayen.AbstractThrowingIterator;
+import org.n52.janmayen.event.EventBus;
 import org.n52.janmayen.http.MediaType;
+import org.n52.shetland.ogc.om.ObservationStream;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.ogc.ows.service.OwsOperationKey;
 import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
 import org.n52.shetland.ogc.ows.service.ResponseFormat;
+import org.n52.shetland.ogc.sos.response.AbstractObservationResponse;
+import org.n52.sos.event.events.ResponseEncodingEvent;
+import org.n52.sos.util.DatabaseTimer;
 import org.n52.svalbard.encode.Encoder;
 import org.n52.svalbard.encode.EncoderRepository;
 import org.n52.svalbard.encode.OperationResponseEncoderKey;
@@ -62,10 +70,28 @@ public class AbstractServiceResponseWriter extends AbstractResponseWriter<OwsSer
 
     private final ResponseWriterRepository responseWriterRepository;
 
+    private final EventBus serviceEventBus;
+
     public AbstractServiceResponseWriter(EncoderRepository encoderRepository,
                                          ResponseWriterRepository responseWriterRepository) {
+        this(encoderRepository, responseWriterRepository, null);
+    }
+
+    /**
+     * @param encoderRepository
+     *            the encoder repository
+     * @param responseWriterRepository
+     *            the response writer repository
+     * @param serviceEventBus
+     *            the event bus to submit a {@link ResponseEncodingEvent} to
+     *            after writing, may be {@code null}
+     */
+    public AbstractServiceResponseWriter(EncoderRepository encoderRepository,
+                                         ResponseWriterRepository responseWriterRepository,
+                                         EventBus serviceEventBus) {
         super(encoderRepository);
         this.responseWriterRepository = responseWriterRepository;
+        this.serviceEventBus = serviceEventBus;
     }
 
 
@@ -76,6 +102,28 @@ public class AbstractServiceResponseWriter extends AbstractResponseWriter<OwsSer
     @Override
     public void write(OwsServiceResponse asr, OutputStream out, ResponseProxy responseProxy)
             throws IOException, EncodingException {
+        if (serviceEventBus == null) {
+            encode(asr, out, responseProxy);
+            return;
+        }
+        CountingObservationStream observations = null;
+        if (asr instanceof AbstractObservationResponse
+                && ((AbstractObservationResponse) asr).getObservationCollection() != null) {
+            AbstractObservationResponse response = (AbstractObservationResponse) asr;
+            observations = new CountingObservationStream(response.getObservationCollection());
+            response.setObservationCollection(observations);
+        }
+        long database = DatabaseTimer.get();
+        long start = System.nanoTime();
+        encode(asr, out, responseProxy);
+        long duration = System.nanoTime() - start;
+        long databaseWhileEncoding = DatabaseTimer.get() - database;
+        serviceEventBus.submit(new ResponseEncodingEvent(asr, duration - databaseWhileEncoding, DatabaseTimer.get(),
+                observations != null ? observations.getCount() : -1));
+    }
+
+    private void encode(OwsServiceResponse asr, OutputStream out, ResponseProxy responseProxy)
+            throws IOException, EncodingException {
         Encoder<Object, OwsServiceResponse> encoder = getEncoder(asr);
         if (encoder != null) {
             if (encoder instanceof StreamingEncoder) {
@@ -150,4 +198,33 @@ public class AbstractServiceResponseWriter extends AbstractResponseWriter<OwsSer
                 new OperationResponseEncoderKey(new OwsOperationKey(asr), getEncodedContentType(asr));
         return key;
     }
+
+    /**
+     * {@link ObservationStream} counting the observations pulled by the
+     * encoder.
+     */
+    private static class CountingObservationStream extends AbstractThrowingIterator<OmObservation, OwsExceptionReport>
+            implements ObservationStream {
+
+        private final ObservationStream observations;
+
+        private long count;
+
+        CountingObservationStream(ObservationStream observations) {
+            this.observations = observations;
+        }
+
+        @Override
+        protected OmObservation computeNext() throws OwsExceptionReport {
+            if (!observations.hasNext()) {
+                return endOfData();
+            }
+            count++;
+            return observations.next();
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
 }
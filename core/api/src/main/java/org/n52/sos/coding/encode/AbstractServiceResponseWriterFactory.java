@@ -35,6 +35,7 @@ import org.n52.iceland.coding.encode.ResponseWriterFactory;
 import org.n52.iceland.coding.encode.ResponseWriterKey;
 import org.n52.iceland.coding.encode.ResponseWriterRepository;
 import org.n52.janmayen.component.SingleTypeComponentFactory;
+import org.n52.janmayen.event.EventBus;
 import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
 import org.n52.svalbard.encode.EncoderRepository;
 
@@ -56,12 +57,18 @@ public class AbstractServiceResponseWriterFactory
 
     private ResponseWriterRepository responseWriterRepository;
     private EncoderRepository encoderRepository;
+    private EventBus serviceEventBus;
 
     @Inject
     public void setEncoderRepository(EncoderRepository encoderRepository) {
         this.encoderRepository = encoderRepository;
     }
 
+    @Inject
+    public void setServiceEventBus(EventBus serviceEventBus) {
+        this.serviceEventBus = serviceEventBus;
+    }
+
     @Inject
     public void setResponseWriterRepository(
             ResponseWriterRepository responseWriterRepository) {
@@ -76,6 +83,7 @@ public class AbstractServiceResponseWriterFactory
     @Override
     public AbstractServiceResponseWriter create() {
         return new AbstractServiceResponseWriter(this.encoderRepository,
-                                                 this.responseWriterRepository);
+                                                 this.responseWriterRepository,
+                                                 this.serviceEventBus);
     }
 }
@@ -37,6 +37,110 @@ import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
  */
 public interface DeleteDeletedObservationDAO {
 
+    /**
+     * Start the physical deletion of the observations flagged as deleted. The
+     * observations are deleted in the background, the progress can be queried
+     * with {@link #getProgress()}. If a deletion is already running, it is
+     * continued.
+     *
+     * @throws OwsExceptionReport
+     *             If the deletion can not be started
+     */
     void deleteDeletedObservations() throws OwsExceptionReport;
 
+    /**
+     * @return the progress of the running or the last deletion
+     */
+    DeletionProgress getProgress();
+
+    /**
+     * Cancel the running deletion after the current batch.
+     *
+     * @return if a running deletion was cancelled
+     */
+    boolean cancel();
+
+    enum DeletionState {
+        IDLE, RUNNING, CANCELLING, FINISHED, CANCELLED, FAILED;
+
+        public boolean isActive() {
+            return this == RUNNING || this == CANCELLING;
+        }
+    }
+
+    class DeletionProgress {
+        private final DeletionState state;
+
+        private final long total;
+
+        private final long deleted;
+
+        private final long batches;
+
+        private final long duration;
+
+        private final long throttle;
+
+        private final String message;
+
+        public DeletionProgress(DeletionState state, long total, long deleted, long batches, long duration,
+                long throttle, String message) {
+            this.state = state;
+            this.total = total;
+            this.deleted = deleted;
+            this.batches = batches;
+            this.duration = duration;
+            this.throttle = throttle;
+            this.message = message;
+        }
+
+        public DeletionState getState() {
+            return state;
+        }
+
+        /**
+         * @return the number of observations flagged as deleted when the
+         *         deletion was started
+         */
+        public long getTotal() {
+            return total;
+        }
+
+        public long getDeleted() {
+            return deleted;
+        }
+
+        public long getBatches() {
+            return batches;
+        }
+
+        /**
+         * @return the duration of the deletion in milliseconds
+         */
+        public long getDuration() {
+            return duration;
+        }
+
+        /**
+         * @return the deleted observations per second
+         */
+        public double getThroughput() {
+            return duration > 0 ? deleted * 1000.0 / duration : 0;
+        }
+
+        /**
+         * @return the current pause between two batches in milliseconds
+         */
+        public long getThrottle() {
+            return throttle;
+        }
+
+        /**
+         * @return the error message of a failed deletion
+         */
+        public String getMessage() {
+            return message;
+        }
+    }
+
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds;
+
+import java.util.List;
+
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+
+/**
+ * Checks the database for the recommended indexes of the observation table.
+ */
+public interface ObservationIndexDAO {
+
+    /**
+     * Check which of the recommended observation indexes exist.
+     *
+     * @return the state of the recommended indexes
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    List<IndexState> checkIndexes() throws OwsExceptionReport;
+
+    class IndexState {
+        private final String name;
+
+        private final boolean present;
+
+        private final String statement;
+
+        public IndexState(String name, boolean present, String statement) {
+            this.name = name;
+            this.present = present;
+            this.statement = statement;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isPresent() {
+            return present;
+        }
+
+        /**
+         * @return the statement creating the index
+         */
+        public String getStatement() {
+            return statement;
+        }
+    }
+
+}
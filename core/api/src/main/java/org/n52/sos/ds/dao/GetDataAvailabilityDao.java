@@ -50,6 +50,36 @@ public interface GetDataAvailabilityDao extends DefaultDao {
     List<TimeInstant> getResultTimes(DataAvailability dataAvailability, GetDataAvailabilityRequest request,
             Object connection) throws OwsExceptionReport;
 
+    /**
+     * Get the result times of the dataset from a maintained rollup.
+     *
+     * @param datasetId
+     *            the id of the dataset of the {@link DataAvailability}
+     * @param request
+     *            the request
+     * @param connection
+     *            the connection to use
+     * @return the result times or {@code null} if no rollup is available or
+     *         the request can not be answered from the rollup
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    List<TimeInstant> getResultTimes(Long datasetId, GetDataAvailabilityRequest request, Object connection)
+            throws OwsExceptionReport;
+
+    /**
+     * Get the observation count of the dataset from a maintained rollup.
+     *
+     * @param datasetId
+     *            the id of the dataset of the {@link DataAvailability}
+     * @param connection
+     *            the connection to use
+     * @return the observation count or {@code null} if no rollup is available
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    Long getCount(Long datasetId, Object connection) throws OwsExceptionReport;
+
     Map<String, NamedValue<?>> getMetadata(DataAvailability dataAvailability) throws OwsExceptionReport;
 
     Map<String, NamedValue<?>> getMetadata(DataAvailability dataAvailability, Object connection)
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.event.events;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.n52.iceland.event.events.AbstractFlowEvent;
+import org.n52.shetland.ogc.ows.service.OwsServiceRequest;
+import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
+
+/**
+ * Flow event carrying the time a request operator spent in the phases of an
+ * operation. It is submitted once the response left the response modifiers,
+ * i.e. before the response is encoded.
+ */
+public class OperationTimingEvent extends AbstractFlowEvent {
+
+    /**
+     * The phases of an operation measured by the request operator.
+     */
+    public enum Phase {
+        /**
+         * Request pre-processing, request modifiers and parameter checks
+         * against the content cache.
+         */
+        CHECK,
+        /**
+         * The operation handler, i.e. database access and the conversion to
+         * the response objects.
+         */
+        HANDLE,
+        /**
+         * Response post-processing and response modifiers.
+         */
+        MODIFY
+    }
+
+    private final OwsServiceRequest request;
+
+    private final OwsServiceResponse response;
+
+    private final Map<Phase, Long> durations;
+
+    /**
+     * @param request
+     *            the request
+     * @param response
+     *            the (modified) response
+     * @param durations
+     *            the duration of each phase in nanoseconds
+     */
+    public OperationTimingEvent(OwsServiceRequest request, OwsServiceResponse response,
+            Map<Phase, Long> durations) {
+        super(Thread.currentThread().getId());
+        this.request = request;
+        this.response = response;
+        this.durations = durations.isEmpty() ? Collections.emptyMap() : new EnumMap<>(durations);
+    }
+
+    public OwsServiceRequest getRequest() {
+        return request;
+    }
+
+    public OwsServiceResponse getResponse() {
+        return response;
+    }
+
+    public String getOperationName() {
+        return request.getOperationName();
+    }
+
+    /**
+     * @param phase
+     *            the phase
+     * @return the duration of the phase in nanoseconds, {@code 0} if it was
+     *         not measured
+     */
+    public long getDuration(Phase phase) {
+        return durations.getOrDefault(phase, 0L);
+    }
+
+    /**
+     * @return the summed duration of all phases in nanoseconds
+     */
+    public long getTotalDuration() {
+        return durations.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public Map<Phase, Long> getDurations() {
+        return Collections.unmodifiableMap(durations);
+    }
+}
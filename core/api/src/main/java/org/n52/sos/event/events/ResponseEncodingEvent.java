@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.event.events;
+
+import org.n52.iceland.event.events.AbstractFlowEvent;
+import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
+
+/**
+ * Flow event carrying the time spent encoding a response, the time spent in
+ * the database during the whole operation and the number of encoded
+ * observations. It is submitted after the response is written. Observation
+ * responses are streamed, so their database access partly happens while
+ * encoding; this time is not contained in the encoding duration.
+ */
+public class ResponseEncodingEvent extends AbstractFlowEvent {
+
+    private final OwsServiceResponse response;
+
+    private final long encodingDuration;
+
+    private final long databaseDuration;
+
+    private final long observationCount;
+
+    /**
+     * @param response
+     *            the encoded response
+     * @param encodingDuration
+     *            the encoding duration without database access in
+     *            nanoseconds
+     * @param databaseDuration
+     *            the database duration of the operation in nanoseconds
+     * @param observationCount
+     *            the number of encoded observations, {@code -1} if the
+     *            response is no observation response
+     */
+    public ResponseEncodingEvent(OwsServiceResponse response, long encodingDuration, long databaseDuration,
+            long observationCount) {
+        super(Thread.currentThread().getId());
+        this.response = response;
+        this.encodingDuration = encodingDuration;
+        this.databaseDuration = databaseDuration;
+        this.observationCount = observationCount;
+    }
+
+    public OwsServiceResponse getResponse() {
+        return response;
+    }
+
+    public String getOperationName() {
+        return response != null ? response.getOperationName() : null;
+    }
+
+    public long getEncodingDuration() {
+        return encodingDuration;
+    }
+
+    public long getDatabaseDuration() {
+        return databaseDuration;
+    }
+
+    public long getObservationCount() {
+        return observationCount;
+    }
+
+    public boolean isSetObservationCount() {
+        return observationCount >= 0;
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.janmayen.lifecycle.Destroyable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of the counters, timers and gauges recorded by the service
+ * components. Metrics are created on first access and only consist of a few
+ * atomic adders, so they can stay enabled in production. The registry is
+ * exposed by the admin interface and optionally as JMX MBean.
+ */
+@Configurable
+public class MetricRegistry implements Destroyable {
+
+    public static final String JMX_ENABLED = "service.metrics.jmx.enabled";
+
+    public static final String OBJECT_NAME = "org.n52.sos:type=Metrics";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetricRegistry.class);
+
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Supplier<? extends Number>> gauges = new ConcurrentHashMap<>();
+
+    private ObjectName registeredName;
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    public Timer timer(String name) {
+        return timers.computeIfAbsent(name, n -> new Timer());
+    }
+
+    /**
+     * Registers a gauge, replacing a previously registered gauge of the same
+     * name.
+     *
+     * @param name
+     *            the name
+     * @param gauge
+     *            the supplier of the current value
+     */
+    public void gauge(String name, Supplier<? extends Number> gauge) {
+        gauges.put(name, gauge);
+    }
+
+    public Map<String, Counter> getCounters() {
+        return Collections.unmodifiableMap(counters);
+    }
+
+    public Map<String, Timer> getTimers() {
+        return Collections.unmodifiableMap(timers);
+    }
+
+    public Map<String, Supplier<? extends Number>> getGauges() {
+        return Collections.unmodifiableMap(gauges);
+    }
+
+    /**
+     * @return the current values grouped by metric type, timers in
+     *         milliseconds
+     */
+    public Map<String, Object> snapshot() {
+        SortedMap<String, Object> counterValues = new TreeMap<>();
+        counters.forEach((name, counter) -> counterValues.put(name, counter.getCount()));
+        SortedMap<String, Object> timerValues = new TreeMap<>();
+        timers.forEach((name, timer) -> {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("count", timer.getCount());
+            values.put("total", timer.getTotal(TimeUnit.MILLISECONDS));
+            values.put("mean", timer.getMean(TimeUnit.MILLISECONDS));
+            values.put("max", timer.getMax(TimeUnit.MILLISECONDS));
+            timerValues.put(name, values);
+        });
+        SortedMap<String, Object> gaugeValues = new TreeMap<>();
+        gauges.forEach((name, gauge) -> gaugeValues.put(name, getGaugeValue(gauge)));
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("counters", counterValues);
+        snapshot.put("timers", timerValues);
+        snapshot.put("gauges", gaugeValues);
+        return snapshot;
+    }
+
+    /**
+     * @return the current values as flat name/value pairs, timers are split
+     *         into {@code .count}, {@code .total}, {@code .mean} and
+     *         {@code .max} in milliseconds
+     */
+    public SortedMap<String, Number> flatten() {
+        SortedMap<String, Number> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.getCount()));
+        timers.forEach((name, timer) -> {
+            values.put(name + ".count", timer.getCount());
+            values.put(name + ".total", timer.getTotal(TimeUnit.MILLISECONDS));
+            values.put(name + ".mean", timer.getMean(TimeUnit.MILLISECONDS));
+            values.put(name + ".max", timer.getMax(TimeUnit.MILLISECONDS));
+        });
+        gauges.forEach((name, gauge) -> values.put(name, getGaugeValue(gauge)));
+        return values;
+    }
+
+    @Setting(JMX_ENABLED)
+    public synchronized void setJmxEnabled(boolean enabled) {
+        if (enabled && registeredName == null) {
+            register();
+        } else if (!enabled && registeredName != null) {
+            unregister();
+        }
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (registeredName != null) {
+            unregister();
+        }
+    }
+
+    private void register() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                LOGGER.warn("JMX name {} is already in use, metrics are not exported", name);
+                return;
+            }
+            server.registerMBean(new MetricsMBean(this), name);
+            this.registeredName = name;
+        } catch (JMException e) {
+            LOGGER.warn("Could not register metrics as JMX MBean", e);
+        }
+    }
+
+    private void unregister() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+        } catch (JMException e) {
+            LOGGER.warn("Could not unregister metrics JMX MBean", e);
+        } finally {
+            this.registeredName = null;
+        }
+    }
+
+    private static Number getGaugeValue(Supplier<? extends Number> gauge) {
+        try {
+            Number value = gauge.get();
+            return value != null ? value : 0;
+        } catch (RuntimeException e) {
+            LOGGER.debug("Could not read gauge", e);
+            return 0;
+        }
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the number, total and maximum of durations.
+ */
+public class Timer {
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder total = new LongAdder();
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param nanos
+     *            the duration in nanoseconds
+     */
+    public void record(long nanos) {
+        long duration = Math.max(0, nanos);
+        count.increment();
+        total.add(duration);
+        max.accumulateAndGet(duration, Math::max);
+    }
+
+    public void record(long duration, TimeUnit unit) {
+        record(unit.toNanos(duration));
+    }
+
+    /**
+     * Starts a measurement which is recorded when the returned context is
+     * closed.
+     *
+     * @return the context
+     */
+    public Context start() {
+        return new Context(this, System.nanoTime());
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotal(TimeUnit unit) {
+        return unit.convert(total.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getMax(TimeUnit unit) {
+        return unit.convert(max.get(), TimeUnit.NANOSECONDS);
+    }
+
+    public double getMean(TimeUnit unit) {
+        long c = getCount();
+        return c == 0 ? 0 : (double) total.sum() / c / unit.toNanos(1);
+    }
+
+    /**
+     * Running measurement of a {@link Timer}.
+     */
+    public static final class Context implements AutoCloseable {
+        private final Timer timer;
+
+        private final long start;
+
+        private Context(Timer timer, long start) {
+            this.timer = timer;
+            this.start = start;
+        }
+
+        /**
+         * @return the elapsed time in nanoseconds
+         */
+        public long stop() {
+            long elapsed = System.nanoTime() - start;
+            timer.record(elapsed);
+            return elapsed;
+        }
+
+        @Override
+        public void close() {
+            stop();
+        }
+    }
+
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.request;
+
+import java.util.Locale;
+import java.util.Optional;
+
+import org.joda.time.Period;
+import org.n52.shetland.ogc.ows.exception.InvalidParameterValueException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.extension.Extension;
+import org.n52.shetland.ogc.ows.service.OwsServiceRequest;
+import org.n52.shetland.ogc.swe.simpleType.SweText;
+
+import com.google.common.base.Strings;
+
+/**
+ * Temporal aggregation of the values of a GetObservation request, requested
+ * with the text extension {@value #EXTENSION}.
+ * <p>
+ * The value is either {@code <function>,<interval>} with one of the interval
+ * functions ({@code min}, {@code max}, {@code mean}, {@code count},
+ * {@code first}, {@code last}) and a fixed ISO 8601 duration as bucket size,
+ * e.g. {@code mean,PT1H}, or {@code lttb,<points>} to downsample each series
+ * to the visually most significant points, e.g. {@code lttb,1000}.
+ */
+public final class TemporalAggregation {
+
+    public static final String EXTENSION = "aggregation";
+
+    private static final String SEPARATOR = ",";
+
+    private static final int MIN_POINTS = 3;
+
+    private final Function function;
+
+    private final long interval;
+
+    private final int points;
+
+    private TemporalAggregation(Function function, long interval, int points) {
+        this.function = function;
+        this.interval = interval;
+        this.points = points;
+    }
+
+    public static TemporalAggregation interval(Function function, long interval) {
+        if (function == Function.LTTB || interval <= 0) {
+            throw new IllegalArgumentException("invalid interval aggregation");
+        }
+        return new TemporalAggregation(function, interval, 0);
+    }
+
+    public static TemporalAggregation lttb(int points) {
+        if (points < MIN_POINTS) {
+            throw new IllegalArgumentException("at least three points are required");
+        }
+        return new TemporalAggregation(Function.LTTB, 0, points);
+    }
+
+    /**
+     * @return the function
+     */
+    public Function getFunction() {
+        return function;
+    }
+
+    /**
+     * @return the bucket size in milliseconds, {@code 0} for
+     *         {@link Function#LTTB}
+     */
+    public long getInterval() {
+        return interval;
+    }
+
+    /**
+     * @return the number of points of {@link Function#LTTB}, {@code 0}
+     *         otherwise
+     */
+    public int getPoints() {
+        return points;
+    }
+
+    /**
+     * @param time
+     *            the time in milliseconds
+     * @return the start of the bucket containing the time
+     */
+    public long getBucketStart(long time) {
+        return Math.floorDiv(time, interval) * interval;
+    }
+
+    @Override
+    public String toString() {
+        return function.name().toLowerCase(Locale.ROOT) + SEPARATOR
+                + (function == Function.LTTB ? Integer.toString(points) : new Period(interval).toString());
+    }
+
+    /**
+     * Parse the aggregation extension of the request.
+     *
+     * @param request
+     *            the request
+     * @return the aggregation, if requested
+     * @throws OwsExceptionReport
+     *             if the aggregation is invalid
+     */
+    public static Optional<TemporalAggregation> fromRequest(OwsServiceRequest request) throws OwsExceptionReport {
+        if (request == null || !request.hasExtension(EXTENSION)) {
+            return Optional.empty();
+        }
+        Optional<Extension<?>> extension = request.getExtension(EXTENSION);
+        Object value = extension.map(Extension::getValue).orElse(null);
+        if (value instanceof SweText) {
+            value = ((SweText) value).getValue();
+        }
+        if (!(value instanceof String) || Strings.isNullOrEmpty((String) value)) {
+            throw new InvalidParameterValueException().at(EXTENSION)
+                    .withMessage("The value of the extension '%s' is missing or not a text!", EXTENSION);
+        }
+        return Optional.of(parse((String) value));
+    }
+
+    /**
+     * Parse an aggregation.
+     *
+     * @param value
+     *            the value, e.g. {@code mean,PT1H} or {@code lttb,1000}
+     * @return the aggregation
+     * @throws InvalidParameterValueException
+     *             if the value is invalid
+     */
+    public static TemporalAggregation parse(String value) throws InvalidParameterValueException {
+        String[] parts = value.split(SEPARATOR);
+        if (parts.length != 2) {
+            throw invalid(value);
+        }
+        Function function = Function.fromString(parts[0].trim());
+        if (function == null) {
+            throw invalid(value);
+        }
+        String parameter = parts[1].trim();
+        try {
+            if (function == Function.LTTB) {
+                int points = Integer.parseInt(parameter);
+                if (points >= MIN_POINTS) {
+                    return lttb(points);
+                }
+            } else {
+                long interval = Period.parse(parameter).toStandardDuration().getMillis();
+                if (interval > 0) {
+                    return interval(function, interval);
+                }
+            }
+        } catch (IllegalArgumentException | UnsupportedOperationException e) {
+            // months and years have no fixed duration
+            throw invalid(value);
+        }
+        throw invalid(value);
+    }
+
+    private static InvalidParameterValueException invalid(String value) {
+        return (InvalidParameterValueException) new InvalidParameterValueException().at(EXTENSION).withMessage(
+                "The aggregation '%s' is invalid! Expected '<min|max|mean|count|first|last>,<ISO 8601 duration>'"
+                        + " or 'lttb,<number of points greater than 2>'.",
+                value);
+    }
+
+    /**
+     * The aggregation functions.
+     */
+    public enum Function {
+        MIN,
+        MAX,
+        MEAN,
+        COUNT,
+        FIRST,
+        LAST,
+        /**
+         * Largest-Triangle-Three-Buckets downsampling
+         */
+        LTTB;
+
+        /**
+         * @return if the function requires numeric values
+         */
+        public boolean isNumeric() {
+            return this == MIN || this == MAX || this == MEAN || this == LTTB;
+        }
+
+        /**
+         * @return if the function returns original values instead of
+         *         computed values
+         */
+        public boolean isSelecting() {
+            return this == FIRST || this == LAST || this == LTTB;
+        }
+
+        static Function fromString(String name) {
+            for (Function function : values()) {
+                if (function.name().equalsIgnoreCase(name)) {
+                    return function;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -32,7 +32,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
@@ -95,12 +97,15 @@ import org.n52.shetland.util.CollectionHelper;
 import org.n52.sos.cache.SosContentCache;
 import org.n52.sos.coding.encode.ProcedureDescriptionFormatRepository;
 import org.n52.sos.coding.encode.ResponseFormatRepository;
+import org.n52.sos.event.events.OperationTimingEvent;
+import org.n52.sos.event.events.OperationTimingEvent.Phase;
 import org.n52.sos.exception.ows.concrete.InvalidResponseFormatParameterException;
 import org.n52.sos.exception.ows.concrete.InvalidValueReferenceException;
 import org.n52.sos.exception.ows.concrete.MissingProcedureParameterException;
 import org.n52.sos.exception.ows.concrete.MissingResponseFormatParameterException;
 import org.n52.sos.service.profile.Profile;
 import org.n52.sos.service.profile.ProfileHandler;
+import org.n52.sos.util.DatabaseTimer;
 import org.n52.svalbard.encode.EncoderRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -374,13 +379,23 @@ public abstract class AbstractRequestOperator<D extends OperationHandler,
         this.serviceEventBus.submit(new RequestEvent(abstractRequest));
         if (requestType.isAssignableFrom(abstractRequest.getClass()) && isSupported()) {
             Q request = requestType.cast(abstractRequest);
+            Map<Phase, Long> durations = new EnumMap<>(Phase.class);
+            DatabaseTimer.reset();
+            long start = System.nanoTime();
             preProcessRequest(request);
             checkForModifierAndProcess(request);
             checkParameters(request);
+            long checked = System.nanoTime();
+            durations.put(Phase.CHECK, checked - start);
             A response = receive(request);
+            long handled = System.nanoTime();
+            durations.put(Phase.HANDLE, handled - checked);
             this.serviceEventBus.submit(new ResponseEvent(response));
             postProcessResponse(response);
-            return checkForModifierAndProcess(request, response);
+            OwsServiceResponse modified = checkForModifierAndProcess(request, response);
+            durations.put(Phase.MODIFY, System.nanoTime() - handled);
+            this.serviceEventBus.submit(new OperationTimingEvent(request, modified, durations));
+            return modified;
         } else {
             throw new OperationNotSupportedException(abstractRequest.getOperationName());
         }
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.util;
+
+/**
+ * Sums the time the current thread spent executing database statements, so
+ * the time of a request can be split into database access and the remaining
+ * processing. The datasource adds the statement durations, the request
+ * operator resets the sum when an operation starts.
+ */
+public final class DatabaseTimer {
+
+    private static final ThreadLocal<long[]> NANOS = ThreadLocal.withInitial(() -> new long[1]);
+
+    private DatabaseTimer() {
+    }
+
+    /**
+     * Reset the summed time of the current thread.
+     */
+    public static void reset() {
+        NANOS.get()[0] = 0;
+    }
+
+    /**
+     * @param nanos
+     *            the duration of a database statement in nanoseconds
+     */
+    public static void add(long nanos) {
+        NANOS.get()[0] += nanos;
+    }
+
+    /**
+     * @return the summed time of the current thread since the last reset in
+     *         nanoseconds
+     */
+    public static long get() {
+        return NANOS.get()[0];
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Test;
+
+public class MetricRegistryTest {
+
+    private final MetricRegistry registry = new MetricRegistry();
+
+    @After
+    public void tearDown() {
+        registry.destroy();
+    }
+
+    @Test
+    public void countsAndTimes() {
+        registry.counter("c").increment();
+        registry.counter("c").add(2);
+        registry.timer("t").record(2, TimeUnit.MILLISECONDS);
+        registry.timer("t").record(4, TimeUnit.MILLISECONDS);
+
+        MatcherAssert.assertThat(registry.counter("c").getCount(), Matchers.is(3L));
+        Timer timer = registry.timer("t");
+        MatcherAssert.assertThat(timer.getCount(), Matchers.is(2L));
+        MatcherAssert.assertThat(timer.getTotal(TimeUnit.MILLISECONDS), Matchers.is(6L));
+        MatcherAssert.assertThat(timer.getMax(TimeUnit.MILLISECONDS), Matchers.is(4L));
+        MatcherAssert.assertThat(timer.getMean(TimeUnit.MILLISECONDS), Matchers.is(3.0));
+    }
+
+    @Test
+    public void timerContextRecordsOnClose() {
+        try (Timer.Context context = registry.timer("t").start()) {
+            MatcherAssert.assertThat(registry.timer("t").getCount(), Matchers.is(0L));
+        }
+        MatcherAssert.assertThat(registry.timer("t").getCount(), Matchers.is(1L));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void snapshotAndFlatten() {
+        registry.counter("c").increment();
+        registry.timer("t").record(1, TimeUnit.MILLISECONDS);
+        registry.gauge("g", () -> 42);
+        registry.gauge("failing", () -> {
+            throw new IllegalStateException();
+        });
+
+        Map<String, Object> snapshot = registry.snapshot();
+        Map<String, Object> counters = (Map<String, Object>) snapshot.get("counters");
+        Map<String, Object> gauges = (Map<String, Object>) snapshot.get("gauges");
+        Map<String, Object> timers = (Map<String, Object>) snapshot.get("timers");
+        MatcherAssert.assertThat(counters, Matchers.<String, Object> hasEntry("c", 1L));
+        MatcherAssert.assertThat(gauges, Matchers.<String, Object> hasEntry("g", 42));
+        MatcherAssert.assertThat(timers, Matchers.<String> hasKey("t"));
+
+        Map<String, Number> flat = registry.flatten();
+        MatcherAssert.assertThat(flat, Matchers.<String, Number> hasEntry("t.count", 1L));
+        MatcherAssert.assertThat(flat, Matchers.<String, Number> hasEntry("failing", 0));
+    }
+
+    @Test
+    public void registersAsMBean() throws Exception {
+        registry.counter("c").add(5);
+        registry.setJmxEnabled(true);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(MetricRegistry.OBJECT_NAME);
+        MatcherAssert.assertThat(server.isRegistered(name), Matchers.is(true));
+        MatcherAssert.assertThat(server.getAttribute(name, "c"), Matchers.is(5L));
+        registry.setJmxEnabled(false);
+        MatcherAssert.assertThat(server.isRegistered(name), Matchers.is(false));
+    }
+}
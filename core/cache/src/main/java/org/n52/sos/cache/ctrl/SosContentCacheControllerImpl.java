@@ -65,6 +65,8 @@ import org.n52.janmayen.lifecycle.Destroyable;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.sos.cache.AbstractStaticSosContentCache;
 import org.n52.sos.cache.ContentCacheFactoryImpl;
+import org.n52.sos.metrics.MetricRegistry;
+import org.n52.sos.metrics.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -77,10 +79,17 @@ public class SosContentCacheControllerImpl implements ContentCacheController, Co
     private static final String STARTING_UPDATE = "Starting update {}";
     private static final String FINISHED_UPDATE = "Finished update {}";
     private static final String UPDATE_FAILED = "Update failed!";
+    private static final String METRIC_COMPLETE_UPDATE = "cache.update.complete";
+    private static final String METRIC_PARTIAL_UPDATE = "cache.update.partial";
+    private static final String METRIC_FAILED_UPDATES = "cache.update.failed";
+    private static final String METRIC_WAITING_UPDATES = "cache.update.waiting";
+    private static final String METRIC_PENDING_PARTIAL_UPDATES = "cache.update.pendingPartial";
     private CompleteUpdate current;
     private CompleteUpdate next;
     private volatile WritableContentCache cache;
     private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicInteger waiting = new AtomicInteger(0);
+    private MetricRegistry metricRegistry = new MetricRegistry();
 
     private ContentCachePersistenceStrategy persistenceStrategy;
     private ContentCacheFactory cacheFactory;
@@ -101,8 +110,18 @@ public class SosContentCacheControllerImpl implements ContentCacheController, Co
         this.completeCacheUpdateFactory = factory;
     }
 
+    @Inject
+    public void setMetricRegistry(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
     @Override
     public void init() {
+        metricRegistry.gauge(METRIC_WAITING_UPDATES, waiting::get);
+        metricRegistry.gauge(METRIC_PENDING_PARTIAL_UPDATES, () -> {
+            CompleteUpdate u = this.current;
+            return u != null ? u.getPendingUpdates() : 0;
+        });
         loadOrCreateCache();
     }
 
@@ -171,7 +190,15 @@ public class SosContentCacheControllerImpl implements ContentCacheController, Co
 
     private void runCurrent() throws OwsExceptionReport {
         LOGGER.trace(STARTING_UPDATE, this.current);
-        this.current.execute();
+        Timer.Context timer = metricRegistry.timer(METRIC_COMPLETE_UPDATE).start();
+        try {
+            this.current.execute();
+        } catch (OwsExceptionReport | RuntimeException e) {
+            metricRegistry.counter(METRIC_FAILED_UPDATES).increment();
+            throw e;
+        } finally {
+            timer.stop();
+        }
         LOGGER.trace(FINISHED_UPDATE, this.current);
         lock();
         try {
@@ -185,7 +212,12 @@ public class SosContentCacheControllerImpl implements ContentCacheController, Co
     }
 
     private void executePartial(PartialUpdate update) throws OwsExceptionReport {
-        update.execute(getCache());
+        try (Timer.Context timer = metricRegistry.timer(METRIC_PARTIAL_UPDATE).start()) {
+            update.execute(getCache());
+        } catch (OwsExceptionReport | RuntimeException e) {
+            metricRegistry.counter(METRIC_FAILED_UPDATES).increment();
+            throw e;
+        }
         lock();
         try {
             if (this.current != null) {
@@ -241,7 +273,12 @@ public class SosContentCacheControllerImpl implements ContentCacheController, Co
 
     private void logAndWait(CompleteUpdate update, CompleteUpdate waitFor) throws OwsExceptionReport {
         LOGGER.trace("{} waiting for {}", update, waitFor);
-        waitFor.waitForCompletion();
+        waiting.incrementAndGet();
+        try {
+            waitFor.waitForCompletion();
+        } finally {
+            waiting.decrementAndGet();
+        }
         LOGGER.trace("{} stopped waiting for {}", update, waitFor);
     }
 
@@ -321,6 +358,10 @@ public class SosContentCacheControllerImpl implements ContentCacheController, Co
             updates.offer(update);
         }
 
+        int getPendingUpdates() {
+            return updates.size();
+        }
+
         State getState() {
             lock();
             try {
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache.ctrl.action;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.ds.CacheFeederHandler;
+
+/**
+ * Reloads the cache data of the offerings whose observations were deleted or
+ * downsampled by the retention job.
+ */
+public class ObservationRetentionUpdate extends CacheFeederDAOCacheUpdate {
+    private final Collection<String> offerings;
+
+    public ObservationRetentionUpdate(CacheFeederHandler dao, Collection<String> offerings) {
+        super(dao);
+        this.offerings = Collections.unmodifiableCollection(new HashSet<>(offerings));
+    }
+
+    @Override
+    public void execute() {
+        try {
+            getCacheFeederDAO().updateCacheOfferings(getCache(), offerings);
+        } catch (OwsExceptionReport ex) {
+            fail(ex);
+        }
+    }
+}
@@ -29,11 +29,13 @@
 package org.n52.sos.ds;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 
@@ -50,6 +52,7 @@ import org.n52.series.db.dao.DatasetDao;
 import org.n52.series.db.dao.DbQuery;
 import org.n52.shetland.ogc.filter.TemporalFilter;
 import org.n52.shetland.ogc.gml.ReferenceType;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
 import org.n52.shetland.ogc.gml.time.TimePeriod;
 import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
@@ -66,6 +69,8 @@ import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityResponse.ObservationForma
 import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityResponse.ProcedureDescriptionFormatDescriptor;
 import org.n52.sos.ds.dao.GetDataAvailabilityDao;
 
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -129,8 +134,8 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
                     processDataAvailability(entity, context, session);
                 }
             }
-            if (!gdaV20) {
-                return checkForDuplictation(context.getDataAvailabilityList());
+            if (gdaV20) {
+                checkForParentOfferings(context);
             }
             return context.getDataAvailabilityList();
         } catch (DataAccessException e) {
@@ -168,11 +173,21 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
                             getObservedPropertyReference(entity, context.getObservableProperties()),
                             getFeatureOfInterestReference(entity, context.getFeaturesOfInterest()),
                             getOfferingReference(entity, context.getOfferings()), timePeriod);
-            if (isShowCount(context.getRequest()) && entity.getObservationCount() >= 0) {
-                dataAvailability.setCount(entity.getObservationCount());
+            if (isShowCount(context.getRequest())) {
+                Long count = dao.isPresent() ? dao.get().getCount(entity.getId(), session) : null;
+                if (count != null) {
+                    dataAvailability.setCount(count);
+                } else if (entity.getObservationCount() >= 0) {
+                    dataAvailability.setCount(entity.getObservationCount());
+                }
             }
             if (isIncludeResultTime(context.getRequest()) && dao.isPresent()) {
-                dataAvailability.setResultTimes(dao.get().getResultTimes(dataAvailability, context.getRequest()));
+                List<TimeInstant> resultTimes =
+                        dao.get().getResultTimes(entity.getId(), context.getRequest(), session);
+                if (resultTimes == null) {
+                    resultTimes = dao.get().getResultTimes(dataAvailability, context.getRequest(), session);
+                }
+                dataAvailability.setResultTimes(resultTimes);
             }
             return dataAvailability;
         }
@@ -196,7 +211,7 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
             throws OwsExceptionReport {
         DataAvailability dataAvailability = defaultProcessDataAvailability(entity, context, session);
         if (dataAvailability != null) {
-            context.addDataAvailability(dataAvailability);
+            context.mergeDataAvailability(dataAvailability);
         }
     }
 
@@ -221,87 +236,61 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
             }
             context.addDataAvailability(dataAvailability);
         }
-        checkForParentOfferings(context, entity.getOffering());
+        context.addOffering(entity.getOffering());
     }
 
     private TimePeriod createTimePeriod(DatasetEntity entity) {
         return new TimePeriod(entity.getFirstValueAt(), entity.getLastValueAt());
     }
 
-    private void checkForParentOfferings(GDARequestContext context, OfferingEntity offeringEntity) {
-        if (context.isSetDataAvailabilityList()) {
-            List<String> requestedOfferings = context.getRequest().getOfferings();
-            for (String requestedOffering : requestedOfferings) {
-                Set<String> childOfferings = getChildOfferings(offeringEntity);
-                if (!childOfferings.isEmpty()) {
-                    if (context.hasDataAvailability(requestedOffering)) {
-                        Set<DataAvailability> parentDataAvailabilities =
-                                context.getDataAvailability(requestedOffering);
-                        for (String childOffering : childOfferings) {
-                            Set<DataAvailability> childDataAvailabilities = context.getDataAvailability(childOffering);
-                            for (DataAvailability childDataAvailability : childDataAvailabilities) {
-                                for (DataAvailability parentDataAvailability : parentDataAvailabilities) {
-                                    parentDataAvailability.merge(childDataAvailability, true);
-                                }
-                            }
-                        }
+    /**
+     * Roll up the {@link DataAvailability}s of child offerings into the
+     * requested parent offerings. The child offerings of each parent offering
+     * were collected while processing the datasets, so each child
+     * {@link DataAvailability} is merged exactly once into the parent
+     * {@link DataAvailability} with the same constellation.
+     *
+     * @param context
+     *            Request context to get {@link DataAvailability}s
+     */
+    static void checkForParentOfferings(GDARequestContext context) {
+        if (!context.isSetDataAvailabilityList() || !context.getRequest().isSetOfferings()) {
+            return;
+        }
+        for (String requestedOffering : context.getRequest().getOfferings()) {
+            Set<String> childOfferings = context.getChildOfferings(requestedOffering);
+            if (childOfferings.isEmpty()) {
+                continue;
+            }
+            Map<DataAvailabilityKey, DataAvailability> parentDataAvailabilities = new HashMap<>();
+            for (DataAvailability parentDataAvailability : context.getDataAvailability(requestedOffering)) {
+                parentDataAvailabilities.putIfAbsent(DataAvailabilityKey.constellation(parentDataAvailability),
+                        parentDataAvailability);
+            }
+            List<DataAvailability> missingParentDataAvailabilities = Lists.newArrayList();
+            for (String childOffering : childOfferings) {
+                for (DataAvailability childDataAvailability : context.getDataAvailability(childOffering)) {
+                    DataAvailabilityKey key = DataAvailabilityKey.constellation(childDataAvailability);
+                    DataAvailability parentDataAvailability = parentDataAvailabilities.get(key);
+                    if (parentDataAvailability == null) {
+                        parentDataAvailability = childDataAvailability.copy();
+                        parentDataAvailabilities.put(key, parentDataAvailability);
+                        missingParentDataAvailabilities.add(parentDataAvailability);
                     } else {
-                        Set<DataAvailability> parentDataAvailabilities = Sets.newHashSet();
-                        for (String childOffering : childOfferings) {
-                            Set<DataAvailability> childDataAvailabilities = context.getDataAvailability(childOffering);
-                            for (DataAvailability childDataAvailability : childDataAvailabilities) {
-                                addParentDataAvailabilityIfMissing(parentDataAvailabilities, childDataAvailability,
-                                        new ReferenceType(requestedOffering));
-                                for (DataAvailability parentDataAvailability : parentDataAvailabilities) {
-                                    parentDataAvailability.merge(childDataAvailability, true);
-                                }
-                            }
-                        }
-                        context.addDataAvailabilities(parentDataAvailabilities);
+                        parentDataAvailability.merge(childDataAvailability, true);
                     }
                 }
             }
+            context.addDataAvailabilities(missingParentDataAvailabilities);
         }
     }
 
-    private Set<String> getChildOfferings(OfferingEntity offering) {
-        Set<String> childs = Sets.newTreeSet();
-        if (offering.hasChildren()) {
-            for (OfferingEntity child : offering.getChildren()) {
-                childs.add(child.getIdentifier());
-                childs.addAll(getChildOfferings(child));
-            }
-        }
-        return childs;
-    }
-
     private boolean checkForGDAv20(GetDataAvailabilityRequest request) {
         return (request.isSetResponseFormat()
                 && GetDataAvailabilityConstants.NS_GDA_20.equals(request.getResponseFormat()))
                 || GetDataAvailabilityConstants.NS_GDA_20.equals(request.getNamespace()) || isForceGDAv20Response();
     }
 
-    private List<DataAvailability> checkForDuplictation(List<DataAvailability> dataAvailabilityValues) {
-        List<DataAvailability> checked = Lists.newLinkedList();
-        for (DataAvailability dataAvailability : dataAvailabilityValues) {
-            if (checked.isEmpty()) {
-                checked.add(dataAvailability);
-            } else {
-                boolean notDuplicated = true;
-                for (DataAvailability checkedDA : checked) {
-                    if (dataAvailability.equals(checkedDA)) {
-                        checkedDA.getPhenomenonTime().extendToContain(dataAvailability.getPhenomenonTime());
-                        notDuplicated = false;
-                    }
-                }
-                if (notDuplicated) {
-                    checked.add(dataAvailability);
-                }
-            }
-        }
-        return checked;
-    }
-
     private ReferenceType getProcedureReference(DatasetEntity entity, Map<String, ReferenceType> procedures) {
         String identifier = entity.getProcedure().getIdentifier();
         if (!procedures.containsKey(identifier)) {
@@ -443,25 +432,17 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
         return formatDescriptors;
     }
 
-    private boolean addParentDataAvailabilityIfMissing(Set<DataAvailability> parentDataAvailabilities,
-            DataAvailability childDataAvailability, ReferenceType offering) {
-        boolean notContained = true;
-        for (DataAvailability parentDataAvailability : parentDataAvailabilities) {
-            if (parentDataAvailability.sameConstellation(childDataAvailability)) {
-                notContained = false;
-            }
-        }
-        if (notContained) {
-            parentDataAvailabilities.add(childDataAvailability.copy());
-        }
-        return notContained;
-    }
-
     public static class GDARequestContext {
         private GetDataAvailabilityRequest request;
 
         private List<DataAvailability> dataAvailabilityValues = Lists.newArrayList();
 
+        private Map<DataAvailabilityKey, DataAvailability> dataAvailabilityByKey = new HashMap<>();
+
+        private ListMultimap<String, DataAvailability> dataAvailabilityByOffering = ArrayListMultimap.create();
+
+        private Map<String, Set<String>> childOfferings = new HashMap<>();
+
         private Map<String, ReferenceType> procedures = new HashMap<>();
 
         private Map<String, ReferenceType> observableProperties = new HashMap<>();
@@ -496,19 +477,46 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
 
         public GDARequestContext setDataAvailabilityList(List<DataAvailability> dataAvailabilityValues) {
             this.dataAvailabilityValues.clear();
+            this.dataAvailabilityByKey.clear();
+            this.dataAvailabilityByOffering.clear();
             return addDataAvailabilities(dataAvailabilityValues);
         }
 
         public GDARequestContext addDataAvailability(DataAvailability dataAvailability) {
             if (dataAvailability != null) {
                 this.dataAvailabilityValues.add(dataAvailability);
+                this.dataAvailabilityByKey.putIfAbsent(DataAvailabilityKey.of(dataAvailability), dataAvailability);
+                if (dataAvailability.getOfferingString() != null) {
+                    this.dataAvailabilityByOffering.put(dataAvailability.getOfferingString(), dataAvailability);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Add the {@link DataAvailability} or, if a {@link DataAvailability}
+         * with the same procedure, observed property, feature and offering is
+         * already contained, extend its phenomenon time.
+         *
+         * @param dataAvailability
+         *            the {@link DataAvailability} to merge
+         * @return this
+         */
+        public GDARequestContext mergeDataAvailability(DataAvailability dataAvailability) {
+            if (dataAvailability != null) {
+                DataAvailability contained = dataAvailabilityByKey.get(DataAvailabilityKey.of(dataAvailability));
+                if (contained != null) {
+                    contained.getPhenomenonTime().extendToContain(dataAvailability.getPhenomenonTime());
+                } else {
+                    addDataAvailability(dataAvailability);
+                }
             }
             return this;
         }
 
         public GDARequestContext addDataAvailabilities(Collection<DataAvailability> dataAvailabilityValues) {
             if (dataAvailabilityValues != null) {
-                this.dataAvailabilityValues.addAll(dataAvailabilityValues);
+                dataAvailabilityValues.forEach(this::addDataAvailability);
             }
             return this;
         }
@@ -518,27 +526,103 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
         }
 
         public boolean hasDataAvailability(String requestedOffering) {
-            for (DataAvailability dataAvailability : dataAvailabilityValues) {
-                if (requestedOffering.equals(dataAvailability.getOfferingString())) {
-                    return true;
-                }
-            }
-            return false;
+            return dataAvailabilityByOffering.containsKey(requestedOffering);
         }
 
         public Set<DataAvailability> getDataAvailability(String offering) {
-            Set<DataAvailability> das = Sets.newHashSet();
-            for (DataAvailability dataAvailability : dataAvailabilityValues) {
-                if (offering.equals(dataAvailability.getOfferingString())) {
-                    das.add(dataAvailability);
+            return Sets.newHashSet(dataAvailabilityByOffering.get(offering));
+        }
+
+        public boolean isSetDataAvailabilityList() {
+            return !dataAvailabilityValues.isEmpty();
+        }
+
+        /**
+         * Collect the child offerings of the offering, each offering is only
+         * traversed once per request.
+         *
+         * @param offering
+         *            the offering of a processed dataset
+         * @return this
+         */
+        public GDARequestContext addOffering(OfferingEntity offering) {
+            if (offering != null && !childOfferings.containsKey(offering.getIdentifier())) {
+                childOfferings.put(offering.getIdentifier(), collectChildOfferings(offering, Sets.newTreeSet()));
+            }
+            return this;
+        }
+
+        public Set<String> getChildOfferings(String offering) {
+            return childOfferings.getOrDefault(offering, Collections.emptySet());
+        }
+
+        private Set<String> collectChildOfferings(OfferingEntity offering, Set<String> childs) {
+            if (offering.hasChildren()) {
+                for (OfferingEntity child : offering.getChildren()) {
+                    if (childs.add(child.getIdentifier())) {
+                        collectChildOfferings(child, childs);
+                    }
                 }
             }
-            return das;
+            return childs;
         }
 
-        public boolean isSetDataAvailabilityList() {
-            return getDataAvailabilityList() != null && !getDataAvailabilityList().isEmpty();
+    }
+
+    /**
+     * Hash key of a {@link DataAvailability} consisting of procedure,
+     * observed property, feature of interest and (optional) offering.
+     */
+    private static final class DataAvailabilityKey {
+        private final String procedure;
+
+        private final String observedProperty;
+
+        private final String featureOfInterest;
+
+        private final String offering;
+
+        private DataAvailabilityKey(String procedure, String observedProperty, String featureOfInterest,
+                String offering) {
+            this.procedure = procedure;
+            this.observedProperty = observedProperty;
+            this.featureOfInterest = featureOfInterest;
+            this.offering = offering;
+        }
+
+        static DataAvailabilityKey of(DataAvailability dataAvailability) {
+            return new DataAvailabilityKey(getHref(dataAvailability.getProcedure()),
+                    getHref(dataAvailability.getObservedProperty()),
+                    getHref(dataAvailability.getFeatureOfInterest()), dataAvailability.getOfferingString());
         }
 
+        static DataAvailabilityKey constellation(DataAvailability dataAvailability) {
+            return new DataAvailabilityKey(getHref(dataAvailability.getProcedure()),
+                    getHref(dataAvailability.getObservedProperty()),
+                    getHref(dataAvailability.getFeatureOfInterest()), null);
+        }
+
+        private static String getHref(ReferenceType reference) {
+            return reference != null ? reference.getHref() : null;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(procedure, observedProperty, featureOfInterest, offering);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof DataAvailabilityKey)) {
+                return false;
+            }
+            DataAvailabilityKey other = (DataAvailabilityKey) obj;
+            return Objects.equals(procedure, other.procedure) && Objects.equals(observedProperty, other.observedProperty)
+                    && Objects.equals(featureOfInterest, other.featureOfInterest)
+                    && Objects.equals(offering, other.offering);
+        }
     }
 }
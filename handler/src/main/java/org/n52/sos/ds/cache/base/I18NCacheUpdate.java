@@ -41,6 +41,7 @@ import org.n52.iceland.i18n.metadata.I18NOfferingMetadata;
 import org.n52.iceland.i18n.metadata.I18NProcedureMetadata;
 import org.n52.iceland.ogc.ows.OwsServiceMetadataRepository;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.ds.CachingI18NDAO;
 import org.n52.sos.ds.cache.AbstractThreadableDatasourceCacheUpdate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -72,6 +73,10 @@ public class I18NCacheUpdate extends AbstractThreadableDatasourceCacheUpdate {
         startStopwatch();
         try {
             if (this.i18NDAORepository != null && this.serviceMetadataRepository != null) {
+                loadTranslations(I18NFeatureMetadata.class);
+                loadTranslations(I18NOfferingMetadata.class);
+                loadTranslations(I18NObservablePropertyMetadata.class);
+                loadTranslations(I18NProcedureMetadata.class);
                 getCache().addSupportedLanguage(this.serviceMetadataRepository.getAvailableLocales());
                 getCache().addSupportedLanguage(getEntityLocales(I18NFeatureMetadata.class));
                 getCache().addSupportedLanguage(getEntityLocales(I18NOfferingMetadata.class));
@@ -84,6 +89,13 @@ public class I18NCacheUpdate extends AbstractThreadableDatasourceCacheUpdate {
         LOGGER.debug("Finished executing I18NCacheUpdate ({})", getStopwatchResult());
     }
 
+    private void loadTranslations(Class<? extends AbstractI18NMetadata> type) throws OwsExceptionReport {
+        I18NDAO<? extends AbstractI18NMetadata> dao = this.i18NDAORepository.getDAO(type);
+        if (dao instanceof CachingI18NDAO) {
+            ((CachingI18NDAO) dao).loadTranslations();
+        }
+    }
+
     private Collection<Locale> getEntityLocales(Class<? extends AbstractI18NMetadata> type) throws OwsExceptionReport {
         I18NDAO<? extends AbstractI18NMetadata> dao = this.i18NDAORepository.getDAO(type);
         if (dao != null) {
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.series.db.beans.OfferingEntity;
+import org.n52.shetland.ogc.gml.ReferenceType;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityRequest;
+import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityResponse.DataAvailability;
+import org.n52.sos.ds.GetDataAvailabilityHandler.GDARequestContext;
+
+import com.google.common.collect.Sets;
+
+public class GetDataAvailabilityHandlerTest {
+
+    private static final String PROCEDURE = "procedure";
+
+    private static final String OBSERVED_PROPERTY = "observedProperty";
+
+    private static final String FEATURE = "feature";
+
+    private static final String PARENT = "parent";
+
+    private static final String CHILD_1 = "child1";
+
+    private static final String CHILD_2 = "child2";
+
+    private GetDataAvailabilityRequest request;
+
+    @Before
+    public void setUp() {
+        request = new GetDataAvailabilityRequest();
+        request.setOfferings(Collections.singletonList(PARENT));
+    }
+
+    @Test
+    public void shouldMergeDuplicatedDataAvailabilities() {
+        GDARequestContext context = new GDARequestContext(request);
+        context.mergeDataAvailability(create(CHILD_1, 10, 20));
+        context.mergeDataAvailability(create(CHILD_1, 30, 40));
+        context.mergeDataAvailability(create(CHILD_2, 50, 60));
+        List<DataAvailability> list = context.getDataAvailabilityList();
+        Assert.assertEquals(2, list.size());
+        assertPeriod(list.get(0), 10, 40);
+        assertPeriod(list.get(1), 50, 60);
+    }
+
+    @Test
+    public void shouldRollUpChildOfferingsIntoExistingParent() {
+        GDARequestContext context = new GDARequestContext(request);
+        context.addOffering(createOffering(PARENT, createOffering(CHILD_1), createOffering(CHILD_2)));
+        DataAvailability parent = create(PARENT, 30, 40);
+        context.addDataAvailability(parent);
+        context.addDataAvailability(create(CHILD_1, 10, 20));
+        context.addDataAvailability(create(CHILD_2, 50, 60));
+
+        GetDataAvailabilityHandler.checkForParentOfferings(context);
+
+        Assert.assertEquals(3, context.getDataAvailabilityList().size());
+        Assert.assertEquals(1, context.getDataAvailability(PARENT).size());
+        assertPeriod(parent, 10, 60);
+        assertPeriod(context.getDataAvailability(CHILD_1).iterator().next(), 10, 20);
+        assertPeriod(context.getDataAvailability(CHILD_2).iterator().next(), 50, 60);
+    }
+
+    @Test
+    public void shouldAddOneRolledUpEntryIfParentIsMissing() {
+        GDARequestContext context = new GDARequestContext(request);
+        context.addOffering(createOffering(PARENT, createOffering(CHILD_1), createOffering(CHILD_2)));
+        DataAvailability child1 = create(CHILD_1, 10, 20);
+        DataAvailability child2 = create(CHILD_2, 50, 60);
+        context.addDataAvailability(child1);
+        context.addDataAvailability(child2);
+
+        GetDataAvailabilityHandler.checkForParentOfferings(context);
+
+        List<DataAvailability> list = context.getDataAvailabilityList();
+        Assert.assertEquals(3, list.size());
+        DataAvailability rolledUp = list.get(2);
+        Assert.assertNotSame(child1, rolledUp);
+        Assert.assertNotSame(child2, rolledUp);
+        assertPeriod(rolledUp, 10, 60);
+        assertPeriod(child1, 10, 20);
+        assertPeriod(child2, 50, 60);
+    }
+
+    @Test
+    public void shouldRollUpOnlySameConstellation() {
+        GDARequestContext context = new GDARequestContext(request);
+        context.addOffering(createOffering(PARENT, createOffering(CHILD_1)));
+        DataAvailability parent = create(PARENT, 30, 40);
+        context.addDataAvailability(parent);
+        context.addDataAvailability(new DataAvailability(new ReferenceType(PROCEDURE),
+                new ReferenceType("otherObservedProperty"), new ReferenceType(FEATURE), new ReferenceType(CHILD_1),
+                createPeriod(10, 20)));
+
+        GetDataAvailabilityHandler.checkForParentOfferings(context);
+
+        assertPeriod(parent, 30, 40);
+        Assert.assertEquals(3, context.getDataAvailabilityList().size());
+    }
+
+    @Test
+    public void shouldCollectNestedChildOfferings() {
+        GDARequestContext context = new GDARequestContext(request);
+        context.addOffering(createOffering(PARENT, createOffering(CHILD_1, createOffering(CHILD_2))));
+        Assert.assertEquals(Sets.newHashSet(CHILD_1, CHILD_2), context.getChildOfferings(PARENT));
+        Assert.assertTrue(context.getChildOfferings(CHILD_2).isEmpty());
+    }
+
+    private DataAvailability create(String offering, long start, long end) {
+        return new DataAvailability(new ReferenceType(PROCEDURE), new ReferenceType(OBSERVED_PROPERTY),
+                new ReferenceType(FEATURE), new ReferenceType(offering), createPeriod(start, end));
+    }
+
+    private TimePeriod createPeriod(long start, long end) {
+        return new TimePeriod(new DateTime(start), new DateTime(end));
+    }
+
+    private OfferingEntity createOffering(String identifier, OfferingEntity... children) {
+        OfferingEntity offering = new OfferingEntity();
+        offering.setId((long) identifier.hashCode());
+        offering.setIdentifier(identifier);
+        if (children.length > 0) {
+            offering.setChildren(Sets.newHashSet(children));
+        }
+        return offering;
+    }
+
+    private void assertPeriod(DataAvailability dataAvailability, long start, long end) {
+        Assert.assertEquals(start, dataAvailability.getPhenomenonTime().getStart().getMillis());
+        Assert.assertEquals(end, dataAvailability.getPhenomenonTime().getEnd().getMillis());
+    }
+}
@@ -0,0 +1,417 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.cache;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.iceland.convert.ConverterException;
+import org.n52.iceland.convert.RequestResponseModifier;
+import org.n52.iceland.convert.RequestResponseModifierRepository;
+import org.n52.janmayen.event.Event;
+import org.n52.janmayen.event.EventListener;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.ows.OWSConstants;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.service.OwsServiceRequest;
+import org.n52.shetland.ogc.sos.request.SrsNameRequest;
+import org.n52.sos.convert.IdentifierModifier;
+import org.n52.sos.event.events.FeatureInsertion;
+import org.n52.sos.event.events.ObservationInsertion;
+import org.n52.sos.event.events.SensorDeletion;
+import org.n52.sos.event.events.SensorInsertion;
+import org.n52.sos.event.events.SensorModification;
+import org.n52.sos.event.events.UpdateCache;
+import org.n52.sos.util.GeometryHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Sets;
+
+/**
+ * Bounded cache of the feature of interest and procedure objects created for
+ * observation responses, shared between requests. The entries are keyed by
+ * identifier and the request context (e.g. language, version, profile) they
+ * were created for.
+ *
+ * Each {@link Kind} and each identifier has a generation which is increased
+ * by the insertion, modification and deletion events of the kind or the
+ * identifier. Entries of an older generation are ignored and values created
+ * while the generation changed are not stored.
+ *
+ * The cached objects are shared between responses and the response modifiers
+ * change the objects in place, so objects must only be cached for requests the
+ * objects are not modified for, see {@link #isShareable(OwsServiceRequest)}.
+ */
+@Configurable
+public class ConstellationObjectCache implements EventListener {
+
+    public static final String ENABLED = "service.constellationObjectCache.enabled";
+
+    public static final String SIZE = "service.constellationObjectCache.size";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConstellationObjectCache.class);
+
+    private static final int DEFAULT_SIZE = 10000;
+
+    @SuppressWarnings("unchecked")
+    private static final Set<Class<? extends Event>> TYPES = Sets.<Class<? extends Event>> newHashSet(
+            SensorInsertion.class, SensorModification.class, SensorDeletion.class, FeatureInsertion.class,
+            ObservationInsertion.class, UpdateCache.class);
+
+    private final Map<Kind, AtomicLong> generations = new EnumMap<>(Kind.class);
+
+    private final Map<Kind, ConcurrentMap<String, AtomicLong>> identifierGenerations = new EnumMap<>(Kind.class);
+
+    private final AtomicLong hits = new AtomicLong(0);
+
+    private final AtomicLong misses = new AtomicLong(0);
+
+    private volatile Cache<Key, Entry> cache = createCache(DEFAULT_SIZE);
+
+    private boolean enabled;
+
+    private RequestResponseModifierRepository requestResponseModifierRepository;
+
+    private GeometryHandler geometryHandler;
+
+    public ConstellationObjectCache() {
+        for (Kind kind : Kind.values()) {
+            generations.put(kind, new AtomicLong(0));
+            identifierGenerations.put(kind, new ConcurrentHashMap<>());
+        }
+    }
+
+    @Setting(ENABLED)
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            clear();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Inject
+    public void setRequestResponseModifierRepository(RequestResponseModifierRepository repository) {
+        this.requestResponseModifierRepository = repository;
+    }
+
+    @Inject
+    public void setGeometryHandler(GeometryHandler geometryHandler) {
+        this.geometryHandler = geometryHandler;
+    }
+
+    @Setting(SIZE)
+    public void setSize(int size) {
+        this.cache = createCache(size > 0 ? size : DEFAULT_SIZE);
+    }
+
+    /**
+     * Get the cached object or create and cache it.
+     *
+     * @param <T>
+     *            the object type
+     * @param key
+     *            the key of the object
+     * @param loader
+     *            creates the object if it is not cached
+     * @return the object
+     * @throws OwsExceptionReport
+     *             If an error occurs while creating the object
+     * @throws ConverterException
+     *             If an error occurs while creating the object
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Key key, Loader<T> loader) throws OwsExceptionReport, ConverterException {
+        if (!isEnabled()) {
+            return loader.load();
+        }
+        long generation = getGeneration(key.getKind());
+        long identifierGeneration = getGeneration(key.getKind(), key.getIdentifier());
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null && entry.getGeneration() == generation
+                && entry.getIdentifierGeneration() == identifierGeneration) {
+            hits.incrementAndGet();
+            return (T) entry.getValue();
+        }
+        misses.incrementAndGet();
+        T value = loader.load();
+        if (value != null && generation == getGeneration(key.getKind())
+                && identifierGeneration == getGeneration(key.getKind(), key.getIdentifier())) {
+            cache.put(key, new Entry(generation, identifierGeneration, value));
+        }
+        return value;
+    }
+
+    /**
+     * Check if the objects created for the request can be shared with other
+     * responses. This is not the case if the geometries are transformed to a
+     * requested or to the default response CRS or if an identifier modifier
+     * applies to the request, because both change the objects in place.
+     *
+     * @param request
+     *            the request the objects are created for
+     * @return <code>true</code>, if the objects can be cached
+     * @throws OwsExceptionReport
+     *             If the request is invalid
+     */
+    public boolean isShareable(OwsServiceRequest request) throws OwsExceptionReport {
+        if (request == null || isTransforming(request)) {
+            return false;
+        }
+        if (requestResponseModifierRepository != null
+                && requestResponseModifierRepository.hasRequestResponseModifier(request)) {
+            for (RequestResponseModifier modifier : requestResponseModifierRepository
+                    .getRequestResponseModifier(request)) {
+                if (modifier instanceof IdentifierModifier
+                        && ((IdentifierModifier) modifier).isModifyingIdentifiers(request)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Invalidate all cached objects of the kind.
+     *
+     * @param kind
+     *            the kind to invalidate
+     */
+    public void invalidate(Kind kind) {
+        generations.get(kind).incrementAndGet();
+    }
+
+    /**
+     * Invalidate the cached objects of the kind with the identifiers.
+     *
+     * @param kind
+     *            the kind to invalidate
+     * @param identifiers
+     *            the identifiers to invalidate
+     */
+    public void invalidate(Kind kind, Collection<String> identifiers) {
+        ConcurrentMap<String, AtomicLong> kindGenerations = identifierGenerations.get(kind);
+        for (String identifier : identifiers) {
+            if (identifier != null) {
+                kindGenerations.computeIfAbsent(identifier, id -> new AtomicLong(0)).incrementAndGet();
+            }
+        }
+    }
+
+    public void clear() {
+        for (Kind kind : Kind.values()) {
+            invalidate(kind);
+        }
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    @Override
+    public Set<Class<? extends Event>> getTypes() {
+        return Collections.unmodifiableSet(TYPES);
+    }
+
+    @Override
+    public void handle(Event event) {
+        LOGGER.debug("Invalidating constellation objects after {}", event.getClass().getSimpleName());
+        if (event instanceof SensorInsertion || event instanceof SensorModification
+                || event instanceof SensorDeletion) {
+            // parent procedure descriptions contain the child procedures
+            invalidate(Kind.PROCEDURE);
+        } else if (event instanceof ObservationInsertion) {
+            // generated procedure descriptions contain the related features,
+            // observable properties and offerings
+            invalidate(Kind.PROCEDURE, getProcedures((ObservationInsertion) event));
+        } else if (event instanceof FeatureInsertion) {
+            invalidate(Kind.FEATURE);
+        } else if (event instanceof UpdateCache) {
+            clear();
+        }
+    }
+
+    private boolean isTransforming(OwsServiceRequest request) {
+        if (request.getExtension(OWSConstants.AdditionalRequestParams.crs).isPresent()
+                || request instanceof SrsNameRequest && ((SrsNameRequest) request).isSetSrsName()) {
+            return true;
+        }
+        return geometryHandler != null
+                && (geometryHandler.getStorageEPSG() != geometryHandler.getDefaultResponseEPSG()
+                        || geometryHandler.getStorage3DEPSG() != geometryHandler.getDefaultResponse3DEPSG());
+    }
+
+    private long getGeneration(Kind kind) {
+        return generations.get(kind).get();
+    }
+
+    private long getGeneration(Kind kind, String identifier) {
+        AtomicLong generation = identifier != null ? identifierGenerations.get(kind).get(identifier) : null;
+        return generation != null ? generation.get() : 0;
+    }
+
+    private Set<String> getProcedures(ObservationInsertion event) {
+        Set<String> procedures = Sets.newHashSet();
+        if (event.getRequest() != null && event.getRequest().getObservations() != null) {
+            for (OmObservation observation : event.getRequest().getObservations()) {
+                if (observation.getObservationConstellation() != null
+                        && observation.getObservationConstellation().getProcedure() != null) {
+                    procedures.add(observation.getObservationConstellation().getProcedure().getIdentifier());
+                }
+            }
+        }
+        return procedures;
+    }
+
+    private static Cache<Key, Entry> createCache(int size) {
+        return CacheBuilder.newBuilder().maximumSize(size).build();
+    }
+
+    /**
+     * Creates the object to cache.
+     *
+     * @param <T>
+     *            the object type
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws OwsExceptionReport, ConverterException;
+    }
+
+    /**
+     * Kinds of the cached objects.
+     */
+    public enum Kind {
+        FEATURE, PROCEDURE
+    }
+
+    /**
+     * Key of a cached object, consisting of kind, identifier and the context
+     * the object is created for.
+     */
+    public static final class Key {
+
+        private final Kind kind;
+
+        private final String identifier;
+
+        private final List<Object> context;
+
+        private Key(Kind kind, String identifier, Object... context) {
+            this.kind = kind;
+            this.identifier = identifier;
+            this.context = Arrays.asList(context);
+        }
+
+        public static Key of(Kind kind, String identifier, Object... context) {
+            return new Key(kind, identifier, context);
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getIdentifier() {
+            return identifier;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, identifier, context);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return kind == other.kind && Objects.equals(identifier, other.identifier)
+                    && Objects.equals(context, other.context);
+        }
+    }
+
+    private static final class Entry {
+
+        private final long generation;
+
+        private final long identifierGeneration;
+
+        private final Object value;
+
+        Entry(long generation, long identifierGeneration, Object value) {
+            this.generation = generation;
+            this.identifierGeneration = identifierGeneration;
+            this.value = value;
+        }
+
+        long getGeneration() {
+            return generation;
+        }
+
+        long getIdentifierGeneration() {
+            return identifierGeneration;
+        }
+
+        Object getValue() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
+import org.hibernate.Criteria;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.sos.ds.hibernate.util.HibernateHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory rollup of the observation count and the distinct result times of
+ * each dataset, used to answer GetDataAvailability requests with count and
+ * result times without scanning the observation table.
+ *
+ * The rollup of a dataset is loaded on first use and afterwards maintained
+ * by the insertion paths of the {@code AbstractSeriesDAO}. Paths that delete
+ * or bulk insert observations invalidate the datasets they touched.
+ * Changes made inside a transaction are applied after the transaction has
+ * been committed; a rollback removes the dataset from the store. A loaded
+ * extent is only kept if no change of its dataset was committed or applied
+ * while it was loaded, otherwise it is used for the current request only.
+ */
+@Configurable
+public class DataAvailabilityExtentStore {
+
+    public static final String ENABLED = "service.dataAvailabilityExtentStore.enabled";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DataAvailabilityExtentStore.class);
+
+    private final Map<Long, DatasetExtent> extents = new ConcurrentHashMap<>();
+
+    private final Map<Long, DatasetGeneration> generations = new ConcurrentHashMap<>();
+
+    private boolean enabled;
+
+    @Setting(ENABLED)
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            clear();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get the extents of the datasets, missing extents are loaded with one
+     * grouped query.
+     *
+     * @param datasetIds
+     *            the dataset ids
+     * @param session
+     *            Hibernate session
+     * @return the extents of the datasets
+     */
+    public Map<Long, DatasetExtent> get(Collection<Long> datasetIds, Session session) {
+        if (!isEnabled() || datasetIds == null || datasetIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Long, DatasetExtent> result = new HashMap<>();
+        Map<Long, Long> missing = new HashMap<>();
+        for (Long id : datasetIds) {
+            DatasetExtent extent = extents.get(id);
+            if (extent != null) {
+                result.put(id, extent);
+            } else {
+                missing.put(id, getGeneration(id).get());
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (Map.Entry<Long, DatasetExtent> loaded : load(missing.keySet(), session).entrySet()) {
+                Long generation = missing.get(loaded.getKey());
+                extents.compute(loaded.getKey(), (id, extent) -> extent != null || !getGeneration(id)
+                        .isUnchanged(generation) ? extent : loaded.getValue());
+                result.put(loaded.getKey(), loaded.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Query the observation count per result time of the datasets.
+     *
+     * @param datasetIds
+     *            the dataset ids
+     * @param session
+     *            Hibernate session
+     * @return the extents of the datasets
+     */
+    @SuppressWarnings("unchecked")
+    Map<Long, DatasetExtent> load(Collection<Long> datasetIds, Session session) {
+        long start = System.currentTimeMillis();
+        Map<Long, DatasetExtent> loaded = new HashMap<>();
+        for (Long id : datasetIds) {
+            loaded.put(id, new DatasetExtent());
+        }
+        for (List<Long> ids : HibernateHelper.getValidSizedLists(datasetIds)) {
+            Criteria c = session.createCriteria(DataEntity.class)
+                    .add(Restrictions.eq(DataEntity.PROPERTY_DELETED, false))
+                    .add(Restrictions.in(DataEntity.PROPERTY_DATASET_ID, ids));
+            c.setProjection(Projections.projectionList().add(Projections.groupProperty(DataEntity.PROPERTY_DATASET_ID))
+                    .add(Projections.groupProperty(DataEntity.PROPERTY_RESULT_TIME)).add(Projections.rowCount()));
+            LOGGER.trace("QUERY load(): {}", HibernateHelper.getSqlString(c));
+            for (Object[] row : (List<Object[]>) c.list()) {
+                DatasetExtent extent = loaded.get((Long) row[0]);
+                if (extent != null) {
+                    extent.add((Date) row[1], ((Number) row[2]).longValue());
+                }
+            }
+        }
+        LOGGER.debug("Loading the data availability extents of {} datasets needs {} ms!", datasetIds.size(),
+                System.currentTimeMillis() - start);
+        return loaded;
+    }
+
+    /**
+     * Add the inserted observation to the extent of its dataset after the
+     * active transaction of the session is committed.
+     *
+     * @param datasetId
+     *            the dataset id
+     * @param observation
+     *            the inserted observation
+     * @param session
+     *            Hibernate session
+     */
+    public void add(Long datasetId, DataEntity<?> observation, Session session) {
+        if (isEnabled() && datasetId != null && observation != null) {
+            Date resultTime = observation.getResultTime();
+            afterCommit(datasetId, session, extent -> extent.add(resultTime, 1));
+        }
+    }
+
+    /**
+     * Remove the deleted observation from the extent of its dataset after the
+     * active transaction of the session is committed.
+     *
+     * @param datasetId
+     *            the dataset id
+     * @param observation
+     *            the deleted observation
+     * @param session
+     *            Hibernate session
+     */
+    public void remove(Long datasetId, DataEntity<?> observation, Session session) {
+        if (isEnabled() && datasetId != null && observation != null) {
+            Date resultTime = observation.getResultTime();
+            afterCommit(datasetId, session, extent -> extent.remove(resultTime, 1));
+        }
+    }
+
+    /**
+     * Remove the datasets from the store, the extents are loaded again on
+     * next use.
+     *
+     * @param datasetIds
+     *            the ids of the datasets to remove
+     */
+    public void invalidate(Collection<Long> datasetIds) {
+        for (Long datasetId : datasetIds) {
+            extents.compute(datasetId, (id, extent) -> {
+                getGeneration(id).changed();
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Remove the datasets from the store now and again after the active
+     * transaction of the session is completed, so that extents loaded by
+     * concurrent requests before the commit are not kept.
+     *
+     * @param datasetIds
+     *            the ids of the datasets to remove
+     * @param session
+     *            Hibernate session
+     */
+    public void invalidate(Collection<Long> datasetIds, Session session) {
+        if (datasetIds == null || datasetIds.isEmpty()) {
+            return;
+        }
+        Set<Long> ids = new HashSet<>(datasetIds);
+        invalidate(ids);
+        Transaction transaction = session.getTransaction();
+        if (transaction != null && transaction.isActive()) {
+            transaction.registerSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                    // nothing to do
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate(ids);
+                }
+            });
+        }
+    }
+
+    public void clear() {
+        generations.values().forEach(DatasetGeneration::changed);
+        extents.clear();
+    }
+
+    public int size() {
+        return extents.size();
+    }
+
+    private void afterCommit(Long datasetId, Session session, ExtentUpdate update) {
+        Transaction transaction = session.getTransaction();
+        if (transaction != null && transaction.isActive()) {
+            transaction.registerSynchronization(new Synchronization() {
+                private boolean committing;
+
+                @Override
+                public void beforeCompletion() {
+                    // extents loaded from now on may already contain the change
+                    getGeneration(datasetId).begin();
+                    committing = true;
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (committing) {
+                        getGeneration(datasetId).end();
+                    }
+                    if (status == Status.STATUS_COMMITTED) {
+                        apply(datasetId, update);
+                    } else {
+                        invalidate(Collections.singleton(datasetId));
+                    }
+                }
+            });
+        } else {
+            apply(datasetId, update);
+        }
+    }
+
+    private void apply(Long datasetId, ExtentUpdate update) {
+        // not yet loaded extents are loaded completely on first use
+        extents.compute(datasetId, (id, extent) -> {
+            getGeneration(id).changed();
+            if (extent != null) {
+                update.apply(extent);
+            }
+            return extent;
+        });
+    }
+
+    private DatasetGeneration getGeneration(Long datasetId) {
+        return generations.computeIfAbsent(datasetId, id -> new DatasetGeneration());
+    }
+
+    @FunctionalInterface
+    private interface ExtentUpdate {
+        void apply(DatasetExtent extent);
+    }
+
+    /**
+     * Observation count and distinct result times of a dataset.
+     */
+    public static class DatasetExtent {
+
+        private final NavigableMap<Date, Long> resultTimes = new TreeMap<>();
+
+        private long count;
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the distinct result times in ascending order
+         */
+        public synchronized Set<Date> getResultTimes() {
+            return new LinkedHashSet<>(resultTimes.keySet());
+        }
+
+        synchronized void add(Date resultTime, long observations) {
+            count += observations;
+            if (resultTime != null) {
+                resultTimes.merge(resultTime, observations, Long::sum);
+            }
+        }
+
+        synchronized void remove(Date resultTime, long observations) {
+            count = Math.max(0, count - observations);
+            if (resultTime != null) {
+                resultTimes.computeIfPresent(resultTime, (time, value) -> value > observations
+                        ? value - observations
+                        : null);
+            }
+        }
+    }
+}
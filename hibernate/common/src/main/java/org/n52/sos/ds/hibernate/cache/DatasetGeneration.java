@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.cache;
+
+/**
+ * Counts the changes of a dataset and the transactions committing a change,
+ * to detect values of an in-memory store that were loaded concurrently to a
+ * change of the dataset. Values loaded while a transaction is committing may
+ * or may not contain its change, so they are never unchanged.
+ */
+class DatasetGeneration {
+
+    private long changes;
+
+    private int committing;
+
+    /**
+     * @return the current generation, or <code>-1</code> if a change is being
+     *         committed
+     */
+    synchronized long get() {
+        return committing > 0 ? -1 : changes;
+    }
+
+    /**
+     * @param generation
+     *            the generation before the values were loaded
+     * @return if the dataset was not changed since the generation
+     */
+    synchronized boolean isUnchanged(long generation) {
+        return generation >= 0 && committing == 0 && changes == generation;
+    }
+
+    /**
+     * A transaction changing the dataset starts to commit.
+     */
+    synchronized void begin() {
+        committing++;
+    }
+
+    /**
+     * A transaction changing the dataset is completed.
+     */
+    synchronized void end() {
+        committing = Math.max(0, committing - 1);
+        changes++;
+    }
+
+    /**
+     * A change of the dataset is applied or the dataset is invalidated.
+     */
+    synchronized void changed() {
+        changes++;
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.cache;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.criterion.Restrictions;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.iceland.ds.ConnectionProvider;
+import org.n52.janmayen.lifecycle.Constructable;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.shetland.ogc.gml.time.IndeterminateValue;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.ExtendedIndeterminateTime;
+import org.n52.sos.ds.hibernate.HibernateSessionHolder;
+import org.n52.sos.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory store of the first and latest observation of each dataset. The
+ * store is warmed from the database at startup and kept up to date by the
+ * insertion and deletion paths of the {@code AbstractSeriesDAO}, so that
+ * the first and latest observation of a dataset are known without querying
+ * the dataset. First/latest GetObservation requests take the observation ids
+ * from the datasets they query anyway.
+ *
+ * Updates made inside a transaction are applied after the transaction has
+ * been committed; a rollback removes the dataset from the store.
+ */
+@Configurable
+public class FirstLatestValueStore implements Constructable {
+
+    public static final String ENABLED = "service.firstLatestValueStore.enabled";
+
+    public static final String METRIC_HIT_RATE = "firstLatestValueStore.hitRate";
+
+    public static final String METRIC_SIZE = "firstLatestValueStore.size";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FirstLatestValueStore.class);
+
+    private final Map<Long, FirstLatestValue> values = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong(0);
+
+    private final AtomicLong misses = new AtomicLong(0);
+
+    private HibernateSessionHolder sessionHolder;
+
+    private boolean enabled = true;
+
+    @Inject
+    public void setConnectionProvider(ConnectionProvider connectionProvider) {
+        this.sessionHolder = new HibernateSessionHolder(connectionProvider);
+    }
+
+    @Inject
+    public void setMetricRegistry(MetricRegistry metricRegistry) {
+        metricRegistry.gauge(METRIC_HIT_RATE, this::getHitRate);
+        metricRegistry.gauge(METRIC_SIZE, this::size);
+    }
+
+    @Setting(ENABLED)
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            clear();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void init() {
+        if (isEnabled() && sessionHolder != null) {
+            Session session = null;
+            try {
+                session = sessionHolder.getSession();
+                warm(session);
+            } catch (OwsExceptionReport | HibernateException e) {
+                LOGGER.warn("Error while warming the first/latest value store, values are loaded on demand!", e);
+            } finally {
+                sessionHolder.returnSession(session);
+            }
+        }
+    }
+
+    /**
+     * Load the first/latest values of all not deleted datasets.
+     *
+     * @param session
+     *            Hibernate session
+     */
+    @SuppressWarnings("unchecked")
+    public void warm(Session session) {
+        long start = System.currentTimeMillis();
+        List<DatasetEntity> datasets = session.createCriteria(DatasetEntity.class)
+                .add(Restrictions.eq(DatasetEntity.PROPERTY_DELETED, false)).list();
+        datasets.forEach(this::put);
+        LOGGER.debug("Warming the first/latest value store with {} datasets needs {} ms!", datasets.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Get the id of the first or latest observation of the dataset.
+     *
+     * @param dataset
+     *            the dataset
+     * @param indeterminateValue
+     *            {@link ExtendedIndeterminateTime#FIRST} or
+     *            {@link ExtendedIndeterminateTime#LATEST}
+     * @return the observation id or {@code null} if the dataset is not
+     *         contained in the store or has no observations
+     */
+    public Long getObservationId(DatasetEntity dataset, IndeterminateValue indeterminateValue) {
+        FirstLatestValue value = isEnabled() ? values.get(dataset.getId()) : null;
+        if (value == null || !value.matches(dataset)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        if (ExtendedIndeterminateTime.FIRST.equals(indeterminateValue)) {
+            return value.getFirstObservationId();
+        } else if (ExtendedIndeterminateTime.LATEST.equals(indeterminateValue)) {
+            return value.getLastObservationId();
+        }
+        return null;
+    }
+
+    /**
+     * Get the first/latest value of the dataset.
+     *
+     * @param datasetId
+     *            the dataset id
+     * @return the value or {@code null} if not contained in the store
+     */
+    public FirstLatestValue get(Long datasetId) {
+        return values.get(datasetId);
+    }
+
+    /**
+     * Put the current first/latest values of the dataset to the store.
+     *
+     * @param dataset
+     *            the dataset
+     */
+    public void put(DatasetEntity dataset) {
+        if (isEnabled() && dataset != null && dataset.getId() != null) {
+            values.put(dataset.getId(), new FirstLatestValue(dataset));
+        }
+    }
+
+    /**
+     * Put the current first/latest values of the dataset to the store after
+     * the active transaction of the session is committed.
+     *
+     * @param dataset
+     *            the dataset
+     * @param session
+     *            Hibernate session
+     */
+    public void update(DatasetEntity dataset, Session session) {
+        if (!isEnabled() || dataset == null || dataset.getId() == null) {
+            return;
+        }
+        Long id = dataset.getId();
+        FirstLatestValue value = new FirstLatestValue(dataset);
+        // remove immediately, concurrent requests should not see the old value
+        values.remove(id);
+        Transaction transaction = session.getTransaction();
+        if (transaction != null && transaction.isActive()) {
+            transaction.registerSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                    // nothing to do
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == Status.STATUS_COMMITTED) {
+                        values.put(id, value);
+                    } else {
+                        values.remove(id);
+                    }
+                }
+            });
+        } else {
+            values.put(id, value);
+        }
+    }
+
+    /**
+     * Remove the datasets from the store, e.g. because observations of the
+     * datasets were deleted. The next access loads the values from the
+     * dataset again.
+     *
+     * @param datasetIds
+     *            the ids of the datasets to remove
+     */
+    public void remove(Collection<Long> datasetIds) {
+        datasetIds.forEach(values::remove);
+    }
+
+    public void clear() {
+        values.clear();
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public double getHitRate() {
+        long requests = getHitCount() + getMissCount();
+        return requests == 0 ? 0.0 : (double) getHitCount() / requests;
+    }
+
+    /**
+     * First and latest observation id and time of a dataset.
+     */
+    public static class FirstLatestValue {
+
+        private final Long firstObservationId;
+
+        private final Date firstValueAt;
+
+        private final Long lastObservationId;
+
+        private final Date lastValueAt;
+
+        public FirstLatestValue(DatasetEntity dataset) {
+            this.firstObservationId = getId(dataset.getFirstObservation());
+            this.firstValueAt = dataset.getFirstValueAt();
+            this.lastObservationId = getId(dataset.getLastObservation());
+            this.lastValueAt = dataset.getLastValueAt();
+        }
+
+        public Long getFirstObservationId() {
+            return firstObservationId;
+        }
+
+        public Date getFirstValueAt() {
+            return firstValueAt;
+        }
+
+        public Long getLastObservationId() {
+            return lastObservationId;
+        }
+
+        public Date getLastValueAt() {
+            return lastValueAt;
+        }
+
+        /**
+         * Check if this value is still valid for the (possibly more recently
+         * loaded) dataset.
+         *
+         * @param dataset
+         *            the dataset
+         * @return {@code true}, if the first and last times are equal
+         */
+        boolean matches(DatasetEntity dataset) {
+            return equals(firstValueAt, dataset.getFirstValueAt()) && equals(lastValueAt, dataset.getLastValueAt());
+        }
+
+        private static boolean equals(Date a, Date b) {
+            return a == null ? b == null : b != null && a.getTime() == b.getTime();
+        }
+
+        private static Long getId(DataEntity<?> entity) {
+            return entity != null ? entity.getId() : null;
+        }
+    }
+}
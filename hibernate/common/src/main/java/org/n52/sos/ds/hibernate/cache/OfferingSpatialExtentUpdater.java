@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.locationtech.jts.geom.Geometry;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.iceland.cache.ContentCacheController;
+import org.n52.iceland.ds.ConnectionProvider;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.util.ReferencedEnvelope;
+import org.n52.sos.ds.hibernate.HibernateSessionHolder;
+import org.n52.sos.ds.hibernate.dao.DaoFactory;
+import org.n52.sos.ds.hibernate.util.AbstractScheduledJob;
+import org.n52.sos.util.GeometryHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Background job recomputing the offering geometries from the extent of the
+ * stored sampling and feature geometries. The offering geometries are only
+ * extended during the insertion, so this job shrinks them after deletions and
+ * replaces geometries created before the envelope maintenance. The cached
+ * offering envelopes are replaced afterwards.
+ */
+@Configurable
+public class OfferingSpatialExtentUpdater extends AbstractScheduledJob {
+
+    public static final String INTERVAL = "service.offering.spatialExtentUpdateInterval";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OfferingSpatialExtentUpdater.class);
+
+    private HibernateSessionHolder sessionHolder;
+
+    private DaoFactory daoFactory;
+
+    private ContentCacheController contentCacheController;
+
+    public OfferingSpatialExtentUpdater() {
+        super("52n-offering-extent-updater");
+    }
+
+    @Inject
+    public void setConnectionProvider(ConnectionProvider connectionProvider) {
+        this.sessionHolder = new HibernateSessionHolder(connectionProvider);
+    }
+
+    @Inject
+    public void setDaoFactory(DaoFactory daoFactory) {
+        this.daoFactory = daoFactory;
+    }
+
+    @Inject
+    public void setContentCacheController(ContentCacheController contentCacheController) {
+        this.contentCacheController = contentCacheController;
+    }
+
+    /**
+     * @param interval
+     *            the interval in minutes, <code>0</code> disables the job
+     */
+    @Override
+    @Setting(INTERVAL)
+    public void setInterval(int interval) {
+        super.setInterval(interval);
+    }
+
+    /**
+     * Recompute the offering geometries.
+     */
+    @Override
+    public void run() {
+        Session session = null;
+        Transaction transaction = null;
+        try {
+            session = sessionHolder.getSession();
+            transaction = session.beginTransaction();
+            Map<String, Geometry> updated = daoFactory.getOfferingDAO().updateOfferingGeometries(session);
+            transaction.commit();
+            LOGGER.debug("Updated the spatial extent of {} offerings", updated.size());
+            if (!updated.isEmpty()) {
+                contentCacheController.update(new OfferingEnvelopeUpdate(toEnvelopes(updated)));
+            }
+        } catch (HibernateException e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            LOGGER.error("Error while updating the offering spatial extents", e);
+        } catch (OwsExceptionReport e) {
+            LOGGER.error("Error while updating the offering spatial extents", e);
+        } finally {
+            sessionHolder.returnSession(session);
+        }
+    }
+
+    private Map<String, ReferencedEnvelope> toEnvelopes(Map<String, Geometry> geometries)
+            throws OwsExceptionReport {
+        Map<String, ReferencedEnvelope> envelopes = new HashMap<>();
+        GeometryHandler geometryHandler = daoFactory.getGeometryHandler();
+        for (Map.Entry<String, Geometry> entry : geometries.entrySet()) {
+            Geometry geometry = geometryHandler.switchCoordinateAxisFromToDatasourceIfNeeded(entry.getValue());
+            int srid = geometry.getSRID() > 0 ? geometry.getSRID() : geometryHandler.getStorageEPSG();
+            envelopes.put(entry.getKey(), new ReferencedEnvelope(geometry.getEnvelopeInternal(), srid));
+        }
+        return envelopes;
+    }
+}
@@ -0,0 +1,647 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.cache;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
+import org.hibernate.Criteria;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.sos.ds.hibernate.util.EpochBucketProjection;
+import org.n52.sos.ds.hibernate.util.HibernateHelper;
+import org.n52.sos.request.TemporalAggregation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * In-memory hourly and daily rollups (min, max, sum and count) of the values
+ * of quantity datasets, used to answer aggregating GetObservation requests
+ * over long time ranges without scanning the observation table.
+ *
+ * The rollup of a dataset is loaded on first use and afterwards maintained
+ * by the insertion and deletion paths. Inserted values are added to their
+ * buckets, deleted values either reduce the bucket or mark it as stale if
+ * the minimum or maximum may change. Stale buckets are queried again when
+ * they are requested. Changes made inside a transaction are applied after
+ * the transaction has been committed; a rollback removes the dataset from
+ * the store. A loaded rollup is only kept if no change of its dataset was
+ * committed or applied while it was loaded. The number of kept rollups is
+ * bounded, the least recently used rollups are loaded again on next use.
+ */
+@Configurable
+public class QuantityRollupStore {
+
+    public static final String ENABLED = "service.quantityRollupStore.enabled";
+
+    public static final String SIZE = "service.quantityRollupStore.size";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QuantityRollupStore.class);
+
+    private static final int DEFAULT_SIZE = 1000;
+
+    private final Map<Long, DatasetGeneration> generations = new ConcurrentHashMap<>();
+
+    private volatile Cache<Long, DatasetRollup> rollups = createCache(DEFAULT_SIZE);
+
+    private boolean enabled;
+
+    @Setting(ENABLED)
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            clear();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Setting(SIZE)
+    public void setSize(int size) {
+        this.rollups = createCache(size > 0 ? size : DEFAULT_SIZE);
+    }
+
+    private static Cache<Long, DatasetRollup> createCache(int size) {
+        return CacheBuilder.newBuilder().maximumSize(size).build();
+    }
+
+    /**
+     * Get the coarsest rollup resolution that can answer the aggregation.
+     *
+     * @param aggregation
+     *            the requested aggregation
+     * @return the resolution or {@code null} if the function is not supported
+     *         or the interval is not a multiple of an hour
+     */
+    public static Resolution getResolution(TemporalAggregation aggregation) {
+        if (aggregation.getFunction().isSelecting()) {
+            return null;
+        }
+        for (Resolution resolution : new Resolution[] { Resolution.DAY, Resolution.HOUR }) {
+            if (aggregation.getInterval() % resolution.getMillis() == 0) {
+                return resolution;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Aggregate the values of a dataset from the coarsest rollup that
+     * supports the aggregation interval.
+     *
+     * @param datasetId
+     *            the dataset id
+     * @param aggregation
+     *            the aggregation, see {@link #getResolution(TemporalAggregation)}
+     * @param start
+     *            the inclusive start of the time range, may be {@code null}
+     * @param end
+     *            the exclusive end of the time range, may be {@code null}
+     * @param session
+     *            Hibernate session
+     * @return the buckets ordered by time as arrays of the bucket start in
+     *         milliseconds and the aggregated value
+     */
+    public List<Object[]> aggregate(long datasetId, TemporalAggregation aggregation, Date start, Date end,
+            Session session) {
+        Resolution resolution = getResolution(aggregation);
+        if (resolution == null) {
+            throw new IllegalArgumentException("Aggregation not supported by the rollup: " + aggregation);
+        }
+        Long from = start != null ? start.getTime() : null;
+        Long to = end != null ? end.getTime() : null;
+        DatasetRollup rollup = get(datasetId, session);
+        refresh(datasetId, rollup, resolution, from, to, session);
+        List<Object[]> result = new ArrayList<>();
+        Bucket current = null;
+        for (Bucket bucket : rollup.getBuckets(resolution, from, to)) {
+            long bucketStart = aggregation.getBucketStart(bucket.getStart());
+            if (current == null || current.getStart() != bucketStart) {
+                addResult(result, current, aggregation.getFunction());
+                current = new Bucket(bucketStart);
+            }
+            current.merge(bucket);
+        }
+        addResult(result, current, aggregation.getFunction());
+        return result;
+    }
+
+    private void addResult(List<Object[]> result, Bucket bucket, TemporalAggregation.Function function) {
+        if (bucket != null && bucket.getCount() > 0) {
+            result.add(new Object[] { bucket.getStart(), bucket.getValue(function) });
+        }
+    }
+
+    private DatasetRollup get(long datasetId, Session session) {
+        DatasetRollup rollup = rollups.getIfPresent(datasetId);
+        if (rollup == null) {
+            DatasetGeneration generation = getGeneration(datasetId);
+            long loadedGeneration = generation.get();
+            rollup = load(datasetId, session);
+            // changes are applied while holding the generation, see apply()
+            synchronized (generation) {
+                DatasetRollup existing = rollups.getIfPresent(datasetId);
+                if (existing != null) {
+                    return existing;
+                }
+                if (generation.isUnchanged(loadedGeneration)) {
+                    rollups.put(datasetId, rollup);
+                }
+            }
+        }
+        return rollup;
+    }
+
+    /**
+     * Query the hourly rollup of a dataset, the daily rollup is derived from
+     * it. PostgreSQL groups the values in the database, other databases are
+     * scrolled once.
+     *
+     * @param datasetId
+     *            the dataset id
+     * @param session
+     *            Hibernate session
+     * @return the rollup of the dataset
+     */
+    @SuppressWarnings("unchecked")
+    DatasetRollup load(long datasetId, Session session) {
+        long start = System.currentTimeMillis();
+        DatasetRollup rollup = new DatasetRollup();
+        long hour = Resolution.HOUR.getMillis();
+        Criteria c = getDefaultCriteria(datasetId, session);
+        if (HibernateHelper.getDialect(session) instanceof PostgreSQL81Dialect) {
+            c.setProjection(Projections.projectionList()
+                    .add(new EpochBucketProjection(DataEntity.PROPERTY_SAMPLING_TIME_START, hour))
+                    .add(Projections.min(DataEntity.PROPERTY_VALUE)).add(Projections.max(DataEntity.PROPERTY_VALUE))
+                    .add(Projections.sum(DataEntity.PROPERTY_VALUE)).add(Projections.rowCount()));
+            LOGGER.trace("QUERY load(): {}", HibernateHelper.getSqlString(c));
+            for (Object[] row : (List<Object[]>) c.list()) {
+                if (row[0] != null && row[1] != null) {
+                    rollup.put(Resolution.HOUR,
+                            createBucket(((Number) row[0]).longValue() * hour, row[1], row[2], row[3], row[4]));
+                }
+            }
+            rollup.deriveDays();
+        } else {
+            c.setProjection(Projections.projectionList()
+                    .add(Projections.property(DataEntity.PROPERTY_SAMPLING_TIME_START))
+                    .add(Projections.property(DataEntity.PROPERTY_VALUE)));
+            c.addOrder(Order.asc(DataEntity.PROPERTY_SAMPLING_TIME_START));
+            LOGGER.trace("QUERY load(): {}", HibernateHelper.getSqlString(c));
+            ScrollableResults results = c.scroll(ScrollMode.FORWARD_ONLY);
+            try {
+                while (results.next()) {
+                    Date time = (Date) results.get(0);
+                    Number value = (Number) results.get(1);
+                    if (time != null && value != null) {
+                        rollup.add(time.getTime(), value.doubleValue());
+                    }
+                }
+            } finally {
+                results.close();
+            }
+        }
+        LOGGER.debug("Loading the rollup of dataset {} needs {} ms!", datasetId, System.currentTimeMillis() - start);
+        return rollup;
+    }
+
+    private void refresh(long datasetId, DatasetRollup rollup, Resolution resolution, Long from, Long to,
+            Session session) {
+        for (Bucket stale : rollup.getStaleBuckets(resolution, from, to)) {
+            Criteria c = getDefaultCriteria(datasetId, session)
+                    .add(Restrictions.ge(DataEntity.PROPERTY_SAMPLING_TIME_START, new Date(stale.getStart())))
+                    .add(Restrictions.lt(DataEntity.PROPERTY_SAMPLING_TIME_START,
+                            new Date(stale.getStart() + resolution.getMillis())));
+            c.setProjection(Projections.projectionList().add(Projections.min(DataEntity.PROPERTY_VALUE))
+                    .add(Projections.max(DataEntity.PROPERTY_VALUE)).add(Projections.sum(DataEntity.PROPERTY_VALUE))
+                    .add(Projections.rowCount()));
+            LOGGER.trace("QUERY refresh(): {}", HibernateHelper.getSqlString(c));
+            Object[] row = (Object[]) c.uniqueResult();
+            Bucket bucket = row != null && row[0] != null
+                    ? createBucket(stale.getStart(), row[0], row[1], row[2], row[3])
+                    : null;
+            rollup.replace(resolution, stale, bucket);
+        }
+    }
+
+    private Criteria getDefaultCriteria(long datasetId, Session session) {
+        return session.createCriteria(QuantityDataEntity.class).add(Restrictions.eq(DataEntity.PROPERTY_DELETED, false))
+                .add(Restrictions.eq(DataEntity.PROPERTY_DATASET_ID, datasetId))
+                .add(Restrictions.isNotNull(DataEntity.PROPERTY_VALUE));
+    }
+
+    private Bucket createBucket(long start, Object min, Object max, Object sum, Object count) {
+        return new Bucket(start, ((Number) min).doubleValue(), ((Number) max).doubleValue(),
+                ((Number) sum).doubleValue(), ((Number) count).longValue());
+    }
+
+    /**
+     * Add the inserted observation to the rollup of its dataset after the
+     * active transaction of the session is committed.
+     *
+     * @param datasetId
+     *            the dataset id
+     * @param observation
+     *            the inserted observation
+     * @param session
+     *            Hibernate session
+     */
+    public void add(Long datasetId, DataEntity<?> observation, Session session) {
+        if (isRollupValue(datasetId, observation)) {
+            long time = observation.getSamplingTimeStart().getTime();
+            double value = ((QuantityDataEntity) observation).getValue().doubleValue();
+            afterCommit(datasetId, session, rollup -> rollup.add(time, value));
+        }
+    }
+
+    /**
+     * Remove the deleted observation from the rollup of its dataset after the
+     * active transaction of the session is committed.
+     *
+     * @param datasetId
+     *            the dataset id
+     * @param observation
+     *            the deleted observation
+     * @param session
+     *            Hibernate session
+     */
+    public void remove(Long datasetId, DataEntity<?> observation, Session session) {
+        if (isRollupValue(datasetId, observation)) {
+            long time = observation.getSamplingTimeStart().getTime();
+            double value = ((QuantityDataEntity) observation).getValue().doubleValue();
+            afterCommit(datasetId, session, rollup -> rollup.remove(time, value));
+        }
+    }
+
+    private boolean isRollupValue(Long datasetId, DataEntity<?> observation) {
+        if (!isEnabled() || datasetId == null || !(observation instanceof QuantityDataEntity)) {
+            return false;
+        }
+        BigDecimal value = ((QuantityDataEntity) observation).getValue();
+        return value != null && observation.getSamplingTimeStart() != null;
+    }
+
+    /**
+     * Remove the datasets from the store now and after the active transaction
+     * of the session is completed, the rollups are loaded again on next use.
+     *
+     * @param datasetIds
+     *            the ids of the datasets to remove
+     * @param session
+     *            Hibernate session
+     */
+    public void invalidate(Collection<Long> datasetIds, Session session) {
+        if (isEnabled()) {
+            invalidate(datasetIds);
+            Transaction transaction = session.getTransaction();
+            if (transaction != null && transaction.isActive()) {
+                transaction.registerSynchronization(new Synchronization() {
+                    @Override
+                    public void beforeCompletion() {
+                        // nothing to do
+                    }
+
+                    @Override
+                    public void afterCompletion(int status) {
+                        invalidate(datasetIds);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Remove the datasets from the store, the rollups are loaded again on next
+     * use.
+     *
+     * @param datasetIds
+     *            the ids of the datasets to remove
+     */
+    public void invalidate(Collection<Long> datasetIds) {
+        for (Long datasetId : datasetIds) {
+            DatasetGeneration generation = getGeneration(datasetId);
+            synchronized (generation) {
+                generation.changed();
+                rollups.invalidate(datasetId);
+            }
+        }
+    }
+
+    public void clear() {
+        generations.values().forEach(DatasetGeneration::changed);
+        rollups.invalidateAll();
+    }
+
+    public int size() {
+        return (int) rollups.size();
+    }
+
+    private void afterCommit(Long datasetId, Session session, RollupUpdate update) {
+        Transaction transaction = session.getTransaction();
+        if (transaction != null && transaction.isActive()) {
+            transaction.registerSynchronization(new Synchronization() {
+                private boolean committing;
+
+                @Override
+                public void beforeCompletion() {
+                    // rollups loaded from now on may already contain the change
+                    getGeneration(datasetId).begin();
+                    committing = true;
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (committing) {
+                        getGeneration(datasetId).end();
+                    }
+                    if (status == Status.STATUS_COMMITTED) {
+                        apply(datasetId, update);
+                    } else {
+                        invalidate(Collections.singleton(datasetId));
+                    }
+                }
+            });
+        } else {
+            apply(datasetId, update);
+        }
+    }
+
+    private void apply(Long datasetId, RollupUpdate update) {
+        DatasetGeneration generation = getGeneration(datasetId);
+        synchronized (generation) {
+            generation.changed();
+            // not yet loaded rollups are loaded completely on first use
+            DatasetRollup rollup = rollups.getIfPresent(datasetId);
+            if (rollup != null) {
+                update.apply(rollup);
+            }
+        }
+    }
+
+    private DatasetGeneration getGeneration(Long datasetId) {
+        return generations.computeIfAbsent(datasetId, id -> new DatasetGeneration());
+    }
+
+    @FunctionalInterface
+    private interface RollupUpdate {
+        void apply(DatasetRollup rollup);
+    }
+
+    /**
+     * The resolutions of the rollups.
+     */
+    public enum Resolution {
+        HOUR(3600000L),
+        DAY(86400000L);
+
+        private final long millis;
+
+        Resolution(long millis) {
+            this.millis = millis;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        long getBucketStart(long time) {
+            return Math.floorDiv(time, millis) * millis;
+        }
+    }
+
+    /**
+     * The hourly and daily buckets of a dataset.
+     */
+    static class DatasetRollup {
+
+        private final Map<Resolution, NavigableMap<Long, Bucket>> buckets = new EnumMap<>(Resolution.class);
+
+        DatasetRollup() {
+            for (Resolution resolution : Resolution.values()) {
+                buckets.put(resolution, new TreeMap<>());
+            }
+        }
+
+        synchronized void add(long time, double value) {
+            for (Resolution resolution : Resolution.values()) {
+                buckets.get(resolution).computeIfAbsent(resolution.getBucketStart(time), Bucket::new).add(value);
+            }
+        }
+
+        synchronized void remove(long time, double value) {
+            for (Resolution resolution : Resolution.values()) {
+                Bucket bucket = buckets.get(resolution).get(resolution.getBucketStart(time));
+                if (bucket != null) {
+                    bucket.remove(value);
+                }
+            }
+        }
+
+        synchronized void put(Resolution resolution, Bucket bucket) {
+            buckets.get(resolution).put(bucket.getStart(), bucket);
+        }
+
+        synchronized void deriveDays() {
+            NavigableMap<Long, Bucket> days = buckets.get(Resolution.DAY);
+            days.clear();
+            for (Bucket hour : buckets.get(Resolution.HOUR).values()) {
+                days.computeIfAbsent(Resolution.DAY.getBucketStart(hour.getStart()), Bucket::new).merge(hour);
+            }
+        }
+
+        /**
+         * @return copies of the buckets in the time range
+         */
+        synchronized List<Bucket> getBuckets(Resolution resolution, Long from, Long to) {
+            List<Bucket> list = new ArrayList<>();
+            for (Bucket bucket : getRange(resolution, from, to).values()) {
+                list.add(new Bucket(bucket.getStart()).merge(bucket));
+            }
+            return list;
+        }
+
+        /**
+         * @return copies of the stale buckets in the time range, including the
+         *         modification count
+         */
+        synchronized List<Bucket> getStaleBuckets(Resolution resolution, Long from, Long to) {
+            List<Bucket> list = new ArrayList<>();
+            for (Bucket bucket : getRange(resolution, from, to).values()) {
+                if (bucket.isStale()) {
+                    Bucket copy = new Bucket(bucket.getStart());
+                    copy.modifications = bucket.modifications;
+                    list.add(copy);
+                }
+            }
+            return list;
+        }
+
+        /**
+         * Replace a stale bucket if it was not modified since it was returned
+         * by {@link #getStaleBuckets(Resolution, Long, Long)}.
+         */
+        synchronized void replace(Resolution resolution, Bucket stale, Bucket bucket) {
+            NavigableMap<Long, Bucket> map = buckets.get(resolution);
+            Bucket current = map.get(stale.getStart());
+            if (current != null && current.modifications == stale.modifications) {
+                if (bucket != null) {
+                    map.put(bucket.getStart(), bucket);
+                } else {
+                    map.remove(stale.getStart());
+                }
+            }
+        }
+
+        private NavigableMap<Long, Bucket> getRange(Resolution resolution, Long from, Long to) {
+            NavigableMap<Long, Bucket> map = buckets.get(resolution);
+            if (from != null) {
+                map = map.tailMap(from, true);
+            }
+            if (to != null) {
+                map = map.headMap(to, false);
+            }
+            return map;
+        }
+    }
+
+    /**
+     * Minimum, maximum, sum and count of the values of a time bucket.
+     */
+    static class Bucket {
+
+        private final long start;
+
+        private double min = Double.NaN;
+
+        private double max = Double.NaN;
+
+        private double sum;
+
+        private long count;
+
+        private boolean stale;
+
+        private int modifications;
+
+        Bucket(long start) {
+            this.start = start;
+        }
+
+        Bucket(long start, double min, double max, double sum, long count) {
+            this.start = start;
+            this.min = min;
+            this.max = max;
+            this.sum = sum;
+            this.count = count;
+        }
+
+        long getStart() {
+            return start;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        boolean isStale() {
+            return stale;
+        }
+
+        void add(double value) {
+            modifications++;
+            min = count == 0 ? value : Math.min(min, value);
+            max = count == 0 ? value : Math.max(max, value);
+            sum += value;
+            count++;
+        }
+
+        void remove(double value) {
+            modifications++;
+            if (!stale && count > 1 && value > min && value < max) {
+                sum -= value;
+                count--;
+            } else {
+                stale = true;
+            }
+        }
+
+        Bucket merge(Bucket other) {
+            if (other.count > 0) {
+                min = count == 0 ? other.min : Math.min(min, other.min);
+                max = count == 0 ? other.max : Math.max(max, other.max);
+                sum += other.sum;
+                count += other.count;
+            }
+            stale |= other.stale;
+            return this;
+        }
+
+        Number getValue(TemporalAggregation.Function function) {
+            switch (function) {
+                case MIN:
+                    return min;
+                case MAX:
+                    return max;
+                case MEAN:
+                    return sum / count;
+                case COUNT:
+                    return count;
+                default:
+                    throw new IllegalArgumentException(function.name());
+            }
+        }
+    }
+}
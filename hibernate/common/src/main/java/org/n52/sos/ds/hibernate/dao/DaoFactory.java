@@ -51,6 +51,10 @@ import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.util.EReportingSetting;
 import org.n52.sos.ds.FeatureQueryHandler;
 import org.n52.sos.request.operator.AbstractRequestOperator;
+import org.n52.sos.ds.hibernate.cache.ConstellationObjectCache;
+import org.n52.sos.ds.hibernate.cache.DataAvailabilityExtentStore;
+import org.n52.sos.ds.hibernate.cache.FirstLatestValueStore;
+import org.n52.sos.ds.hibernate.cache.QuantityRollupStore;
 import org.n52.sos.ds.hibernate.dao.observation.AbstractObservationTimeDAO;
 import org.n52.sos.ds.hibernate.dao.observation.ereporting.EReportingObservationDAO;
 import org.n52.sos.ds.hibernate.dao.observation.ereporting.EReportingObservationTimeDAO;
@@ -94,6 +98,14 @@ public class DaoFactory {
     private FeatureQueryHandler featureQueryHandler;
     private String serviceURL;
     private boolean includeChildObservableProperties;
+    private boolean exactOfferingSpatialExtent;
+    private FirstLatestValueStore firstLatestValueStore = new FirstLatestValueStore();
+
+    private DataAvailabilityExtentStore dataAvailabilityExtentStore = new DataAvailabilityExtentStore();
+
+    private QuantityRollupStore quantityRollupStore = new QuantityRollupStore();
+
+    private ConstellationObjectCache constellationObjectCache = new ConstellationObjectCache();
 
     @Inject
     public void setI18NDAORepository(I18NDAORepository i18NDAORepository) {
@@ -156,6 +168,35 @@ public class DaoFactory {
         this.includeChildObservableProperties = include;
     }
 
+    public boolean isExactOfferingSpatialExtent() {
+        return exactOfferingSpatialExtent;
+    }
+
+    @Setting(OfferingDAO.EXACT_SPATIAL_EXTENT)
+    public void setExactOfferingSpatialExtent(boolean exactOfferingSpatialExtent) {
+        this.exactOfferingSpatialExtent = exactOfferingSpatialExtent;
+    }
+
+
+    @Inject
+    public void setFirstLatestValueStore(FirstLatestValueStore firstLatestValueStore) {
+        this.firstLatestValueStore = firstLatestValueStore;
+    }
+
+    @Inject
+    public void setDataAvailabilityExtentStore(DataAvailabilityExtentStore dataAvailabilityExtentStore) {
+        this.dataAvailabilityExtentStore = dataAvailabilityExtentStore;
+    }
+
+    @Inject
+    public void setQuantityRollupStore(QuantityRollupStore quantityRollupStore) {
+        this.quantityRollupStore = quantityRollupStore;
+    }
+
+    @Inject
+    public void setConstellationObjectCache(ConstellationObjectCache constellationObjectCache) {
+        this.constellationObjectCache = constellationObjectCache;
+    }
 
     @Inject
     public void setFeatureQueryHandler(FeatureQueryHandler featureQueryHandler) {
@@ -293,6 +334,22 @@ public class DaoFactory {
         return sweHelper;
     }
 
+    public FirstLatestValueStore getFirstLatestValueStore() {
+        return firstLatestValueStore;
+    }
+
+    public DataAvailabilityExtentStore getDataAvailabilityExtentStore() {
+        return dataAvailabilityExtentStore;
+    }
+
+    public QuantityRollupStore getQuantityRollupStore() {
+        return quantityRollupStore;
+    }
+
+    public ConstellationObjectCache getConstellationObjectCache() {
+        return constellationObjectCache;
+    }
+
     public FeatureQueryHandler getFeatureQueryHandler() {
         return featureQueryHandler;
     }
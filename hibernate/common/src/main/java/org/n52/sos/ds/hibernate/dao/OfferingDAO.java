@@ -30,6 +30,7 @@ package org.n52.sos.ds.hibernate.dao;
 
 import java.sql.Timestamp;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -52,10 +53,13 @@ import org.hibernate.sql.JoinType;
 import org.hibernate.transform.ResultTransformer;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
+import org.n52.series.db.beans.AbstractFeatureEntity;
 import org.n52.series.db.beans.DataEntity;
 import org.n52.series.db.beans.DatasetEntity;
 import org.n52.series.db.beans.FormatEntity;
+import org.n52.series.db.beans.GeometryEntity;
 import org.n52.series.db.beans.OfferingEntity;
 import org.n52.series.db.beans.PhenomenonEntity;
 import org.n52.series.db.beans.ProcedureEntity;
@@ -86,6 +90,12 @@ import com.google.common.collect.Maps;
  */
 public class OfferingDAO extends AbstractIdentifierNameDescriptionDAO implements HibernateSqlQueryConstants {
 
+    /**
+     * Should the offering geometry be the union of all sampling geometries
+     * instead of their envelope
+     */
+    public static final String EXACT_SPATIAL_EXTENT = "service.offering.exactSpatialExtent";
+
     private static final String SQL_QUERY_OFFERING_TIME_EXTREMA = "getOfferingTimeExtrema";
 
     private static final String SQL_QUERY_GET_MIN_DATE_FOR_OFFERING = "getMinDate4Offering";
@@ -728,24 +738,137 @@ public class OfferingDAO extends AbstractIdentifierNameDescriptionDAO implements
             offering.setValidTimeEnd(observation.getValidTimeEnd());
         }
         if (observation.isSetGeometryEntity()) {
-            if (offering.isSetGeometry()) {
-                offering.getGeometryEntity().setGeometry(offering.getGeometryEntity().getGeometry()
-                        .union(observation.getGeometryEntity().getGeometry()));
-            } else {
-                offering.setGeometryEntity(observation.getGeometryEntity());
-            }
+            updateOfferingGeometry(offering, observation.getGeometryEntity().getGeometry());
         } else if (observation.getDataset().isSetFeature() && observation.getDataset().getFeature().isSetGeometry()) {
-            if (offering.isSetGeometry()) {
-                offering.getGeometryEntity().getGeometry()
-                        .union(observation.getDataset().getFeature().getGeometryEntity().getGeometry());
-            } else {
-                offering.setGeometryEntity(observation.getDataset().getFeature().getGeometryEntity());
-            }
+            updateOfferingGeometry(offering, observation.getDataset().getFeature().getGeometryEntity().getGeometry());
         }
         session.saveOrUpdate(offering);
         return offering;
     }
 
+    /**
+     * Extend the offering geometry to contain the geometry. The offering
+     * geometry is maintained as envelope of the geometries unless the exact
+     * spatial extent is configured, so that the costs do not grow with the
+     * number of inserted sampling geometries. The offering is not modified if
+     * its envelope already covers the geometry.
+     *
+     * @param offering
+     *            the offering
+     * @param geometry
+     *            the sampling geometry
+     */
+    private void updateOfferingGeometry(OfferingEntity offering, Geometry geometry) {
+        if (geometry == null || geometry.isEmpty()) {
+            return;
+        }
+        boolean exact = getDaoFactory().isExactOfferingSpatialExtent();
+        if (!offering.isSetGeometry()) {
+            offering.setGeometryEntity(createGeometryEntity(exact ? geometry.copy() : toEnvelope(geometry, null)));
+        } else if (exact) {
+            offering.getGeometryEntity().setGeometry(offering.getGeometryEntity().getGeometry().union(geometry));
+        } else {
+            Geometry current = offering.getGeometryEntity().getGeometry();
+            if (!current.getEnvelopeInternal().covers(geometry.getEnvelopeInternal())) {
+                offering.setGeometryEntity(createGeometryEntity(toEnvelope(current, geometry)));
+            }
+        }
+    }
+
+    private Geometry toEnvelope(Geometry geometry, Geometry other) {
+        Envelope envelope = new Envelope(geometry.getEnvelopeInternal());
+        if (other != null) {
+            envelope.expandToInclude(other.getEnvelopeInternal());
+        }
+        Geometry result = geometry.getFactory().toGeometry(envelope);
+        result.setSRID(geometry.getSRID());
+        return result;
+    }
+
+    private GeometryEntity createGeometryEntity(Geometry geometry) {
+        GeometryEntity geometryEntity = new GeometryEntity();
+        geometryEntity.setGeometry(geometry);
+        return geometryEntity;
+    }
+
+    /**
+     * Recompute the offering geometries from the extent of the sampling
+     * geometries and the geometries of the features of the not deleted
+     * observations. Requires a spatial datasource supporting the extent
+     * function. The extent is a bounding box, so the offering geometries are
+     * not modified if the exact spatial extent is configured.
+     *
+     * @param session
+     *            Hibernate session
+     * @return the updated offering geometries by offering identifier
+     */
+    public Map<String, Geometry> updateOfferingGeometries(Session session) {
+        if (getDaoFactory().isExactOfferingSpatialExtent()) {
+            LOGGER.debug("The exact offering spatial extent is maintained during the insertion!");
+            return Collections.emptyMap();
+        }
+        Dialect dialect = ((SessionFactoryImplementor) session.getSessionFactory()).getJdbcServices().getDialect();
+        if (!getDaoFactory().getGeometryHandler().isSpatialDatasource()
+                || !HibernateHelper.supportsFunction(dialect, HibernateConstants.FUNC_EXTENT)) {
+            LOGGER.debug("The datasource does not support the extent of geometries!");
+            return Collections.emptyMap();
+        }
+        Map<String, Geometry> extents = getSamplingGeometryExtents(session);
+        getFeatureGeometryExtents(session).forEach((offering, extent) -> extents.merge(offering, extent,
+                (g1, g2) -> toEnvelope(g1, g2)));
+        Map<String, Geometry> updated = new HashMap<>();
+        for (OfferingEntity offering : getOfferings(session)) {
+            Geometry extent = extents.get(offering.getIdentifier());
+            if (extent != null && !extent.isEmpty() && (!offering.isSetGeometry()
+                    || !extent.equalsExact(offering.getGeometryEntity().getGeometry()))) {
+                offering.setGeometryEntity(createGeometryEntity(extent));
+                session.saveOrUpdate(offering);
+                updated.put(offering.getIdentifier(), extent);
+            }
+        }
+        return updated;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Geometry> getSamplingGeometryExtents(Session session) {
+        Criteria criteria = getDaoFactory().getObservationDAO().getDefaultObservationInfoCriteria(session)
+                .createAlias(DataEntity.PROPERTY_DATASET, "ds")
+                .createAlias("ds." + DatasetEntity.PROPERTY_OFFERING, "off")
+                .add(Restrictions.isNotNull(DataEntity.PROPERTY_GEOMETRY_ENTITY))
+                .setProjection(Projections.projectionList()
+                        .add(Projections.groupProperty("off." + OfferingEntity.IDENTIFIER))
+                        .add(SpatialProjections.extent(DataEntity.PROPERTY_GEOMETRY_ENTITY)));
+        LOGGER.debug("QUERY getSamplingGeometryExtents(): {}", HibernateHelper.getSqlString(criteria));
+        return toExtentMap(criteria.list());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Geometry> getFeatureGeometryExtents(Session session) {
+        Criteria criteria = session.createCriteria(getDaoFactory().getSeriesDAO().getSeriesClass())
+                .add(Restrictions.eq(DatasetEntity.PROPERTY_DELETED, false))
+                .createAlias(DatasetEntity.PROPERTY_OFFERING, "off")
+                .createAlias(DatasetEntity.PROPERTY_FEATURE, "f")
+                .setProjection(Projections.projectionList()
+                        .add(Projections.groupProperty("off." + OfferingEntity.IDENTIFIER))
+                        .add(SpatialProjections.extent("f." + AbstractFeatureEntity.GEOMETRY)));
+        LOGGER.debug("QUERY getFeatureGeometryExtents(): {}", HibernateHelper.getSqlString(criteria));
+        return toExtentMap(criteria.list());
+    }
+
+    private Map<String, Geometry> toExtentMap(List<Object[]> results) {
+        Map<String, Geometry> extents = new HashMap<>();
+        for (Object[] result : results) {
+            if (result[0] != null && result[1] instanceof Geometry) {
+                // the extent function does not return the SRID of the geometries
+                Geometry extent = (Geometry) result[1];
+                extent.setSRID(extent.getSRID() > 0 ? extent.getSRID()
+                        : getDaoFactory().getGeometryHandler().getStorageEPSG());
+                extents.put(result[0].toString(), extent);
+            }
+        }
+        return extents;
+    }
+
     public void updateAfterObservationDeletion(org.n52.series.db.beans.OfferingEntity offering,
             DataEntity<?> observation, Session session) {
         SeriesObservationDAO seriesObservationDAO = new SeriesObservationDAO(getDaoFactory());
@@ -29,16 +29,22 @@
 package org.n52.sos.ds.hibernate.dao.i18n;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
 import org.hibernate.Criteria;
+import org.hibernate.FetchMode;
 import org.hibernate.HibernateException;
 import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
@@ -53,18 +59,30 @@ import org.n52.janmayen.i18n.LocalizedString;
 import org.n52.series.db.beans.DescribableEntity;
 import org.n52.series.db.beans.i18n.I18nEntity;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.ds.CachingI18NDAO;
 import org.n52.sos.ds.hibernate.HibernateSessionHolder;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 public abstract class AbstractHibernateI18NDAO<T extends DescribableEntity,
                                                S extends AbstractI18NMetadata,
                                                H extends I18nEntity>
-        implements I18NDAO<S>, HibernateI18NDAO<S> {
+        implements I18NDAO<S>, HibernateI18NDAO<S>, CachingI18NDAO {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractHibernateI18NDAO.class);
 
     private HibernateSessionHolder sessionHolder;
 
+    /**
+     * Translations per identifier, {@code null} until loaded. The cached
+     * objects are detached copies without the related entity.
+     */
+    private volatile Map<String, List<H>> translations;
+
     @Inject
     public void setConnectionProvider(ConnectionProvider connectionProvider) {
         this.sessionHolder = new HibernateSessionHolder(connectionProvider);
@@ -73,90 +91,52 @@ public abstract class AbstractHibernateI18NDAO<T extends DescribableEntity,
     @Override
     public S getMetadata(String id)
             throws OwsExceptionReport {
-        Session session = null;
-        try {
-            session = sessionHolder.getSession();
-            return getMetadata(id, session);
-        } finally {
-            sessionHolder.returnSession(session);
-        }
+        return query(cached -> getCachedMetadata(cached, id, null), session -> getMetadata(id, session));
     }
 
     @Override
     public Collection<S> getMetadata(Collection<String> id)
             throws OwsExceptionReport {
-        Session session = null;
-        try {
-            session = sessionHolder.getSession();
-            return getMetadata(id, session);
-        } finally {
-            sessionHolder.returnSession(session);
-        }
+        return query(cached -> getCachedMetadata(cached, id, null), session -> getMetadata(id, session));
     }
 
     @Override
     public S getMetadata(String id, Locale locale)
             throws OwsExceptionReport {
-        Session session = null;
-        try {
-            session = sessionHolder.getSession();
-            return getMetadata(id, locale, session);
-        } finally {
-            sessionHolder.returnSession(session);
-        }
+        return getMetadata(id, locale.toString());
     }
 
     @Override
     public S getMetadata(String id, String locale) throws OwsExceptionReport {
-        Session session = null;
-        try {
-            session = sessionHolder.getSession();
-            return getMetadata(id, locale, session);
-        } finally {
-            sessionHolder.returnSession(session);
-        }
+        return query(cached -> getCachedMetadata(cached, id, locale), session -> getMetadata(id, locale, session));
     }
 
     @Override
     public Collection<S> getMetadata(Collection<String> id, Locale locale)
             throws OwsExceptionReport {
-        Session session = null;
-        try {
-            session = sessionHolder.getSession();
-            return getMetadata(id, locale, session);
-        } finally {
-            sessionHolder.returnSession(session);
-        }
+        return getMetadata(id, locale.toString());
     }
 
     @Override
     public Collection<S> getMetadata(Collection<String> id, String locale)
             throws OwsExceptionReport {
-        Session session = null;
-        try {
-            session = sessionHolder.getSession();
-            return getMetadata(id, locale, session);
-        } finally {
-            sessionHolder.returnSession(session);
-        }
+        return query(cached -> getCachedMetadata(cached, id, locale), session -> getMetadata(id, locale, session));
     }
 
     @Override
     public Collection<S> getMetadata()
             throws OwsExceptionReport {
-        Session session = null;
-        try {
-            session = sessionHolder.getSession();
-            return getMetadata(session);
-        } finally {
-            sessionHolder.returnSession(session);
-        }
+        return query(cached -> getCachedMetadata(cached, cached.keySet(), null), session -> getMetadata(session));
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public S getMetadata(String id, Session session)
             throws OwsExceptionReport {
+        Map<String, List<H>> cached = this.translations;
+        if (cached != null) {
+            return getCachedMetadata(cached, id, null);
+        }
         Criteria criteria = session.createCriteria(getHibernateEntityClass());
         criteria.createCriteria(I18nEntity.PROPERTY_ENTITY)
                 .add(Restrictions.eq(DescribableEntity.IDENTIFIER, id));
@@ -168,6 +148,10 @@ public abstract class AbstractHibernateI18NDAO<T extends DescribableEntity,
     @SuppressWarnings("unchecked")
     public Collection<S> getMetadata(Collection<String> id, Session session)
             throws OwsExceptionReport {
+        Map<String, List<H>> cached = this.translations;
+        if (cached != null) {
+            return getCachedMetadata(cached, id, null);
+        }
         Criteria criteria = session.createCriteria(getHibernateEntityClass());
         criteria.createCriteria(I18nEntity.PROPERTY_ENTITY)
                 .add(Restrictions.in(DescribableEntity.IDENTIFIER, id));
@@ -183,6 +167,10 @@ public abstract class AbstractHibernateI18NDAO<T extends DescribableEntity,
 
     private S getMetadata(String id, String locale, Session session)
             throws OwsExceptionReport {
+        Map<String, List<H>> cached = this.translations;
+        if (cached != null) {
+            return getCachedMetadata(cached, id, locale);
+        }
         Criteria criteria = session.createCriteria(getHibernateEntityClass());
         criteria.createCriteria(I18nEntity.PROPERTY_ENTITY)
                 .add(Restrictions.eq(DescribableEntity.IDENTIFIER, id));
@@ -212,6 +200,10 @@ public abstract class AbstractHibernateI18NDAO<T extends DescribableEntity,
 
     private Collection<S> getMetadata(Collection<String> id, String locale, Session session)
             throws OwsExceptionReport {
+        Map<String, List<H>> cached = this.translations;
+        if (cached != null) {
+            return getCachedMetadata(cached, id, locale);
+        }
         Criteria criteria = session.createCriteria(getHibernateEntityClass());
         criteria.createCriteria(I18nEntity.PROPERTY_ENTITY)
                 .add(Restrictions.in(DescribableEntity.IDENTIFIER, id));
@@ -237,6 +229,10 @@ public abstract class AbstractHibernateI18NDAO<T extends DescribableEntity,
     @SuppressWarnings("unchecked")
     public Collection<S> getMetadata(Session session)
             throws OwsExceptionReport {
+        Map<String, List<H>> cached = this.translations;
+        if (cached != null) {
+            return getCachedMetadata(cached, cached.keySet(), null);
+        }
         Criteria criteria = session.createCriteria(getHibernateEntityClass());
         List<H> list = criteria.list();
         return createSosObject(list);
@@ -259,6 +255,7 @@ public abstract class AbstractHibernateI18NDAO<T extends DescribableEntity,
             }
             session.flush();
             transaction.commit();
+            updateTranslations(i18n.getIdentifier(), session);
         } catch (HibernateException e) {
             if (transaction != null) {
                 transaction.rollback();
@@ -282,22 +279,183 @@ public abstract class AbstractHibernateI18NDAO<T extends DescribableEntity,
     @Override
     public Collection<Locale> getAvailableLocales()
             throws OwsExceptionReport {
+        Collection<String> locales = query(cached -> getCachedLocales(cached), session -> getAvailableLocales(session));
+        return locales.stream().map(l -> LocaleHelper.decode(l)).collect(Collectors.toSet());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Collection<String> getAvailableLocales(Session session)
+            throws OwsExceptionReport {
+        Map<String, List<H>> cached = this.translations;
+        if (cached != null) {
+            return getCachedLocales(cached);
+        }
+        Criteria criteria = session.createCriteria(getHibernateEntityClass());
+        criteria.setProjection(Projections.distinct(Projections.property(I18nEntity.PROPERTY_LOCALE)));
+        return criteria.list();
+    }
+
+    @Override
+    public void loadTranslations()
+            throws OwsExceptionReport {
+        if (!isSupported()) {
+            return;
+        }
         Session session = null;
         try {
             session = sessionHolder.getSession();
-            return getAvailableLocales(session).stream().map(l -> LocaleHelper.decode(l)).collect(Collectors.toSet());
+            loadTranslations(session);
         } finally {
             sessionHolder.returnSession(session);
         }
     }
 
-    @Override
+    /**
+     * Load all translations into memory, replacing the current ones.
+     * Translations that do not belong to an entity with an identifier are
+     * skipped.
+     *
+     * @param session
+     *            Hibernate session
+     */
     @SuppressWarnings("unchecked")
-    public Collection<String> getAvailableLocales(Session session)
+    public void loadTranslations(Session session) {
+        Criteria criteria = session.createCriteria(getHibernateEntityClass())
+                .setFetchMode(I18nEntity.PROPERTY_ENTITY, FetchMode.JOIN);
+        Map<String, List<H>> loaded = new ConcurrentHashMap<>();
+        for (H h18n : (List<H>) criteria.list()) {
+            String identifier = getIdentifier(h18n);
+            if (identifier != null) {
+                loaded.computeIfAbsent(identifier, k -> Lists.newArrayList()).add(copy(h18n));
+            } else {
+                LOGGER.warn("The translation '{}' of type {} has no related entity and is skipped!", h18n.getId(),
+                        getHibernateEntityClass().getSimpleName());
+            }
+        }
+        this.translations = loaded;
+    }
+
+    /**
+     * Remove the translations from memory, afterwards they are queried again.
+     */
+    public void clearTranslations() {
+        this.translations = null;
+    }
+
+    private void updateTranslations(String id, Session session) {
+        Map<String, List<H>> cached = this.translations;
+        if (cached != null) {
+            Criteria criteria = session.createCriteria(getHibernateEntityClass());
+            criteria.createCriteria(I18nEntity.PROPERTY_ENTITY)
+                    .add(Restrictions.eq(DescribableEntity.IDENTIFIER, id));
+            @SuppressWarnings("unchecked")
+            List<H> list = criteria.list();
+            cached.put(id, list.stream().map(this::copy).collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Answer the query from the translations in memory if they are loaded,
+     * otherwise query the database with a session from the pool.
+     */
+    private <R> R query(Function<Map<String, List<H>>, R> cachedQuery, SessionQuery<R> query)
             throws OwsExceptionReport {
-        Criteria criteria = session.createCriteria(getHibernateEntityClass());
-        criteria.setProjection(Projections.distinct(Projections.property(I18nEntity.PROPERTY_LOCALE)));
-        return criteria.list();
+        Map<String, List<H>> cached = this.translations;
+        if (cached != null) {
+            return cachedQuery.apply(cached);
+        }
+        Session session = null;
+        try {
+            session = sessionHolder.getSession();
+            return query.query(session);
+        } finally {
+            sessionHolder.returnSession(session);
+        }
+    }
+
+    private S getCachedMetadata(Map<String, List<H>> cached, String id, String locale) {
+        return createSosObject(id, getCached(cached, Collections.singleton(id), locale)
+                .getOrDefault(id, Collections.emptyList()));
+    }
+
+    private Collection<S> getCachedMetadata(Map<String, List<H>> cached, Collection<String> ids, String locale) {
+        return createSosObject(getCached(cached, ids, locale));
+    }
+
+    private Collection<String> getCachedLocales(Map<String, List<H>> cached) {
+        return cached.values().stream().flatMap(List::stream).map(H::getLocale).collect(Collectors.toSet());
+    }
+
+    /**
+     * Get the cached translations of the identifiers in the locale or, if
+     * none exists, in the equivalent locales. All translations are returned
+     * if the locale is {@code null}.
+     */
+    private Map<String, List<H>> getCached(Map<String, List<H>> cached, Collection<String> ids, String locale) {
+        if (locale == null) {
+            return getCached(cached, ids, h18n -> true);
+        }
+        Map<String, List<H>> map = getCached(cached, ids, h18n -> locale.equals(h18n.getLocale()));
+        if (map.isEmpty()) {
+            Set<String> locales = LocaleHelper.getEquivalents(locale);
+            map = getCached(cached, ids, h18n -> locales.contains(h18n.getLocale()));
+        }
+        return map;
+    }
+
+    private Map<String, List<H>> getCached(Map<String, List<H>> cached, Collection<String> ids,
+            Predicate<H> filter) {
+        Map<String, List<H>> map = Maps.newLinkedHashMap();
+        for (String id : new LinkedHashSet<>(ids)) {
+            for (H h18n : cached.getOrDefault(id, Collections.emptyList())) {
+                if (filter.test(h18n)) {
+                    map.computeIfAbsent(id, k -> Lists.newArrayList()).add(h18n);
+                }
+            }
+        }
+        return map;
+    }
+
+    private Collection<S> createSosObject(Map<String, List<H>> h18ns) {
+        return h18ns.entrySet().stream().map(e -> createSosObject(e.getKey(), e.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    private String getIdentifier(H h18n) {
+        if (h18n.getEntity() instanceof DescribableEntity) {
+            return ((DescribableEntity) h18n.getEntity()).getIdentifier();
+        }
+        return null;
+    }
+
+    /**
+     * Create a detached copy of the translation which does not reference the
+     * translated entity.
+     *
+     * @param h18n
+     *            the translation to copy
+     * @return the copy
+     */
+    protected H copy(H h18n) {
+        H copy = createHibernateObject();
+        copy.setLocale(h18n.getLocale());
+        copy.setName(h18n.getName());
+        copy.setDescription(h18n.getDescription());
+        copyValues(h18n, copy);
+        return copy;
+    }
+
+    /**
+     * Copy additional values of the translation.
+     *
+     * @param source
+     *            the translation to copy
+     * @param target
+     *            the copy
+     */
+    protected void copyValues(H source, H target) {
+        // nothing to copy by default
     }
 
     @Override
@@ -381,4 +539,9 @@ public abstract class AbstractHibernateI18NDAO<T extends DescribableEntity,
     protected abstract Class<H> getHibernateEntityClass();
 
     protected abstract H createHibernateObject();
+
+    @FunctionalInterface
+    private interface SessionQuery<R> {
+        R query(Session session) throws OwsExceptionReport;
+    }
 }
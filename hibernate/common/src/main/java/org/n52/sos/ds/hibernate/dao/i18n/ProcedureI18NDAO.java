@@ -91,6 +91,12 @@ public class ProcedureI18NDAO
         }
     }
 
+    @Override
+    protected void copyValues(I18nProcedureEntity source, I18nProcedureEntity target) {
+        target.setLongName(source.getLongName());
+        target.setShortName(source.getShortName());
+    }
+
     @Override
     protected void fillSosObject(I18nProcedureEntity h18n, I18NProcedureMetadata i18n) {
         super.fillSosObject(h18n, i18n);
@@ -29,11 +29,13 @@
 package org.n52.sos.ds.hibernate.dao.observation;
 
 import java.sql.Timestamp;
+import java.util.Date;
 
 import org.hibernate.Criteria;
 import org.hibernate.FetchMode;
 import org.hibernate.Session;
 import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Projection;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
@@ -51,6 +53,7 @@ import org.n52.sos.ds.hibernate.util.ResultFilterClasses;
 import org.n52.sos.ds.hibernate.util.ResultFilterRestrictions;
 import org.n52.sos.ds.hibernate.util.ResultFilterRestrictions.SubQueryIdentifier;
 import org.n52.sos.ds.hibernate.util.SpatialRestrictions;
+import org.n52.sos.request.TemporalAggregation;
 import org.n52.sos.util.GeometryHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -219,8 +222,53 @@ public abstract class AbstractValueDAO extends TimeCreator {
         }
     }
 
+    /**
+     * Add keyset chunk information to {@link Criteria}. The values are
+     * additionally ordered by id and only values after the last value of the
+     * previous chunk are queried, so the database does not have to skip the
+     * rows of the previous chunks.
+     *
+     * @param c
+     *            {@link Criteria} ordered by the order column of the request
+     * @param chunkSize
+     *            Chunk size
+     * @param lastValue
+     *            Last value of the previous chunk, {@code null} for the first
+     *            chunk
+     * @param request
+     *            the request
+     * @param logArgs
+     *            log arguments
+     */
+    protected void addKeysetChunkValuesToCriteria(Criteria c, int chunkSize, DataEntity<?> lastValue,
+            AbstractObservationRequest request, StringBuilder logArgs) {
+        c.addOrder(Order.asc(DataEntity.PROPERTY_ID));
+        if (lastValue != null) {
+            String column = getOrderColumn(request);
+            Date last = DataEntity.PROPERTY_RESULT_TIME.equals(column)
+                    ? lastValue.getResultTime()
+                    : lastValue.getSamplingTimeStart();
+            c.add(Restrictions.or(Restrictions.gt(column, last), Restrictions.and(Restrictions.eq(column, last),
+                    Restrictions.gt(DataEntity.PROPERTY_ID, lastValue.getId()))));
+            logArgs.append(", after(" + lastValue.getId() + ")");
+        }
+        if (chunkSize > 0) {
+            c.setMaxResults(chunkSize);
+            logArgs.append(", chunk(" + chunkSize + ")");
+        }
+    }
+
+    /**
+     * Get the column the values are ordered by, the result time if the
+     * request filters by result time. Aggregated values are always ordered by
+     * sampling time, the aggregation buckets are sampling time intervals.
+     *
+     * @param request
+     *            the request
+     * @return the order column
+     */
     protected String getOrderColumn(AbstractObservationRequest request) {
-        if (request instanceof GetObservationRequest) {
+        if (request instanceof GetObservationRequest && !request.hasExtension(TemporalAggregation.EXTENSION)) {
             if (((GetObservationRequest) request).isSetTemporalFilter()) {
                 TemporalFilter filter = ((GetObservationRequest) request).getTemporalFilters().iterator().next();
                 if (filter.getValueReference().contains(DataEntity.PROPERTY_RESULT_TIME)) {
@@ -0,0 +1,533 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.dao.observation;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.hibernate.Session;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.IdentityGenerator;
+import org.hibernate.id.enhanced.HiLoOptimizer;
+import org.hibernate.id.enhanced.LegacyHiLoAlgorithmOptimizer;
+import org.hibernate.id.enhanced.Optimizer;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.persister.entity.SingleTableEntityPersister;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.Type;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes observation rows of one {@link DataEntity} type directly via JDBC,
+ * without creating and flushing entities through the Hibernate session.
+ * <p>
+ * Table, column and identifier generation are taken from the Hibernate
+ * mapping, so the writer follows the configured database model. Each written
+ * row carries the dataset, the phenomenon and result time, the value and a
+ * generated STA identifier; every other insertable property is written with
+ * the default of a newly created entity. Mappings that cannot be written this
+ * way (joined tables, hilo identifiers, non simple defaults) are reported by
+ * {@link #isSupported()}.
+ * <p>
+ * Rows are written with a JDBC batch insert or, on PostgreSQL, with
+ * {@code COPY ... FROM STDIN}. Neither the dataset first/last values nor the
+ * content cache are touched, callers have to update them for the written rows.
+ */
+public class BulkObservationWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkObservationWriter.class);
+
+    private static final String STA_IDENTIFIER = "staIdentifier";
+
+    private static final String COPY_NULL = "\\N";
+
+    private final Class<? extends DataEntity<?>> entityClass;
+
+    private final List<Column> columns = new ArrayList<>();
+
+    private final String table;
+
+    private String idColumn;
+
+    private String idExpression;
+
+    private String unsupportedReason;
+
+    private boolean copySupported;
+
+    private boolean postgres;
+
+    private DateTimeFormatter copyTimestampFormat;
+
+    public BulkObservationWriter(Class<? extends DataEntity<?>> entityClass, Session session) {
+        this.entityClass = entityClass;
+        SessionFactoryImplementor factory = session.getSessionFactory().unwrap(SessionFactoryImplementor.class);
+        EntityPersister entityPersister = factory.getMetamodel().entityPersister(entityClass);
+        if (entityPersister instanceof SingleTableEntityPersister) {
+            AbstractEntityPersister persister = (AbstractEntityPersister) entityPersister;
+            this.table = persister.getTableName();
+            Dialect dialect = factory.getJdbcServices().getDialect();
+            this.postgres = dialect instanceof PostgreSQL81Dialect;
+            TimeZone timeZone = factory.getSessionFactoryOptions().getJdbcTimeZone();
+            this.copyTimestampFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSXXX")
+                    .withZone(timeZone != null ? timeZone.toZoneId() : ZoneId.systemDefault());
+            this.copySupported = postgres;
+            resolveIdentifier(persister, dialect);
+            resolveDiscriminator(persister);
+            resolveProperties(persister, factory);
+        } else {
+            this.table = null;
+            unsupported("the persister %s is not supported", entityPersister.getClass().getName());
+        }
+        if (!isSupported()) {
+            LOGGER.debug("Bulk writing of {} is not supported: {}", entityClass.getSimpleName(), unsupportedReason);
+        }
+    }
+
+    /**
+     * @return if the mapping of the entity can be written by this writer
+     */
+    public boolean isSupported() {
+        return unsupportedReason == null;
+    }
+
+    /**
+     * @return why the mapping can not be written, or {@code null}
+     */
+    public String getUnsupportedReason() {
+        return unsupportedReason;
+    }
+
+    /**
+     * @return if rows are written with {@code COPY} instead of a batch insert
+     */
+    public boolean isCopy() {
+        return isSupported() && copySupported;
+    }
+
+    public Class<? extends DataEntity<?>> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * Write the rows of a dataset in the current transaction of the session.
+     *
+     * @param dataset
+     *            the persisted dataset the rows belong to
+     * @param rows
+     *            the rows to write
+     * @param session
+     *            Hibernate session
+     */
+    public void write(DatasetEntity dataset, List<Row> rows, Session session) {
+        if (!isSupported()) {
+            throw new IllegalStateException(unsupportedReason);
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        SharedSessionContractImplementor implementor = session.unwrap(SharedSessionContractImplementor.class);
+        session.doWork(connection -> {
+            if (isCopy() && PostgresCopy.isAvailable(connection)) {
+                copy(connection, dataset, rows);
+            } else {
+                insert(connection, dataset, rows, implementor);
+            }
+        });
+    }
+
+    private void insert(Connection connection, DatasetEntity dataset, List<Row> rows,
+            SharedSessionContractImplementor session) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(createInsertStatement())) {
+            for (Row row : rows) {
+                int index = 1;
+                for (Column column : columns) {
+                    if (column.isBound()) {
+                        column.type.nullSafeSet(statement, column.getValue(dataset, row), index, session);
+                        index += column.names.length;
+                    }
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private void copy(Connection connection, DatasetEntity dataset, List<Row> rows) throws SQLException {
+        long[] ids = allocateIdentifiers(connection, rows.size());
+        StringBuilder data = new StringBuilder(rows.size() * 128);
+        for (int i = 0; i < rows.size(); i++) {
+            Row row = rows.get(i);
+            if (ids != null) {
+                data.append(ids[i]).append('\t');
+            }
+            for (Column column : columns) {
+                data.append(column.isBound() ? toCopyText(column.getValue(dataset, row)) : column.copyLiteral)
+                        .append('\t');
+            }
+            data.setCharAt(data.length() - 1, '\n');
+        }
+        long copied = PostgresCopy.copyIn(connection, createCopyStatement(), new StringReader(data.toString()));
+        LOGGER.trace("Copied {} rows into {}", copied, table);
+    }
+
+    private long[] allocateIdentifiers(Connection connection, int count) throws SQLException {
+        if (idColumn == null) {
+            return null;
+        }
+        long[] ids = new long[count];
+        try (PreparedStatement statement =
+                connection.prepareStatement("SELECT " + idExpression + " FROM generate_series(1, ?)")) {
+            statement.setInt(1, count);
+            try (ResultSet rs = statement.executeQuery()) {
+                int i = 0;
+                while (rs.next() && i < count) {
+                    ids[i++] = rs.getLong(1);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private String createInsertStatement() {
+        List<String> names = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        if (idColumn != null) {
+            names.add(idColumn);
+            values.add(idExpression);
+        }
+        for (Column column : columns) {
+            for (String name : column.names) {
+                names.add(name);
+                values.add(column.isBound() ? "?" : column.sqlLiteral);
+            }
+        }
+        return "INSERT INTO " + table + " (" + String.join(", ", names) + ") VALUES (" + String.join(", ", values)
+                + ")";
+    }
+
+    private String createCopyStatement() {
+        List<String> names = new ArrayList<>();
+        if (idColumn != null) {
+            names.add(idColumn);
+        }
+        columns.forEach(column -> names.add(column.names[0]));
+        return "COPY " + table + " (" + String.join(", ", names) + ") FROM STDIN";
+    }
+
+    private void resolveIdentifier(AbstractEntityPersister persister, Dialect dialect) {
+        IdentifierGenerator generator = persister.getIdentifierGenerator();
+        if (generator instanceof IdentityGenerator) {
+            // the database assigns the identifier
+            return;
+        }
+        if (!(generator instanceof SequenceStyleGenerator)) {
+            unsupported("identifier generator %s", generator.getClass().getName());
+            return;
+        }
+        SequenceStyleGenerator sequenceGenerator = (SequenceStyleGenerator) generator;
+        Optimizer optimizer = sequenceGenerator.getOptimizer();
+        // hilo optimizers derive several identifiers from one sequence value,
+        // plain sequence values would collide with them
+        if (!sequenceGenerator.getDatabaseStructure().isPhysicalSequence() || optimizer instanceof HiLoOptimizer
+                || optimizer instanceof LegacyHiLoAlgorithmOptimizer) {
+            unsupported("identifier optimizer %s", optimizer.getClass().getName());
+            return;
+        }
+        this.idColumn = persister.getIdentifierColumnNames()[0];
+        this.idExpression = dialect.getSelectSequenceNextValString(sequenceGenerator.getDatabaseStructure().getName());
+    }
+
+    private void resolveDiscriminator(AbstractEntityPersister persister) {
+        if (!persister.isInherited() && !persister.getEntityMetamodel().hasSubclasses()) {
+            return;
+        }
+        String column = persister.getDiscriminatorColumnName();
+        String sqlValue = persister.getDiscriminatorSQLValue();
+        if (column == null || sqlValue == null || persister.getDiscriminatorValue() == null) {
+            unsupported("no discriminator column for %s", entityClass.getSimpleName());
+            return;
+        }
+        Column discriminator = new Column(new String[] { column }, null, Source.CONSTANT);
+        discriminator.sqlLiteral = sqlValue;
+        discriminator.copyLiteral = escapeCopyText(String.valueOf(persister.getDiscriminatorValue()));
+        columns.add(discriminator);
+    }
+
+    private void resolveProperties(AbstractEntityPersister persister, SessionFactoryImplementor factory) {
+        Object prototype = instantiate();
+        String[] properties = persister.getPropertyNames();
+        Type[] types = persister.getPropertyTypes();
+        boolean[] insertable = persister.getPropertyInsertability();
+        for (int i = 0; i < properties.length && isSupported(); i++) {
+            Type type = types[i];
+            if (!insertable[i] || type.isCollectionType()) {
+                continue;
+            }
+            String[] names = persister.getPropertyColumnNames(i);
+            if (names.length == 0 || names.length != type.getColumnSpan(factory)
+                    || Arrays.asList(names).contains(null)) {
+                continue;
+            }
+            if (!table.equals(persister.getPropertyTableName(properties[i]))) {
+                unsupported("property %s is mapped to another table", properties[i]);
+                return;
+            }
+            Source source = Source.of(properties[i]);
+            if (source == Source.DATASET) {
+                if (!(type instanceof EntityType)) {
+                    unsupported("dataset property is not an association");
+                    return;
+                }
+                type = ((EntityType) type).getIdentifierOrUniqueKeyType(factory);
+            }
+            if (source != null) {
+                addBoundColumn(names, type, source);
+            } else {
+                Object value = DataEntity.PROPERTY_DELETED.equals(properties[i]) ? Boolean.FALSE
+                        : persister.getPropertyValue(prototype, i);
+                if (value != null) {
+                    addConstantColumn(names, type, value);
+                }
+            }
+        }
+        if (isSupported() && columns.stream().noneMatch(c -> c.source == Source.DATASET)) {
+            unsupported("no dataset column for %s", entityClass.getSimpleName());
+        }
+    }
+
+    private void addBoundColumn(String[] names, Type type, Source source) {
+        if (names.length > 1) {
+            copySupported = false;
+        }
+        columns.add(new Column(names, type, source));
+    }
+
+    private void addConstantColumn(String[] names, Type type, Object value) {
+        if (type.isAssociationType() || type.isComponentType() || names.length > 1) {
+            unsupported("default value for %s", String.join(", ", names));
+            return;
+        }
+        Column column = new Column(names, type, Source.CONSTANT);
+        column.constant = value;
+        column.copyLiteral = toCopyText(value);
+        if (column.copyLiteral == null) {
+            copySupported = false;
+        }
+        columns.add(column);
+    }
+
+    private Object instantiate() {
+        try {
+            return entityClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Can not instantiate " + entityClass.getName(), e);
+        }
+    }
+
+    private String toCopyText(Object value) {
+        if (value == null) {
+            return COPY_NULL;
+        } else if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        } else if (value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        } else if (value instanceof Date) {
+            return copyTimestampFormat.format(((Date) value).toInstant());
+        } else if (value instanceof String) {
+            return escapeCopyText((String) value);
+        }
+        return null;
+    }
+
+    private static String escapeCopyText(String value) {
+        StringBuilder builder = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                default:
+                    builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private void unsupported(String reason, Object... args) {
+        if (unsupportedReason == null) {
+            unsupportedReason = String.format(reason, args);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[%s: %s]", getClass().getSimpleName(), table,
+                columns.stream().map(c -> String.join(", ", c.names)).collect(Collectors.joining(", ")));
+    }
+
+    /**
+     * The row values written for one observation.
+     */
+    public static class Row {
+
+        private final Date phenomenonTimeStart;
+
+        private final Date phenomenonTimeEnd;
+
+        private final Date resultTime;
+
+        private final Object value;
+
+        public Row(Date phenomenonTimeStart, Date phenomenonTimeEnd, Date resultTime, Object value) {
+            this.phenomenonTimeStart = phenomenonTimeStart;
+            this.phenomenonTimeEnd = phenomenonTimeEnd;
+            this.resultTime = resultTime;
+            this.value = value;
+        }
+
+        public Date getPhenomenonTimeStart() {
+            return phenomenonTimeStart;
+        }
+
+        public Date getPhenomenonTimeEnd() {
+            return phenomenonTimeEnd;
+        }
+
+        public Date getResultTime() {
+            return resultTime;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+    }
+
+    private enum Source {
+        DATASET,
+        SAMPLING_TIME_START,
+        SAMPLING_TIME_END,
+        RESULT_TIME,
+        VALUE,
+        STA_IDENTIFIER,
+        CONSTANT;
+
+        static Source of(String property) {
+            if (DataEntity.PROPERTY_DATASET.equals(property)) {
+                return DATASET;
+            } else if (DataEntity.PROPERTY_SAMPLING_TIME_START.equals(property)) {
+                return SAMPLING_TIME_START;
+            } else if (DataEntity.PROPERTY_SAMPLING_TIME_END.equals(property)) {
+                return SAMPLING_TIME_END;
+            } else if (DataEntity.PROPERTY_RESULT_TIME.equals(property)) {
+                return RESULT_TIME;
+            } else if (DataEntity.PROPERTY_VALUE.equals(property)) {
+                return VALUE;
+            } else if (BulkObservationWriter.STA_IDENTIFIER.equals(property)) {
+                return STA_IDENTIFIER;
+            }
+            return null;
+        }
+    }
+
+    private static final class Column {
+
+        private final String[] names;
+
+        private final Type type;
+
+        private final Source source;
+
+        private Object constant;
+
+        private String sqlLiteral;
+
+        private String copyLiteral;
+
+        Column(String[] names, Type type, Source source) {
+            this.names = names;
+            this.type = type;
+            this.source = source;
+        }
+
+        boolean isBound() {
+            return source != Source.CONSTANT || sqlLiteral == null;
+        }
+
+        Object getValue(DatasetEntity dataset, Row row) {
+            switch (source) {
+                case DATASET:
+                    return dataset.getId();
+                case SAMPLING_TIME_START:
+                    return row.getPhenomenonTimeStart();
+                case SAMPLING_TIME_END:
+                    return row.getPhenomenonTimeEnd();
+                case RESULT_TIME:
+                    return row.getResultTime() != null ? row.getResultTime() : row.getPhenomenonTimeEnd();
+                case VALUE:
+                    return row.getValue();
+                case STA_IDENTIFIER:
+                    return UUID.randomUUID().toString();
+                default:
+                    return constant;
+            }
+        }
+    }
+}
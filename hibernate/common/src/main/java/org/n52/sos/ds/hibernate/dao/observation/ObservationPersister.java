@@ -668,6 +668,7 @@ public class ObservationPersister
         session.flush();
         session.refresh(observation);
         daos.dataset.updateSeriesWithFirstLatestValues(persitedDataset, observation, session);
+        daoFactory.getQuantityRollupStore().add(persitedDataset.getId(), observation, session);
         return observation;
     }
 
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.dao.observation;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.postgresql.PGConnection;
+
+/**
+ * Access to the PostgreSQL {@code COPY} API. Kept in its own class so that the
+ * PostgreSQL driver classes are only loaded when a PostgreSQL connection is
+ * used.
+ */
+final class PostgresCopy {
+
+    private static final String DRIVER_CLASS = "org.postgresql.PGConnection";
+
+    private PostgresCopy() {
+    }
+
+    /**
+     * @param connection
+     *            the JDBC connection, possibly wrapped by a connection pool
+     * @return if the connection can be unwrapped to a PostgreSQL connection
+     */
+    static boolean isAvailable(Connection connection) {
+        try {
+            Class.forName(DRIVER_CLASS, false, PostgresCopy.class.getClassLoader());
+            return connection.isWrapperFor(PGConnection.class);
+        } catch (ClassNotFoundException | SQLException | AbstractMethodError e) {
+            return false;
+        }
+    }
+
+    static long copyIn(Connection connection, String sql, Reader data) throws SQLException {
+        try {
+            return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql, data);
+        } catch (IOException e) {
+            throw new SQLException("Error while copying data", e);
+        }
+    }
+}
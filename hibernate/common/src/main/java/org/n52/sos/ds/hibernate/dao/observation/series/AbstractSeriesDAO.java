@@ -901,8 +901,13 @@ public abstract class AbstractSeriesDAO extends AbstractIdentifierNameDescriptio
                 series.setLastQuantityValue(null);
             }
             session.saveOrUpdate(series);
+            getDaoFactory().getFirstLatestValueStore().update(series, session);
         }
         session.flush();
+        getDaoFactory().getDataAvailabilityExtentStore()
+                .invalidate(hSeries.stream().map(DatasetEntity::getId).collect(Collectors.toSet()));
+        getDaoFactory().getQuantityRollupStore()
+                .invalidate(hSeries.stream().map(DatasetEntity::getId).collect(Collectors.toSet()), session);
         return hSeries;
     }
 
@@ -943,6 +948,8 @@ public abstract class AbstractSeriesDAO extends AbstractIdentifierNameDescriptio
         session.saveOrUpdate(dataset);
         session.flush();
         session.refresh(dataset);
+        getDaoFactory().getFirstLatestValueStore().update(dataset, session);
+        getDaoFactory().getDataAvailabilityExtentStore().add(dataset.getId(), hObservation, session);
         updateSta(dataset, hObservation, session);
     }
 
@@ -996,6 +1003,9 @@ public abstract class AbstractSeriesDAO extends AbstractIdentifierNameDescriptio
             series.setUnit(null);
         }
         session.saveOrUpdate(series);
+        getDaoFactory().getFirstLatestValueStore().update(series, session);
+        getDaoFactory().getDataAvailabilityExtentStore().remove(series.getId(), observation, session);
+        getDaoFactory().getQuantityRollupStore().remove(series.getId(), observation, session);
     }
 
     public TimeExtrema getProcedureTimeExtrema(Session session, String procedure) {
@@ -913,6 +913,30 @@ public abstract class AbstractSeriesObservationDAO extends AbstractObservationDA
         return (DataEntity) c.uniqueResult();
     }
 
+    /**
+     * Get the not deleted observations for the ids
+     *
+     * @param ids
+     *            Observation ids
+     * @param session
+     *            Hibernate session
+     * @return Not deleted observations
+     */
+    @SuppressWarnings("unchecked")
+    public List<DataEntity<?>> getObservationsFor(Collection<Long> ids, Session session) {
+        List<DataEntity<?>> observations = Lists.newArrayList();
+        if (ids == null || ids.isEmpty()) {
+            return observations;
+        }
+        for (List<Long> validSizedIds : HibernateHelper.getValidSizedLists(ids)) {
+            Criteria c = getDefaultObservationCriteria(session);
+            c.add(Restrictions.in(DataEntity.PROPERTY_ID, validSizedIds));
+            LOGGER.trace("QUERY getObservationsFor(ids): {}", HibernateHelper.getSqlString(c));
+            observations.addAll(c.list());
+        }
+        return observations;
+    }
+
     public List<String> getOfferingsForSeries(DatasetEntity series, Session session) {
         return Lists.newArrayList(series.getOffering().getIdentifier());
     }
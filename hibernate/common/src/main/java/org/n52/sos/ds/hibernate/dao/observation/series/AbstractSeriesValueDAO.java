@@ -28,6 +28,9 @@
  */
 package org.n52.sos.ds.hibernate.dao.observation.series;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
@@ -36,16 +39,21 @@ import org.hibernate.Criteria;
 import org.hibernate.Session;
 import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projection;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.dialect.PostgreSQL81Dialect;
 import org.n52.series.db.beans.DataEntity;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.ogc.sos.request.AbstractObservationRequest;
 import org.n52.shetland.ogc.sos.request.GetObservationRequest;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.dao.observation.AbstractValueDAO;
+import org.n52.sos.ds.hibernate.util.EpochBucketProjection;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
 import org.n52.sos.ds.hibernate.util.ResultFilterRestrictions;
 import org.n52.sos.ds.hibernate.util.ResultFilterRestrictions.SubQueryIdentifier;
+import org.n52.sos.request.TemporalAggregation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -232,6 +240,51 @@ public abstract class AbstractSeriesValueDAO extends AbstractValueDAO {
         }
     }
 
+    /**
+     * Query the next chunk of streaming values of a series after the last
+     * value of the previous chunk (keyset paging). Not supported for requests
+     * with result filter, see {@link #isKeysetPagingSupported(AbstractObservationRequest)}.
+     *
+     * @param request
+     *            {@link AbstractObservationRequest}
+     * @param series
+     *            Datasource series id
+     * @param temporalFilterCriterion
+     *            Temporal filter {@link Criterion}, may be {@code null}
+     * @param chunkSize
+     *            chunk size
+     * @param lastValue
+     *            Last value of the previous chunk, {@code null} for the first
+     *            chunk
+     * @param session
+     *            Hibernate Session
+     * @return Resulting chunk {@link List}
+     * @throws OwsExceptionReport
+     *             If an error occurs when querying
+     */
+    @SuppressWarnings("unchecked")
+    public List<DataEntity<?>> getStreamingSeriesValuesAfter(AbstractObservationRequest request, long series,
+            Criterion temporalFilterCriterion, int chunkSize, DataEntity<?> lastValue, Session session)
+            throws OwsExceptionReport {
+        StringBuilder logArgs = new StringBuilder();
+        Criteria c = getSeriesValueCriteriaFor(request, series, temporalFilterCriterion, session, logArgs);
+        addKeysetChunkValuesToCriteria(c, chunkSize, lastValue, request, logArgs);
+        LOGGER.trace(QUERY_STREAMING_SERIES_VALUE, logArgs.toString(), HibernateHelper.getSqlString(c));
+        return (List<DataEntity<?>>) c.list();
+    }
+
+    /**
+     * @param request
+     *            {@link AbstractObservationRequest}
+     * @return if the values of the request can be queried with
+     *         {@link #getStreamingSeriesValuesAfter(AbstractObservationRequest, long, Criterion, int, DataEntity, Session)},
+     *         result filter requests are combined from several sub queries
+     *         and still use the row offset
+     */
+    public boolean isKeysetPagingSupported(AbstractObservationRequest request) {
+        return !(request instanceof GetObservationRequest && ((GetObservationRequest) request).hasResultFilter());
+    }
+
     /**
      * Get {@link Criteria} for parameter
      *
@@ -280,10 +333,161 @@ public abstract class AbstractSeriesValueDAO extends AbstractValueDAO {
         return c.setReadOnly(true);
     }
 
+    /**
+     * Count the values of a series matching the request
+     *
+     * @param request
+     *            {@link AbstractObservationRequest}
+     * @param series
+     *            Datasource series id
+     * @param temporalFilterCriterion
+     *            Temporal filter {@link Criterion}, may be {@code null}
+     * @param session
+     *            Hibernate Session
+     * @return the number of values
+     * @throws OwsExceptionReport
+     *             If an error occurs when querying
+     */
+    public long getSeriesValueCount(AbstractObservationRequest request, long series,
+            Criterion temporalFilterCriterion, Session session) throws OwsExceptionReport {
+        StringBuilder logArgs = new StringBuilder();
+        Criteria c = getDefaultSeriesValueCriteriaFor(request, temporalFilterCriterion, getSeriesValueClass(), false,
+                session, logArgs);
+        c.add(Restrictions.eq(DataEntity.PROPERTY_DATASET_ID, series));
+        c.setProjection(Projections.rowCount());
+        LOGGER.trace("QUERY getSeriesValueCount({}): {}", logArgs.toString(), HibernateHelper.getSqlString(c));
+        Number count = (Number) c.uniqueResult();
+        return count != null ? count.longValue() : 0;
+    }
+
+    /**
+     * @param session
+     *            Hibernate Session
+     * @return if the database supports the temporal aggregation of values
+     *         via
+     *         {@link #getAggregatedSeriesValuesFor(AbstractObservationRequest, long, Criterion, Class, TemporalAggregation, Session)}
+     */
+    public boolean isAggregationSupported(Session session) {
+        return HibernateHelper.getDialect(session) instanceof PostgreSQL81Dialect;
+    }
+
+    /**
+     * Aggregate the values of a series in the database into buckets of the
+     * aggregation interval. Only supported for the interval functions
+     * {@code min}, {@code max}, {@code mean} and {@code count}.
+     *
+     * @param request
+     *            {@link AbstractObservationRequest}
+     * @param series
+     *            Datasource series id
+     * @param temporalFilterCriterion
+     *            Temporal filter {@link Criterion}, may be {@code null}
+     * @param valueClass
+     *            the value entity class of the series
+     * @param aggregation
+     *            the aggregation
+     * @param session
+     *            Hibernate Session
+     * @return the buckets ordered by time as arrays of the bucket start in
+     *         milliseconds and the aggregated value
+     * @throws OwsExceptionReport
+     *             If an error occurs when querying
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> getAggregatedSeriesValuesFor(AbstractObservationRequest request, long series,
+            Criterion temporalFilterCriterion, Class<?> valueClass, TemporalAggregation aggregation,
+            Session session) throws OwsExceptionReport {
+        StringBuilder logArgs = new StringBuilder();
+        Criteria c = getDefaultSeriesValueCriteriaFor(request, temporalFilterCriterion, valueClass, false, session,
+                logArgs);
+        c.add(Restrictions.eq(DataEntity.PROPERTY_DATASET_ID, series));
+        logArgs.append(", aggregation");
+        c.setProjection(Projections.projectionList()
+                .add(new EpochBucketProjection(DataEntity.PROPERTY_SAMPLING_TIME_START, aggregation.getInterval()))
+                .add(getAggregateProjection(aggregation.getFunction())));
+        LOGGER.trace("QUERY getAggregatedSeriesValuesFor({}): {}", logArgs.toString(),
+                HibernateHelper.getSqlString(c));
+        List<Object[]> buckets = new ArrayList<>();
+        for (Object[] row : (List<Object[]>) c.list()) {
+            if (row[0] != null && row[1] != null) {
+                long start = ((Number) row[0]).longValue() * aggregation.getInterval();
+                buckets.add(new Object[] { start, row[1] });
+            }
+        }
+        buckets.sort(Comparator.comparing(row -> (Long) row[0]));
+        return buckets;
+    }
+
+    /**
+     * Aggregate the values of a series in the time range into one value. Only
+     * supported for the interval functions {@code min}, {@code max},
+     * {@code mean} and {@code count}.
+     *
+     * @param request
+     *            {@link AbstractObservationRequest}
+     * @param series
+     *            Datasource series id
+     * @param temporalFilterCriterion
+     *            Temporal filter {@link Criterion}, may be {@code null}
+     * @param valueClass
+     *            the value entity class of the series
+     * @param function
+     *            the aggregation function
+     * @param start
+     *            the inclusive start of the phenomenon time range
+     * @param end
+     *            the exclusive end of the phenomenon time range
+     * @param session
+     *            Hibernate Session
+     * @return the aggregated value, {@code null} or {@code 0} if no value
+     *         matches
+     * @throws OwsExceptionReport
+     *             If an error occurs when querying
+     */
+    public Number getAggregatedSeriesValueFor(AbstractObservationRequest request, long series,
+            Criterion temporalFilterCriterion, Class<?> valueClass, TemporalAggregation.Function function,
+            Date start, Date end, Session session) throws OwsExceptionReport {
+        StringBuilder logArgs = new StringBuilder();
+        Criteria c = getDefaultSeriesValueCriteriaFor(request, temporalFilterCriterion, valueClass, false, session,
+                logArgs);
+        c.add(Restrictions.eq(DataEntity.PROPERTY_DATASET_ID, series))
+                .add(Restrictions.ge(DataEntity.PROPERTY_SAMPLING_TIME_START, start))
+                .add(Restrictions.lt(DataEntity.PROPERTY_SAMPLING_TIME_START, end));
+        logArgs.append(", aggregation, start, end");
+        c.setProjection(getAggregateProjection(function));
+        LOGGER.trace("QUERY getAggregatedSeriesValueFor({}): {}", logArgs.toString(),
+                HibernateHelper.getSqlString(c));
+        return (Number) c.uniqueResult();
+    }
+
+    private Projection getAggregateProjection(TemporalAggregation.Function function) {
+        switch (function) {
+            case MIN:
+                return Projections.min(DataEntity.PROPERTY_VALUE);
+            case MAX:
+                return Projections.max(DataEntity.PROPERTY_VALUE);
+            case MEAN:
+                return Projections.avg(DataEntity.PROPERTY_VALUE);
+            case COUNT:
+                return Projections.rowCount();
+            default:
+                throw new IllegalArgumentException("Function not supported in the database: " + function);
+        }
+    }
+
     private Criteria getDefaultSeriesValueCriteriaFor(AbstractObservationRequest request,
             Criterion temporalFilterCriterion, Session session, StringBuilder logArgs) throws OwsExceptionReport {
-        final Criteria c = getDefaultObservationCriteria(session);
-        c.addOrder(Order.asc(getOrderColumn(request)));
+        return getDefaultSeriesValueCriteriaFor(request, temporalFilterCriterion, getSeriesValueClass(), true,
+                session, logArgs);
+    }
+
+    private Criteria getDefaultSeriesValueCriteriaFor(AbstractObservationRequest request,
+            Criterion temporalFilterCriterion, Class<?> valueClass, boolean ordered, Session session,
+            StringBuilder logArgs) throws OwsExceptionReport {
+        final Criteria c = getDefaultCriteria(valueClass, session);
+        if (ordered) {
+            c.addOrder(Order.asc(getOrderColumn(request)));
+        }
         logArgs.append("request, series");
         if (request instanceof GetObservationRequest) {
             GetObservationRequest getObsReq = (GetObservationRequest) request;
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
+import org.n52.janmayen.lifecycle.Constructable;
+import org.n52.janmayen.lifecycle.Destroyable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Background job run on its own thread with a fixed delay given in minutes.
+ * Changing the interval cancels the scheduled run and schedules the job
+ * again, an interval of <code>0</code> disables it.
+ */
+public abstract class AbstractScheduledJob implements Runnable, Constructable, Destroyable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractScheduledJob.class);
+
+    private final String name;
+
+    private ScheduledExecutorService executor;
+
+    private ScheduledFuture<?> task;
+
+    private int interval;
+
+    /**
+     * @param name
+     *            the name of the job and its thread
+     */
+    protected AbstractScheduledJob(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param interval
+     *            the interval in minutes, <code>0</code> disables the job
+     */
+    protected synchronized void setInterval(int interval) {
+        this.interval = interval;
+        schedule();
+    }
+
+    @Override
+    public synchronized void init() {
+        this.executor = Executors.newSingleThreadScheduledExecutor(new GroupedAndNamedThreadFactory(name));
+        schedule();
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private void schedule() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+        if (executor != null && interval > 0) {
+            task = executor.scheduleWithFixedDelay(this, interval, interval, TimeUnit.MINUTES);
+            LOGGER.info("Job {} will run every {} minutes", name, interval);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import org.hibernate.Criteria;
+import org.hibernate.criterion.CriteriaQuery;
+import org.hibernate.criterion.SimpleProjection;
+import org.hibernate.type.DoubleType;
+import org.hibernate.type.Type;
+
+/**
+ * Grouping projection of the index of the time bucket of a timestamp
+ * property, computed from the epoch milliseconds. The bucket start is the
+ * index multiplied by the interval. PostgreSQL specific.
+ */
+public class EpochBucketProjection extends SimpleProjection {
+    private static final long serialVersionUID = 4712098231593840211L;
+
+    private final String propertyName;
+
+    private final long interval;
+
+    public EpochBucketProjection(String propertyName, long interval) {
+        this.propertyName = propertyName;
+        this.interval = interval;
+    }
+
+    @Override
+    public String toSqlString(Criteria criteria, int position, CriteriaQuery criteriaQuery) {
+        return getExpression(criteria, criteriaQuery) + " as y" + position + "_";
+    }
+
+    @Override
+    public boolean isGrouped() {
+        return true;
+    }
+
+    @Override
+    public String toGroupSqlString(Criteria criteria, CriteriaQuery criteriaQuery) {
+        return getExpression(criteria, criteriaQuery);
+    }
+
+    @Override
+    public Type[] getTypes(Criteria criteria, CriteriaQuery criteriaQuery) {
+        return new Type[] { DoubleType.INSTANCE };
+    }
+
+    private String getExpression(Criteria criteria, CriteriaQuery criteriaQuery) {
+        return "floor(extract(epoch from " + criteriaQuery.getColumn(criteria, propertyName) + ") * 1000 / "
+                + interval + ")";
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.dialect.SQLServer2008Dialect;
+import org.hibernate.type.BooleanType;
+import org.hibernate.type.Type;
+import org.n52.series.db.beans.DataEntity;
+
+/**
+ * Composite indexes of the observation table supporting the frequent queries
+ * which are not implied by the mappings: values of a dataset ordered by
+ * phenomenon time, first and latest values of a dataset and the distinct
+ * result times of a dataset.
+ * <p>
+ * The indexes exclude deleted observations if the database supports partial
+ * (filtered) indexes and include additional columns with <code>INCLUDE</code>
+ * if supported, otherwise they are appended as trailing key columns.
+ */
+public enum ObservationIndex {
+
+    DATASET_PHENOMENON_TIME("obs_dataset_time_idx",
+            Arrays.asList(DataEntity.PROPERTY_DATASET, DataEntity.PROPERTY_SAMPLING_TIME_START, DataEntity.PROPERTY_ID),
+            Collections.singletonList(DataEntity.PROPERTY_SAMPLING_TIME_END)),
+    DATASET_PHENOMENON_TIME_END("obs_dataset_time_end_idx",
+            Arrays.asList(DataEntity.PROPERTY_DATASET, DataEntity.PROPERTY_SAMPLING_TIME_END),
+            Collections.emptyList()),
+    DATASET_RESULT_TIME("obs_dataset_result_time_idx",
+            Arrays.asList(DataEntity.PROPERTY_DATASET, DataEntity.PROPERTY_RESULT_TIME),
+            Collections.emptyList());
+
+    private final String name;
+
+    private final List<String> keyProperties;
+
+    private final List<String> includedProperties;
+
+    ObservationIndex(String name, List<String> keyProperties, List<String> includedProperties) {
+        this.name = name;
+        this.keyProperties = keyProperties;
+        this.includedProperties = includedProperties;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getKeyProperties() {
+        return Collections.unmodifiableList(keyProperties);
+    }
+
+    public List<String> getIncludedProperties() {
+        return Collections.unmodifiableList(includedProperties);
+    }
+
+    /**
+     * Create the statement creating this index.
+     *
+     * @param dialect
+     *            the dialect of the database
+     * @param table
+     *            the (qualified) observation table
+     * @param columns
+     *            resolves the column name of an observation property
+     * @param notDeleted
+     *            the condition excluding deleted observations, may be
+     *            <code>null</code>
+     * @return the create index statement
+     */
+    public String getCreateStatement(Dialect dialect, String table, Function<String, String> columns,
+            String notDeleted) {
+        StringBuilder builder = new StringBuilder("create index ").append(name).append(" on ").append(table)
+                .append(" (").append(join(keyProperties, columns));
+        if (!includedProperties.isEmpty()) {
+            builder.append(supportsIncludedColumns(dialect) ? ") include (" : ", ")
+                    .append(join(includedProperties, columns));
+        }
+        builder.append(')');
+        if (notDeleted != null && supportsPartialIndexes(dialect)) {
+            builder.append(" where ").append(notDeleted);
+        }
+        return builder.append(';').toString();
+    }
+
+    /**
+     * Check if an existing index provides this index, i.e. its leading columns
+     * are the key columns of this index.
+     *
+     * @param indexColumns
+     *            the ordered columns of the existing index
+     * @param columns
+     *            resolves the column name of an observation property
+     * @return <code>true</code>, if the existing index provides this index
+     */
+    public boolean isProvidedBy(List<String> indexColumns, Function<String, String> columns) {
+        if (indexColumns.size() < keyProperties.size()) {
+            return false;
+        }
+        for (int i = 0; i < keyProperties.size(); i++) {
+            if (!normalize(columns.apply(keyProperties.get(i))).equals(normalize(indexColumns.get(i)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Create the condition excluding deleted observations.
+     *
+     * @param dialect
+     *            the dialect of the database
+     * @param column
+     *            the deleted column
+     * @param type
+     *            the mapped type of the deleted column
+     * @return the condition or <code>null</code> if the database does not
+     *         support partial indexes
+     */
+    public static String getNotDeletedCondition(Dialect dialect, String column, Type type) {
+        if (!supportsPartialIndexes(dialect)) {
+            return null;
+        }
+        return column + " = " + (type instanceof BooleanType ? dialect.toBooleanValueString(false) : "0");
+    }
+
+    private static boolean supportsPartialIndexes(Dialect dialect) {
+        return dialect instanceof PostgreSQL81Dialect || dialect instanceof SQLServer2008Dialect;
+    }
+
+    private static boolean supportsIncludedColumns(Dialect dialect) {
+        return dialect instanceof SQLServer2008Dialect;
+    }
+
+    private static String join(List<String> properties, Function<String, String> columns) {
+        return properties.stream().map(columns).collect(Collectors.joining(", "));
+    }
+
+    private static String normalize(String column) {
+        return column.replaceAll("[\"`\\[\\]]", "").toLowerCase(Locale.ROOT);
+    }
+
+}
@@ -73,6 +73,9 @@ import org.n52.sos.cache.SosContentCache;
 import org.n52.sos.ds.FeatureQueryHandler;
 import org.n52.sos.ds.FeatureQueryHandlerQueryObject;
 import org.n52.sos.ds.I18nNameDescriptionAdder;
+import org.n52.sos.ds.hibernate.cache.ConstellationObjectCache;
+import org.n52.sos.ds.hibernate.cache.ConstellationObjectCache.Key;
+import org.n52.sos.ds.hibernate.cache.ConstellationObjectCache.Kind;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.dao.ProcedureDAO;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
@@ -298,6 +301,17 @@ public abstract class AbstractOmObservationCreator implements I18nNameDescriptio
      */
     protected SosProcedureDescription<?> createProcedure(ProcedureEntity hProcedure)
             throws ConverterException, OwsExceptionReport {
+        ConstellationObjectCache cache = getConstellationObjectCache();
+        if (cache != null && cache.isEnabled() && cache.isShareable(getRequest())) {
+            return cache.get(Key.of(Kind.PROCEDURE, hProcedure.getIdentifier(), this.pdf, getVersion(), i18n,
+                    getRequestedLanguage(), getActiveProfile().getIdentifier()),
+                    () -> createProcedureDescription(hProcedure));
+        }
+        return createProcedureDescription(hProcedure);
+    }
+
+    private SosProcedureDescription<?> createProcedureDescription(ProcedureEntity hProcedure)
+            throws ConverterException, OwsExceptionReport {
         // Procedure hProcedure =
         // getDaoFactory().getProcedureDAO().getProcedureForIdentifier(identifier,
         // getSession());
@@ -359,6 +373,21 @@ public abstract class AbstractOmObservationCreator implements I18nNameDescriptio
      *             If an error occurs
      */
     protected AbstractFeature createFeatureOfInterest(AbstractFeatureEntity foi) throws OwsExceptionReport {
+        ConstellationObjectCache cache = getConstellationObjectCache();
+        if (cache != null && cache.isEnabled() && cache.isShareable(getRequest())) {
+            try {
+                return cache.get(Key.of(Kind.FEATURE, foi.getIdentifier(), getVersion(), getRequestedLanguage(),
+                        getActiveProfile().getIdentifier(), getGeometryHandler().getDefaultResponseEPSG(),
+                        getGeometryHandler().getDefaultResponse3DEPSG()), () -> createFeature(foi));
+            } catch (ConverterException e) {
+                throw new NoApplicableCodeException().causedBy(e)
+                        .withMessage("Error while creating feature '{}'", foi.getIdentifier());
+            }
+        }
+        return createFeature(foi);
+    }
+
+    private AbstractFeature createFeature(AbstractFeatureEntity foi) throws OwsExceptionReport {
         FeatureQueryHandlerQueryObject queryObject = new FeatureQueryHandlerQueryObject(getSession());
         queryObject.setFeatureObject(foi).addFeatureIdentifier(foi.getIdentifier()).setVersion(getVersion());
         if (getRequest().isSetRequestedLanguage()) {
@@ -464,6 +493,10 @@ public abstract class AbstractOmObservationCreator implements I18nNameDescriptio
         return null;
     }
 
+    private ConstellationObjectCache getConstellationObjectCache() {
+        return getDaoFactory() != null ? getDaoFactory().getConstellationObjectCache() : null;
+    }
+
     protected Locale getRequestedLanguage() {
         if (getRequest().isSetRequestedLanguage()) {
             return LocaleHelper.decode(getRequest().getRequestedLanguage());
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.cache;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.n52.iceland.convert.ConverterException;
+import org.n52.iceland.convert.RequestResponseModifier;
+import org.n52.iceland.convert.RequestResponseModifierRepository;
+import org.n52.shetland.ogc.ows.OWSConstants;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
+import org.n52.shetland.ogc.swe.simpleType.SweText;
+import org.n52.shetland.ogc.swes.SwesExtension;
+import org.n52.sos.convert.IdentifierModifier;
+import org.n52.sos.ds.hibernate.cache.ConstellationObjectCache.Key;
+import org.n52.sos.ds.hibernate.cache.ConstellationObjectCache.Kind;
+import org.n52.sos.util.GeometryHandler;
+
+public class ConstellationObjectCacheTest {
+
+    private ConstellationObjectCache cache;
+
+    private AtomicInteger loads;
+
+    @Before
+    public void setUp() {
+        cache = new ConstellationObjectCache();
+        cache.setEnabled(true);
+        loads = new AtomicInteger(0);
+    }
+
+    @Test
+    public void shouldLoadOnlyOnce() throws OwsExceptionReport, ConverterException {
+        Assert.assertEquals("feature", cache.get(key("foi", "en"), this::load));
+        Assert.assertEquals("feature", cache.get(key("foi", "en"), this::load));
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(1L, cache.getHitCount());
+    }
+
+    @Test
+    public void shouldDistinguishContext() throws OwsExceptionReport, ConverterException {
+        cache.get(key("foi", "en"), this::load);
+        cache.get(key("foi", "de"), this::load);
+        Assert.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void shouldReloadAfterInvalidation() throws OwsExceptionReport, ConverterException {
+        cache.get(key("foi", "en"), this::load);
+        cache.invalidate(Kind.PROCEDURE);
+        cache.get(key("foi", "en"), this::load);
+        Assert.assertEquals(1, loads.get());
+        cache.invalidate(Kind.FEATURE);
+        cache.get(key("foi", "en"), this::load);
+        Assert.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void shouldReloadOnlyInvalidatedIdentifiers() throws OwsExceptionReport, ConverterException {
+        cache.get(Key.of(Kind.PROCEDURE, "p1", "2.0.0"), this::load);
+        cache.get(Key.of(Kind.PROCEDURE, "p2", "2.0.0"), this::load);
+        cache.invalidate(Kind.PROCEDURE, Collections.singleton("p1"));
+        cache.get(Key.of(Kind.PROCEDURE, "p1", "2.0.0"), this::load);
+        cache.get(Key.of(Kind.PROCEDURE, "p2", "2.0.0"), this::load);
+        Assert.assertEquals(3, loads.get());
+        cache.get(Key.of(Kind.PROCEDURE, "p1", "2.0.0"), this::load);
+        Assert.assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void shouldNotCacheIfDisabled() throws OwsExceptionReport, ConverterException {
+        cache.setEnabled(false);
+        cache.get(key("foi", "en"), this::load);
+        cache.get(key("foi", "en"), this::load);
+        Assert.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void shouldShareUnmodifiedObjects() throws OwsExceptionReport {
+        Assert.assertTrue(cache.isShareable(new GetObservationRequest()));
+    }
+
+    @Test
+    public void shouldNotShareIfCrsIsRequested() throws OwsExceptionReport {
+        GetObservationRequest request = new GetObservationRequest();
+        SweText crs = (SweText) new SweText().setValue("4326")
+                .setIdentifier(OWSConstants.AdditionalRequestParams.crs.name());
+        request.addExtension(new SwesExtension<SweText>().setValue(crs)
+                .setIdentifier(OWSConstants.AdditionalRequestParams.crs.name()));
+        Assert.assertFalse(cache.isShareable(request));
+    }
+
+    @Test
+    public void shouldNotShareIfGeometriesAreTransformed() throws OwsExceptionReport {
+        GeometryHandler geometryHandler = Mockito.mock(GeometryHandler.class);
+        Mockito.when(geometryHandler.getStorageEPSG()).thenReturn(4326);
+        Mockito.when(geometryHandler.getDefaultResponseEPSG()).thenReturn(31467);
+        cache.setGeometryHandler(geometryHandler);
+        Assert.assertFalse(cache.isShareable(new GetObservationRequest()));
+    }
+
+    @Test
+    public void shouldNotShareIfIdentifiersAreModified() throws OwsExceptionReport {
+        GetObservationRequest request = new GetObservationRequest();
+        IdentifierModifier modifier = Mockito.mock(IdentifierModifier.class);
+        RequestResponseModifierRepository repository = Mockito.mock(RequestResponseModifierRepository.class);
+        Mockito.when(repository.hasRequestResponseModifier(request)).thenReturn(true);
+        Mockito.when(repository.getRequestResponseModifier(request))
+                .thenReturn(Collections.<RequestResponseModifier> singletonList(modifier));
+        cache.setRequestResponseModifierRepository(repository);
+        Assert.assertTrue(cache.isShareable(request));
+        Mockito.when(modifier.isModifyingIdentifiers(request)).thenReturn(true);
+        Assert.assertFalse(cache.isShareable(request));
+    }
+
+    private Key key(String identifier, String language) {
+        return Key.of(Kind.FEATURE, identifier, "2.0.0", language);
+    }
+
+    private String load() {
+        loads.incrementAndGet();
+        return "feature";
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.sos.ds.hibernate.cache.DataAvailabilityExtentStore.DatasetExtent;
+
+public class DataAvailabilityExtentStoreTest {
+
+    @Test
+    public void shouldCountDistinctResultTimes() {
+        DatasetExtent extent = new DatasetExtent();
+        extent.add(new Date(2000L), 2);
+        extent.add(new Date(1000L), 1);
+        extent.add(new Date(2000L), 1);
+        Assert.assertEquals(4L, extent.getCount());
+        Assert.assertArrayEquals(new Date[] { new Date(1000L), new Date(2000L) },
+                extent.getResultTimes().toArray());
+    }
+
+    @Test
+    public void shouldRemoveResultTimeWithoutObservations() {
+        DatasetExtent extent = new DatasetExtent();
+        extent.add(new Date(1000L), 1);
+        extent.add(new Date(2000L), 2);
+        extent.remove(new Date(1000L), 1);
+        extent.remove(new Date(2000L), 1);
+        Assert.assertEquals(1L, extent.getCount());
+        Assert.assertEquals(Collections.singleton(new Date(2000L)), extent.getResultTimes());
+    }
+
+    @Test
+    public void shouldReturnNothingIfDisabled() {
+        DataAvailabilityExtentStore store = new DataAvailabilityExtentStore();
+        Assert.assertTrue(store.get(Collections.singleton(1L), null).isEmpty());
+        Assert.assertEquals(0, store.size());
+    }
+
+    @Test
+    public void shouldNotKeepExtentLoadedConcurrentlyToChange() {
+        Session session = Mockito.mock(Session.class);
+        DataAvailabilityExtentStore store = new DataAvailabilityExtentStore() {
+            @Override
+            Map<Long, DatasetExtent> load(Collection<Long> datasetIds, Session s) {
+                // committed after the load query, not contained in the loaded extent
+                add(1L, observation(1000L), session);
+                return Collections.singletonMap(1L, new DatasetExtent());
+            }
+        };
+        store.setEnabled(true);
+        Assert.assertTrue(store.get(Collections.singleton(1L), session).containsKey(1L));
+        Assert.assertEquals(0, store.size());
+    }
+
+    @Test
+    public void shouldNotKeepExtentLoadedWhileChangeIsCommitted() {
+        Session session = Mockito.mock(Session.class);
+        Transaction transaction = Mockito.mock(Transaction.class);
+        Mockito.when(session.getTransaction()).thenReturn(transaction);
+        Mockito.when(transaction.isActive()).thenReturn(true);
+        DataAvailabilityExtentStore store = new DataAvailabilityExtentStore() {
+            @Override
+            Map<Long, DatasetExtent> load(Collection<Long> datasetIds, Session s) {
+                return Collections.singletonMap(1L, new DatasetExtent());
+            }
+        };
+        store.setEnabled(true);
+        store.add(1L, observation(1000L), session);
+        ArgumentCaptor<Synchronization> synchronization = ArgumentCaptor.forClass(Synchronization.class);
+        Mockito.verify(transaction).registerSynchronization(synchronization.capture());
+        synchronization.getValue().beforeCompletion();
+        store.get(Collections.singleton(1L), session);
+        Assert.assertEquals(0, store.size());
+        synchronization.getValue().afterCompletion(Status.STATUS_COMMITTED);
+        store.get(Collections.singleton(1L), session);
+        Assert.assertEquals(1, store.size());
+    }
+
+    private DataEntity<?> observation(long resultTime) {
+        DataEntity<?> observation = Mockito.mock(DataEntity.class);
+        Mockito.when(observation.getResultTime()).thenReturn(new Date(resultTime));
+        return observation;
+    }
+}
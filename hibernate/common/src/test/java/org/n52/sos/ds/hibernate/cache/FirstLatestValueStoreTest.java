@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.cache;
+
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.shetland.ogc.sos.ExtendedIndeterminateTime;
+import org.n52.sos.metrics.MetricRegistry;
+
+public class FirstLatestValueStoreTest {
+
+    private FirstLatestValueStore store;
+
+    private DatasetEntity dataset;
+
+    @Before
+    public void setUp() {
+        store = new FirstLatestValueStore();
+        dataset = createDataset(1L, createData(10L, new Date(1000L)), createData(11L, new Date(2000L)));
+    }
+
+    @Test
+    public void shouldReturnFirstAndLatestObservationIds() {
+        store.put(dataset);
+        Assert.assertEquals(Long.valueOf(10L), store.getObservationId(dataset, ExtendedIndeterminateTime.FIRST));
+        Assert.assertEquals(Long.valueOf(11L), store.getObservationId(dataset, ExtendedIndeterminateTime.LATEST));
+        Assert.assertEquals(2L, store.getHitCount());
+        Assert.assertEquals(0L, store.getMissCount());
+    }
+
+    @Test
+    public void shouldMissForUnknownDataset() {
+        Assert.assertNull(store.getObservationId(dataset, ExtendedIndeterminateTime.LATEST));
+        Assert.assertEquals(1L, store.getMissCount());
+        Assert.assertEquals(0.0, store.getHitRate(), 0.0);
+    }
+
+    @Test
+    public void shouldMissForOutdatedValue() {
+        store.put(dataset);
+        DatasetEntity updated =
+                createDataset(1L, createData(10L, new Date(1000L)), createData(12L, new Date(3000L)));
+        Assert.assertNull(store.getObservationId(updated, ExtendedIndeterminateTime.LATEST));
+        Assert.assertEquals(1L, store.getMissCount());
+    }
+
+    @Test
+    public void shouldRemoveDatasets() {
+        store.put(dataset);
+        store.remove(Collections.singleton(1L));
+        Assert.assertNull(store.get(1L));
+        Assert.assertEquals(0, store.size());
+    }
+
+    @Test
+    public void shouldExposeHitRateAsGauge() {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        store.setMetricRegistry(metricRegistry);
+        store.put(dataset);
+        store.getObservationId(dataset, ExtendedIndeterminateTime.FIRST);
+        Assert.assertEquals(1.0, metricRegistry.flatten().get(FirstLatestValueStore.METRIC_HIT_RATE).doubleValue(),
+                0.0);
+        Assert.assertEquals(1, metricRegistry.flatten().get(FirstLatestValueStore.METRIC_SIZE).intValue());
+    }
+
+    @Test
+    public void shouldNotStoreIfDisabled() {
+        store.setEnabled(false);
+        store.put(dataset);
+        Assert.assertEquals(0, store.size());
+        Assert.assertNull(store.getObservationId(dataset, ExtendedIndeterminateTime.FIRST));
+    }
+
+    private DatasetEntity createDataset(long id, QuantityDataEntity first, QuantityDataEntity last) {
+        DatasetEntity dataset = new DatasetEntity();
+        dataset.setId(id);
+        dataset.setFirstObservation(first);
+        dataset.setFirstValueAt(first.getSamplingTimeStart());
+        dataset.setLastObservation(last);
+        dataset.setLastValueAt(last.getSamplingTimeEnd());
+        return dataset;
+    }
+
+    private QuantityDataEntity createData(long id, Date time) {
+        QuantityDataEntity data = new QuantityDataEntity();
+        data.setId(id);
+        data.setSamplingTimeStart(time);
+        data.setSamplingTimeEnd(time);
+        return data;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.cache;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.sos.ds.hibernate.cache.QuantityRollupStore.Bucket;
+import org.n52.sos.ds.hibernate.cache.QuantityRollupStore.DatasetRollup;
+import org.n52.sos.ds.hibernate.cache.QuantityRollupStore.Resolution;
+import org.n52.sos.request.TemporalAggregation;
+import org.n52.sos.request.TemporalAggregation.Function;
+
+public class QuantityRollupStoreTest {
+
+    private static final long HOUR = Resolution.HOUR.getMillis();
+
+    private static final long DAY = Resolution.DAY.getMillis();
+
+    private static final double DELTA = 0.000001;
+
+    @Test
+    public void shouldSelectCoarsestResolution() {
+        Assert.assertEquals(Resolution.DAY,
+                QuantityRollupStore.getResolution(TemporalAggregation.interval(Function.MEAN, 7 * DAY)));
+        Assert.assertEquals(Resolution.HOUR,
+                QuantityRollupStore.getResolution(TemporalAggregation.interval(Function.MAX, 6 * HOUR)));
+        Assert.assertNull(QuantityRollupStore.getResolution(TemporalAggregation.interval(Function.MIN, HOUR / 2)));
+        Assert.assertNull(QuantityRollupStore.getResolution(TemporalAggregation.interval(Function.FIRST, DAY)));
+    }
+
+    @Test
+    public void shouldMaintainHoursAndDays() {
+        DatasetRollup rollup = new DatasetRollup();
+        rollup.add(0, 1);
+        rollup.add(HOUR + 1, 5);
+        rollup.add(HOUR + 2, 3);
+        rollup.add(DAY, 7);
+        List<Bucket> hours = rollup.getBuckets(Resolution.HOUR, null, null);
+        Assert.assertEquals(3, hours.size());
+        Assert.assertEquals(2, hours.get(1).getCount());
+        Assert.assertEquals(4, hours.get(1).getValue(Function.MEAN).doubleValue(), DELTA);
+        List<Bucket> days = rollup.getBuckets(Resolution.DAY, null, null);
+        Assert.assertEquals(2, days.size());
+        Assert.assertEquals(3, days.get(0).getCount());
+        Assert.assertEquals(5, days.get(0).getValue(Function.MAX).doubleValue(), DELTA);
+        Assert.assertEquals(1, rollup.getBuckets(Resolution.HOUR, HOUR, DAY).size());
+    }
+
+    @Test
+    public void shouldDeriveDaysFromHours() {
+        DatasetRollup rollup = new DatasetRollup();
+        rollup.put(Resolution.HOUR, new Bucket(0, 1, 2, 3, 2));
+        rollup.put(Resolution.HOUR, new Bucket(HOUR, -1, 4, 3, 2));
+        rollup.deriveDays();
+        List<Bucket> days = rollup.getBuckets(Resolution.DAY, null, null);
+        Assert.assertEquals(1, days.size());
+        Assert.assertEquals(4, days.get(0).getCount());
+        Assert.assertEquals(-1, days.get(0).getValue(Function.MIN).doubleValue(), DELTA);
+        Assert.assertEquals(1.5, days.get(0).getValue(Function.MEAN).doubleValue(), DELTA);
+    }
+
+    @Test
+    public void shouldMarkBucketsStaleIfExtremaAreRemoved() {
+        DatasetRollup rollup = new DatasetRollup();
+        rollup.add(0, 1);
+        rollup.add(1, 2);
+        rollup.add(2, 3);
+        rollup.remove(1, 2);
+        Assert.assertTrue(rollup.getStaleBuckets(Resolution.HOUR, null, null).isEmpty());
+        Assert.assertEquals(2, rollup.getBuckets(Resolution.HOUR, null, null).get(0).getCount());
+        rollup.remove(2, 3);
+        List<Bucket> stale = rollup.getStaleBuckets(Resolution.HOUR, null, null);
+        Assert.assertEquals(1, stale.size());
+        rollup.add(3, 4);
+        rollup.replace(Resolution.HOUR, stale.get(0), new Bucket(0, 1, 1, 1, 1));
+        Assert.assertEquals(1, rollup.getStaleBuckets(Resolution.HOUR, null, null).size());
+        stale = rollup.getStaleBuckets(Resolution.HOUR, null, null);
+        rollup.replace(Resolution.HOUR, stale.get(0), new Bucket(0, 1, 4, 5, 2));
+        Assert.assertTrue(rollup.getStaleBuckets(Resolution.HOUR, null, null).isEmpty());
+        Assert.assertEquals(2, rollup.getBuckets(Resolution.HOUR, null, null).get(0).getCount());
+    }
+
+
+    @Test
+    public void shouldNotKeepRollupLoadedConcurrentlyToChange() {
+        Session session = Mockito.mock(Session.class);
+        QuantityDataEntity observation = Mockito.mock(QuantityDataEntity.class);
+        Mockito.when(observation.getValue()).thenReturn(BigDecimal.ONE);
+        Mockito.when(observation.getSamplingTimeStart()).thenReturn(new Date(0));
+        QuantityRollupStore store = new QuantityRollupStore() {
+            @Override
+            DatasetRollup load(long datasetId, Session s) {
+                // committed after the load query, not contained in the loaded rollup
+                add(datasetId, observation, session);
+                return new DatasetRollup();
+            }
+        };
+        store.setEnabled(true);
+        Assert.assertTrue(store.aggregate(1L, TemporalAggregation.interval(Function.MEAN, DAY), null, null, session)
+                .isEmpty());
+        Assert.assertEquals(0, store.size());
+    }
+
+    @Test
+    public void shouldBoundNumberOfRollups() {
+        QuantityRollupStore store = new QuantityRollupStore() {
+            @Override
+            DatasetRollup load(long datasetId, Session s) {
+                return new DatasetRollup();
+            }
+        };
+        store.setEnabled(true);
+        store.setSize(2);
+        for (long datasetId = 1; datasetId <= 5; datasetId++) {
+            store.aggregate(datasetId, TemporalAggregation.interval(Function.MEAN, DAY), null, null, null);
+        }
+        Assert.assertEquals(2, store.size());
+    }
+}
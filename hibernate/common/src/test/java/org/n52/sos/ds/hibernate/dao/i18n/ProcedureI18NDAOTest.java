@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.dao.i18n;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.hibernate.Criteria;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Answers;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.n52.iceland.ds.ConnectionProvider;
+import org.n52.iceland.ds.ConnectionProviderException;
+import org.n52.iceland.i18n.metadata.I18NProcedureMetadata;
+import org.n52.series.db.beans.ProcedureEntity;
+import org.n52.series.db.beans.i18n.I18nProcedureEntity;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.ds.hibernate.dao.DaoFactory;
+
+public class ProcedureI18NDAOTest {
+
+    private static final String PROCEDURE = "procedure";
+
+    private static final String OTHER_PROCEDURE = "otherProcedure";
+
+    private final ConnectionProvider connectionProvider = Mockito.mock(ConnectionProvider.class);
+
+    private final Session session = Mockito.mock(Session.class);
+
+    private final Criteria criteria = Mockito.mock(Criteria.class, Answers.RETURNS_SELF);
+
+    private ProcedureI18NDAO dao;
+
+    @Before
+    public void setUp() throws ConnectionProviderException {
+        Mockito.when(connectionProvider.getConnection()).thenReturn(session);
+        Mockito.when(session.createCriteria(ArgumentMatchers.<Class<?>> any())).thenReturn(criteria);
+        Mockito.when(session.beginTransaction()).thenReturn(Mockito.mock(Transaction.class));
+        Mockito.when(criteria.scroll()).thenReturn(Mockito.mock(ScrollableResults.class));
+        Mockito.when(criteria.list()).thenReturn(Collections.singletonList(translation(PROCEDURE, "name")));
+        dao = new ProcedureI18NDAO();
+        dao.setConnectionProvider(connectionProvider);
+        dao.setDaoFactory(Mockito.mock(DaoFactory.class, Answers.RETURNS_DEEP_STUBS));
+    }
+
+    @Test
+    public void should_query_database_if_not_loaded() throws OwsExceptionReport, ConnectionProviderException {
+        I18NProcedureMetadata metadata = dao.getMetadata(PROCEDURE);
+        MatcherAssert.assertThat(getName(metadata), Matchers.is("name"));
+        Mockito.verify(connectionProvider).getConnection();
+        Mockito.verify(connectionProvider).returnConnection(session);
+    }
+
+    @Test
+    public void should_answer_from_memory_if_loaded() throws OwsExceptionReport {
+        dao.loadTranslations(session);
+        Mockito.clearInvocations(connectionProvider, session);
+
+        MatcherAssert.assertThat(getName(dao.getMetadata(PROCEDURE)), Matchers.is("name"));
+        MatcherAssert.assertThat(getName(dao.getMetadata(PROCEDURE, Locale.ENGLISH)), Matchers.is("name"));
+        MatcherAssert.assertThat(dao.getAvailableLocales(), Matchers.contains(Locale.ENGLISH));
+        Mockito.verifyNoInteractions(connectionProvider, session);
+    }
+
+    @Test
+    public void should_return_empty_metadata_for_unknown_identifier_if_loaded() throws OwsExceptionReport {
+        dao.loadTranslations(session);
+        Mockito.clearInvocations(connectionProvider, session);
+
+        I18NProcedureMetadata metadata = dao.getMetadata(OTHER_PROCEDURE);
+        MatcherAssert.assertThat(metadata.getIdentifier(), Matchers.is(OTHER_PROCEDURE));
+        MatcherAssert.assertThat(metadata.getLocales(), Matchers.empty());
+        Mockito.verifyNoInteractions(connectionProvider, session);
+    }
+
+    @Test
+    public void should_update_memory_after_save() throws OwsExceptionReport {
+        dao.loadTranslations(session);
+        Mockito.when(criteria.list()).thenReturn(Collections.singletonList(translation(PROCEDURE, "newName")));
+        I18NProcedureMetadata metadata = new I18NProcedureMetadata(PROCEDURE);
+        metadata.getName().addLocalization(Locale.ENGLISH.toString(), "newName");
+        dao.saveMetadata(metadata, session);
+        Mockito.clearInvocations(connectionProvider, session);
+
+        MatcherAssert.assertThat(getName(dao.getMetadata(PROCEDURE)), Matchers.is("newName"));
+        Mockito.verifyNoInteractions(connectionProvider, session);
+    }
+
+    @Test
+    public void should_skip_translation_without_entity() throws OwsExceptionReport {
+        I18nProcedureEntity translation = translation(OTHER_PROCEDURE, "otherName");
+        translation.setEntity(null);
+        List<I18nProcedureEntity> translations = Arrays.asList(translation, translation(PROCEDURE, "name"));
+        Mockito.when(criteria.list()).thenReturn(translations);
+        dao.loadTranslations(session);
+        Mockito.clearInvocations(connectionProvider, session);
+
+        MatcherAssert.assertThat(getName(dao.getMetadata(PROCEDURE)), Matchers.is("name"));
+        MatcherAssert.assertThat(dao.getMetadata(OTHER_PROCEDURE).getLocales(), Matchers.empty());
+        Mockito.verifyNoInteractions(connectionProvider, session);
+    }
+
+    private static I18nProcedureEntity translation(String procedure, String name) {
+        ProcedureEntity entity = new ProcedureEntity();
+        entity.setIdentifier(procedure);
+        I18nProcedureEntity translation = new I18nProcedureEntity();
+        translation.setId(1L);
+        translation.setEntity(entity);
+        translation.setLocale(Locale.ENGLISH.toString());
+        translation.setName(name);
+        return translation;
+    }
+
+    private static String getName(I18NProcedureMetadata metadata) {
+        return metadata.getName().getLocalization(Locale.ENGLISH).get().getText();
+    }
+}
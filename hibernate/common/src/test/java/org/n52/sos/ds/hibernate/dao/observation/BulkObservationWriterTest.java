@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.dao.observation;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Restrictions;
+import org.joda.time.DateTime;
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.n52.series.db.beans.BooleanDataEntity;
+import org.n52.series.db.beans.CountDataEntity;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.series.db.beans.TextDataEntity;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.util.DateTimeHelper;
+import org.n52.sos.ds.hibernate.ExtendedHibernateTestCase;
+import org.n52.sos.ds.hibernate.H2Configuration;
+import org.n52.sos.ds.hibernate.dao.DaoFactory;
+import org.n52.sos.ds.hibernate.dao.observation.BulkObservationWriter.Row;
+import org.n52.sos.ds.hibernate.util.HibernateMetadataCache;
+import org.n52.sos.ds.hibernate.util.HibernateObservationBuilder;
+
+public class BulkObservationWriterTest extends ExtendedHibernateTestCase {
+
+    private static final int ROWS = 10;
+
+    @AfterClass
+    public static void cleanUp() {
+        H2Configuration.recreate();
+    }
+
+    @Test
+    public void shouldSupportSimpleValueMappings() {
+        Session session = getSession();
+        try {
+            for (Class<?> type : new Class<?>[] { QuantityDataEntity.class, CountDataEntity.class,
+                    BooleanDataEntity.class, TextDataEntity.class }) {
+                @SuppressWarnings("unchecked")
+                BulkObservationWriter writer =
+                        new BulkObservationWriter((Class<? extends DataEntity<?>>) type, session);
+                assertThat(writer.getUnsupportedReason(), writer.isSupported(), is(true));
+            }
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    @Test
+    public void shouldNotUseCopyOutsideOfPostgres() {
+        Session session = getSession();
+        try {
+            BulkObservationWriter writer = new BulkObservationWriter(QuantityDataEntity.class, session);
+            assertThat(writer.isCopy(), is(false));
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    @Test
+    public void shouldWriteRowsThatCanBeReadBack() throws OwsExceptionReport {
+        Session session = getSession();
+        HibernateMetadataCache.init(session);
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            DaoFactory daoFactory = getDaoFactory();
+            DateTime begin = DateTimeHelper.parseIsoString2DateTime("2020-01-01T00:00:00.000Z");
+            DataEntity<?> existing =
+                    new HibernateObservationBuilder(session, daoFactory).createObservation("existing", begin).get(0);
+            DatasetEntity dataset = existing.getDataset();
+            daoFactory.getSeriesDAO().updateSeriesWithFirstLatestValues(dataset, existing, session);
+
+            List<Row> rows = new ArrayList<>();
+            for (int i = 1; i <= ROWS; i++) {
+                Date time = begin.plusHours(i).toDate();
+                rows.add(new Row(time, time, time, i % 2 == 0));
+            }
+            BulkObservationWriter writer = new BulkObservationWriter(BooleanDataEntity.class, session);
+            writer.write(dataset, rows, session);
+
+            @SuppressWarnings("unchecked")
+            List<BooleanDataEntity> written = session.createCriteria(BooleanDataEntity.class)
+                    .add(Restrictions.eq(DataEntity.PROPERTY_DATASET, dataset))
+                    .add(Restrictions.gt(DataEntity.PROPERTY_SAMPLING_TIME_START, begin.toDate()))
+                    .addOrder(Order.asc(DataEntity.PROPERTY_SAMPLING_TIME_START)).list();
+            assertThat(written, hasSize(ROWS));
+            for (int i = 0; i < ROWS; i++) {
+                BooleanDataEntity observation = written.get(i);
+                Row row = rows.get(i);
+                assertThat(observation.getId(), is(notNullValue()));
+                assertThat(observation.getSamplingTimeStart().getTime(), is(row.getPhenomenonTimeStart().getTime()));
+                assertThat(observation.getSamplingTimeEnd().getTime(), is(row.getPhenomenonTimeEnd().getTime()));
+                assertThat(observation.getResultTime().getTime(), is(row.getResultTime().getTime()));
+                assertThat(observation.getValue(), is(row.getValue()));
+                assertThat(observation.isDeleted(), is(false));
+            }
+
+            // the first/last values are updated like the bulk result ingester does
+            BooleanDataEntity last = written.get(ROWS - 1);
+            daoFactory.getSeriesDAO().updateSeriesWithFirstLatestValues(dataset, written.get(0), session);
+            daoFactory.getSeriesDAO().updateSeriesWithFirstLatestValues(dataset, last, session);
+            assertThat(dataset.getFirstValueAt().getTime(), is(begin.toDate().getTime()));
+            assertThat(dataset.getFirstObservation().getId(), is(existing.getId()));
+            assertThat(dataset.getLastValueAt().getTime(), is(rows.get(ROWS - 1).getPhenomenonTimeEnd().getTime()));
+            assertThat(dataset.getLastObservation().getId(), is(last.getId()));
+            transaction.commit();
+        } catch (HibernateException e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw e;
+        } finally {
+            returnSession(session);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.PostgreSQL95Dialect;
+import org.hibernate.dialect.SQLServer2012Dialect;
+import org.hibernate.type.BooleanType;
+import org.hibernate.type.NumericBooleanType;
+import org.junit.Assert;
+import org.junit.Test;
+import org.n52.series.db.beans.DataEntity;
+
+public class ObservationIndexTest {
+
+    private static final Function<String, String> COLUMNS = property -> {
+        switch (property) {
+            case DataEntity.PROPERTY_DATASET:
+                return "fk_dataset_id";
+            case DataEntity.PROPERTY_SAMPLING_TIME_START:
+                return "sampling_time_start";
+            case DataEntity.PROPERTY_SAMPLING_TIME_END:
+                return "sampling_time_end";
+            case DataEntity.PROPERTY_RESULT_TIME:
+                return "result_time";
+            default:
+                return property;
+        }
+    };
+
+    @Test
+    public void should_create_partial_index_for_postgres() {
+        PostgreSQL95Dialect dialect = new PostgreSQL95Dialect();
+        String notDeleted = ObservationIndex.getNotDeletedCondition(dialect, "deleted", BooleanType.INSTANCE);
+        Assert.assertEquals("create index obs_dataset_time_idx on observation "
+                + "(fk_dataset_id, sampling_time_start, id, sampling_time_end) where deleted = false;",
+                ObservationIndex.DATASET_PHENOMENON_TIME.getCreateStatement(dialect, "observation", COLUMNS,
+                        notDeleted));
+    }
+
+    @Test
+    public void should_create_filtered_covering_index_for_sql_server() {
+        SQLServer2012Dialect dialect = new SQLServer2012Dialect();
+        String notDeleted = ObservationIndex.getNotDeletedCondition(dialect, "deleted", NumericBooleanType.INSTANCE);
+        Assert.assertEquals("create index obs_dataset_time_idx on observation "
+                + "(fk_dataset_id, sampling_time_start, id) include (sampling_time_end) where deleted = 0;",
+                ObservationIndex.DATASET_PHENOMENON_TIME.getCreateStatement(dialect, "observation", COLUMNS,
+                        notDeleted));
+    }
+
+    @Test
+    public void should_create_plain_index_without_partial_index_support() {
+        H2Dialect dialect = new H2Dialect();
+        String notDeleted = ObservationIndex.getNotDeletedCondition(dialect, "deleted", BooleanType.INSTANCE);
+        Assert.assertNull(notDeleted);
+        Assert.assertEquals("create index obs_dataset_time_end_idx on observation (fk_dataset_id, sampling_time_end);",
+                ObservationIndex.DATASET_PHENOMENON_TIME_END.getCreateStatement(dialect, "observation", COLUMNS,
+                        notDeleted));
+    }
+
+    @Test
+    public void should_be_provided_by_index_with_leading_key_columns() {
+        Assert.assertTrue(ObservationIndex.DATASET_RESULT_TIME
+                .isProvidedBy(Arrays.asList("FK_DATASET_ID", "\"result_time\"", "id"), COLUMNS));
+        Assert.assertFalse(ObservationIndex.DATASET_RESULT_TIME
+                .isProvidedBy(Arrays.asList("result_time", "fk_dataset_id"), COLUMNS));
+        Assert.assertFalse(ObservationIndex.DATASET_RESULT_TIME.isProvidedBy(Arrays.asList("fk_dataset_id"), COLUMNS));
+    }
+
+}
@@ -84,6 +84,25 @@ public abstract class AbstractHibernateCoreDatasource implements Datasource, Hib
 
     protected static final String C3P0_CONNECTION_POOL = "org.hibernate.c3p0.internal.C3P0ConnectionProvider";
 
+    protected static final String HIKARI_CONNECTION_POOL = "org.hibernate.hikaricp.internal.HikariCPConnectionProvider";
+
+    protected static final String HIKARI_METRICS_TRACKER_FACTORY =
+            "org.n52.sos.ds.hibernate.pool.HikariMetricsTrackerFactory";
+
+    protected static final String CONNECTION_POOL_KEY = "jdbc.pool.provider";
+
+    protected static final String CONNECTION_POOL_TITLE = "ConnectionPool implementation";
+
+    protected static final String CONNECTION_POOL_DESCRIPTION =
+            "The ConnectionPool implementation. HikariCP enables the prepared statement cache of the JDBC driver "
+                    + "and records the connection acquisition time in the metrics.";
+
+    protected static final String CONNECTION_POOL_C3P0 = "c3p0";
+
+    protected static final String CONNECTION_POOL_HIKARI = "hikaricp";
+
+    protected static final String CONNECTION_POOL_DEFAULT_VALUE = CONNECTION_POOL_C3P0;
+
     protected static final String MIN_POOL_SIZE_KEY = "jdbc.pool.min";
 
     protected static final String MIN_POOL_SIZE_TITLE = "Minimum ConnectionPool size";
@@ -335,6 +354,30 @@ public abstract class AbstractHibernateCoreDatasource implements Datasource, Hib
         return def;
     }
 
+    /**
+     * Create settings definition for the connection pool implementation
+     *
+     * @return Connection pool settings definition
+     */
+    protected ChoiceSettingDefinition createConnectionPoolDefinition() {
+        ChoiceSettingDefinition def = new ChoiceSettingDefinition();
+        def.setGroup(ADVANCED_GROUP);
+        def.setOrder(12);
+        def.setKey(CONNECTION_POOL_KEY);
+        def.setTitle(CONNECTION_POOL_TITLE);
+        def.setDescription(CONNECTION_POOL_DESCRIPTION);
+        def.addOption(CONNECTION_POOL_C3P0, "c3p0");
+        def.addOption(CONNECTION_POOL_HIKARI, "HikariCP");
+        def.setDefaultValue(CONNECTION_POOL_DEFAULT_VALUE);
+        return def;
+    }
+
+    protected ChoiceSettingDefinition createConnectionPoolDefinition(String defaultValue) {
+        ChoiceSettingDefinition def = createConnectionPoolDefinition();
+        def.setDefaultValue(defaultValue);
+        return def;
+    }
+
     /**
      * Create settings definition for time zone
      *
@@ -49,15 +49,20 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
 
 import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
 import org.hibernate.boot.Metadata;
 import org.hibernate.boot.MetadataSources;
 import org.hibernate.boot.registry.StandardServiceRegistry;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
 import org.hibernate.dialect.Dialect;
+import org.hibernate.mapping.Column;
+import org.hibernate.mapping.PersistentClass;
+import org.hibernate.mapping.Property;
 import org.hibernate.mapping.Table;
 import org.hibernate.tool.hbm2ddl.SchemaExport;
 import org.hibernate.tool.hbm2ddl.SchemaExport.Action;
@@ -72,9 +77,11 @@ import org.n52.faroe.settings.IntegerSettingDefinition;
 import org.n52.faroe.settings.StringSettingDefinition;
 import org.n52.hibernate.type.SmallBooleanType;
 import org.n52.iceland.ds.DatasourceCallback;
+import org.n52.series.db.beans.DataEntity;
 import org.n52.sos.ds.HibernateDatasourceConstants;
 import org.n52.sos.ds.hibernate.util.DefaultHibernateConstants;
 import org.n52.sos.ds.hibernate.util.HibernateConstants;
+import org.n52.sos.ds.hibernate.util.ObservationIndex;
 import org.n52.sos.util.SQLConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -459,6 +466,7 @@ public abstract class AbstractHibernateDatasource extends AbstractHibernateCoreD
 
             script = (pre == null) ? (post == null) ? script : concat(script, post)
                     : (post == null) ? concat(pre, script) : concat(pre, script, post);
+            script = concat(script, getObservationIndexScript(m, settings));
 
             return checkCreateSchema(script);
         } catch (IOException e) {
@@ -889,6 +897,73 @@ public abstract class AbstractHibernateDatasource extends AbstractHibernateCoreD
         return null;
     }
 
+    /**
+     * Get the script creating the {@link ObservationIndex}es which are not
+     * implied by the mappings.
+     *
+     * @param metadata
+     *            the mapping metadata
+     * @param settings
+     *            Datasource settings
+     * @return script creating the observation indexes
+     */
+    protected String[] getObservationIndexScript(Metadata metadata, Map<String, Object> settings) {
+        Optional<PersistentClass> observation = getObservationMapping(metadata);
+        if (!observation.isPresent()) {
+            return new String[0];
+        }
+        PersistentClass mapping = observation.get();
+        Dialect dialect = getDialectInternal();
+        String table = mapping.getTable().getQualifiedName(dialect, null, (String) settings.get(SCHEMA_KEY));
+        String notDeleted = null;
+        if (mapping.hasProperty(DataEntity.PROPERTY_DELETED)) {
+            Property deleted = mapping.getProperty(DataEntity.PROPERTY_DELETED);
+            notDeleted = ObservationIndex.getNotDeletedCondition(dialect, getColumn(mapping,
+                    DataEntity.PROPERTY_DELETED).getQuotedName(dialect), deleted.getType());
+        }
+        List<String> script = new LinkedList<>();
+        for (ObservationIndex index : ObservationIndex.values()) {
+            try {
+                script.add(index.getCreateStatement(dialect, table,
+                        property -> getColumn(mapping, property).getQuotedName(dialect), notDeleted));
+            } catch (MappingException e) {
+                LOG.debug("Observation index {} is not supported by the mapping: {}", index.getName(),
+                        e.getMessage());
+            }
+        }
+        return script.toArray(new String[script.size()]);
+    }
+
+    /**
+     * Get the mapping of the observation table.
+     *
+     * @param metadata
+     *            the mapping metadata
+     * @return the root mapping of the {@link DataEntity}, if mapped
+     */
+    protected Optional<PersistentClass> getObservationMapping(Metadata metadata) {
+        return metadata.getEntityBindings().stream()
+                .filter(pc -> pc.getMappedClass() != null && DataEntity.class.isAssignableFrom(pc.getMappedClass()))
+                .map(PersistentClass::getRootClass).findFirst();
+    }
+
+    /**
+     * Get the (first) column of a mapped property or identifier.
+     *
+     * @param mapping
+     *            the entity mapping
+     * @param property
+     *            the property name
+     * @return the column
+     * @throws MappingException
+     *             if the property is not mapped
+     */
+    protected Column getColumn(PersistentClass mapping, String property) throws MappingException {
+        Property p = mapping.getIdentifierProperty() != null && mapping.getIdentifierProperty().getName()
+                .equals(property) ? mapping.getIdentifierProperty() : mapping.getProperty(property);
+        return (Column) p.getColumnIterator().next();
+    }
+
     protected boolean isSetSchema(Map<String, Object> settings) {
         if (settings.containsKey(HibernateConstants.DEFAULT_SCHEMA)) {
             return !Strings.isNullOrEmpty((String) settings.get(HibernateConstants.DEFAULT_SCHEMA));
@@ -28,6 +28,7 @@
  */
 package org.n52.sos.ds.datasource;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -70,6 +71,7 @@ public abstract class AbstractHibernateFullDBDatasource extends AbstractHibernat
             set.add(createSchemaDefinition(schemaDefault));
         }
         set.add(createBatchSizeDefinition(batchSizeDefault));
+        set.add(createConnectionPoolDefinition(CONNECTION_POOL_DEFAULT_VALUE));
         set.add(createProvidedJdbcDriverDefinition(providedJdbc));
         set.add(getDatabaseConceptDefinition());
         set.add(getDatabaseExtensionDefinition());
@@ -126,17 +128,13 @@ public abstract class AbstractHibernateFullDBDatasource extends AbstractHibernat
         p.put(HibernateConstants.CONNECTION_USERNAME, settings.get(USERNAME_KEY));
         p.put(HibernateConstants.CONNECTION_PASSWORD, settings.get(PASSWORD_KEY));
         p.put(HibernateConstants.CONNECTION_URL, toURL(settings));
-        p.put(HibernateConstants.CONNECTION_PROVIDER_CLASS, C3P0_CONNECTION_POOL);
         p.put(HibernateConstants.DIALECT, getDialectClass());
         p.put(HibernateConstants.DRIVER_CLASS, getDriverClass());
-        p.put(HibernateConstants.C3P0_MIN_SIZE, settings.get(MIN_POOL_SIZE_KEY).toString());
-        p.put(HibernateConstants.C3P0_MAX_SIZE, settings.get(MAX_POOL_SIZE_KEY).toString());
-        p.put(HibernateConstants.C3P0_IDLE_TEST_PERIOD, "30");
-        p.put(HibernateConstants.C3P0_ACQUIRE_INCREMENT, "1");
-        p.put(HibernateConstants.C3P0_TIMEOUT, "0");
-        p.put(HibernateConstants.C3P0_MAX_STATEMENTS, "0");
-        p.put(HibernateConstants.C3P0_PRIVILEGE_SPAWNED_THREAD, Boolean.TRUE.toString());
-        p.put(HibernateConstants.C3P0_CONTEXT_CLASS_LOADER_SOURCE, "library");
+        if (CONNECTION_POOL_HIKARI.equals(settings.get(CONNECTION_POOL_KEY))) {
+            addHikariProperties(settings, p);
+        } else {
+            addC3P0Properties(settings, p);
+        }
         if (settings.containsKey(BATCH_SIZE_KEY)) {
             p.put(HibernateConstants.JDBC_BATCH_SIZE, settings.get(BATCH_SIZE_KEY).toString());
         }
@@ -160,6 +158,39 @@ public abstract class AbstractHibernateFullDBDatasource extends AbstractHibernat
         return p;
     }
 
+    private void addC3P0Properties(Map<String, Object> settings, Properties p) {
+        p.put(HibernateConstants.CONNECTION_PROVIDER_CLASS, C3P0_CONNECTION_POOL);
+        p.put(HibernateConstants.C3P0_MIN_SIZE, settings.get(MIN_POOL_SIZE_KEY).toString());
+        p.put(HibernateConstants.C3P0_MAX_SIZE, settings.get(MAX_POOL_SIZE_KEY).toString());
+        p.put(HibernateConstants.C3P0_IDLE_TEST_PERIOD, "30");
+        p.put(HibernateConstants.C3P0_ACQUIRE_INCREMENT, "1");
+        p.put(HibernateConstants.C3P0_TIMEOUT, "0");
+        p.put(HibernateConstants.C3P0_MAX_STATEMENTS, "0");
+        p.put(HibernateConstants.C3P0_PRIVILEGE_SPAWNED_THREAD, Boolean.TRUE.toString());
+        p.put(HibernateConstants.C3P0_CONTEXT_CLASS_LOADER_SOURCE, "library");
+    }
+
+    private void addHikariProperties(Map<String, Object> settings, Properties p) {
+        p.put(HibernateConstants.CONNECTION_PROVIDER_CLASS, HIKARI_CONNECTION_POOL);
+        p.put(HibernateConstants.HIKARI_MINIMUM_IDLE, settings.get(MIN_POOL_SIZE_KEY).toString());
+        p.put(HibernateConstants.HIKARI_MAXIMUM_POOL_SIZE, settings.get(MAX_POOL_SIZE_KEY).toString());
+        p.put(HibernateConstants.HIKARI_POOL_NAME, "52n-sos");
+        p.put(HibernateConstants.HIKARI_METRICS_TRACKER_FACTORY, HIKARI_METRICS_TRACKER_FACTORY);
+        getStatementCacheProperties()
+                .forEach((key, value) -> p.put(HibernateConstants.HIKARI_DATA_SOURCE_PREFIX + key, value));
+    }
+
+    /**
+     * Get the JDBC driver properties enabling the prepared statement cache of
+     * the driver. They are only applied for HikariCP, which has no statement
+     * cache of its own.
+     *
+     * @return the driver properties
+     */
+    protected Map<String, String> getStatementCacheProperties() {
+        return Collections.emptyMap();
+    }
+
     @Override
     public Map<String, Object> parseDatasourceProperties(final Properties current) {
         final Map<String, Object> settings = new HashMap<String, Object>(current.size());
@@ -169,8 +200,15 @@ public abstract class AbstractHibernateFullDBDatasource extends AbstractHibernat
         settings.put(HIBERNATE_DIRECTORY, current.get(HIBERNATE_DIRECTORY));
         settings.put(USERNAME_KEY, current.getProperty(HibernateConstants.CONNECTION_USERNAME));
         settings.put(PASSWORD_KEY, current.getProperty(HibernateConstants.CONNECTION_PASSWORD));
-        settings.put(MIN_POOL_SIZE_KEY, current.getProperty(HibernateConstants.C3P0_MIN_SIZE));
-        settings.put(MAX_POOL_SIZE_KEY, current.getProperty(HibernateConstants.C3P0_MAX_SIZE));
+        if (HIKARI_CONNECTION_POOL.equals(current.getProperty(HibernateConstants.CONNECTION_PROVIDER_CLASS))) {
+            settings.put(CONNECTION_POOL_KEY, CONNECTION_POOL_HIKARI);
+            settings.put(MIN_POOL_SIZE_KEY, current.getProperty(HibernateConstants.HIKARI_MINIMUM_IDLE));
+            settings.put(MAX_POOL_SIZE_KEY, current.getProperty(HibernateConstants.HIKARI_MAXIMUM_POOL_SIZE));
+        } else {
+            settings.put(CONNECTION_POOL_KEY, CONNECTION_POOL_C3P0);
+            settings.put(MIN_POOL_SIZE_KEY, current.getProperty(HibernateConstants.C3P0_MIN_SIZE));
+            settings.put(MAX_POOL_SIZE_KEY, current.getProperty(HibernateConstants.C3P0_MAX_SIZE));
+        }
         if (current.containsKey(HibernateConstants.JDBC_BATCH_SIZE)) {
             settings.put(BATCH_SIZE_KEY, current.getProperty(HibernateConstants.JDBC_BATCH_SIZE));
         }
@@ -57,7 +57,7 @@ public class AbstractHibernateFullDBDatasourceTest
 
     private static int CHANGEABLE_COUNT = 10;
 
-    private static int MAX_COUNT = 17;
+    private static int MAX_COUNT = 18;
 
     private AbstractHibernateFullDBDatasource ds;
 
@@ -91,6 +91,25 @@ public class AbstractHibernateFullDBDatasourceTest
 
         Map<String, Object> settings = ds.parseDatasourceProperties(current);
         checkSettingKeys(settings.keySet(), false, false, false);
+        assertEquals(AbstractHibernateCoreDatasource.CONNECTION_POOL_C3P0,
+                settings.get(AbstractHibernateCoreDatasource.CONNECTION_POOL_KEY));
+    }
+
+    public void testParseHikariDatasourceProperties() throws Exception {
+        Properties current = new Properties();
+        current.put(HibernateConstants.CONNECTION_USERNAME, POSTGRES);
+        current.put(HibernateConstants.CONNECTION_PASSWORD, POSTGRES);
+        current.put(HibernateConstants.CONNECTION_URL, "jdbc:postgresql://localhost:5432/test");
+        current.put(HibernateConstants.CONNECTION_PROVIDER_CLASS,
+                AbstractHibernateCoreDatasource.HIKARI_CONNECTION_POOL);
+        current.put(HibernateConstants.HIKARI_MINIMUM_IDLE, "5");
+        current.put(HibernateConstants.HIKARI_MAXIMUM_POOL_SIZE, "20");
+
+        Map<String, Object> settings = ds.parseDatasourceProperties(current);
+        assertEquals(AbstractHibernateCoreDatasource.CONNECTION_POOL_HIKARI,
+                settings.get(AbstractHibernateCoreDatasource.CONNECTION_POOL_KEY));
+        assertEquals("5", settings.get(AbstractHibernateCoreDatasource.MIN_POOL_SIZE_KEY));
+        assertEquals("20", settings.get(AbstractHibernateCoreDatasource.MAX_POOL_SIZE_KEY));
     }
 
     private void checkSettingDefinitionsTransactional(Set<SettingDefinition<?>> settings) {
@@ -126,6 +145,7 @@ public class AbstractHibernateFullDBDatasourceTest
         assertTrue(keys.contains(AbstractHibernateCoreDatasource.MIN_POOL_SIZE_KEY));
         assertTrue(keys.contains(AbstractHibernateCoreDatasource.MAX_POOL_SIZE_KEY));
         assertTrue(keys.contains(AbstractHibernateDatasource.BATCH_SIZE_KEY));
+        assertTrue(changeable || keys.contains(AbstractHibernateCoreDatasource.CONNECTION_POOL_KEY));
         assertTrue(
                 changeable || settingsDefinitions || keys.contains(HibernateDatasourceConstants.HIBERNATE_DIRECTORY));
         assertTrue(changeable || keys.contains(AbstractHibernateDatasource.PROVIDED_JDBC_DRIVER_KEY));
@@ -46,6 +46,7 @@ import org.n52.sos.ds.hibernate.util.HibernateConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 
 /**
@@ -179,6 +180,12 @@ public abstract class AbstractMySQLDatasource extends AbstractHibernateFullDBDat
         return MYSQL_DRIVER_CLASS;
     }
 
+    @Override
+    protected Map<String, String> getStatementCacheProperties() {
+        return ImmutableMap.of("cachePrepStmts", "true", "prepStmtCacheSize", "250", "prepStmtCacheSqlLimit", "2048",
+                "useServerPrepStmts", "true");
+    }
+
     @Override
     protected Connection openConnection(Map<String, Object> settings) throws SQLException {
         try {
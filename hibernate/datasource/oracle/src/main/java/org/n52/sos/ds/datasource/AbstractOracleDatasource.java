@@ -49,6 +49,8 @@ import org.n52.sos.ds.hibernate.util.HibernateConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.ImmutableMap;
+
 import oracle.jdbc.OracleDriver;
 
 /**
@@ -325,6 +327,11 @@ public abstract class AbstractOracleDatasource extends AbstractHibernateFullDBDa
         return ORACLE_DRIVER_CLASS;
     }
 
+    @Override
+    protected Map<String, String> getStatementCacheProperties() {
+        return ImmutableMap.of("oracle.jdbc.implicitStatementCacheSize", "250");
+    }
+
     @Override
     public void validateConnection(Map<String, Object> settings) {
         checkClasspath();
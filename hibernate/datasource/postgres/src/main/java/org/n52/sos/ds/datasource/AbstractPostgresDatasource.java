@@ -37,14 +37,22 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.hibernate.boot.Metadata;
 import org.hibernate.dialect.Dialect;
+import org.hibernate.mapping.Column;
+import org.hibernate.mapping.PersistentClass;
 import org.hibernate.mapping.Table;
 import org.n52.faroe.ConfigurationError;
+import org.n52.faroe.SettingDefinition;
+import org.n52.faroe.settings.BooleanSettingDefinition;
+import org.n52.faroe.settings.IntegerSettingDefinition;
 import org.n52.hibernate.spatial.dialect.postgis.TimestampWithTimeZonePostgisPG95Dialect;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.shetland.util.JavaHelper;
 import org.n52.sos.ds.hibernate.util.HibernateConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -89,6 +97,37 @@ public abstract class AbstractPostgresDatasource extends AbstractHibernateFullDB
 
     protected static final String TAB_SPATIAL_REF_SYS = "spatial_ref_sys";
 
+    protected static final String PARTITIONING_KEY = "sos.observation.partitioning";
+
+    protected static final String PARTITIONING_TITLE = "Partition observations by month";
+
+    protected static final String PARTITIONING_DESCRIPTION =
+            "Create the observation table partitioned by phenomenon time with one partition per month "
+            + "(requires PostgreSQL 11 or later). Foreign keys referencing observations are omitted and "
+            + "unique constraints of observations include the phenomenon time.";
+
+    protected static final Boolean PARTITIONING_DEFAULT_VALUE = Boolean.FALSE;
+
+    protected static final String PARTITIONS_AHEAD_KEY = "sos.observation.partitioning.ahead";
+
+    protected static final String PARTITIONS_AHEAD_TITLE = "Partitions created ahead";
+
+    protected static final String PARTITIONS_AHEAD_DESCRIPTION =
+            "Number of monthly observation partitions created ahead of the current month.";
+
+    protected static final Integer PARTITIONS_AHEAD_DEFAULT_VALUE = 3;
+
+    protected static final String PARTITION_RETENTION_KEY = "sos.observation.partitioning.retention";
+
+    protected static final String PARTITION_RETENTION_TITLE = "Partition retention (months)";
+
+    protected static final String PARTITION_RETENTION_DESCRIPTION =
+            "Number of months after which monthly observation partitions are dropped, 0 keeps all partitions. "
+            + "References of datasets to dropped observations are reset, the SOS cache has to be reloaded and "
+            + "the SOS restarted afterwards.";
+
+    protected static final Integer PARTITION_RETENTION_DEFAULT_VALUE = 0;
+
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractPostgresDatasource.class);
 
     public AbstractPostgresDatasource() {
@@ -107,6 +146,83 @@ public abstract class AbstractPostgresDatasource extends AbstractHibernateFullDB
         setSchemaDescription(SCHEMA_DESCRIPTION);
     }
 
+    @Override
+    public Set<SettingDefinition<?>> getSettingDefinitions() {
+        Set<SettingDefinition<?>> set = super.getSettingDefinitions();
+        set.add(createPartitioningDefinition());
+        set.add(createPartitionsAheadDefinition());
+        set.add(createPartitionRetentionDefinition());
+        return set;
+    }
+
+    protected BooleanSettingDefinition createPartitioningDefinition() {
+        BooleanSettingDefinition def = new BooleanSettingDefinition();
+        def.setGroup(ADVANCED_GROUP);
+        def.setOrder(20);
+        def.setKey(PARTITIONING_KEY);
+        def.setTitle(PARTITIONING_TITLE);
+        def.setDescription(PARTITIONING_DESCRIPTION);
+        def.setDefaultValue(PARTITIONING_DEFAULT_VALUE);
+        return def;
+    }
+
+    protected IntegerSettingDefinition createPartitionsAheadDefinition() {
+        IntegerSettingDefinition def = new IntegerSettingDefinition();
+        def.setGroup(ADVANCED_GROUP);
+        def.setOrder(21);
+        def.setKey(PARTITIONS_AHEAD_KEY);
+        def.setTitle(PARTITIONS_AHEAD_TITLE);
+        def.setDescription(PARTITIONS_AHEAD_DESCRIPTION);
+        def.setDefaultValue(PARTITIONS_AHEAD_DEFAULT_VALUE);
+        return def;
+    }
+
+    protected IntegerSettingDefinition createPartitionRetentionDefinition() {
+        IntegerSettingDefinition def = new IntegerSettingDefinition();
+        def.setGroup(ADVANCED_GROUP);
+        def.setOrder(22);
+        def.setKey(PARTITION_RETENTION_KEY);
+        def.setTitle(PARTITION_RETENTION_TITLE);
+        def.setDescription(PARTITION_RETENTION_DESCRIPTION);
+        def.setDefaultValue(PARTITION_RETENTION_DEFAULT_VALUE);
+        return def;
+    }
+
+    @Override
+    public String[] createSchema(Map<String, Object> settings) {
+        String[] script = super.createSchema(settings);
+        if (isPartitioning(settings)) {
+            return createPartitioning(settings).partition(script);
+        }
+        return script;
+    }
+
+    /**
+     * Create the partitioning of the observation table from the mapping of
+     * the {@link DataEntity} and its phenomenon time start property.
+     *
+     * @param settings
+     *            Datasource settings
+     * @return the observation table partitioning
+     */
+    protected ObservationTablePartitioning createPartitioning(Map<String, Object> settings) {
+        PersistentClass observation = getObservationMapping(getMetadata(settings))
+                .orElseThrow(() -> new ConfigurationError("The observation table is not mapped, partitioning is "
+                        + "not supported by this datasource."));
+        Column column = getColumn(observation, DataEntity.PROPERTY_SAMPLING_TIME_START);
+        Dialect dialect = createDialect();
+        Integer ahead = JavaHelper.asInteger(settings.get(PARTITIONS_AHEAD_KEY));
+        Integer retention = JavaHelper.asInteger(settings.get(PARTITION_RETENTION_KEY));
+        return new ObservationTablePartitioning(getSchema(settings), observation.getTable().getQuotedName(dialect),
+                column.getQuotedName(dialect), ahead != null ? ahead : PARTITIONS_AHEAD_DEFAULT_VALUE,
+                retention != null ? retention : PARTITION_RETENTION_DEFAULT_VALUE);
+    }
+
+    protected boolean isPartitioning(Map<String, Object> settings) {
+        Object partitioning = settings.get(PARTITIONING_KEY);
+        return partitioning != null && Boolean.parseBoolean(partitioning.toString());
+    }
+
     @Override
     protected Dialect createDialect() {
         return new TimestampWithTimeZonePostgisPG95Dialect();
@@ -264,7 +380,19 @@ public abstract class AbstractPostgresDatasource extends AbstractHibernateFullDB
     public Properties getDatasourceProperties(Map<String, Object> settings) {
         Properties p = super.getDatasourceProperties(settings);
         p.put(HibernateConstants.C3P0_PREFERRED_TEST_QUERY, "SELECT 1");
+        if (settings.containsKey(PARTITIONING_KEY) && settings.get(PARTITIONING_KEY) != null) {
+            p.put(PARTITIONING_KEY, settings.get(PARTITIONING_KEY).toString());
+        }
         return p;
     }
 
+    @Override
+    public Map<String, Object> parseDatasourceProperties(Properties current) {
+        Map<String, Object> settings = super.parseDatasourceProperties(current);
+        if (current.containsKey(PARTITIONING_KEY)) {
+            settings.put(PARTITIONING_KEY, Boolean.valueOf(current.getProperty(PARTITIONING_KEY)));
+        }
+        return settings;
+    }
+
 }
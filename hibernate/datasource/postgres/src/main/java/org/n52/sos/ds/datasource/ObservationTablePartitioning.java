@@ -0,0 +1,298 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.datasource;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Rewrites the generated create script so that the observation table is
+ * created as a PostgreSQL (11+) table partitioned by range of the phenomenon
+ * time start column with one partition per month. The Hibernate mappings are
+ * not touched, the partitioning is transparent for the SOS.
+ * <p>
+ * PostgreSQL requires the partition column in every primary key and unique
+ * constraint of a partitioned table, so it is added to them. Foreign keys
+ * referencing the observation table can not be enforced anymore and are
+ * omitted. Indexes created on the observation table are inherited by all
+ * partitions.
+ * <p>
+ * Before a partition is dropped, the columns of the omitted foreign keys
+ * (e.g. the first and last observation of the datasets) that reference its
+ * observations are set to <code>null</code>. The SOS does not notice dropped
+ * partitions: the content cache has to be reloaded afterwards, and the
+ * in-memory first/latest value, data availability and rollup stores keep
+ * the dropped values until the SOS is restarted.
+ * <p>
+ * Monthly partitions are created by the function
+ * {@value #CREATE_PARTITIONS_FUNCTION} and dropped by
+ * {@value #DROP_PARTITIONS_FUNCTION}. {@value #MAINTAIN_PARTITIONS_FUNCTION}
+ * combines both with the configured number of months created ahead and the
+ * retention period. It runs once during the installation and is called
+ * periodically by the partition maintenance job of the SOS. Values outside of
+ * the existing partitions are stored in the default partition. A new
+ * partition is created as a standalone table, the values of its month are
+ * moved from the default partition and it is attached afterwards, because a
+ * partition can not be created while the default partition contains values
+ * of its range.
+ */
+public class ObservationTablePartitioning {
+
+    public static final String CREATE_PARTITIONS_FUNCTION = "sos_create_observation_partitions";
+
+    public static final String DROP_PARTITIONS_FUNCTION = "sos_drop_observation_partitions";
+
+    public static final String MAINTAIN_PARTITIONS_FUNCTION = "sos_maintain_observation_partitions";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ObservationTablePartitioning.class);
+
+    private static final String PARTITION_SUFFIX = "_p";
+
+    private static final String DEFAULT_PARTITION_SUFFIX = "_default";
+
+    private final String schema;
+
+    private final String table;
+
+    private final String column;
+
+    private final int monthsAhead;
+
+    private final int retentionMonths;
+
+    private final Pattern createTable;
+
+    private final Pattern primaryKey = Pattern.compile("primary key \\(([^)]*)\\)\\)(;?)$");
+
+    private final Pattern uniqueConstraint;
+
+    private final Pattern referencingForeignKey;
+
+    private final Pattern foreignKeyColumns;
+
+    private final List<Reference> references = new LinkedList<>();
+
+    private String idColumn;
+
+    /**
+     * @param schema
+     *            the schema prefix ending with a dot, or an empty string
+     * @param table
+     *            the (quoted) name of the observation table
+     * @param column
+     *            the (quoted) name of the phenomenon time start column
+     * @param monthsAhead
+     *            the number of months partitions are created ahead
+     * @param retentionMonths
+     *            the number of months after which partitions are dropped,
+     *            <code>0</code> to keep all partitions
+     */
+    public ObservationTablePartitioning(String schema, String table, String column, int monthsAhead,
+            int retentionMonths) {
+        this.schema = schema == null ? "" : schema;
+        this.table = table;
+        this.column = column;
+        this.monthsAhead = Math.max(0, monthsAhead);
+        this.retentionMonths = Math.max(0, retentionMonths);
+        String quotedTable = "(?:[^\\s(]+\\.)?" + Pattern.quote(table);
+        this.createTable = Pattern.compile("^create table " + quotedTable + " \\(");
+        this.uniqueConstraint =
+                Pattern.compile("^(alter table (?:if exists )?" + quotedTable + " add constraint \\S+ unique \\()"
+                        + "([^)]*)(\\).*)$");
+        this.referencingForeignKey = Pattern.compile("^alter table .* foreign key \\([^)]*\\) references "
+                + quotedTable + "(?:\\s*;|\\s*$|\\s*\\(|\\s+on\\s).*");
+        this.foreignKeyColumns = Pattern.compile("^alter table (?:if exists )?(\\S+) .* foreign key \\(([^),]*)\\) "
+                + "references \\S+(?:\\s*\\(([^),]*)\\))?.*$", Pattern.CASE_INSENSITIVE);
+    }
+
+    /**
+     * Rewrite the create script and append the partition management.
+     *
+     * @param script
+     *            the generated create script, one statement per line
+     * @return the create script for a partitioned observation table
+     */
+    public String[] partition(String[] script) {
+        List<String> partitioned = new LinkedList<>();
+        boolean tableFound = false;
+        for (String statement : script) {
+            String lower = statement.toLowerCase(Locale.ROOT);
+            if (createTable.matcher(lower).find()) {
+                Matcher matcher = primaryKey.matcher(statement);
+                if (!matcher.find()) {
+                    throw new IllegalArgumentException("No primary key found for partitioned table " + table);
+                }
+                partitioned.add(statement.substring(0, matcher.start())
+                        + String.format("primary key (%s)) partition by range (%s)%s",
+                                addColumn(matcher.group(1)), column, matcher.group(2)));
+                idColumn = matcher.group(1).split(",")[0].trim();
+                tableFound = true;
+            } else if (referencingForeignKey.matcher(lower).matches()) {
+                LOGGER.debug("Omit foreign key referencing the partitioned table: {}", statement);
+                addReference(statement);
+            } else {
+                Matcher matcher = uniqueConstraint.matcher(statement);
+                if (lower.startsWith("alter table") && matcher.matches()) {
+                    partitioned.add(matcher.group(1) + addColumn(matcher.group(2)) + matcher.group(3));
+                } else {
+                    partitioned.add(statement);
+                }
+            }
+        }
+        if (!tableFound) {
+            throw new IllegalArgumentException("No create statement found for partitioned table " + table);
+        }
+        partitioned.addAll(getPartitionManagementScript());
+        return partitioned.toArray(new String[partitioned.size()]);
+    }
+
+    /**
+     * @return the statements creating the default partition, the partition
+     *         management functions and the initial partitions
+     */
+    public List<String> getPartitionManagementScript() {
+        String qualifiedTable = schema + table;
+        String defaultPartition = schema + quote(getPartitionName(DEFAULT_PARTITION_SUFFIX));
+        List<String> script = new LinkedList<>();
+        script.add(String.format("create table %s partition of %s default;", defaultPartition, qualifiedTable));
+        script.add(String.format("create or replace function %s%s(from_time timestamp with time zone, "
+                + "to_time timestamp with time zone) returns integer language plpgsql as $$ "
+                + "declare month_start timestamp with time zone := date_trunc('month', from_time); "
+                + "part_name text; created integer := 0; "
+                + "begin while month_start <= to_time loop "
+                + "part_name := '%s' || quote_ident('%s' || to_char(month_start, 'YYYYMM')); "
+                + "if to_regclass(part_name) is null then "
+                + "lock table %s in access exclusive mode; "
+                + "execute format('create table %%s (like %s including all)', part_name); "
+                + "execute format('with moved as (delete from %s where %s >= %%L and %s < %%L returning *) "
+                + "insert into %%s select * from moved', month_start, month_start + interval '1 month', "
+                + "part_name); "
+                + "execute format('alter table %s attach partition %%s for values from (%%L) to (%%L)', "
+                + "part_name, month_start, month_start + interval '1 month'); "
+                + "created := created + 1; end if; "
+                + "month_start := month_start + interval '1 month'; end loop; return created; end $$;",
+                schema, CREATE_PARTITIONS_FUNCTION, schema, getPartitionName(PARTITION_SUFFIX), defaultPartition,
+                qualifiedTable, defaultPartition, column, column, qualifiedTable));
+        script.add(String.format("create or replace function %s%s(older_than timestamp with time zone) "
+                + "returns integer language plpgsql as $$ "
+                + "declare part regclass; dropped integer := 0; "
+                + "begin for part in select i.inhrelid::regclass from pg_inherits i join pg_class c "
+                + "on c.oid = i.inhrelid where i.inhparent = '%s'::regclass and c.relname ~ '^%s[0-9]{6}$' "
+                + "and to_date(right(c.relname, 6), 'YYYYMM') + interval '1 month' <= older_than loop "
+                + "%sexecute format('drop table %%s', part); dropped := dropped + 1; end loop; "
+                + "return dropped; end $$;",
+                schema, DROP_PARTITIONS_FUNCTION, qualifiedTable, getPartitionName(PARTITION_SUFFIX),
+                getResetReferencesStatements()));
+        script.add(String.format("create or replace function %s%s() returns void language plpgsql as $$ "
+                + "begin perform %s%s(now(), now() + interval '%d months'); "
+                + "if %d > 0 then perform %s%s(date_trunc('month', now()) - interval '%d months'); end if; "
+                + "end $$;",
+                schema, MAINTAIN_PARTITIONS_FUNCTION, schema, CREATE_PARTITIONS_FUNCTION, monthsAhead,
+                retentionMonths, schema, DROP_PARTITIONS_FUNCTION, retentionMonths));
+        script.add(String.format("select %s%s();", schema, MAINTAIN_PARTITIONS_FUNCTION));
+        return script;
+    }
+
+    private String addColumn(String columns) {
+        for (String c : columns.split(",")) {
+            if (c.trim().equals(column)) {
+                return columns;
+            }
+        }
+        return columns + ", " + column;
+    }
+
+    private void addReference(String statement) {
+        Matcher matcher = foreignKeyColumns.matcher(statement);
+        if (matcher.matches()) {
+            String referenced = matcher.group(3) != null ? matcher.group(3).trim() : idColumn;
+            if (referenced != null) {
+                references.add(new Reference(matcher.group(1), matcher.group(2).trim(), referenced));
+                return;
+            }
+        }
+        LOGGER.warn("References of the omitted foreign key are not reset when partitions are dropped: {}",
+                statement);
+    }
+
+    /**
+     * @return the statements of the drop function setting the references to
+     *         the observations of the partition <code>part</code> to
+     *         <code>null</code>
+     */
+    private String getResetReferencesStatements() {
+        StringBuilder statements = new StringBuilder();
+        for (Reference reference : references) {
+            statements.append(String.format("execute format('update %s set %s = null where %s in "
+                    + "(select %s from %%s)', part); ", reference.table, reference.column, reference.column,
+                    reference.referencedColumn));
+        }
+        return statements.toString();
+    }
+
+    /**
+     * @return the name of the partition as stored in the catalog
+     */
+    private String getPartitionName(String suffix) {
+        if (isQuoted()) {
+            return table.substring(1, table.length() - 1) + suffix;
+        }
+        return (table + suffix).toLowerCase(Locale.ROOT);
+    }
+
+    private String quote(String name) {
+        return isQuoted() ? "\"" + name + "\"" : name;
+    }
+
+    private boolean isQuoted() {
+        return table.startsWith("\"") && table.endsWith("\"");
+    }
+
+    /**
+     * A column referencing the observation table.
+     */
+    private static final class Reference {
+        private final String table;
+        private final String column;
+        private final String referencedColumn;
+
+        Reference(String table, String column, String referencedColumn) {
+            this.table = table;
+            this.column = column;
+            this.referencedColumn = referencedColumn;
+        }
+    }
+
+}
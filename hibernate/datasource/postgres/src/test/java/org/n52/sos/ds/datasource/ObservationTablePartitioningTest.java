@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.datasource;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ObservationTablePartitioningTest {
+
+    private static final String[] SCRIPT = {
+        "create table dataset (id int8 not null, first_observation_id int8, primary key (id));",
+        "create table observation (id int8 not null, sampling_time_start timestamp not null, "
+                + "identifier varchar(255), primary key (id));",
+        "create index idx_sampling_time_start on observation (sampling_time_start);",
+        "alter table if exists observation add constraint un_observation_identifier unique (identifier);",
+        "alter table if exists observation add constraint fk_dataset foreign key (fk_dataset_id) references dataset;",
+        "alter table if exists dataset add constraint fk_first foreign key (first_observation_id) "
+                + "references observation;" };
+
+    private final ObservationTablePartitioning partitioning =
+            new ObservationTablePartitioning("public.", "observation", "sampling_time_start", 3, 12);
+
+    @Test
+    public void should_partition_observation_table() {
+        List<String> script = Arrays.asList(partitioning.partition(SCRIPT));
+        Assert.assertTrue(script.contains("create table observation (id int8 not null, sampling_time_start timestamp "
+                + "not null, identifier varchar(255), primary key (id, sampling_time_start)) "
+                + "partition by range (sampling_time_start);"));
+        Assert.assertTrue(script.contains("create table public.observation_default partition of "
+                + "public.observation default;"));
+        Assert.assertTrue(script.contains(SCRIPT[0]));
+        Assert.assertTrue(script.contains(SCRIPT[2]));
+    }
+
+    @Test
+    public void should_add_partition_column_to_unique_constraints() {
+        List<String> script = Arrays.asList(partitioning.partition(SCRIPT));
+        Assert.assertTrue(script.contains("alter table if exists observation add constraint un_observation_identifier "
+                + "unique (identifier, sampling_time_start);"));
+    }
+
+    @Test
+    public void should_omit_foreign_keys_referencing_observations() {
+        List<String> script = Arrays.asList(partitioning.partition(SCRIPT));
+        Assert.assertTrue(script.contains(SCRIPT[4]));
+        Assert.assertFalse(script.contains(SCRIPT[5]));
+    }
+
+    @Test
+    public void should_reset_references_before_dropping_partitions() {
+        String drop = Arrays.stream(partitioning.partition(SCRIPT))
+                .filter(statement -> statement.contains(ObservationTablePartitioning.DROP_PARTITIONS_FUNCTION + "("))
+                .findFirst().get();
+        Assert.assertTrue(drop, drop.contains("execute format('update dataset set first_observation_id = null "
+                + "where first_observation_id in (select id from %s)', part); execute format('drop table %s', part);"));
+    }
+
+    @Test
+    public void should_move_values_of_default_partition_to_new_partitions() {
+        String create = Arrays.stream(partitioning.partition(SCRIPT))
+                .filter(statement -> statement.contains(ObservationTablePartitioning.CREATE_PARTITIONS_FUNCTION + "("))
+                .findFirst().get();
+        Assert.assertFalse(create, create.contains("partition of public.observation for values"));
+        Assert.assertTrue(create, create.contains("lock table public.observation_default in access exclusive mode; "
+                + "execute format('create table %s (like public.observation including all)', part_name); "
+                + "execute format('with moved as (delete from public.observation_default where "
+                + "sampling_time_start >= %L and sampling_time_start < %L returning *) insert into %s select * "
+                + "from moved', month_start, month_start + interval '1 month', part_name); "
+                + "execute format('alter table public.observation attach partition %s for values from (%L) "
+                + "to (%L)', part_name, month_start, month_start + interval '1 month');"));
+    }
+
+    @Test
+    public void should_use_the_same_partition_names() {
+        List<String> script = new ObservationTablePartitioning("public.", "\"Observation\"", "sampling_time_start",
+                3, 12).getPartitionManagementScript();
+        Assert.assertTrue(script.contains("create table public.\"Observation_default\" partition of "
+                + "public.\"Observation\" default;"));
+        Assert.assertTrue(script.get(1), script.get(1).contains("part_name := 'public.' || "
+                + "quote_ident('Observation_p' || to_char(month_start, 'YYYYMM'));"));
+        Assert.assertTrue(script.get(2), script.get(2).contains("c.relname ~ '^Observation_p[0-9]{6}$'"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_fail_without_observation_table() {
+        partitioning.partition(new String[] { SCRIPT[0] });
+    }
+
+}
@@ -53,6 +53,7 @@ import org.n52.sos.ds.hibernate.util.HibernateConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
 
 /**
@@ -168,6 +169,11 @@ public abstract class AbstractSqlServerDatasource extends AbstractHibernateFullD
         return SQL_SERVER_DRIVER_CLASS;
     }
 
+    @Override
+    protected Map<String, String> getStatementCacheProperties() {
+        return ImmutableMap.of("disableStatementPooling", "false", "statementPoolingCacheSize", "250");
+    }
+
     @Override
     public boolean checkSchemaCreation(Map<String, Object> settings) {
         Connection conn = null;
@@ -110,6 +110,8 @@ public interface DeleteObservationHelper {
         }
         if (!modifiedDatasets.isEmpty()) {
             checkSeriesForFirstLatest(modifiedDatasets, session);
+            getDaoFactory().getQuantityRollupStore().invalidate(modifiedDatasets, session);
+            getDaoFactory().getDataAvailabilityExtentStore().invalidate(modifiedDatasets, session);
             if (isDeletePhysically()) {
                 // TODO select all parent ids -> delete childs -> delete parents
                 Set<Long> parents = getParents(modifiedDatasets, filters, temporalFilters, session);
@@ -248,8 +250,9 @@ public interface DeleteObservationHelper {
                 delete(observation, session);
             }
             if (!modifiedDatasets.isEmpty()) {
-                checkSeriesForFirstLatest(
-                        modifiedDatasets.stream().map(DatasetEntity::getId).collect(Collectors.toSet()), session);
+                Set<Long> datasetIds = modifiedDatasets.stream().map(DatasetEntity::getId).collect(Collectors.toSet());
+                checkSeriesForFirstLatest(datasetIds, session);
+                getDaoFactory().getDataAvailabilityExtentStore().invalidate(datasetIds, session);
             }
         } else {
             if (DeleteObservationConstants.NS_SOSDO_1_0.equals(request.getResponseFormat())) {
@@ -271,6 +274,10 @@ public interface DeleteObservationHelper {
                     delete(o, session);
                 }
             }
+            if (!observation.isDeleted()) {
+                getDaoFactory().getQuantityRollupStore().remove(observation.getDataset().getId(), observation,
+                        session);
+            }
             observation.setDeleted(true);
             session.saveOrUpdate(observation);
             if (isDeletePhysically()) {
@@ -331,6 +338,8 @@ public interface DeleteObservationHelper {
      */
     default void checkSeriesForFirstLatest(Collection<Long> serieses, Session session) throws OwsExceptionReport {
         if (!serieses.isEmpty()) {
+            // the stored observation ids may reference the deleted observations
+            getDaoFactory().getFirstLatestValueStore().remove(serieses);
             AbstractSeriesObservationDAO observationDAO = getDaoFactory().getObservationDAO();
             Map<Long, SeriesTimeExtrema> minMaxTimes = observationDAO.getMinMaxSeriesTimesById(
                     serieses instanceof Set ? (Set<Long>) serieses : new LinkedHashSet<>(serieses), session);
@@ -374,6 +383,7 @@ public interface DeleteObservationHelper {
                 if (update) {
                     session.saveOrUpdate(series);
                     session.flush();
+                    getDaoFactory().getFirstLatestValueStore().update(series, session);
                 }
             }
         }
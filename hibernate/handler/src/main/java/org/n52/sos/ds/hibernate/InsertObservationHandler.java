@@ -71,6 +71,8 @@ import org.n52.sos.ds.AbstractInsertObservationHandler;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.dao.observation.AbstractObservationDAO;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
+import org.n52.sos.metrics.MetricRegistry;
+import org.n52.sos.metrics.Timer;
 import org.n52.sos.service.SosSettings;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -85,8 +87,16 @@ import com.google.common.collect.Table.Cell;
 
 @Configurable
 public class InsertObservationHandler extends AbstractInsertObservationHandler implements Constructable {
+    public static final String METRIC_LOCK_HELD = "insertObservation.lock.held";
+
     private static final int FLUSH_THRESHOLD = 50;
 
+    private static final String METRIC_LOCK_WAIT = "insertObservation.lock.wait";
+
+    private static final String METRIC_FLUSHES = "insertObservation.flushes";
+
+    private static final String METRIC_OBSERVATIONS = "insertObservation.observations";
+
     private static final String CONSTRAINT_OBSERVATION_IDENTITY = "observationIdentity";
 
     private static final String CONSTRAINT_OBSERVATION_IDENTIFIER_IDENTITY = "obsIdentifierUK";
@@ -108,6 +118,8 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler i
     @Inject
     private DaoFactory daoFactory;
 
+    private MetricRegistry metricRegistry = new MetricRegistry();
+
     private HibernateSessionHolder sessionHolder;
 
     private boolean strictSpatialFilteringProfile;
@@ -124,6 +136,11 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler i
         this.sessionHolder = new HibernateSessionHolder(connectionProvider);
     }
 
+    @Inject
+    public void setMetricRegistry(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
     @Setting(SosSettings.STRICT_SPATIAL_FILTERING_PROFILE)
     public synchronized void setStrictSpatialFilteringProfile(final boolean strictSpatialFilteringProfile) {
         this.strictSpatialFilteringProfile = strictSpatialFilteringProfile;
@@ -139,7 +156,18 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler i
     }
 
     @Override
-    public synchronized InsertObservationResponse insertObservation(final InsertObservationRequest request)
+    public InsertObservationResponse insertObservation(final InsertObservationRequest request)
+            throws OwsExceptionReport {
+        long requested = System.nanoTime();
+        synchronized (this) {
+            metricRegistry.timer(METRIC_LOCK_WAIT).record(System.nanoTime() - requested);
+            try (Timer.Context timer = metricRegistry.timer(METRIC_LOCK_HELD).start()) {
+                return insertObservationLocked(request);
+            }
+        }
+    }
+
+    private InsertObservationResponse insertObservationLocked(final InsertObservationRequest request)
             throws OwsExceptionReport {
         final InsertObservationResponse response = new InsertObservationResponse();
         response.setService(request.getService());
@@ -173,6 +201,7 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler i
                 // flush every FLUSH_INTERVAL
                 if (++obsCount % FLUSH_THRESHOLD == 0) {
                     session.flush();
+                    metricRegistry.counter(METRIC_FLUSHES).increment();
                     session.clear();
                     cache.clearConstellation();
                 }
@@ -186,7 +215,9 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler i
             }
 
             session.flush();
+            metricRegistry.counter(METRIC_FLUSHES).increment();
             transaction.commit();
+            metricRegistry.counter(METRIC_OBSERVATIONS).add(obsCount);
         } catch (PersistenceException pe) {
             if (transaction != null) {
                 transaction.rollback();
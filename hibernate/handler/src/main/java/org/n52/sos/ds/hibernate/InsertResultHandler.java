@@ -28,12 +28,18 @@
  */
 package org.n52.sos.ds.hibernate;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.inject.Inject;
 
@@ -43,7 +49,9 @@ import org.hibernate.Transaction;
 import org.n52.faroe.annotation.Configurable;
 import org.n52.faroe.annotation.Setting;
 import org.n52.iceland.ds.ConnectionProvider;
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
 import org.n52.janmayen.lifecycle.Constructable;
+import org.n52.janmayen.lifecycle.Destroyable;
 import org.n52.series.db.beans.AbstractFeatureEntity;
 import org.n52.series.db.beans.CategoryEntity;
 import org.n52.series.db.beans.CodespaceEntity;
@@ -57,6 +65,9 @@ import org.n52.series.db.beans.UnitEntity;
 import org.n52.shetland.ogc.UoM;
 import org.n52.shetland.ogc.gml.AbstractFeature;
 import org.n52.shetland.ogc.gml.CodeWithAuthority;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
 import org.n52.shetland.ogc.om.MultiObservationValues;
 import org.n52.shetland.ogc.om.OmConstants;
 import org.n52.shetland.ogc.om.OmObservableProperty;
@@ -74,8 +85,6 @@ import org.n52.shetland.ogc.sensorML.SensorML;
 import org.n52.shetland.ogc.sos.Sos2Constants;
 import org.n52.shetland.ogc.sos.SosConstants;
 import org.n52.shetland.ogc.sos.SosProcedureDescription;
-import org.n52.shetland.ogc.sos.SosResultEncoding;
-import org.n52.shetland.ogc.sos.SosResultStructure;
 import org.n52.shetland.ogc.sos.request.InsertResultRequest;
 import org.n52.shetland.ogc.sos.response.InsertResultResponse;
 import org.n52.shetland.ogc.swe.SweAbstractDataComponent;
@@ -93,8 +102,12 @@ import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.dao.FormatDAO;
 import org.n52.sos.ds.hibernate.dao.observation.AbstractObservationDAO;
 import org.n52.sos.ds.hibernate.dao.observation.series.AbstractSeriesDAO;
+import org.n52.sos.ds.hibernate.util.BulkResultIngester;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
 import org.n52.sos.ds.hibernate.util.ResultHandlingHelper;
+import org.n52.sos.ds.hibernate.util.ResultTemplatePlan;
+import org.n52.sos.ds.hibernate.util.ResultTemplatePlanCache;
+import org.n52.sos.ds.hibernate.util.ResultValuesPipeline;
 import org.n52.sos.ds.hibernate.util.observation.ObservationUnfolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -110,11 +123,24 @@ import com.google.common.collect.Sets;
  *
  */
 @Configurable
-public class InsertResultHandler extends AbstractInsertResultHandler implements Constructable {
+public class InsertResultHandler extends AbstractInsertResultHandler implements Constructable, Destroyable {
 
     public static final String ABORT_INSERT_RESULT_FOR_EXISTING_OBSERVATIONS =
             "service.abortInsertResultForExistingObservations";
 
+    public static final String BULK_INGEST_ENABLED = "service.insertResult.bulkIngest.enabled";
+
+    public static final String BULK_INGEST_BATCH_SIZE = "service.insertResult.bulkIngest.batchSize";
+
+    public static final String PIPELINE_CHUNK_SIZE = "service.insertResult.pipeline.chunkSize";
+
+    public static final String PIPELINE_QUEUE_SIZE = "service.insertResult.pipeline.queueSize";
+
+    /**
+     * Boolean request extension to ingest the result values in bulk
+     */
+    public static final String BULK_INGEST = "bulkIngest";
+
     private static final Logger LOGGER = LoggerFactory.getLogger(InsertResultHandler.class);
 
     private static final int FLUSH_THRESHOLD = 50;
@@ -133,6 +159,22 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
 
     private ResultHandlingHelper helper;
 
+    private boolean bulkIngestEnabled;
+
+    private int bulkIngestBatchSize = 5000;
+
+    private BulkResultIngester bulkIngester;
+
+    private int pipelineChunkSize = 500;
+
+    private int pipelineQueueSize = 4;
+
+    private ExecutorService parserExecutor;
+
+    private ResultValuesPipeline pipeline;
+
+    private ResultTemplatePlanCache planCache = new ResultTemplatePlanCache();
+
     public InsertResultHandler() {
         super(SosConstants.SOS);
     }
@@ -141,6 +183,20 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
     public void init() {
         this.sessionHolder = new HibernateSessionHolder(connectionProvider);
         helper = new ResultHandlingHelper(getDaoFactory().getGeometryHandler(), getDaoFactory().getSweHelper());
+        this.parserExecutor =
+                Executors.newCachedThreadPool(new GroupedAndNamedThreadFactory("52n-insert-result-parser"));
+    }
+
+    @Inject
+    public void setResultTemplatePlanCache(ResultTemplatePlanCache planCache) {
+        this.planCache = planCache;
+    }
+
+    @Override
+    public void destroy() {
+        if (parserExecutor != null) {
+            parserExecutor.shutdownNow();
+        }
     }
 
     @Override
@@ -151,92 +207,42 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
         response.setVersion(request.getVersion());
         Session session = null;
         Transaction transaction = null;
-
-        Map<String, CodespaceEntity> codespaceCache = Maps.newHashMap();
-        Map<UoM, UnitEntity> unitCache = Maps.newHashMap();
-        Map<String, FormatEntity> formatCache = Maps.newHashMap();
-
         try {
             session = getHibernateSessionHolder().getSession();
             final ResultTemplateEntity resultTemplate = getDaoFactory().getResultTemplateDAO()
                     .getResultTemplateObject(request.getTemplateIdentifier(), session);
             transaction = session.beginTransaction();
-            final OmObservation o = getSingleObservationFromResultValues(response.getVersion(), resultTemplate,
-                    request.getResultValues(), session);
-            final List<OmObservation> observations = getSingleObservationsFromObservation(o);
-            if (o.getObservationConstellation().isSetFeatureOfInterest()
-                    && o.getObservationConstellation().isSetProcedure()) {
-                response.setObservation(o);
+            final ResultTemplatePlan plan = getPlan(resultTemplate, session);
+            final SweAbstractEncoding encoding = plan.getEncoding();
+            if (isBulkIngest(request)) {
+                OmObservation bulk = insertResultValuesInBulk(plan, resultTemplate, request.getResultValues(),
+                        session);
+                if (bulk != null) {
+                    response.setObservation(bulk);
+                    transaction.commit();
+                    return response;
+                }
+                LOGGER.debug("Result template {} can not be ingested in bulk, inserting observations.",
+                        request.getTemplateIdentifier());
+            }
+            final OmObservation template = plan.getObservationTemplate();
+            final ObservationInserter inserter = new ObservationInserter(plan, resultTemplate, session);
+            final ResultValuesPipeline.Parser<List<OmObservation>> parser =
+                    blocks -> getSingleObservationsFromObservation(createObservation(template, blocks, encoding));
+            if (isAssembledFromAllBlocks(template)) {
+                // profiles are grouped over all values, chunks would split them
+                getPipeline().processAtOnce(getBlocks(request.getResultValues(), encoding), parser,
+                        inserter::insert);
             } else {
-                response.setObservations(observations);
+                getPipeline().process(getBlocks(request.getResultValues(), encoding), parser, inserter::insert);
             }
-
-            final AbstractSeriesDAO obsConstDao = getDaoFactory().getSeriesDAO();
-            final FormatDAO obsTypeDao = getDaoFactory().getObservationTypeDAO();
-            Map<OmObservationConstellation, DatasetEntity> obsConsts = new HashMap<>();
-
-            int insertion = 0;
-            final int size = observations.size();
-            final AbstractObservationDAO observationDAO = getDaoFactory().getObservationDAO();
-            LOGGER.debug("Start saving {} observations.", size);
-            Map<String, AbstractFeatureEntity> featureEntityMap = new HashMap<>();
-            for (final OmObservation observation : observations) {
-                OmObservationConstellation omObsConst = observation.getObservationConstellation();
-                if (!obsConsts.containsKey(omObsConst)) {
-                    DatasetEntity oc = obsConstDao.getSeries(omObsConst, session);
-                    if (oc != null) {
-                        obsConsts.put(omObsConst, oc);
-                    } else if (isConvertComplexProfileToSingleProfiles() && observation.isSetValue()
-                            && observation.getValue().isSetValue()
-                            && observation.getValue().getValue() instanceof ProfileValue) {
-                        obsConsts.put(omObsConst, insertObservationConstellationForProfiles(obsConstDao, obsTypeDao,
-                                observation, session));
-                    }
-                }
-                DatasetEntity obsConst = obsConsts.get(observation.getObservationConstellation());
-                AbstractFeatureEntity feature = null;
-                if (resultTemplate.isSetFeature()) {
-                    feature = resultTemplate.getFeature();
-                } else {
-                    feature = getFeature(omObsConst.getFeatureOfInterest(), featureEntityMap, session);
-                    // if
-                    // (featureEntityMap.containsKey(omObsConst.getFeatureOfInterestIdentifier()))
-                    // {
-                    // feature =
-                    // featureEntityMap.get(omObsConst.getFeatureOfInterestIdentifier());
-                    // } else {
-                    // FeatureOfInterestDAO featureOfInterestDAO =
-                    // getDaoFactory() .getFeatureOfInterestDAO();
-                    // feature =
-                    // featureOfInterestDAO.checkOrInsert(omObsConst.getFeatureOfInterest(),
-                    // session);
-                    // featureOfInterestDAO.checkOrInsertRelatedFeatureRelation(feature,
-                    // obsConst.getOffering(), session);
-                    // featureEntityMap.put(feature.getIdentifier(), feature);
-                    // }
-                }
-                try {
-                    if (observation.getValue() instanceof SingleObservationValue) {
-                        observationDAO.insertObservationSingleValue(obsConst, feature, observation, codespaceCache,
-                                unitCache, formatCache, session);
-                    } else if (observation.getValue() instanceof MultiObservationValues) {
-                        observationDAO.insertObservationMultiValue(obsConst, feature, observation, codespaceCache,
-                                unitCache, formatCache, session);
-                    }
-                } catch (NoApplicableCodeException nace) {
-                    if (abortInsertResultForExistingObservations()) {
-                        throw nace;
-                    } else {
-                        LOGGER.debug("Already existing observation would be ignored!", nace);
-                    }
-                }
-                if ((++insertion % FLUSH_THRESHOLD) == 0) {
-                    session.flush();
-                    session.clear();
-                    LOGGER.debug("Saved {}/{} observations.", insertion, size);
-                }
+            if (template.getObservationConstellation().isSetFeatureOfInterest()
+                    && template.getObservationConstellation().isSetProcedure()) {
+                response.setObservation(inserter.summarize(template));
+            } else {
+                response.setObservations(inserter.getSummaries());
             }
-            LOGGER.debug("Saved {} observations.", size);
+            LOGGER.debug("Saved {} observations.", inserter.insertion);
             transaction.commit();
         } catch (final HibernateException he) {
             if (transaction != null) {
@@ -280,33 +286,75 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
     }
 
     /**
-     * Create OmObservation from result values
+     * Get the compiled plan of the result template, compiling it if it is not
+     * cached or outdated
+     *
+     * @param resultTemplate
+     *            The result template entity
+     * @param session
+     *            Hibernate session
+     * @return The plan of the result template
+     * @throws OwsExceptionReport
+     *             If the result structure or encoding is invalid
+     */
+    private ResultTemplatePlan getPlan(final ResultTemplateEntity resultTemplate, final Session session)
+            throws OwsExceptionReport {
+        return planCache.get(resultTemplate, () -> {
+            final SweAbstractEncoding encoding = createSosResultEncoding(resultTemplate.getEncoding()).get().get();
+            final SweAbstractDataComponent structure =
+                    createSosResultStructure(resultTemplate.getStructure()).get().get();
+            return new ResultTemplatePlan(resultTemplate, encoding, structure,
+                    getObservationTemplate(resultTemplate, structure, encoding, session));
+        });
+    }
+
+    /**
+     * Lazily split the result values into blocks
+     *
+     * @param resultValues
+     *            Result values
+     * @param encoding
+     *            ResultEncoding
+     * @return Block iterator
+     */
+    private Iterator<String> getBlocks(final String resultValues, final SweAbstractEncoding encoding) {
+        if (encoding instanceof SweTextEncoding) {
+            final SweTextEncoding textEncoding = (SweTextEncoding) encoding;
+            return ResultValuesPipeline.blocks(resultValues, textEncoding.getBlockSeparator(),
+                    textEncoding.getTokenSeparator());
+        }
+        return Collections.emptyIterator();
+    }
+
+    /**
+     * Write the result values directly via JDBC, bypassing the creation of
+     * observation entities
      *
-     * @param version
-     *            Service version
+     * @param plan
+     *            Plan of the result template
      * @param resultTemplate
      *            Associated result template
      * @param resultValues
      *            Result values
      * @param session
      *            Hibernate session
-     * @return OmObservation from result values
+     * @return Observation summarizing the inserted values or <code>null</code>
+     *         if the template is not supported
      * @throws OwsExceptionReport
      *             If an error occurs during the processing
      */
-    private OmObservation getSingleObservationFromResultValues(final String version,
-            final ResultTemplateEntity resultTemplate, final String resultValues, final Session session)
-            throws OwsExceptionReport {
-        final SosResultEncoding resultEncoding = createSosResultEncoding(resultTemplate.getEncoding());
-        final SosResultStructure resultStructure = createSosResultStructure(resultTemplate.getStructure());
-        final String[] blockValues = getBlockValues(resultValues, resultEncoding.get().get());
-        final OmObservation singleObservation = getObservation(resultTemplate, blockValues,
-                resultStructure.get().get(), resultEncoding.get().get(), session);
-        // final AbstractFeature feature =
-        // getSosAbstractFeature(resultTemplate.getFeatureOfInterest(), version,
-        // session);
-        // singleObservation.getObservationConstellation().setFeatureOfInterest(feature);
-        return singleObservation;
+    private OmObservation insertResultValuesInBulk(ResultTemplatePlan plan, ResultTemplateEntity resultTemplate,
+            String resultValues, Session session) throws OwsExceptionReport {
+        final SweAbstractEncoding encoding = plan.getEncoding();
+        if (!(encoding instanceof SweTextEncoding)) {
+            return null;
+        }
+        return getBulkIngester().ingest(plan, resultTemplate, getBlocks(resultValues, encoding),
+                ((SweTextEncoding) encoding).getTokenSeparator(), getPipeline(), session);
+    }
+
+    private boolean isBulkIngest(InsertResultRequest request) {
+        return isBulkIngestEnabled() && request.hasExtension(BULK_INGEST) && request.getBooleanExtension(BULK_INGEST);
     }
 
     /**
@@ -322,9 +370,10 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
     protected List<OmObservation> getSingleObservationsFromObservation(final OmObservation observation)
             throws OwsExceptionReport {
         try {
-
-            return new ObservationUnfolder(observation, getDaoFactory().getSweHelper(),
-                    getDaoFactory().getGeometryHandler()).unfold(isConvertComplexProfileToSingleProfiles());
+            // called from the parser thread while insertResult() holds the lock,
+            // so the synchronized getDaoFactory() must not be used here
+            return new ObservationUnfolder(observation, daoFactory.getSweHelper(), daoFactory.getGeometryHandler())
+                    .unfold(isConvertComplexProfileToSingleProfiles());
         } catch (final Exception e) {
             throw new InvalidParameterValueException().causedBy(e).at(Sos2Constants.InsertResultParams.resultValues)
                     .withMessage(
@@ -382,23 +431,21 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
     }
 
     /**
-     * Get internal observation
+     * Get internal observation without values, validating the result structure
      *
      * @param resultTemplate
      *            Associated ResultTemplate
-     * @param blockValues
-     *            Block values from result values
      * @param resultStructure
      *            Associated ResultStructure
      * @param encoding
      *            Associated ResultEncoding
      * @param session
      *            Hibernate session
-     * @return Internal observation
+     * @return Internal observation without values
      * @throws OwsExceptionReport
      *             If processing fails
      */
-    private OmObservation getObservation(final ResultTemplateEntity resultTemplate, final String[] blockValues,
+    private OmObservation getObservationTemplate(final ResultTemplateEntity resultTemplate,
             final SweAbstractDataComponent resultStructure, final SweAbstractEncoding encoding, final Session session)
             throws OwsExceptionReport {
         final int resultTimeIndex = helper.hasResultTime(resultStructure);
@@ -415,13 +462,34 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
         getIndexFor(record, j, observedProperties, units, featureOfInterest, procedure,
                 Sets.newHashSet(resultTimeIndex, phenomenonTimeIndex), encoding);
 
-        final MultiObservationValues<SweDataArray> sosValues =
-                createObservationValueFrom(blockValues, record, encoding, resultTimeIndex, phenomenonTimeIndex);
-
         final OmObservation observation = new OmObservation();
         observation.setObservationConstellation(getSosObservationConstellation(resultTemplate, session));
         observation.setResultType(OmConstants.OBS_TYPE_SWE_ARRAY_OBSERVATION);
-        observation.setValue(sosValues);
+        observation.setValue(createObservationValueFrom(Collections.emptyList(), record, encoding));
+        return observation;
+    }
+
+    /**
+     * Create internal observation for a chunk of blocks
+     *
+     * @param template
+     *            Observation template
+     * @param blockValues
+     *            Block values from result values
+     * @param encoding
+     *            Associated ResultEncoding
+     * @return Internal observation
+     * @throws OwsExceptionReport
+     *             If processing fails
+     */
+    private OmObservation createObservation(final OmObservation template, final List<String> blockValues,
+            final SweAbstractEncoding encoding) throws OwsExceptionReport {
+        final SweAbstractDataComponent record = ((SweDataArrayValue) template.getValue().getValue()).getValue()
+                .getElementType();
+        final OmObservation observation = new OmObservation();
+        observation.setObservationConstellation(template.getObservationConstellation());
+        observation.setResultType(template.getResultType());
+        observation.setValue(createObservationValueFrom(blockValues, record, encoding));
         return observation;
     }
 
@@ -485,17 +553,10 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
      *            Associated ResultStructure
      * @param encoding
      *            Associated Result encoding
-     * @param resultTimeIndex
-     *            Result time position
-     * @param phenomenonTimeIndex
-     *            Phenomenon time positions
      * @return Internal observation value
-     * @throws OwsExceptionReport
-     *             If processing fails
      */
-    private MultiObservationValues<SweDataArray> createObservationValueFrom(final String[] blockValues,
-            final SweAbstractDataComponent recordFromResultStructure, final SweAbstractEncoding encoding,
-            final int resultTimeIndex, final int phenomenonTimeIndex) throws OwsExceptionReport {
+    private MultiObservationValues<SweDataArray> createObservationValueFrom(final List<String> blockValues,
+            final SweAbstractDataComponent recordFromResultStructure, final SweAbstractEncoding encoding) {
         final SweDataArray dataArray = new SweDataArray();
         dataArray.setElementType(recordFromResultStructure);
         dataArray.setEncoding(encoding);
@@ -533,47 +594,6 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
         return null;
     }
 
-    /**
-     * Get block values from result values
-     *
-     * @param resultValues
-     *            Result values
-     * @param encoding
-     *            ResultEncoding
-     * @return Block value array
-     */
-    private String[] getBlockValues(final String resultValues, final SweAbstractEncoding encoding) {
-        if (encoding instanceof SweTextEncoding) {
-            final SweTextEncoding textEncoding = (SweTextEncoding) encoding;
-            final String[] blockValues = separateValues(resultValues, textEncoding.getBlockSeparator());
-            return checkForCountValue(blockValues, textEncoding.getTokenSeparator());
-        }
-        return null;
-    }
-
-    /**
-     * Check if the block values from result values contains a preceding count
-     * value
-     *
-     * @param blockValues
-     *            Block values from result values
-     * @param tokenSeparator
-     *            Token separator
-     * @return Block value array without preceding count value
-     */
-    private String[] checkForCountValue(final String[] blockValues, final String tokenSeparator) {
-        if (blockValues != null && blockValues.length > 0) {
-            if (blockValues[0].contains(tokenSeparator)) {
-                return blockValues;
-            } else {
-                final String[] blockValuesWithoutCount = new String[blockValues.length - 1];
-                System.arraycopy(blockValues, 1, blockValuesWithoutCount, 0, blockValuesWithoutCount.length);
-                return blockValuesWithoutCount;
-            }
-        }
-        return null;
-    }
-
     /**
      * Separate values from String with separator
      *
@@ -615,6 +635,53 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
         return this.convertComplexProfileToSingleProfiles;
     }
 
+    @Setting(BULK_INGEST_ENABLED)
+    public void setBulkIngestEnabled(boolean bulkIngestEnabled) {
+        this.bulkIngestEnabled = bulkIngestEnabled;
+    }
+
+    private boolean isBulkIngestEnabled() {
+        return bulkIngestEnabled;
+    }
+
+    @Setting(BULK_INGEST_BATCH_SIZE)
+    public synchronized void setBulkIngestBatchSize(int bulkIngestBatchSize) {
+        this.bulkIngestBatchSize = bulkIngestBatchSize;
+        this.bulkIngester = null;
+    }
+
+    @Setting(PIPELINE_CHUNK_SIZE)
+    public synchronized void setPipelineChunkSize(int pipelineChunkSize) {
+        this.pipelineChunkSize = pipelineChunkSize;
+        this.pipeline = null;
+    }
+
+    @Setting(PIPELINE_QUEUE_SIZE)
+    public synchronized void setPipelineQueueSize(int pipelineQueueSize) {
+        this.pipelineQueueSize = pipelineQueueSize;
+        this.pipeline = null;
+    }
+
+    private boolean isAssembledFromAllBlocks(OmObservation template) {
+        String observationType = template.getObservationConstellation().getObservationType();
+        return OmConstants.OBS_TYPE_PROFILE_OBSERVATION.equals(observationType)
+                || OmConstants.OBS_TYPE_COMPLEX_OBSERVATION.equals(observationType);
+    }
+
+    private synchronized ResultValuesPipeline getPipeline() {
+        if (pipeline == null) {
+            pipeline = new ResultValuesPipeline(parserExecutor, pipelineChunkSize, pipelineQueueSize);
+        }
+        return pipeline;
+    }
+
+    private synchronized BulkResultIngester getBulkIngester() {
+        if (bulkIngester == null) {
+            bulkIngester = new BulkResultIngester(getDaoFactory(), bulkIngestBatchSize);
+        }
+        return bulkIngester;
+    }
+
     private synchronized DaoFactory getDaoFactory() {
         return daoFactory;
     }
@@ -632,6 +699,125 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
         return abortInsertResultForExistingObservations;
     }
 
+    /**
+     * Persisting stage of the InsertResult pipeline. Inserts the unfolded
+     * observations and keeps one summarizing observation per observation
+     * constellation for the content cache update.
+     */
+    private class ObservationInserter {
+        private final ResultTemplatePlan plan;
+        private final ResultTemplateEntity resultTemplate;
+        private final Session session;
+        private final Map<String, CodespaceEntity> codespaceCache = Maps.newHashMap();
+        private final Map<UoM, UnitEntity> unitCache = Maps.newHashMap();
+        private final Map<String, FormatEntity> formatCache = Maps.newHashMap();
+        private final Map<OmObservationConstellation, DatasetEntity> obsConsts = new HashMap<>();
+        private final Map<String, AbstractFeatureEntity> featureEntityMap = new HashMap<>();
+        private final Map<OmObservationConstellation, OmObservation> summaries = new LinkedHashMap<>();
+        private final AbstractSeriesDAO obsConstDao = getDaoFactory().getSeriesDAO();
+        private final FormatDAO obsTypeDao = getDaoFactory().getObservationTypeDAO();
+        private final AbstractObservationDAO observationDAO = getDaoFactory().getObservationDAO();
+        private int insertion;
+
+        ObservationInserter(ResultTemplatePlan plan, ResultTemplateEntity resultTemplate, Session session) {
+            this.plan = plan;
+            this.resultTemplate = resultTemplate;
+            this.session = session;
+        }
+
+        void insert(List<OmObservation> observations) throws OwsExceptionReport {
+            for (final OmObservation observation : observations) {
+                OmObservationConstellation omObsConst = observation.getObservationConstellation();
+                if (!obsConsts.containsKey(omObsConst)) {
+                    DatasetEntity oc = plan.getDataset(omObsConst, session);
+                    if (oc == null) {
+                        oc = obsConstDao.getSeries(omObsConst, session);
+                        plan.setDataset(omObsConst, oc);
+                    }
+                    if (oc != null) {
+                        obsConsts.put(omObsConst, oc);
+                    } else if (isConvertComplexProfileToSingleProfiles() && observation.isSetValue()
+                            && observation.getValue().isSetValue()
+                            && observation.getValue().getValue() instanceof ProfileValue) {
+                        obsConsts.put(omObsConst, insertObservationConstellationForProfiles(obsConstDao, obsTypeDao,
+                                observation, session));
+                    }
+                }
+                DatasetEntity obsConst = obsConsts.get(observation.getObservationConstellation());
+                AbstractFeatureEntity feature = null;
+                if (resultTemplate.isSetFeature()) {
+                    feature = resultTemplate.getFeature();
+                } else {
+                    feature = getFeature(omObsConst.getFeatureOfInterest(), featureEntityMap, session);
+                }
+                try {
+                    if (observation.getValue() instanceof SingleObservationValue) {
+                        observationDAO.insertObservationSingleValue(obsConst, feature, observation, codespaceCache,
+                                unitCache, formatCache, session);
+                    } else if (observation.getValue() instanceof MultiObservationValues) {
+                        observationDAO.insertObservationMultiValue(obsConst, feature, observation, codespaceCache,
+                                unitCache, formatCache, session);
+                    }
+                } catch (NoApplicableCodeException nace) {
+                    if (abortInsertResultForExistingObservations()) {
+                        throw nace;
+                    } else {
+                        LOGGER.debug("Already existing observation would be ignored!", nace);
+                    }
+                }
+                summarize(observation);
+                if ((++insertion % FLUSH_THRESHOLD) == 0) {
+                    session.flush();
+                    session.clear();
+                    LOGGER.debug("Saved {} observations.", insertion);
+                }
+            }
+        }
+
+        private void summarize(OmObservation observation) {
+            OmObservation summary = summaries.get(observation.getObservationConstellation());
+            if (summary == null) {
+                summary = new OmObservation();
+                summary.setObservationConstellation(observation.getObservationConstellation());
+                summary.setResultType(observation.getResultType());
+                summaries.put(observation.getObservationConstellation(), summary);
+            }
+            extend(summary, observation.getPhenomenonTime(), observation.getResultTime());
+        }
+
+        private void extend(OmObservation summary, Time phenomenonTime, TimeInstant resultTime) {
+            if (phenomenonTime != null) {
+                TimePeriod period = summary.getPhenomenonTime() instanceof TimePeriod
+                        ? (TimePeriod) summary.getPhenomenonTime()
+                        : new TimePeriod();
+                period.extendToContain(phenomenonTime);
+                summary.setPhenomenonTime(period);
+            }
+            if (resultTime != null && resultTime.getValue() != null && (summary.getResultTime() == null
+                    || resultTime.getValue().isAfter(summary.getResultTime().getValue()))) {
+                summary.setResultTime(resultTime);
+            }
+        }
+
+        /**
+         * @param template
+         *            the observation template of the result template
+         * @return the template with the time extent of all inserted
+         *         observations
+         */
+        OmObservation summarize(OmObservation template) {
+            OmObservation summary = new OmObservation();
+            summary.setObservationConstellation(template.getObservationConstellation());
+            summary.setResultType(template.getResultType());
+            summaries.values().forEach(s -> extend(summary, s.getPhenomenonTime(), s.getResultTime()));
+            return summary;
+        }
+
+        List<OmObservation> getSummaries() {
+            return new ArrayList<>(summaries.values());
+        }
+    }
+
     @VisibleForTesting
     protected synchronized void initForTesting(DaoFactory daoFactory, ConnectionProvider connectionProvider) {
         this.daoFactory = daoFactory;
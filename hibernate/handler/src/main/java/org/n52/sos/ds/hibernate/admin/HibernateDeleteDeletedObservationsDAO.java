@@ -28,56 +28,241 @@
  */
 package org.n52.sos.ds.hibernate.admin;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import javax.inject.Inject;
 
 import org.hibernate.Criteria;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.n52.faroe.ConfigurationError;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
 import org.n52.iceland.ds.ConnectionProvider;
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
+import org.n52.janmayen.lifecycle.Constructable;
+import org.n52.janmayen.lifecycle.Destroyable;
 import org.n52.series.db.beans.DataEntity;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.sos.ds.DeleteDeletedObservationDAO;
 import org.n52.sos.ds.hibernate.HibernateSessionHolder;
+import org.n52.sos.ds.hibernate.InsertObservationHandler;
+import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
-import org.n52.sos.ds.hibernate.util.ScrollableIterable;
+import org.n52.sos.metrics.MetricRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Deletes the observations flagged as deleted in the background. The
+ * observations are deleted in batches, each in its own transaction, so that
+ * the observation table is not locked for the whole deletion. The pause
+ * between two batches is adjusted by the {@link InsertLatencyThrottle} to the
+ * latency of concurrent inserts.
+ *
  * @author <a href="mailto:c.autermann@52north.org">Christian Autermann</a>
  *
  * @since 4.0.0
  */
-public class HibernateDeleteDeletedObservationsDAO implements DeleteDeletedObservationDAO {
+@Configurable
+public class HibernateDeleteDeletedObservationsDAO
+        implements DeleteDeletedObservationDAO, Constructable, Destroyable {
+
+    public static final String BATCH_SIZE = "service.deleteDeletedObservations.batchSize";
+
+    public static final String MAX_INSERT_LATENCY = "service.deleteDeletedObservations.maxInsertLatency";
 
     private static final Logger LOG = LoggerFactory.getLogger(HibernateDeleteDeletedObservationsDAO.class);
+
     private HibernateSessionHolder sessionHolder;
 
+    private MetricRegistry metricRegistry = new MetricRegistry();
+
+    private DaoFactory daoFactory;
+
+    private ExecutorService executor;
+
+    private int batchSize = 1000;
+
+    private int maxInsertLatency = 500;
+
+    private volatile DeletionState state = DeletionState.IDLE;
+
+    private volatile long total;
+
+    private volatile long deleted;
+
+    private volatile long batches;
+
+    private volatile long start;
+
+    private volatile long end;
+
+    private volatile long throttle;
+
+    private volatile String message;
+
     @Inject
     public void setConnectionProvider(ConnectionProvider connectionProvider) {
         this.sessionHolder = new HibernateSessionHolder(connectionProvider);
     }
 
+    @Inject
+    public void setMetricRegistry(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    @Inject
+    public void setDaoFactory(DaoFactory daoFactory) {
+        this.daoFactory = daoFactory;
+    }
+
+    @Setting(BATCH_SIZE)
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new ConfigurationError("The batch size to delete deleted observations has to be positive!");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param maxInsertLatency
+     *            the mean insert latency in milliseconds above which the
+     *            deletion is throttled, <code>0</code> disables the
+     *            throttling
+     */
+    @Setting(MAX_INSERT_LATENCY)
+    public void setMaxInsertLatency(int maxInsertLatency) {
+        this.maxInsertLatency = Math.max(0, maxInsertLatency);
+    }
+
+    @Override
+    public synchronized void init() {
+        this.executor = Executors.newSingleThreadExecutor(
+                new GroupedAndNamedThreadFactory("52n-delete-deleted-observations"));
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    @Override
+    public synchronized void deleteDeletedObservations() throws OwsExceptionReport {
+        if (state == DeletionState.CANCELLING) {
+            state = DeletionState.RUNNING;
+        }
+        if (state.isActive() || executor == null) {
+            return;
+        }
+        try {
+            this.total = count();
+        } catch (HibernateException he) {
+            throw new NoApplicableCodeException().causedBy(he)
+                    .withMessage("Error while counting the deleted observations");
+        }
+        this.deleted = 0;
+        this.batches = 0;
+        this.throttle = 0;
+        this.message = null;
+        this.start = System.currentTimeMillis();
+        this.end = 0;
+        this.state = DeletionState.RUNNING;
+        LOG.info("Deleting {} deleted observations in batches of {}", total, batchSize);
+        executor.execute(this::run);
+    }
+
+    @Override
+    public DeletionProgress getProgress() {
+        long duration = (state.isActive() ? System.currentTimeMillis() : end) - start;
+        return new DeletionProgress(state, total, deleted, batches, start > 0 ? duration : 0, throttle, message);
+    }
+
     @Override
-    public void deleteDeletedObservations() throws OwsExceptionReport {
+    public synchronized boolean cancel() {
+        if (state == DeletionState.RUNNING) {
+            state = DeletionState.CANCELLING;
+            return true;
+        }
+        return false;
+    }
+
+    private void run() {
+        InsertLatencyThrottle latency = new InsertLatencyThrottle(
+                metricRegistry.timer(InsertObservationHandler.METRIC_LOCK_HELD), maxInsertLatency);
+        try {
+            int count;
+            do {
+                if (state == DeletionState.CANCELLING || Thread.currentThread().isInterrupted()) {
+                    finish(DeletionState.CANCELLED, null);
+                    return;
+                }
+                count = deleteBatch();
+                deleted += count;
+                batches++;
+                throttle = latency.next();
+                if (throttle > 0 && count == batchSize) {
+                    LOG.debug("Insert latency exceeds {} ms, pausing deletion for {} ms", maxInsertLatency,
+                            throttle);
+                    Thread.sleep(throttle);
+                }
+            } while (count == batchSize);
+            finish(DeletionState.FINISHED, null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finish(DeletionState.CANCELLED, null);
+        } catch (HibernateException e) {
+            LOG.error("Error while deleting deleted observations", e);
+            finish(DeletionState.FAILED, e.getMessage());
+        }
+    }
+
+    private synchronized void finish(DeletionState finalState, String error) {
+        this.end = System.currentTimeMillis();
+        this.throttle = 0;
+        this.message = error;
+        this.state = finalState;
+        LOG.info("Deletion of deleted observations {}: {} observations in {} batches", finalState.name()
+                .toLowerCase(), deleted, batches);
+    }
+
+    private int deleteBatch() {
         Session session = null;
         Transaction transaction = null;
         try {
             session = sessionHolder.getSession();
             transaction = session.beginTransaction();
-            ScrollableIterable<DataEntity<?>> sr = ScrollableIterable.fromCriteria(getCriteria(session));
-            try {
-                for (DataEntity<?> o : sr) {
-                    session.delete(o);
+            @SuppressWarnings("unchecked")
+            List<DataEntity<?>> observations = getCriteria(session)
+                    .addOrder(Order.asc(DataEntity.PROPERTY_ID))
+                    .setMaxResults(batchSize)
+                    .list();
+            Set<Long> datasets = new HashSet<>();
+            for (DataEntity<?> o : observations) {
+                if (o.getDataset() != null) {
+                    datasets.add(o.getDataset().getId());
                 }
-            } finally {
-                sr.close();
+                session.delete(o);
             }
-
             session.flush();
+            if (daoFactory != null) {
+                daoFactory.getFirstLatestValueStore().remove(datasets);
+                daoFactory.getDataAvailabilityExtentStore().invalidate(datasets, session);
+            }
             transaction.commit();
+            return observations.size();
         } catch (HibernateException he) {
             if (transaction != null) {
                 transaction.rollback();
@@ -88,6 +273,17 @@ public class HibernateDeleteDeletedObservationsDAO implements DeleteDeletedObser
         }
     }
 
+    private long count() {
+        Session session = null;
+        try {
+            session = sessionHolder.getSession();
+            Object count = getCriteria(session).setProjection(Projections.rowCount()).uniqueResult();
+            return count instanceof Number ? ((Number) count).longValue() : 0;
+        } finally {
+            sessionHolder.returnSession(session);
+        }
+    }
+
     /**
      * Get Hibernate Criteria for deleted observations and supported concept
      *
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.admin;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+import javax.inject.Inject;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.n52.iceland.ds.ConnectionProvider;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.ds.ObservationIndexDAO;
+import org.n52.sos.ds.hibernate.HibernateSessionHolder;
+import org.n52.sos.ds.hibernate.util.ObservationIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Checks the indexes of the mapped observation table against the
+ * {@link ObservationIndex}es using the JDBC database metadata.
+ */
+public class HibernateObservationIndexDAO implements ObservationIndexDAO {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HibernateObservationIndexDAO.class);
+
+    private HibernateSessionHolder sessionHolder;
+
+    @Inject
+    public void setConnectionProvider(ConnectionProvider connectionProvider) {
+        this.sessionHolder = new HibernateSessionHolder(connectionProvider);
+    }
+
+    @Override
+    public List<IndexState> checkIndexes() throws OwsExceptionReport {
+        Session session = null;
+        try {
+            session = sessionHolder.getSession();
+            SessionFactoryImplementor factory = session.getSessionFactory().unwrap(SessionFactoryImplementor.class);
+            EntityPersister entityPersister = factory.getMetamodel().entityPersister(DataEntity.class);
+            if (!(entityPersister instanceof AbstractEntityPersister)) {
+                throw new NoApplicableCodeException().withMessage("The observation table mapping is not supported!");
+            }
+            AbstractEntityPersister persister = (AbstractEntityPersister) entityPersister;
+            Dialect dialect = factory.getJdbcServices().getDialect();
+            String table = persister.getTableName();
+            Function<String, String> columns = property -> getColumn(persister, property);
+            String notDeleted = ObservationIndex.getNotDeletedCondition(dialect,
+                    getColumn(persister, DataEntity.PROPERTY_DELETED),
+                    persister.getPropertyType(DataEntity.PROPERTY_DELETED));
+            Map<String, List<String>> existing = session.doReturningWork(
+                    connection -> getIndexes(connection.getMetaData(), connection.getCatalog(), table));
+            List<IndexState> states = new LinkedList<>();
+            for (ObservationIndex index : ObservationIndex.values()) {
+                try {
+                    boolean present = existing.values().stream().anyMatch(c -> index.isProvidedBy(c, columns));
+                    states.add(new IndexState(index.getName(), present,
+                            index.getCreateStatement(dialect, table, columns, notDeleted)));
+                } catch (HibernateException e) {
+                    LOG.debug("Observation index {} is not supported by the mapping: {}", index.getName(),
+                            e.getMessage());
+                }
+            }
+            return states;
+        } catch (HibernateException he) {
+            throw new NoApplicableCodeException().causedBy(he).withMessage("Error while checking the indexes!");
+        } finally {
+            sessionHolder.returnSession(session);
+        }
+    }
+
+    private String getColumn(AbstractEntityPersister persister, String property) {
+        if (property.equals(persister.getIdentifierPropertyName())) {
+            return persister.getIdentifierColumnNames()[0];
+        }
+        return persister.getPropertyColumnNames(property)[0];
+    }
+
+    private Map<String, List<String>> getIndexes(DatabaseMetaData metaData, String catalog, String qualifiedTable)
+            throws SQLException {
+        String table = qualifiedTable.replaceAll("[\"`\\[\\]]", "");
+        String schema = null;
+        if (table.contains(".")) {
+            schema = table.substring(0, table.lastIndexOf('.'));
+            table = table.substring(table.lastIndexOf('.') + 1);
+        }
+        Map<String, List<String>> indexes = getIndexes(metaData, catalog, schema, table);
+        if (indexes.isEmpty() && metaData.storesUpperCaseIdentifiers()) {
+            indexes = getIndexes(metaData, catalog, schema != null ? schema.toUpperCase(Locale.ROOT) : null,
+                    table.toUpperCase(Locale.ROOT));
+        } else if (indexes.isEmpty() && metaData.storesLowerCaseIdentifiers()) {
+            indexes = getIndexes(metaData, catalog, schema != null ? schema.toLowerCase(Locale.ROOT) : null,
+                    table.toLowerCase(Locale.ROOT));
+        }
+        return indexes;
+    }
+
+    private Map<String, List<String>> getIndexes(DatabaseMetaData metaData, String catalog, String schema,
+            String table) throws SQLException {
+        Map<String, List<String>> indexes = new LinkedHashMap<>();
+        try (ResultSet rs = metaData.getIndexInfo(catalog, schema, table, false, true)) {
+            while (rs.next()) {
+                String name = rs.getString("INDEX_NAME");
+                String column = rs.getString("COLUMN_NAME");
+                if (name != null && column != null && rs.getShort("TYPE") != DatabaseMetaData.tableIndexStatistic) {
+                    // rows are ordered by index name and ordinal position
+                    indexes.computeIfAbsent(name, n -> new ArrayList<>()).add(column);
+                }
+            }
+        }
+        return indexes;
+    }
+
+}
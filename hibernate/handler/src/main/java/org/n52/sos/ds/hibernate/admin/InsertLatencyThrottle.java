@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.admin;
+
+import java.util.concurrent.TimeUnit;
+
+import org.n52.sos.metrics.Timer;
+
+/**
+ * Calculates the pause of a background task between two batches from the
+ * insert latency. The mean latency of the inserts recorded by the timer since
+ * the last batch is compared to the maximum latency: if it is exceeded the
+ * pause is doubled, otherwise it is halved.
+ */
+public class InsertLatencyThrottle {
+
+    static final long MIN_PAUSE = 100;
+
+    static final long MAX_PAUSE = 10000;
+
+    private final Timer timer;
+
+    private final long maxLatency;
+
+    private long count;
+
+    private long total;
+
+    private long pause;
+
+    /**
+     * @param timer
+     *            the timer recording the insert durations
+     * @param maxLatency
+     *            the maximum mean insert latency in milliseconds,
+     *            <code>0</code> disables the throttling
+     */
+    public InsertLatencyThrottle(Timer timer, long maxLatency) {
+        this.timer = timer;
+        this.maxLatency = maxLatency;
+        this.count = timer.getCount();
+        this.total = timer.getTotal(TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Calculate the pause before the next batch from the inserts since the
+     * last call.
+     *
+     * @return the pause in milliseconds
+     */
+    public long next() {
+        long currentCount = timer.getCount();
+        long currentTotal = timer.getTotal(TimeUnit.NANOSECONDS);
+        long inserts = currentCount - count;
+        long latency = inserts > 0 ? TimeUnit.NANOSECONDS.toMillis((currentTotal - total) / inserts) : 0;
+        this.count = currentCount;
+        this.total = currentTotal;
+        if (maxLatency > 0 && latency > maxLatency) {
+            pause = Math.min(MAX_PAUSE, Math.max(MIN_PAUSE, pause * 2));
+        } else {
+            pause = pause / 2 < MIN_PAUSE ? 0 : pause / 2;
+        }
+        return pause;
+    }
+
+    /**
+     * @return the current pause in milliseconds
+     */
+    public long getPause() {
+        return pause;
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.admin;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import javax.inject.Inject;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.iceland.ds.ConnectionProvider;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.sos.ds.hibernate.HibernateSessionHolder;
+import org.n52.sos.ds.hibernate.util.AbstractScheduledJob;
+import org.n52.sos.ds.hibernate.util.HibernateHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Background job maintaining the monthly partitions of an observation table
+ * created partitioned by the PostgreSQL datasource. The job calls the
+ * maintenance function of the partitioned table, which creates the partitions
+ * ahead and drops the partitions older than the retention period. Other
+ * databases and observation tables without the maintenance function are
+ * skipped.
+ */
+@Configurable
+public class ObservationPartitionMaintenanceJob extends AbstractScheduledJob {
+
+    public static final String INTERVAL = "service.observation.partitioning.interval";
+
+    public static final String MAINTAIN_PARTITIONS_FUNCTION = "sos_maintain_observation_partitions";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ObservationPartitionMaintenanceJob.class);
+
+    private HibernateSessionHolder sessionHolder;
+
+    public ObservationPartitionMaintenanceJob() {
+        super("52n-observation-partition-maintenance");
+    }
+
+    @Inject
+    public void setConnectionProvider(ConnectionProvider connectionProvider) {
+        this.sessionHolder = new HibernateSessionHolder(connectionProvider);
+    }
+
+    /**
+     * @param interval
+     *            the interval in minutes, <code>0</code> disables the job
+     */
+    @Override
+    @Setting(INTERVAL)
+    public void setInterval(int interval) {
+        super.setInterval(interval);
+    }
+
+    /**
+     * Maintain the observation partitions.
+     */
+    @Override
+    public void run() {
+        Session session = null;
+        Transaction transaction = null;
+        try {
+            session = sessionHolder.getSession();
+            transaction = session.beginTransaction();
+            boolean maintained = maintain(session);
+            transaction.commit();
+            LOGGER.debug(maintained ? "Maintained the observation partitions"
+                    : "The observation table is not partitioned");
+        } catch (HibernateException e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            LOGGER.error("Error while maintaining the observation partitions", e);
+        } finally {
+            sessionHolder.returnSession(session);
+        }
+    }
+
+    /**
+     * Call the maintenance function if it exists.
+     *
+     * @param session
+     *            the session
+     * @return if the maintenance function exists and was called
+     */
+    boolean maintain(Session session) {
+        if (!(HibernateHelper.getDialect(session) instanceof PostgreSQL81Dialect)) {
+            return false;
+        }
+        String function = getSchema(session) + MAINTAIN_PARTITIONS_FUNCTION;
+        return session.doReturningWork(connection -> {
+            try (PreparedStatement exists = connection.prepareStatement("select to_regproc(?) is not null")) {
+                exists.setString(1, function);
+                try (ResultSet rs = exists.executeQuery()) {
+                    if (!rs.next() || !rs.getBoolean(1)) {
+                        return false;
+                    }
+                }
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("select " + function + "()");
+            }
+            return true;
+        });
+    }
+
+    /**
+     * @return the schema prefix of the observation table ending with a dot, or
+     *         an empty string
+     */
+    private String getSchema(Session session) {
+        EntityPersister persister = session.getSessionFactory().unwrap(SessionFactoryImplementor.class)
+                .getMetamodel().entityPersister(DataEntity.class);
+        if (persister instanceof AbstractEntityPersister) {
+            String table = ((AbstractEntityPersister) persister).getTableName();
+            return table.substring(0, table.lastIndexOf('.') + 1);
+        }
+        return "";
+    }
+}
@@ -0,0 +1,413 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.admin;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+import org.hibernate.Criteria;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.query.Query;
+import org.joda.time.DateTime;
+import org.n52.faroe.ConfigurationError;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.iceland.cache.ContentCacheController;
+import org.n52.iceland.ds.ConnectionProvider;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.series.db.beans.dataset.ValueType;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.cache.ctrl.action.ObservationRetentionUpdate;
+import org.n52.sos.ds.CacheFeederHandler;
+import org.n52.sos.ds.hibernate.DeleteObservationHelper;
+import org.n52.sos.ds.hibernate.HibernateSessionHolder;
+import org.n52.sos.ds.hibernate.dao.DaoFactory;
+import org.n52.sos.ds.hibernate.util.AbstractScheduledJob;
+import org.n52.sos.ds.hibernate.util.HibernateHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Background job applying the {@link RetentionRule}s: values older than the
+ * retention period of a rule are deleted or, for quantity datasets with a
+ * downsampling interval, replaced by the mean of each interval.
+ * <p>
+ * The values of a dataset are processed in batches, each in its own
+ * transaction to avoid long running locks. After each batch the first and
+ * latest values of the dataset and the content cache of its offering are
+ * updated. An interval with more values than a batch is aggregated by its
+ * time bounds, so that it is replaced by a single mean.
+ */
+@Configurable
+public class ObservationRetentionJob extends AbstractScheduledJob implements DeleteObservationHelper {
+
+    public static final String INTERVAL = "service.retention.interval";
+
+    public static final String RULES = "service.retention.rules";
+
+    public static final String BATCH_SIZE = "service.retention.batchSize";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ObservationRetentionJob.class);
+
+    private HibernateSessionHolder sessionHolder;
+
+    private DaoFactory daoFactory;
+
+    private CacheFeederHandler cacheFeederHandler;
+
+    private ContentCacheController contentCacheController;
+
+    private int batchSize = 1000;
+
+    private List<RetentionRule> rules = Collections.emptyList();
+
+    public ObservationRetentionJob() {
+        super("52n-observation-retention");
+    }
+
+    @Inject
+    public void setConnectionProvider(ConnectionProvider connectionProvider) {
+        this.sessionHolder = new HibernateSessionHolder(connectionProvider);
+    }
+
+    @Inject
+    public void setDaoFactory(DaoFactory daoFactory) {
+        this.daoFactory = daoFactory;
+    }
+
+    @Inject
+    public void setCacheFeederHandler(CacheFeederHandler cacheFeederHandler) {
+        this.cacheFeederHandler = cacheFeederHandler;
+    }
+
+    @Inject
+    public void setContentCacheController(ContentCacheController contentCacheController) {
+        this.contentCacheController = contentCacheController;
+    }
+
+    @Override
+    @Setting(INTERVAL)
+    public void setInterval(int interval) {
+        super.setInterval(interval);
+    }
+
+    @Setting(RULES)
+    public void setRules(String rules) {
+        try {
+            this.rules = RetentionRule.parse(rules);
+        } catch (IllegalArgumentException e) {
+            throw new ConfigurationError(e.getMessage(), e);
+        }
+    }
+
+    @Setting(BATCH_SIZE)
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new ConfigurationError("The retention batch size has to be positive!");
+        }
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public DaoFactory getDaoFactory() {
+        return daoFactory;
+    }
+
+    @Override
+    public Logger getLogger() {
+        return LOGGER;
+    }
+
+    @Override
+    public boolean isDeletePhysically() {
+        return true;
+    }
+
+    /**
+     * Apply all retention rules.
+     */
+    @Override
+    public void run() {
+        for (RetentionRule rule : rules) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            try {
+                apply(rule, DateTime.now());
+            } catch (HibernateException | OwsExceptionReport e) {
+                LOGGER.error("Error while applying the retention rule {}", rule, e);
+            }
+        }
+    }
+
+    private void apply(RetentionRule rule, DateTime now) throws OwsExceptionReport {
+        Date cutoff = rule.getCutoff(now).toDate();
+        Map<Long, DatasetInfo> datasets = getDatasets(rule);
+        LOGGER.debug("Applying retention rule {} to {} datasets before {}", rule, datasets.size(), cutoff);
+        for (Map.Entry<Long, DatasetInfo> dataset : datasets.entrySet()) {
+            boolean downsample = rule.isDownsampling() && dataset.getValue().isQuantity();
+            if (rule.isDownsampling() && !downsample) {
+                LOGGER.debug("Dataset {} is not downsampled by rule {}, it has no quantity values",
+                        dataset.getKey(), rule);
+                continue;
+            }
+            while (!Thread.currentThread().isInterrupted()
+                    && processBatch(dataset.getKey(), dataset.getValue(), rule, downsample, cutoff)) {
+                LOGGER.trace("Continue retention of dataset {}", dataset.getKey());
+            }
+        }
+    }
+
+    private Map<Long, DatasetInfo> getDatasets(RetentionRule rule) {
+        Session session = null;
+        try {
+            session = sessionHolder.getSession();
+            @SuppressWarnings("unchecked")
+            List<DatasetEntity> datasets = getDaoFactory().getSeriesDAO()
+                    .getSeriesCriteria(null, rule.getObservableProperty(), rule.getOffering(), null, session)
+                    .list();
+            Map<Long, DatasetInfo> infos = new LinkedHashMap<>();
+            for (DatasetEntity dataset : datasets) {
+                infos.put(dataset.getId(), new DatasetInfo(dataset.getOffering().getIdentifier(),
+                        ValueType.quantity.equals(dataset.getValueType())));
+            }
+            return infos;
+        } finally {
+            sessionHolder.returnSession(session);
+        }
+    }
+
+    /**
+     * Delete or downsample the next batch of values of a dataset.
+     *
+     * @return if further values may have to be processed
+     */
+    private boolean processBatch(Long dataset, DatasetInfo info, RetentionRule rule, boolean downsample,
+            Date cutoff) throws OwsExceptionReport {
+        Session session = null;
+        Transaction transaction = null;
+        try {
+            session = sessionHolder.getSession();
+            transaction = session.beginTransaction();
+            List<DataEntity<?>> values = getBatch(dataset, downsample, cutoff, session);
+            if (values.isEmpty()) {
+                transaction.commit();
+                return false;
+            }
+            boolean complete = values.size() < batchSize;
+            Set<Long> removed = downsample ? downsample(dataset, values, rule, complete, cutoff, session)
+                    : values.stream().map(DataEntity::getId).collect(Collectors.toSet());
+            delete(dataset, removed, session);
+            transaction.commit();
+            LOGGER.debug("Removed {} values of dataset {} by retention rule {}", removed.size(), dataset, rule);
+            contentCacheController.update(new ObservationRetentionUpdate(cacheFeederHandler,
+                    Collections.singleton(info.getOffering())));
+            return !complete;
+        } catch (HibernateException e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw e;
+        } finally {
+            sessionHolder.returnSession(session);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<DataEntity<?>> getBatch(Long dataset, boolean downsample, Date cutoff, Session session) {
+        Criteria c = session.createCriteria(getObservationClass())
+                .add(Restrictions.eq(DataEntity.PROPERTY_DATASET_ID, dataset))
+                .add(Restrictions.lt(DataEntity.PROPERTY_SAMPLING_TIME_END, cutoff))
+                .add(Restrictions.isNull(DataEntity.PROPERTY_PARENT))
+                .addOrder(Order.asc(DataEntity.PROPERTY_SAMPLING_TIME_START))
+                .addOrder(Order.asc(DataEntity.PROPERTY_ID))
+                .setMaxResults(batchSize);
+        if (downsample) {
+            // downsampled values are periods and are not aggregated again
+            c.add(Restrictions.eq(DataEntity.PROPERTY_DELETED, false));
+            c.add(Restrictions.eqProperty(DataEntity.PROPERTY_SAMPLING_TIME_START,
+                    DataEntity.PROPERTY_SAMPLING_TIME_END));
+        }
+        LOGGER.trace("QUERY getBatch(dataset, downsample, cutoff): {}", HibernateHelper.getSqlString(c));
+        return c.list();
+    }
+
+    /**
+     * Replace the values of each downsampling interval by the mean. The first
+     * value of an interval is kept and updated, the others are returned for
+     * deletion. The last interval of an incomplete batch may continue beyond
+     * the batch, so it is aggregated by its time bounds.
+     */
+    private Set<Long> downsample(Long dataset, List<DataEntity<?>> values, RetentionRule rule, boolean complete,
+            Date cutoff, Session session) {
+        Map<Long, List<QuantityDataEntity>> intervals = new LinkedHashMap<>();
+        for (DataEntity<?> value : values) {
+            if (value instanceof QuantityDataEntity) {
+                intervals.computeIfAbsent(rule.getIntervalStart(value.getSamplingTimeStart().getTime()),
+                        k -> new LinkedList<>()).add((QuantityDataEntity) value);
+            }
+        }
+        Long open = null;
+        if (!complete) {
+            for (Long start : intervals.keySet()) {
+                open = start;
+            }
+        }
+        Set<Long> removed = new HashSet<>();
+        for (Map.Entry<Long, List<QuantityDataEntity>> entry : intervals.entrySet()) {
+            List<QuantityDataEntity> interval = entry.getValue();
+            QuantityDataEntity kept = interval.get(0);
+            if (entry.getKey().equals(open)) {
+                kept.setValue(downsampleInterval(dataset, kept, entry.getKey(), rule, cutoff, removed, session));
+            } else {
+                BigDecimal sum = BigDecimal.ZERO;
+                int count = 0;
+                for (QuantityDataEntity value : interval) {
+                    if (value.getValue() != null) {
+                        sum = sum.add(value.getValue());
+                        count++;
+                    }
+                    if (value != kept) {
+                        removed.add(value.getId());
+                    }
+                }
+                kept.setValue(mean(sum, count));
+            }
+            kept.setSamplingTimeStart(new Date(entry.getKey()));
+            kept.setSamplingTimeEnd(new Date(entry.getKey() + rule.getDownsamplingInterval()));
+            session.update(kept);
+        }
+        session.flush();
+        return removed;
+    }
+
+    /**
+     * Aggregate all values of the interval starting at <code>start</code>.
+     * The values besides the kept one are added to the removed values.
+     *
+     * @return the mean of the interval
+     */
+    @SuppressWarnings("unchecked")
+    private BigDecimal downsampleInterval(Long dataset, QuantityDataEntity kept, long start, RetentionRule rule,
+            Date cutoff, Set<Long> removed, Session session) {
+        Criteria aggregate = getIntervalCriteria(dataset, start, rule, cutoff, session)
+                .setProjection(Projections.projectionList().add(Projections.sum(DataEntity.PROPERTY_VALUE))
+                        .add(Projections.count(DataEntity.PROPERTY_VALUE)));
+        LOGGER.trace("QUERY downsampleInterval(): {}", HibernateHelper.getSqlString(aggregate));
+        Object[] result = (Object[]) aggregate.uniqueResult();
+        Criteria ids = getIntervalCriteria(dataset, start, rule, cutoff, session)
+                .add(Restrictions.ne(DataEntity.PROPERTY_ID, kept.getId()))
+                .setProjection(Projections.id());
+        removed.addAll(ids.list());
+        BigDecimal sum = (BigDecimal) result[0];
+        long count = ((Number) result[1]).longValue();
+        return sum != null ? mean(sum, count) : null;
+    }
+
+    private Criteria getIntervalCriteria(Long dataset, long start, RetentionRule rule, Date cutoff,
+            Session session) {
+        return session.createCriteria(QuantityDataEntity.class)
+                .add(Restrictions.eq(DataEntity.PROPERTY_DATASET_ID, dataset))
+                .add(Restrictions.isNull(DataEntity.PROPERTY_PARENT))
+                .add(Restrictions.eq(DataEntity.PROPERTY_DELETED, false))
+                .add(Restrictions.eqProperty(DataEntity.PROPERTY_SAMPLING_TIME_START,
+                        DataEntity.PROPERTY_SAMPLING_TIME_END))
+                .add(Restrictions.ge(DataEntity.PROPERTY_SAMPLING_TIME_START, new Date(start)))
+                .add(Restrictions.lt(DataEntity.PROPERTY_SAMPLING_TIME_START,
+                        new Date(start + rule.getDownsamplingInterval())))
+                .add(Restrictions.lt(DataEntity.PROPERTY_SAMPLING_TIME_END, cutoff));
+    }
+
+    private BigDecimal mean(BigDecimal sum, long count) {
+        return count > 0 ? sum.divide(BigDecimal.valueOf(count), MathContext.DECIMAL64) : null;
+    }
+
+    private void delete(Long dataset, Set<Long> ids, Session session) throws OwsExceptionReport {
+        if (!ids.isEmpty()) {
+            Query<?> flag = session.createQuery(String.format("update %s set %s = :%s where %s in :%s",
+                    getObservationClass().getSimpleName(), DataEntity.PROPERTY_DELETED, DataEntity.PROPERTY_DELETED,
+                    DataEntity.PROPERTY_ID, DataEntity.PROPERTY_ID));
+            flag.setParameter(DataEntity.PROPERTY_DELETED, true);
+            flag.setParameterList(DataEntity.PROPERTY_ID, ids);
+            flag.executeUpdate();
+        }
+        checkSeriesForFirstLatest(Collections.singleton(dataset), session);
+        getDaoFactory().getQuantityRollupStore().invalidate(Collections.singleton(dataset), session);
+        getDaoFactory().getDataAvailabilityExtentStore().invalidate(Collections.singleton(dataset), session);
+        if (!ids.isEmpty()) {
+            deleteDeletedChildObservations(ids, null, false, session);
+            Query<?> delete = session.createQuery(String.format("delete %s where %s in :%s",
+                    getObservationClass().getSimpleName(), DataEntity.PROPERTY_ID, DataEntity.PROPERTY_ID));
+            delete.setParameterList(DataEntity.PROPERTY_ID, ids);
+            delete.executeUpdate();
+            session.flush();
+        }
+    }
+
+    private Class<?> getObservationClass() {
+        return getDaoFactory().getObservationDAO().getObservationFactory().observationClass();
+    }
+
+    private static class DatasetInfo {
+        private final String offering;
+
+        private final boolean quantity;
+
+        DatasetInfo(String offering, boolean quantity) {
+            this.offering = offering;
+            this.quantity = quantity;
+        }
+
+        String getOffering() {
+            return offering;
+        }
+
+        boolean isQuantity() {
+            return quantity;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.admin;
+
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.joda.time.Period;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+
+/**
+ * Retention rule of the {@link ObservationRetentionJob} for the datasets of an
+ * offering and an observable property.
+ * <p>
+ * Rules are separated by semicolons or line breaks and consist of the comma
+ * separated offering, observable property, the ISO 8601 retention period and
+ * an optional ISO 8601 downsampling interval, e.g.
+ * <code>*,temperature,P1Y,PT1H</code>. The wildcard <code>*</code> matches
+ * all offerings or observable properties. Without a downsampling interval the
+ * values older than the retention period are deleted, otherwise the values of
+ * each interval are replaced by their mean.
+ */
+public class RetentionRule {
+
+    public static final String WILDCARD = "*";
+
+    private static final Splitter RULE_SPLITTER = Splitter.onPattern("[;\\r\\n]").trimResults().omitEmptyStrings();
+
+    private static final Splitter PART_SPLITTER = Splitter.on(',').trimResults();
+
+    private final String offering;
+
+    private final String observableProperty;
+
+    private final Period retention;
+
+    private final long downsamplingInterval;
+
+    public RetentionRule(String offering, String observableProperty, Period retention, long downsamplingInterval) {
+        this.offering = WILDCARD.equals(offering) ? null : offering;
+        this.observableProperty = WILDCARD.equals(observableProperty) ? null : observableProperty;
+        this.retention = retention;
+        this.downsamplingInterval = downsamplingInterval;
+    }
+
+    /**
+     * @return the offering identifier, <code>null</code> for all offerings
+     */
+    public String getOffering() {
+        return offering;
+    }
+
+    /**
+     * @return the observable property identifier, <code>null</code> for all
+     *         observable properties
+     */
+    public String getObservableProperty() {
+        return observableProperty;
+    }
+
+    public Period getRetention() {
+        return retention;
+    }
+
+    public boolean isDownsampling() {
+        return downsamplingInterval > 0;
+    }
+
+    /**
+     * @return the downsampling interval in milliseconds, <code>0</code> if
+     *         values are deleted
+     */
+    public long getDownsamplingInterval() {
+        return downsamplingInterval;
+    }
+
+    /**
+     * Get the time before which values are deleted or downsampled. For
+     * downsampling it is aligned to the interval so that only complete
+     * intervals are aggregated.
+     *
+     * @param now
+     *            the current time
+     * @return the cutoff time
+     */
+    public DateTime getCutoff(DateTime now) {
+        DateTime cutoff = now.minus(retention);
+        if (isDownsampling()) {
+            return new DateTime(getIntervalStart(cutoff.getMillis()), cutoff.getZone());
+        }
+        return cutoff;
+    }
+
+    /**
+     * @param time
+     *            the time in milliseconds
+     * @return the start of the downsampling interval containing the time
+     */
+    public long getIntervalStart(long time) {
+        return Math.floorDiv(time, downsamplingInterval) * downsamplingInterval;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s,%s,%s%s", offering == null ? WILDCARD : offering,
+                observableProperty == null ? WILDCARD : observableProperty, retention,
+                isDownsampling() ? "," + new Period(downsamplingInterval) : "");
+    }
+
+    /**
+     * Parse the retention rules.
+     *
+     * @param rules
+     *            the rules, may be empty
+     * @return the parsed rules
+     * @throws IllegalArgumentException
+     *             if a rule is invalid
+     */
+    public static List<RetentionRule> parse(String rules) {
+        if (Strings.isNullOrEmpty(rules)) {
+            return Collections.emptyList();
+        }
+        List<RetentionRule> parsed = new LinkedList<>();
+        for (String rule : RULE_SPLITTER.split(rules)) {
+            List<String> parts = PART_SPLITTER.splitToList(rule);
+            if (parts.size() < 3 || parts.size() > 4 || parts.get(0).isEmpty() || parts.get(1).isEmpty()) {
+                throw new IllegalArgumentException(String.format("Invalid retention rule '%s', expected "
+                        + "'offering,observableProperty,retentionPeriod[,downsamplingInterval]'", rule));
+            }
+            Period retention = Period.parse(parts.get(2));
+            long interval = 0;
+            if (parts.size() == 4) {
+                interval = Period.parse(parts.get(3)).toStandardDuration().getMillis();
+                if (interval <= 0) {
+                    throw new IllegalArgumentException(
+                            String.format("Invalid downsampling interval in retention rule '%s'", rule));
+                }
+            }
+            parsed.add(new RetentionRule(parts.get(0), parts.get(1), retention, interval));
+        }
+        return parsed;
+    }
+
+}
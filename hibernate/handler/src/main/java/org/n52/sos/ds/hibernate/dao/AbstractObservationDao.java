@@ -69,6 +69,7 @@ import org.n52.shetland.util.CollectionHelper;
 import org.n52.sos.ds.hibernate.util.SosTemporalRestrictions;
 import org.n52.sos.ds.hibernate.util.observation.HibernateObservationUtilities;
 import org.n52.sos.ds.hibernate.util.observation.OmObservationCreatorContext;
+import org.n52.sos.ds.hibernate.values.ChunkSizeTuner;
 import org.n52.sos.ds.hibernate.values.HibernateStreamingSettings;
 import org.n52.svalbard.encode.Encoder;
 import org.n52.svalbard.encode.EncoderRepository;
@@ -96,11 +97,22 @@ public abstract class AbstractObservationDao implements HibernateDao {
 
     private int chunkSize;
 
+    private ChunkSizeTuner chunkSizeTuner;
+
     @Inject
     public void setEncoderRepository(EncoderRepository encoderRepository) {
         this.encoderRepository = encoderRepository;
     }
 
+    @Inject
+    public void setChunkSizeTuner(ChunkSizeTuner chunkSizeTuner) {
+        this.chunkSizeTuner = chunkSizeTuner;
+    }
+
+    public ChunkSizeTuner getChunkSizeTuner() {
+        return chunkSizeTuner;
+    }
+
     @Setting("profile.hydrology.maxReturnedTimeSeries")
     public void setMaxNumberOfReturnedTimeSeries(Integer value) {
         this.maxNumberOfReturnedTimeSeries = value;
@@ -28,6 +28,7 @@
  */
 package org.n52.sos.ds.hibernate.dao;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -63,6 +64,8 @@ import org.n52.shetland.ogc.ows.extension.Extensions;
 import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityRequest;
 import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityResponse.DataAvailability;
 import org.n52.sos.ds.hibernate.HibernateSessionHolder;
+import org.n52.sos.ds.hibernate.cache.DataAvailabilityExtentStore;
+import org.n52.sos.ds.hibernate.cache.DataAvailabilityExtentStore.DatasetExtent;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
 import org.n52.sos.ds.hibernate.util.SosTemporalRestrictions;
 import org.n52.sos.ds.hibernate.util.TemporalRestrictions;
@@ -83,11 +86,18 @@ public class GetDataAvailabilityDaoImpl implements org.n52.sos.ds.dao.GetDataAva
 
     private Locale defaultLanguage;
 
+    private DaoFactory daoFactory;
+
     @Inject
     public void setConnectionProvider(ConnectionProvider connectionProvider) {
         this.sessionHolder = new HibernateSessionHolder(connectionProvider);
     }
 
+    @Inject
+    public void setDaoFactory(DaoFactory daoFactory) {
+        this.daoFactory = daoFactory;
+    }
+
     @Setting(I18NSettings.I18N_DEFAULT_LANGUAGE)
     public void setDefaultLanguage(String defaultLanguage) {
         this.defaultLanguage = LocaleHelper.decode(defaultLanguage);
@@ -159,6 +169,54 @@ public class GetDataAvailabilityDaoImpl implements org.n52.sos.ds.dao.GetDataAva
         return getResultTimes(dataAvailability, request);
     }
 
+    @Override
+    public List<TimeInstant> getResultTimes(Long datasetId, GetDataAvailabilityRequest request, Object connection)
+            throws OwsExceptionReport {
+        if (!isExtentStoreEnabled() || hasPhenomenonTimeFilter(request.getExtensions())) {
+            // the phenomenon time filter can not be evaluated on the rollup
+            return null;
+        }
+        DatasetExtent extent = getExtent(datasetId, connection);
+        if (extent == null) {
+            return null;
+        }
+        List<TimeInstant> resultTimes = Lists.newArrayList();
+        for (Date date : extent.getResultTimes()) {
+            resultTimes.add(new TimeInstant(date));
+        }
+        return resultTimes;
+    }
+
+    @Override
+    public Long getCount(Long datasetId, Object connection) throws OwsExceptionReport {
+        if (!isExtentStoreEnabled()) {
+            return null;
+        }
+        DatasetExtent extent = getExtent(datasetId, connection);
+        return extent != null ? extent.getCount() : null;
+    }
+
+    private DatasetExtent getExtent(Long datasetId, Object connection) throws OwsExceptionReport {
+        if (checkConnection(connection)) {
+            return getExtent(datasetId, HibernateSessionHolder.getSession(connection));
+        }
+        Session session = null;
+        try {
+            session = sessionHolder.getSession();
+            return getExtent(datasetId, session);
+        } catch (final HibernateException he) {
+            throw new NoApplicableCodeException().causedBy(he)
+                    .withMessage("Error while querying the data availability rollup!")
+                    .setStatus(HTTPStatus.INTERNAL_SERVER_ERROR);
+        } finally {
+            sessionHolder.returnSession(session);
+        }
+    }
+
+    private DatasetExtent getExtent(Long datasetId, Session session) {
+        return getExtentStore().get(Collections.singleton(datasetId), session).get(datasetId);
+    }
+
     private List<TimeInstant> queryResultTime(DataAvailability dataAvailability, GetDataAvailabilityRequest request,
             Session session)
             throws UnsupportedTimeException, UnsupportedValueReferenceException, UnsupportedOperatorException {
@@ -187,6 +245,14 @@ public class GetDataAvailabilityDaoImpl implements org.n52.sos.ds.dao.GetDataAva
         return resultTimes;
     }
 
+    private boolean isExtentStoreEnabled() {
+        return daoFactory != null && getExtentStore().isEnabled();
+    }
+
+    private DataAvailabilityExtentStore getExtentStore() {
+        return daoFactory.getDataAvailabilityExtentStore();
+    }
+
     private Criteria getDefaultObservationInfoCriteria(Session session) {
         return session.createCriteria(DataEntity.class).add(Restrictions.eq(DataEntity.PROPERTY_DELETED, false))
                 .setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY);
@@ -35,13 +35,17 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 import javax.inject.Inject;
 
 import org.apache.xmlbeans.XmlObject;
+import org.hibernate.Hibernate;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.criterion.Criterion;
+import org.hibernate.proxy.HibernateProxy;
 import org.n52.faroe.annotation.Configurable;
 import org.n52.faroe.annotation.Setting;
 import org.n52.iceland.convert.ConverterException;
@@ -52,7 +56,11 @@ import org.n52.janmayen.http.HTTPStatus;
 import org.n52.janmayen.i18n.LocaleHelper;
 import org.n52.series.db.beans.DataEntity;
 import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.dataset.ValueType;
+import org.n52.shetland.ogc.filter.FilterConstants.TimeOperator;
+import org.n52.shetland.ogc.filter.TemporalFilter;
 import org.n52.shetland.ogc.gml.time.IndeterminateValue;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
 import org.n52.shetland.ogc.om.ObservationStream;
 import org.n52.shetland.ogc.om.OmObservation;
 import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
@@ -62,12 +70,16 @@ import org.n52.shetland.ogc.sos.request.GetObservationRequest;
 import org.n52.shetland.ogc.sos.response.GetObservationResponse;
 import org.n52.shetland.ogc.sos.response.GlobalObservationResponseValues;
 import org.n52.sos.ds.hibernate.HibernateSessionHolder;
+import org.n52.sos.ds.hibernate.cache.QuantityRollupStore;
 import org.n52.sos.ds.hibernate.dao.observation.series.AbstractSeriesDAO;
 import org.n52.sos.ds.hibernate.util.ObservationTimeExtrema;
+import org.n52.sos.ds.hibernate.util.TemporalRestrictions;
 import org.n52.sos.ds.hibernate.util.observation.HibernateObservationUtilities;
 import org.n52.sos.ds.hibernate.util.observation.OmObservationCreatorContext;
+import org.n52.sos.ds.hibernate.values.series.HibernateAggregatingSeriesStreamingValue;
 import org.n52.sos.ds.hibernate.values.series.HibernateChunkSeriesStreamingValue;
 import org.n52.sos.ds.hibernate.values.series.HibernateSeriesStreamingValue;
+import org.n52.sos.request.TemporalAggregation;
 import org.n52.sos.service.profile.ProfileHandler;
 import org.n52.svalbard.encode.Encoder;
 import org.n52.svalbard.encode.ObservationEncoder;
@@ -77,6 +89,7 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 @Configurable
 public class GetObservationDaoImpl extends AbstractObservationDao implements org.n52.sos.ds.dao.GetObservationDao {
@@ -191,24 +204,16 @@ public class GetObservationDaoImpl extends AbstractObservationDao implements org
         final long start = System.currentTimeMillis();
         List<String> features = request.getFeatureIdentifiers();
 
-        Collection<DataEntity<?>> seriesObservations = Lists.newArrayList();
         AbstractSeriesDAO seriesDAO = daoFactory.getSeriesDAO();
-        for (IndeterminateValue sosIndeterminateTime : request.getFirstLatestTemporalFilter()) {
-            for (DatasetEntity series : getSeries(seriesDAO, request, features, sosIndeterminateTime, session)) {
-                if (sosIndeterminateTime.equals(ExtendedIndeterminateTime.FIRST)) {
-                    seriesObservations.add(series.getFirstObservation());
-                } else if (sosIndeterminateTime.equals(ExtendedIndeterminateTime.LATEST)) {
-                    seriesObservations.add(series.getLastObservation());
-                }
-            }
-        }
+        List<DatasetEntity> datasets = seriesDAO.getSeries(request, features, session);
+        Collection<DataEntity<?>> seriesObservations = getFirstLatestObservations(request, datasets, session);
 
         final List<OmObservation> result = new LinkedList<>();
         if (profileHandler.getActiveProfile().isShowMetadataOfEmptyObservations()) {
             // create a map of series to check by id, so we don't need to fetch
             // each observation's series from the database
             Map<Long, DatasetEntity> seriesToCheckMap = Maps.newHashMap();
-            for (DatasetEntity series : seriesDAO.getSeries(request, features, session)) {
+            for (DatasetEntity series : datasets) {
                 seriesToCheckMap.put(series.getId(), series);
             }
 
@@ -234,16 +239,55 @@ public class GetObservationDaoImpl extends AbstractObservationDao implements org
         return result;
     }
 
-    private List<DatasetEntity> getSeries(AbstractSeriesDAO seriesDAO, GetObservationRequest request,
-            List<String> features, IndeterminateValue sosIndeterminateTime, Session session) throws OwsExceptionReport {
+    /**
+     * Get the first/latest observations of the datasets. The observation ids
+     * are taken from the first/last observation columns of the already
+     * loaded datasets and the observations are queried at once.
+     *
+     * @param request
+     *            GetObservation request
+     * @param datasets
+     *            Datasets matching the request
+     * @param session
+     *            Hibernate session
+     * @return the first/latest observations
+     */
+    private Collection<DataEntity<?>> getFirstLatestObservations(GetObservationRequest request,
+            List<DatasetEntity> datasets, Session session) {
+        Collection<DataEntity<?>> seriesObservations = Lists.newArrayList();
+        Set<Long> observationIds = Sets.newHashSet();
+        for (IndeterminateValue sosIndeterminateTime : request.getFirstLatestTemporalFilter()) {
+            for (DatasetEntity series : getSeries(datasets, sosIndeterminateTime)) {
+                DataEntity<?> observation = null;
+                if (sosIndeterminateTime.equals(ExtendedIndeterminateTime.FIRST)) {
+                    observation = series.getFirstObservation();
+                } else if (sosIndeterminateTime.equals(ExtendedIndeterminateTime.LATEST)) {
+                    observation = series.getLastObservation();
+                }
+                if (observation instanceof HibernateProxy && !Hibernate.isInitialized(observation)) {
+                    // the id is known without loading the observation
+                    observationIds.add((Long) ((HibernateProxy) observation).getHibernateLazyInitializer()
+                            .getIdentifier());
+                } else if (observation != null) {
+                    seriesObservations.add(observation);
+                }
+            }
+        }
+        if (!observationIds.isEmpty()) {
+            seriesObservations.addAll(daoFactory.getObservationDAO().getObservationsFor(observationIds, session));
+        }
+        return seriesObservations;
+    }
+
+    private List<DatasetEntity> getSeries(List<DatasetEntity> datasets, IndeterminateValue sosIndeterminateTime) {
         if (!overallExtrema) {
-            return seriesDAO.getSeries(request, features, session);
+            return datasets;
         }
         Date first = null;
         Date last = null;
         List<DatasetEntity> list = new LinkedList<>();
-        for (DatasetEntity dataset : seriesDAO.getSeries(request, features, session)) {
-            if (sosIndeterminateTime.equals(ExtendedIndeterminateTime.FIRST)) {
+        for (DatasetEntity dataset : datasets) {
+            if (sosIndeterminateTime.equals(ExtendedIndeterminateTime.FIRST) && dataset.isSetFirstValueAt()) {
                 if (first == null) {
                     first = dataset.getFirstValueAt();
                     list.add(dataset);
@@ -254,7 +298,7 @@ public class GetObservationDaoImpl extends AbstractObservationDao implements org
                     first = dataset.getFirstValueAt();
                     list.add(dataset);
                 }
-            } else if (sosIndeterminateTime.equals(ExtendedIndeterminateTime.LATEST)) {
+            } else if (sosIndeterminateTime.equals(ExtendedIndeterminateTime.LATEST) && dataset.isSetLastValueAt()) {
                 if (last == null) {
                     last = dataset.getLastValueAt();
                     list.add(dataset);
@@ -292,19 +336,32 @@ public class GetObservationDaoImpl extends AbstractObservationDao implements org
         List<DatasetEntity> serieses = daoFactory.getSeriesDAO().getSeries(request, features, session);
         checkMaxNumberOfReturnedSeriesSize(serieses.size());
         int maxNumberOfValuesPerSeries = getMaxNumberOfValuesPerSeries(serieses.size());
+        Optional<TemporalAggregation> aggregation = TemporalAggregation.fromRequest(request);
         for (DatasetEntity series : serieses) {
             ObservationStream createSosObservationFromSeries =
                     HibernateObservationUtilities.createSosObservationFromSeries(series, request,
                             getRequestedLocale(request), getProcedureDescriptionFormat(request.getResponseFormat()),
                             observationCreatorContext, session);
             OmObservation observationTemplate = createSosObservationFromSeries.next();
-            HibernateSeriesStreamingValue streamingValue =
-                    new HibernateChunkSeriesStreamingValue(sessionHolder.getConnectionProvider(), daoFactory, request,
-                            series.getId(), observationCreatorContext.getBindingRepository(), getChunkSize());
+            HibernateSeriesStreamingValue streamingValue;
+            if (aggregation.isPresent()
+                    && HibernateAggregatingSeriesStreamingValue.isApplicable(series, aggregation.get())) {
+                HibernateAggregatingSeriesStreamingValue aggregatingValue =
+                        new HibernateAggregatingSeriesStreamingValue(sessionHolder.getConnectionProvider(),
+                                daoFactory, request, series, observationCreatorContext.getBindingRepository(),
+                                getChunkSize(), getChunkSizeTuner(), aggregation.get());
+                aggregatingValue.setMaxNumberOfAggregatedValues(maxNumberOfValuesPerSeries);
+                checkForRollup(request, series, aggregation.get(), aggregatingValue);
+                streamingValue = aggregatingValue;
+            } else {
+                streamingValue = new HibernateChunkSeriesStreamingValue(sessionHolder.getConnectionProvider(),
+                        daoFactory, request, series.getId(), observationCreatorContext.getBindingRepository(),
+                        getChunkSize(), getChunkSizeTuner());
+                streamingValue.setMaxNumberOfValues(maxNumberOfValuesPerSeries);
+            }
             streamingValue.setResponseFormat(request.getResponseFormat());
             streamingValue.setTemporalFilterCriterion(temporalFilterCriterion);
             streamingValue.setObservationTemplate(observationTemplate);
-            streamingValue.setMaxNumberOfValues(maxNumberOfValuesPerSeries);
             observationTemplate.setValue(streamingValue);
             result.add(observationTemplate);
         }
@@ -319,6 +376,45 @@ public class GetObservationDaoImpl extends AbstractObservationDao implements org
         return result;
     }
 
+    /**
+     * Answer the aggregation of a quantity series from the coarsest rollup of
+     * the {@link QuantityRollupStore} that supports the function and the
+     * interval. Only requests without result and spatial filters and with no
+     * temporal filter or a single phenomenon time during filter are answered
+     * from the rollup.
+     *
+     * @param request
+     *            The GetObservation request
+     * @param series
+     *            the series
+     * @param aggregation
+     *            the requested aggregation
+     * @param streamingValue
+     *            the streaming value of the series
+     */
+    private void checkForRollup(GetObservationRequest request, DatasetEntity series,
+            TemporalAggregation aggregation, HibernateAggregatingSeriesStreamingValue streamingValue) {
+        if (!daoFactory.getQuantityRollupStore().isEnabled() || !ValueType.quantity.equals(series.getValueType())
+                || QuantityRollupStore.getResolution(aggregation) == null || request.hasResultFilter()
+                || request.hasSpatialFilteringProfileSpatialFilter()) {
+            return;
+        }
+        List<TemporalFilter> filters = request.getNotFirstLatestTemporalFilter();
+        if (filters == null || filters.isEmpty()) {
+            streamingValue.useRollup(null, null);
+        } else if (filters.size() == 1 && isRollupFilter(filters.get(0))) {
+            TimePeriod period = (TimePeriod) filters.get(0).getTime();
+            streamingValue.useRollup(period.getStart().toDate(), period.getEnd().toDate());
+        }
+    }
+
+    private boolean isRollupFilter(TemporalFilter filter) {
+        return TimeOperator.TM_During.equals(filter.getOperator()) && filter.getValueReference() != null
+                && filter.getValueReference().contains(TemporalRestrictions.PHENOMENON_TIME_VALUE_REFERENCE)
+                && filter.getTime() instanceof TimePeriod && ((TimePeriod) filter.getTime()).getStart() != null
+                && ((TimePeriod) filter.getTime()).getEnd() != null;
+    }
+
     private String getProcedureDescriptionFormat(String responseFormat) {
         Encoder<XmlObject, OmObservation> encoder = getEncoder(new XmlEncoderKey(responseFormat, OmObservation.class));
         if (encoder != null && encoder instanceof ObservationEncoder) {
@@ -0,0 +1,471 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.Criteria;
+import org.hibernate.Session;
+import org.hibernate.criterion.Restrictions;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.n52.series.db.beans.BooleanDataEntity;
+import org.n52.series.db.beans.CategoryDataEntity;
+import org.n52.series.db.beans.CountDataEntity;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.series.db.beans.ResultTemplateEntity;
+import org.n52.series.db.beans.TextDataEntity;
+import org.n52.shetland.ogc.gml.AbstractFeature;
+import org.n52.shetland.ogc.gml.CodeWithAuthority;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.features.samplingFeatures.SamplingFeature;
+import org.n52.shetland.ogc.ows.exception.InvalidParameterValueException;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sensorML.SensorML;
+import org.n52.shetland.ogc.sos.Sos2Constants;
+import org.n52.shetland.ogc.sos.SosProcedureDescription;
+import org.n52.shetland.ogc.swe.SweAbstractDataComponent;
+import org.n52.shetland.ogc.swe.SweDataArray;
+import org.n52.shetland.ogc.swe.SweDataRecord;
+import org.n52.shetland.ogc.swe.SweField;
+import org.n52.shetland.ogc.swe.simpleType.SweBoolean;
+import org.n52.shetland.ogc.swe.simpleType.SweCategory;
+import org.n52.shetland.ogc.swe.simpleType.SweCount;
+import org.n52.shetland.ogc.swe.simpleType.SweQuantity;
+import org.n52.shetland.ogc.swe.simpleType.SweText;
+import org.n52.shetland.ogc.swe.simpleType.SweTime;
+import org.n52.shetland.ogc.swe.simpleType.SweTimeRange;
+import org.n52.shetland.util.DateTimeHelper;
+import org.n52.sos.ds.hibernate.dao.DaoFactory;
+import org.n52.sos.ds.hibernate.dao.observation.BulkObservationWriter;
+import org.n52.sos.ds.hibernate.dao.observation.BulkObservationWriter.Row;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Bulk ingestion of InsertResult values for result templates with a fixed
+ * procedure and feature of interest whose structure contains the phenomenon
+ * time, an optional result time and one simple value.
+ * <p>
+ * The blocks are parsed directly into {@link Row}s by the parsing stage of a
+ * {@link ResultValuesPipeline} and written with a {@link BulkObservationWriter}
+ * in batches of the configured size. The dataset
+ * first/last values are updated once per batch and the returned observation
+ * summarizes all written values, so that the content cache is updated once
+ * per request instead of once per value.
+ * <p>
+ * Existing observations are not checked, a duplicate value aborts the
+ * insertion with the unique constraint violation of the database.
+ */
+public class BulkResultIngester {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkResultIngester.class);
+
+    private static final String ERROR_PARSING_TIME_LOG = "Error while parse time String to DateTime!";
+
+    private final DaoFactory daoFactory;
+
+    private final int batchSize;
+
+    private final Map<Class<? extends DataEntity<?>>, BulkObservationWriter> writers = new HashMap<>();
+
+    public BulkResultIngester(DaoFactory daoFactory, int batchSize) {
+        this.daoFactory = daoFactory;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Parse and write the result values of a result template.
+     *
+     * @param plan
+     *            the compiled result template
+     * @param resultTemplate
+     *            the result template
+     * @param blocks
+     *            the blocks of the result values
+     * @param tokenSeparator
+     *            the token separator of the template encoding
+     * @param pipeline
+     *            the pipeline parsing the blocks while the rows are written
+     * @param session
+     *            Hibernate session with an active transaction
+     * @return the observation summarizing the written values or {@code null}
+     *         if the template can not be ingested in bulk
+     * @throws OwsExceptionReport
+     *             if the values do not match the structure
+     */
+    public synchronized OmObservation ingest(ResultTemplatePlan plan, ResultTemplateEntity resultTemplate,
+            Iterator<String> blocks, String tokenSeparator, ResultValuesPipeline pipeline, Session session)
+            throws OwsExceptionReport {
+        Layout layout = plan.getBulkLayout();
+        if (layout == null) {
+            return null;
+        }
+        DatasetEntity dataset = plan.getBulkDataset(session);
+        if (dataset == null) {
+            dataset = getDataset(resultTemplate, layout, session);
+            if (dataset == null) {
+                return null;
+            }
+            plan.setBulkDataset(dataset);
+        }
+        BulkObservationWriter writer =
+                writers.computeIfAbsent(layout.entityClass, type -> new BulkObservationWriter(type, session));
+        if (!writer.isSupported()) {
+            LOGGER.debug("Bulk ingestion of {} is not supported: {}", resultTemplate.getIdentifier(),
+                    writer.getUnsupportedReason());
+            return null;
+        }
+        Batch batch = new Batch(writer, dataset, session);
+        pipeline.process(blocks, chunk -> parse(chunk, tokenSeparator, layout), batch::add);
+        batch.flush();
+        Extent extent = batch.extent;
+        if (extent.count > 0) {
+            // the stores only saw the first/last observations of the batches
+            daoFactory.getDataAvailabilityExtentStore().invalidate(Collections.singleton(dataset.getId()), session);
+            daoFactory.getQuantityRollupStore().invalidate(Collections.singleton(dataset.getId()), session);
+        }
+        LOGGER.debug("Ingested {} values of result template {} into dataset {} using {}", extent.count,
+                resultTemplate.getIdentifier(), dataset.getId(), writer.isCopy() ? "COPY" : "batch inserts");
+        return extent.count > 0 ? createObservation(resultTemplate, dataset, extent) : null;
+    }
+
+    private List<Row> parse(List<String> blocks, String tokenSeparator, Layout layout) throws OwsExceptionReport {
+        List<Row> rows = new ArrayList<>(blocks.size());
+        for (String block : blocks) {
+            if (block != null && !block.isEmpty()) {
+                Row row = parse(block.split(tokenSeparator, Integer.MAX_VALUE), layout);
+                if (row != null) {
+                    rows.add(row);
+                }
+            }
+        }
+        return rows;
+    }
+
+    private void updateDataset(DatasetEntity dataset, String property, Date time, Session session) {
+        Criteria criteria = session.createCriteria(DataEntity.class)
+                .add(Restrictions.eq(DataEntity.PROPERTY_DATASET, dataset))
+                .add(Restrictions.eq(DataEntity.PROPERTY_DELETED, false))
+                .add(Restrictions.eq(property, time))
+                .setMaxResults(1);
+        LOGGER.trace("QUERY updateDataset(): {}", HibernateHelper.getSqlString(criteria));
+        DataEntity<?> observation = (DataEntity<?>) criteria.uniqueResult();
+        if (observation != null) {
+            daoFactory.getSeriesDAO().updateSeriesWithFirstLatestValues(dataset, observation, session);
+        }
+    }
+
+    private Row parse(String[] tokens, Layout layout) throws OwsExceptionReport {
+        if (tokens.length <= layout.maxIndex) {
+            throw new InvalidParameterValueException().at(Sos2Constants.InsertResultParams.resultValues)
+                    .withMessage("The resultValues format does not comply to the resultStructure of the "
+                            + "resultTemplate!");
+        }
+        String valueToken = tokens[layout.valueIndex];
+        if (valueToken.isEmpty()) {
+            return null;
+        }
+        Date start;
+        Date end;
+        Date resultTime = null;
+        try {
+            String phenomenonTime = tokens[layout.phenomenonTimeIndex];
+            if (phenomenonTime.contains("/")) {
+                String[] subTokens = phenomenonTime.split("/");
+                start = DateTimeHelper.parseIsoString2DateTime(subTokens[0]).toDate();
+                end = DateTimeHelper.parseIsoString2DateTime(subTokens[1]).toDate();
+            } else {
+                start = DateTimeHelper.parseIsoString2DateTime(phenomenonTime).toDate();
+                end = start;
+            }
+            if (layout.resultTimeIndex >= 0) {
+                resultTime = DateTimeHelper.parseIsoString2DateTime(tokens[layout.resultTimeIndex]).toDate();
+            }
+        } catch (Exception e) {
+            throw new NoApplicableCodeException().causedBy(e).withMessage(ERROR_PARSING_TIME_LOG);
+        }
+        return new Row(start, end, resultTime, parseValue(valueToken, layout.entityClass));
+    }
+
+    private Object parseValue(String token, Class<? extends DataEntity<?>> entityClass)
+            throws OwsExceptionReport {
+        try {
+            if (QuantityDataEntity.class.equals(entityClass)) {
+                return new BigDecimal(token);
+            } else if (CountDataEntity.class.equals(entityClass)) {
+                return Integer.valueOf(token);
+            } else if (BooleanDataEntity.class.equals(entityClass)) {
+                return parseBoolean(token);
+            }
+            return token;
+        } catch (NumberFormatException e) {
+            throw new InvalidParameterValueException().causedBy(e)
+                    .at(Sos2Constants.InsertResultParams.resultValues)
+                    .withMessage("The value '%s' can not be parsed!", token);
+        }
+    }
+
+    private Boolean parseBoolean(String token) throws OwsExceptionReport {
+        if ("true".equalsIgnoreCase(token) || "1".equals(token)) {
+            return Boolean.TRUE;
+        } else if ("false".equalsIgnoreCase(token) || "0".equals(token)) {
+            return Boolean.FALSE;
+        }
+        throw new InvalidParameterValueException().at(Sos2Constants.InsertResultParams.resultValues)
+                .withMessage("The value '%s' is not a boolean, allowed are true, false, 1 and 0!", token);
+    }
+
+    private DatasetEntity getDataset(ResultTemplateEntity resultTemplate, Layout layout, Session session) {
+        List<DatasetEntity> datasets = daoFactory.getSeriesDAO().getSeries(
+                resultTemplate.getProcedure().getIdentifier(), resultTemplate.getPhenomenon().getIdentifier(),
+                resultTemplate.getOffering().getIdentifier(),
+                Collections.singleton(resultTemplate.getFeature().getIdentifier()), session);
+        if (datasets.size() != 1) {
+            return null;
+        }
+        DatasetEntity dataset = datasets.get(0);
+        if (dataset.isSetOmObservationType()
+                && !layout.observationType.equals(dataset.getOmObservationType().getFormat())) {
+            return null;
+        }
+        return dataset;
+    }
+
+    private OmObservation createObservation(ResultTemplateEntity resultTemplate, DatasetEntity dataset,
+            Extent extent) {
+        SensorML procedure = new SensorML();
+        procedure.setIdentifier(resultTemplate.getProcedure().getIdentifier());
+        OmObservationConstellation constellation = new OmObservationConstellation()
+                .setObservableProperty(new OmObservableProperty(resultTemplate.getPhenomenon().getIdentifier()))
+                .setOfferings(Sets.newHashSet(resultTemplate.getOffering().getIdentifier()))
+                .setObservationType(dataset.isSetOmObservationType() ? dataset.getOmObservationType().getFormat()
+                        : null);
+        constellation.setProcedure(new SosProcedureDescription<AbstractFeature>(procedure));
+        constellation.setFeatureOfInterest(
+                new SamplingFeature(new CodeWithAuthority(resultTemplate.getFeature().getIdentifier())));
+        OmObservation observation = new OmObservation();
+        observation.setObservationConstellation(constellation);
+        observation.setResultType(OmConstants.OBS_TYPE_SWE_ARRAY_OBSERVATION);
+        Time phenomenonTime = extent.start.equals(extent.end) ? new TimeInstant(toDateTime(extent.start))
+                : new TimePeriod(toDateTime(extent.start), toDateTime(extent.end));
+        observation.setPhenomenonTime(phenomenonTime);
+        observation.setResultTime(new TimeInstant(toDateTime(extent.resultTime)));
+        return observation;
+    }
+
+    private DateTime toDateTime(Date date) {
+        return new DateTime(date, DateTimeZone.UTC);
+    }
+
+    /**
+     * Collects parsed rows and writes them once the batch size is reached.
+     */
+    private final class Batch {
+        private final BulkObservationWriter writer;
+        private final DatasetEntity dataset;
+        private final Session session;
+        private final List<Row> rows = new ArrayList<>();
+        private final Extent extent = new Extent();
+        private Extent batchExtent = new Extent();
+
+        Batch(BulkObservationWriter writer, DatasetEntity dataset, Session session) {
+            this.writer = writer;
+            this.dataset = dataset;
+            this.session = session;
+        }
+
+        void add(List<Row> parsed) {
+            for (Row row : parsed) {
+                rows.add(row);
+                batchExtent.add(row);
+                if (rows.size() == batchSize) {
+                    flush();
+                }
+            }
+        }
+
+        void flush() {
+            if (rows.isEmpty()) {
+                return;
+            }
+            writer.write(dataset, rows, session);
+            if (!dataset.isSetFirstValueAt() || batchExtent.start.before(dataset.getFirstValueAt())) {
+                updateDataset(dataset, DataEntity.PROPERTY_SAMPLING_TIME_START, batchExtent.start, session);
+            }
+            if (!dataset.isSetLastValueAt() || batchExtent.end.after(dataset.getLastValueAt())) {
+                updateDataset(dataset, DataEntity.PROPERTY_SAMPLING_TIME_END, batchExtent.end, session);
+            }
+            extent.add(batchExtent);
+            batchExtent = new Extent();
+            rows.clear();
+        }
+    }
+
+    /**
+     * Positions of the fields of a supported result structure.
+     */
+    static final class Layout {
+        private int phenomenonTimeIndex = -1;
+        private int resultTimeIndex = -1;
+        private int valueIndex = -1;
+        private int maxIndex;
+        private Class<? extends DataEntity<?>> entityClass;
+        private String observationType;
+
+        /**
+         * @param resultTemplate
+         *            the result template
+         * @param resultStructure
+         *            the decoded structure of the template
+         * @return the layout or {@code null} if the template can not be
+         *         ingested in bulk
+         */
+        static Layout of(ResultTemplateEntity resultTemplate, SweAbstractDataComponent resultStructure) {
+            if (!resultTemplate.isSetProcedure() || !resultTemplate.isSetFeature()) {
+                return null;
+            }
+            SweDataRecord record = null;
+            if (resultStructure instanceof SweDataRecord) {
+                record = (SweDataRecord) resultStructure;
+            } else if (resultStructure instanceof SweDataArray
+                    && ((SweDataArray) resultStructure).getElementType() instanceof SweDataRecord) {
+                record = (SweDataRecord) ((SweDataArray) resultStructure).getElementType();
+            }
+            if (record == null) {
+                return null;
+            }
+            Layout layout = new Layout();
+            int index = 0;
+            for (SweField field : record.getFields()) {
+                SweAbstractDataComponent element = field.getElement();
+                if (element instanceof SweTime && OmConstants.RESULT_TIME.equals(element.getDefinition())) {
+                    layout.resultTimeIndex = index;
+                } else if ((element instanceof SweTime || element instanceof SweTimeRange)
+                        && layout.phenomenonTimeIndex < 0) {
+                    layout.phenomenonTimeIndex = index;
+                } else if (layout.entityClass == null && getEntityClass(element) != null) {
+                    layout.entityClass = getEntityClass(element);
+                    layout.observationType = getObservationType(element);
+                    layout.valueIndex = index;
+                } else {
+                    return null;
+                }
+                index++;
+            }
+            if (layout.phenomenonTimeIndex < 0 || layout.entityClass == null) {
+                return null;
+            }
+            layout.maxIndex = index - 1;
+            return layout;
+        }
+
+        private static Class<? extends DataEntity<?>> getEntityClass(SweAbstractDataComponent element) {
+            if (element instanceof SweQuantity) {
+                return QuantityDataEntity.class;
+            } else if (element instanceof SweCount) {
+                return CountDataEntity.class;
+            } else if (element instanceof SweBoolean) {
+                return BooleanDataEntity.class;
+            } else if (element instanceof SweCategory) {
+                return CategoryDataEntity.class;
+            } else if (element instanceof SweText && element.isSetDefinition()
+                    && !element.getDefinition().contains(ResultHandlingHelper.OM_FEATURE_OF_INTEREST)
+                    && !element.getDefinition().contains(ResultHandlingHelper.OM_PROCEDURE)) {
+                return TextDataEntity.class;
+            }
+            return null;
+        }
+
+        private static String getObservationType(SweAbstractDataComponent element) {
+            if (element instanceof SweQuantity) {
+                return OmConstants.OBS_TYPE_MEASUREMENT;
+            } else if (element instanceof SweCount) {
+                return OmConstants.OBS_TYPE_COUNT_OBSERVATION;
+            } else if (element instanceof SweBoolean) {
+                return OmConstants.OBS_TYPE_TRUTH_OBSERVATION;
+            } else if (element instanceof SweCategory) {
+                return OmConstants.OBS_TYPE_CATEGORY_OBSERVATION;
+            }
+            return OmConstants.OBS_TYPE_TEXT_OBSERVATION;
+        }
+    }
+
+    /**
+     * Temporal extent and number of written rows.
+     */
+    private static final class Extent {
+        private Date start;
+        private Date end;
+        private Date resultTime;
+        private long count;
+
+        void add(Row row) {
+            Date rowResultTime = row.getResultTime() != null ? row.getResultTime() : row.getPhenomenonTimeEnd();
+            add(row.getPhenomenonTimeStart(), row.getPhenomenonTimeEnd(), rowResultTime, 1);
+        }
+
+        void add(Extent other) {
+            if (other.count > 0) {
+                add(other.start, other.end, other.resultTime, other.count);
+            }
+        }
+
+        private void add(Date otherStart, Date otherEnd, Date otherResultTime, long otherCount) {
+            if (start == null || otherStart.before(start)) {
+                start = otherStart;
+            }
+            if (end == null || otherEnd.after(end)) {
+                end = otherEnd;
+            }
+            if (resultTime == null || otherResultTime.after(resultTime)) {
+                resultTime = otherResultTime;
+            }
+            count += otherCount;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.hibernate.Session;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.ResultTemplateEntity;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.swe.SweAbstractDataComponent;
+import org.n52.shetland.ogc.swe.encoding.SweAbstractEncoding;
+
+/**
+ * Compiled form of a result template for the InsertResult operation. It holds
+ * the decoded result structure and encoding, the observation template with
+ * the observation constellation of the result template, the field layout for
+ * the bulk ingestion and the ids of the datasets the values were inserted
+ * into.
+ * <p>
+ * The datasets are referenced by id and are loaded into the session of each
+ * request. Deleted datasets are removed from the plan and resolved again.
+ */
+public class ResultTemplatePlan {
+
+    private final Long templateId;
+
+    private final String identifier;
+
+    private final String structureXml;
+
+    private final String encodingXml;
+
+    private final SweAbstractEncoding encoding;
+
+    private final SweAbstractDataComponent structure;
+
+    private final OmObservation observationTemplate;
+
+    private final BulkResultIngester.Layout bulkLayout;
+
+    private final Map<OmObservationConstellation, Long> datasets = new ConcurrentHashMap<>();
+
+    private volatile Long bulkDataset;
+
+    public ResultTemplatePlan(ResultTemplateEntity resultTemplate, SweAbstractEncoding encoding,
+            SweAbstractDataComponent structure, OmObservation observationTemplate) {
+        this.templateId = resultTemplate.getId();
+        this.identifier = resultTemplate.getIdentifier();
+        this.structureXml = resultTemplate.getStructure();
+        this.encodingXml = resultTemplate.getEncoding();
+        this.encoding = encoding;
+        this.structure = structure;
+        this.observationTemplate = observationTemplate;
+        this.bulkLayout = BulkResultIngester.Layout.of(resultTemplate, structure);
+    }
+
+    /**
+     * Check if the plan was compiled from the result template, i.e. the
+     * template was not deleted and inserted again with the same identifier.
+     *
+     * @param resultTemplate
+     *            the result template
+     * @return <code>true</code> if the plan can be used for the template
+     */
+    public boolean matches(ResultTemplateEntity resultTemplate) {
+        return resultTemplate != null && Objects.equals(templateId, resultTemplate.getId())
+                && Objects.equals(identifier, resultTemplate.getIdentifier())
+                && Objects.equals(structureXml, resultTemplate.getStructure())
+                && Objects.equals(encodingXml, resultTemplate.getEncoding());
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    public SweAbstractEncoding getEncoding() {
+        return encoding;
+    }
+
+    public SweAbstractDataComponent getStructure() {
+        return structure;
+    }
+
+    /**
+     * @return the observation without values containing the observation
+     *         constellation and the result structure of the template
+     */
+    public OmObservation getObservationTemplate() {
+        return observationTemplate;
+    }
+
+    BulkResultIngester.Layout getBulkLayout() {
+        return bulkLayout;
+    }
+
+    /**
+     * Get the dataset previously resolved for the observation constellation.
+     *
+     * @param constellation
+     *            the observation constellation
+     * @param session
+     *            Hibernate session
+     * @return the dataset or <code>null</code> if it is not known or deleted
+     */
+    public DatasetEntity getDataset(OmObservationConstellation constellation, Session session) {
+        Long id = datasets.get(constellation);
+        if (id == null) {
+            return null;
+        }
+        DatasetEntity dataset = load(id, session);
+        if (dataset == null) {
+            datasets.remove(constellation);
+        }
+        return dataset;
+    }
+
+    public void setDataset(OmObservationConstellation constellation, DatasetEntity dataset) {
+        if (dataset != null && dataset.getId() != null) {
+            datasets.put(constellation, dataset.getId());
+        }
+    }
+
+    DatasetEntity getBulkDataset(Session session) {
+        Long id = bulkDataset;
+        if (id == null) {
+            return null;
+        }
+        DatasetEntity dataset = load(id, session);
+        if (dataset == null) {
+            bulkDataset = null;
+        }
+        return dataset;
+    }
+
+    void setBulkDataset(DatasetEntity dataset) {
+        this.bulkDataset = dataset != null ? dataset.getId() : null;
+    }
+
+    private DatasetEntity load(Long id, Session session) {
+        DatasetEntity dataset = session.get(DatasetEntity.class, id);
+        return dataset != null && !dataset.isDeleted() ? dataset : null;
+    }
+
+}
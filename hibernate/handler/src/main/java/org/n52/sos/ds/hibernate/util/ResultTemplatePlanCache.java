@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.janmayen.event.Event;
+import org.n52.janmayen.event.EventListener;
+import org.n52.series.db.beans.ResultTemplateEntity;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.event.events.ResultTemplatesDeletion;
+import org.n52.sos.event.events.SensorDeletion;
+import org.n52.sos.event.events.UpdateCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Sets;
+
+/**
+ * Cache of the {@link ResultTemplatePlan}s keyed by result template
+ * identifier. The plans of deleted result templates are removed, all plans
+ * are removed if a sensor is deleted or the content cache is updated.
+ *
+ * A cached plan is only returned if it {@link ResultTemplatePlan#matches
+ * matches} the result template entity of the request, so a template that was
+ * deleted and inserted again is compiled again even if the deletion event was
+ * not yet processed.
+ */
+@Configurable
+public class ResultTemplatePlanCache implements EventListener {
+
+    public static final String ENABLED = "service.insertResult.templatePlans.enabled";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResultTemplatePlanCache.class);
+
+    private static final int MAX_SIZE = 1000;
+
+    @SuppressWarnings("unchecked")
+    private static final Set<Class<? extends Event>> TYPES = Sets.<Class<? extends Event>> newHashSet(
+            ResultTemplatesDeletion.class, SensorDeletion.class, UpdateCache.class);
+
+    private final Cache<String, ResultTemplatePlan> plans = CacheBuilder.newBuilder().maximumSize(MAX_SIZE).build();
+
+    private boolean enabled = true;
+
+    @Setting(ENABLED)
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            clear();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get the cached plan of the result template or compile and cache it.
+     *
+     * @param resultTemplate
+     *            the result template
+     * @param compiler
+     *            compiles the plan if it is not cached
+     * @return the plan
+     * @throws OwsExceptionReport
+     *             If an error occurs while compiling the plan
+     */
+    public ResultTemplatePlan get(ResultTemplateEntity resultTemplate, Compiler compiler)
+            throws OwsExceptionReport {
+        if (!isEnabled()) {
+            return compiler.compile();
+        }
+        ResultTemplatePlan plan = plans.getIfPresent(resultTemplate.getIdentifier());
+        if (plan != null && plan.matches(resultTemplate)) {
+            return plan;
+        }
+        LOGGER.debug("Compiling plan of result template {}", resultTemplate.getIdentifier());
+        plan = compiler.compile();
+        plans.put(resultTemplate.getIdentifier(), plan);
+        return plan;
+    }
+
+    public void invalidate(String identifier) {
+        plans.invalidate(identifier);
+    }
+
+    public void clear() {
+        plans.invalidateAll();
+    }
+
+    public long size() {
+        return plans.size();
+    }
+
+    @Override
+    public Set<Class<? extends Event>> getTypes() {
+        return Collections.unmodifiableSet(TYPES);
+    }
+
+    @Override
+    public void handle(Event event) {
+        if (event instanceof ResultTemplatesDeletion) {
+            ((ResultTemplatesDeletion) event).getResponse().getResultTemplates().forEach(this::invalidate);
+        } else {
+            LOGGER.debug("Clearing result template plans after {}", event.getClass().getSimpleName());
+            clear();
+        }
+    }
+
+    /**
+     * Compiles the plan of a result template.
+     */
+    @FunctionalInterface
+    public interface Compiler {
+        ResultTemplatePlan compile() throws OwsExceptionReport;
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+
+import com.google.common.base.Splitter;
+
+/**
+ * Two staged processing of InsertResult values. The blocks are parsed in
+ * chunks on a separate thread and handed over through a bounded queue to the
+ * calling thread, which persists them. Parsing and database I/O overlap and at
+ * most {@code queueSize} parsed chunks are held in memory.
+ * <p>
+ * The consuming stage always runs on the calling thread, so the Hibernate
+ * session and transaction stay confined to it. Without an executor or with a
+ * queue size of zero the chunks are parsed and consumed one after the other on
+ * the calling thread.
+ * <p>
+ * The parser has to handle each chunk independently. Results whose
+ * observations are assembled from several blocks, e.g. profiles, have to be
+ * parsed with {@link #processAtOnce(Iterator, Parser, Consumer)}.
+ */
+public class ResultValuesPipeline {
+
+    private static final long POLL_TIMEOUT = 100;
+
+    private final ExecutorService executor;
+
+    private final int chunkSize;
+
+    private final int queueSize;
+
+    public ResultValuesPipeline(ExecutorService executor, int chunkSize, int queueSize) {
+        this.executor = executor;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * Lazily split the result values into blocks, skipping a preceding count
+     * value.
+     *
+     * @param resultValues
+     *            Result values
+     * @param blockSeparator
+     *            Block separator (regular expression as for
+     *            {@link String#split(String)})
+     * @param tokenSeparator
+     *            Token separator
+     * @return Iterator of the blocks
+     */
+    public static Iterator<String> blocks(String resultValues, String blockSeparator, String tokenSeparator) {
+        if (resultValues == null || resultValues.isEmpty()) {
+            return Collections.emptyIterator();
+        }
+        Iterator<String> blocks = Splitter.onPattern(blockSeparator).split(resultValues).iterator();
+        String first = blocks.next();
+        if (first.contains(tokenSeparator)) {
+            return new Iterator<String>() {
+                private boolean firstReturned;
+
+                @Override
+                public boolean hasNext() {
+                    return !firstReturned || blocks.hasNext();
+                }
+
+                @Override
+                public String next() {
+                    if (!firstReturned) {
+                        firstReturned = true;
+                        return first;
+                    }
+                    return blocks.next();
+                }
+            };
+        }
+        return blocks;
+    }
+
+    /**
+     * Parse the blocks chunk by chunk and pass the results to the consumer in
+     * order.
+     *
+     * @param blocks
+     *            the blocks to process
+     * @param parser
+     *            parsing stage
+     * @param consumer
+     *            persisting stage, called on the calling thread
+     * @param <T>
+     *            the type of a parsed chunk
+     * @throws OwsExceptionReport
+     *             if a stage fails
+     */
+    public <T> void process(Iterator<String> blocks, Parser<T> parser, Consumer<T> consumer)
+            throws OwsExceptionReport {
+        if (executor == null || queueSize <= 0) {
+            while (blocks.hasNext()) {
+                consumer.accept(parser.parse(nextChunk(blocks)));
+            }
+            return;
+        }
+        BlockingQueue<Chunk<T>> queue = new ArrayBlockingQueue<>(queueSize);
+        Future<?> producer = executor.submit(() -> produce(blocks, parser, queue));
+        try {
+            Chunk<T> chunk = take(queue, producer);
+            while (!chunk.isEnd()) {
+                chunk.rethrow();
+                consumer.accept(chunk.value);
+                chunk = take(queue, producer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NoApplicableCodeException().causedBy(e).withMessage("Interrupted while inserting results!");
+        } finally {
+            producer.cancel(true);
+        }
+    }
+
+    /**
+     * Parse all blocks as one chunk on the calling thread, for results whose
+     * observations are assembled from several blocks.
+     *
+     * @param blocks
+     *            the blocks to process
+     * @param parser
+     *            parsing stage
+     * @param consumer
+     *            persisting stage
+     * @param <T>
+     *            the type of the parsed blocks
+     * @throws OwsExceptionReport
+     *             if a stage fails
+     */
+    public <T> void processAtOnce(Iterator<String> blocks, Parser<T> parser, Consumer<T> consumer)
+            throws OwsExceptionReport {
+        List<String> all = new ArrayList<>();
+        blocks.forEachRemaining(all::add);
+        consumer.accept(parser.parse(all));
+    }
+
+    /**
+     * Wait for the next chunk. Fails if the producer finished without
+     * queueing a terminal chunk, e.g. because it was cancelled.
+     */
+    private <T> Chunk<T> take(BlockingQueue<Chunk<T>> queue, Future<?> producer)
+            throws InterruptedException, OwsExceptionReport {
+        while (true) {
+            Chunk<T> chunk = queue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+            if (chunk != null) {
+                return chunk;
+            }
+            if (producer.isDone()) {
+                // the terminal chunk may have been queued right before
+                chunk = queue.poll();
+                if (chunk != null) {
+                    return chunk;
+                }
+                try {
+                    producer.get();
+                } catch (ExecutionException | CancellationException e) {
+                    throw new NoApplicableCodeException().causedBy(e.getCause() != null ? e.getCause() : e)
+                            .withMessage("Parsing the result values failed!");
+                }
+                throw new NoApplicableCodeException().withMessage("Parsing the result values stopped unexpectedly!");
+            }
+        }
+    }
+
+    private <T> void produce(Iterator<String> blocks, Parser<T> parser, BlockingQueue<Chunk<T>> queue) {
+        Chunk<T> last = new Chunk<>(null, null);
+        try {
+            while (blocks.hasNext()) {
+                queue.put(new Chunk<>(parser.parse(nextChunk(blocks)), null));
+            }
+        } catch (InterruptedException e) {
+            // the consumer failed or finished
+            Thread.currentThread().interrupt();
+            return;
+        } catch (OwsExceptionReport | RuntimeException | Error e) {
+            last = new Chunk<>(null, e);
+        }
+        try {
+            queue.put(last);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<String> nextChunk(Iterator<String> blocks) {
+        List<String> chunk = new ArrayList<>(chunkSize);
+        while (blocks.hasNext() && chunk.size() < chunkSize) {
+            chunk.add(blocks.next());
+        }
+        return chunk;
+    }
+
+    /**
+     * Parsing stage, converts a chunk of blocks.
+     *
+     * @param <T>
+     *            the type of a parsed chunk
+     */
+    @FunctionalInterface
+    public interface Parser<T> {
+        T parse(List<String> blocks) throws OwsExceptionReport;
+    }
+
+    /**
+     * Persisting stage, consumes a parsed chunk.
+     *
+     * @param <T>
+     *            the type of a parsed chunk
+     */
+    @FunctionalInterface
+    public interface Consumer<T> {
+        void accept(T chunk) throws OwsExceptionReport;
+    }
+
+    private static final class Chunk<T> {
+        private final T value;
+        private final Throwable error;
+
+        Chunk(T value, Throwable error) {
+            this.value = value;
+            this.error = error;
+        }
+
+        boolean isEnd() {
+            return value == null && error == null;
+        }
+
+        void rethrow() throws OwsExceptionReport {
+            if (error instanceof OwsExceptionReport) {
+                throw (OwsExceptionReport) error;
+            } else if (error instanceof Error) {
+                throw (Error) error;
+            } else if (error != null) {
+                throw (RuntimeException) error;
+            }
+        }
+    }
+}
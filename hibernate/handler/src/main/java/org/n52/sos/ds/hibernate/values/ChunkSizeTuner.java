@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.values;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.sos.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Adjusts the chunk size of the chunk streaming per series. The chunk size
+ * is doubled if a full chunk was fetched faster than half of the target fetch
+ * time and halved if the fetch took longer than the target fetch time. The
+ * chunk size is limited by the configured minimum and maximum and by the
+ * maximum number of values per chunk, where values of complex, profile and
+ * data array observations are counted separately.
+ *
+ * The last chunk size of each series is kept and used as initial chunk size
+ * for the next request of the series. The adjustment is disabled by default.
+ */
+@Configurable
+public class ChunkSizeTuner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChunkSizeTuner.class);
+
+    private static final String METRIC_CHUNK_FETCH = "streaming.chunk.fetch";
+
+    private static final String METRIC_CHUNK_ROWS = "streaming.chunk.rows";
+
+    private static final String METRIC_CHUNK_SIZE = "streaming.chunk.averageSize";
+
+    private final Map<Long, Integer> chunkSizes = new ConcurrentHashMap<>();
+
+    private final AtomicLong chunks = new AtomicLong(0);
+
+    private final AtomicLong fetchedRows = new AtomicLong(0);
+
+    private final AtomicLong fetchTime = new AtomicLong(0);
+
+    private boolean adaptive;
+
+    private int minChunkSize = 1000;
+
+    private int maxChunkSize = 100000;
+
+    private long targetFetchTime = 500;
+
+    private long maxValuesPerChunk = 200000;
+
+    private MetricRegistry metricRegistry = new MetricRegistry();
+
+    @Setting(HibernateStreamingSettings.CHUNK_SIZE_ADAPTIVE)
+    public void setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+        if (!adaptive) {
+            chunkSizes.clear();
+        }
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    @Setting(HibernateStreamingSettings.CHUNK_SIZE_MIN)
+    public void setMinChunkSize(int minChunkSize) {
+        this.minChunkSize = Math.max(1, minChunkSize);
+    }
+
+    @Setting(HibernateStreamingSettings.CHUNK_SIZE_MAX)
+    public void setMaxChunkSize(int maxChunkSize) {
+        this.maxChunkSize = Math.max(1, maxChunkSize);
+    }
+
+    @Setting(HibernateStreamingSettings.CHUNK_TARGET_FETCH_TIME)
+    public void setTargetFetchTime(int targetFetchTime) {
+        this.targetFetchTime = Math.max(1, targetFetchTime);
+    }
+
+    @Setting(HibernateStreamingSettings.CHUNK_MAX_VALUES)
+    public void setMaxValuesPerChunk(int maxValuesPerChunk) {
+        this.maxValuesPerChunk = Math.max(1, maxValuesPerChunk);
+    }
+
+    @Inject
+    public void setMetricRegistry(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+        metricRegistry.gauge(METRIC_CHUNK_SIZE, this::getAverageChunkSize);
+    }
+
+    /**
+     * Get the chunk size to start the streaming of the series with.
+     *
+     * @param series
+     *            the series id
+     * @param defaultChunkSize
+     *            the configured chunk size
+     * @return the chunk size
+     */
+    public int getChunkSize(long series, int defaultChunkSize) {
+        if (!isAdaptive() || defaultChunkSize <= 0) {
+            return defaultChunkSize;
+        }
+        return chunkSizes.getOrDefault(series, limit(defaultChunkSize));
+    }
+
+    /**
+     * Calculate the chunk size of the next chunk of the series from the
+     * fetched chunk.
+     *
+     * @param series
+     *            the series id
+     * @param chunkSize
+     *            the chunk size of the fetched chunk
+     * @param values
+     *            the fetched values
+     * @param time
+     *            the fetch time in milliseconds
+     * @return the chunk size for the next chunk
+     */
+    public int adjust(long series, int chunkSize, Collection<DataEntity<?>> values, long time) {
+        chunks.incrementAndGet();
+        fetchedRows.addAndGet(values.size());
+        fetchTime.addAndGet(time);
+        metricRegistry.timer(METRIC_CHUNK_FETCH).record(time, TimeUnit.MILLISECONDS);
+        metricRegistry.counter(METRIC_CHUNK_ROWS).add(values.size());
+        if (!isAdaptive() || chunkSize <= 0 || values.isEmpty()) {
+            return chunkSize;
+        }
+        long next = chunkSize;
+        if (time > targetFetchTime) {
+            next = chunkSize / 2;
+        } else if (values.size() >= chunkSize && time < targetFetchTime / 2) {
+            next = (long) chunkSize * 2;
+        }
+        double width = (double) countValues(values) / values.size();
+        next = Math.min(next, (long) (maxValuesPerChunk / width));
+        int adjusted = limit(next);
+        chunkSizes.put(series, adjusted);
+        if (adjusted != chunkSize) {
+            LOGGER.debug("Chunk size of series {} changed from {} to {} (fetch time {} ms, values per row {})",
+                    series, chunkSize, adjusted, time, width);
+        }
+        return adjusted;
+    }
+
+    /**
+     * @return the current chunk sizes per series
+     */
+    public Map<Long, Integer> getChunkSizes() {
+        return Collections.unmodifiableMap(new HashMap<>(chunkSizes));
+    }
+
+    public double getAverageChunkSize() {
+        return chunkSizes.values().stream().mapToInt(Integer::intValue).average().orElse(0);
+    }
+
+    public long getChunkCount() {
+        return chunks.get();
+    }
+
+    public long getFetchedRows() {
+        return fetchedRows.get();
+    }
+
+    public long getFetchTime() {
+        return fetchTime.get();
+    }
+
+    public void clear() {
+        chunkSizes.clear();
+    }
+
+    private int limit(long chunkSize) {
+        int min = Math.min(minChunkSize, maxChunkSize);
+        return (int) Math.max(min, Math.min(maxChunkSize, chunkSize));
+    }
+
+    private long countValues(Collection<DataEntity<?>> values) {
+        long count = 0;
+        for (DataEntity<?> value : values) {
+            count++;
+            if (value.getValue() instanceof Collection) {
+                count += ((Collection<?>) value.getValue()).size();
+            }
+        }
+        return count;
+    }
+}
@@ -39,4 +39,14 @@ public interface HibernateStreamingSettings {
 
     String CHUNK_SIZE = "service.streaming.datasource.chunkSize";
 
+    String CHUNK_SIZE_ADAPTIVE = "service.streaming.datasource.chunkSize.adaptive";
+
+    String CHUNK_SIZE_MIN = "service.streaming.datasource.chunkSize.min";
+
+    String CHUNK_SIZE_MAX = "service.streaming.datasource.chunkSize.max";
+
+    String CHUNK_TARGET_FETCH_TIME = "service.streaming.datasource.chunkSize.targetFetchTime";
+
+    String CHUNK_MAX_VALUES = "service.streaming.datasource.chunkSize.maxValues";
+
 }
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.values;
+
+import org.n52.sos.request.TemporalAggregation;
+
+/**
+ * Streaming aggregation of time ordered values into buckets of fixed size.
+ * Only the current bucket is kept in memory.
+ *
+ * @param <T>
+ *            the type of the aggregated values
+ */
+public class IntervalAggregator<T> {
+
+    private final TemporalAggregation aggregation;
+
+    private Bucket<T> bucket;
+
+    public IntervalAggregator(TemporalAggregation aggregation) {
+        this.aggregation = aggregation;
+    }
+
+    /**
+     * Add a value.
+     *
+     * @param time
+     *            the time in milliseconds
+     * @param value
+     *            the numeric value or {@link Double#NaN}
+     * @param payload
+     *            the original value
+     * @return the bucket completed by this value, or {@code null}
+     */
+    public Bucket<T> add(long time, double value, T payload) {
+        long start = aggregation.getBucketStart(time);
+        Bucket<T> completed = null;
+        if (bucket != null && bucket.getStart() != start) {
+            completed = bucket;
+            bucket = null;
+        }
+        if (bucket == null) {
+            bucket = new Bucket<>(start, start + aggregation.getInterval());
+        }
+        bucket.add(value, payload);
+        return completed;
+    }
+
+    /**
+     * @return the last bucket, or {@code null}
+     */
+    public Bucket<T> finish() {
+        Bucket<T> last = bucket;
+        bucket = null;
+        return last;
+    }
+
+    /**
+     * The aggregated values of a bucket.
+     *
+     * @param <T>
+     *            the type of the aggregated values
+     */
+    public static class Bucket<T> {
+
+        private final long start;
+
+        private final long end;
+
+        private long count;
+
+        private long numericCount;
+
+        private double min = Double.NaN;
+
+        private double max = Double.NaN;
+
+        private double sum;
+
+        private T first;
+
+        private T last;
+
+        public Bucket(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        void add(double value, T payload) {
+            if (count++ == 0) {
+                first = payload;
+            }
+            last = payload;
+            if (!Double.isNaN(value)) {
+                if (numericCount++ == 0) {
+                    min = value;
+                    max = value;
+                } else {
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+                sum += value;
+            }
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMin() {
+            return min;
+        }
+
+        public double getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return numericCount > 0 ? sum / numericCount : Double.NaN;
+        }
+
+        public T getFirst() {
+            return first;
+        }
+
+        public T getLast() {
+            return last;
+        }
+
+        /**
+         * @param function
+         *            the aggregation function
+         * @return the computed value of the function, {@link Double#NaN} if
+         *         no numeric value was aggregated
+         */
+        public double getValue(TemporalAggregation.Function function) {
+            switch (function) {
+                case MIN:
+                    return getMin();
+                case MAX:
+                    return getMax();
+                case MEAN:
+                    return getMean();
+                case COUNT:
+                    return getCount();
+                default:
+                    throw new IllegalArgumentException(function.name());
+            }
+        }
+
+        /**
+         * @param function
+         *            the aggregation function
+         * @return the selected original value of the function
+         */
+        public T getSelected(TemporalAggregation.Function function) {
+            switch (function) {
+                case FIRST:
+                    return getFirst();
+                case LAST:
+                    return getLast();
+                default:
+                    throw new IllegalArgumentException(function.name());
+            }
+        }
+    }
+}
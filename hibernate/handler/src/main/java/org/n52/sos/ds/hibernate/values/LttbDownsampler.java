@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.values;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Streaming Largest-Triangle-Three-Buckets downsampling of time ordered
+ * values. The first and the last value are always selected, the values in
+ * between are divided into buckets of equal count and the value spanning the
+ * largest triangle with the previous selected value and the average of the
+ * next bucket is selected per bucket. The number of values has to be known in
+ * advance, only two buckets are kept in memory.
+ *
+ * @param <T>
+ *            the type of the downsampled values
+ */
+public class LttbDownsampler<T> {
+
+    private final int threshold;
+
+    private final double every;
+
+    private final boolean passThrough;
+
+    private long index;
+
+    private Point<T> selected;
+
+    private Point<T> latest;
+
+    private List<Point<T>> current = new ArrayList<>();
+
+    private List<Point<T>> next = new ArrayList<>();
+
+    private int currentBucket = -1;
+
+    private int nextBucket = -1;
+
+    /**
+     * @param total
+     *            the expected number of values
+     * @param threshold
+     *            the number of values to select, at least three
+     */
+    public LttbDownsampler(long total, int threshold) {
+        if (threshold < 3) {
+            throw new IllegalArgumentException("threshold has to be at least 3");
+        }
+        this.threshold = threshold;
+        this.passThrough = total <= threshold;
+        this.every = passThrough ? 1 : (double) (total - 2) / (threshold - 2);
+    }
+
+    /**
+     * Add a value.
+     *
+     * @param x
+     *            the time of the value
+     * @param y
+     *            the numeric value
+     * @param payload
+     *            the original value
+     * @return the values selected by this value, in time order
+     */
+    public List<T> add(double x, double y, T payload) {
+        if (passThrough) {
+            return Collections.singletonList(payload);
+        }
+        Point<T> point = new Point<>(x, y, payload);
+        List<T> result = new ArrayList<>(1);
+        if (index++ == 0) {
+            selected = point;
+            result.add(payload);
+        } else {
+            if (latest != null) {
+                push(latest, index - 3, result);
+            }
+            latest = point;
+        }
+        return result;
+    }
+
+    /**
+     * @return the values remaining to be selected, in time order
+     */
+    public List<T> finish() {
+        List<T> result = new ArrayList<>(3);
+        if (!passThrough) {
+            if (!current.isEmpty()) {
+                if (!next.isEmpty()) {
+                    select(current, average(next), result);
+                    select(next, latest, result);
+                } else {
+                    select(current, latest, result);
+                }
+            }
+            if (latest != null) {
+                result.add(latest.payload);
+            }
+            current = new ArrayList<>();
+            next = new ArrayList<>();
+            latest = null;
+        }
+        return result;
+    }
+
+    private void push(Point<T> point, long position, List<T> result) {
+        int bucket = (int) Math.min((long) (position / every), threshold - 3);
+        if (current.isEmpty() || bucket == currentBucket) {
+            currentBucket = bucket;
+            current.add(point);
+        } else if (next.isEmpty() || bucket == nextBucket) {
+            nextBucket = bucket;
+            next.add(point);
+        } else {
+            select(current, average(next), result);
+            current = next;
+            currentBucket = nextBucket;
+            next = new ArrayList<>();
+            next.add(point);
+            nextBucket = bucket;
+        }
+    }
+
+    private void select(List<Point<T>> bucket, Point<T> c, List<T> result) {
+        Point<T> best = null;
+        double bestArea = -1;
+        for (Point<T> b : bucket) {
+            double area = Math.abs((selected.x - c.x) * (b.y - selected.y) - (selected.x - b.x) * (c.y - selected.y));
+            if (area > bestArea) {
+                bestArea = area;
+                best = b;
+            }
+        }
+        if (best != null) {
+            selected = best;
+            result.add(best.payload);
+        }
+    }
+
+    private Point<T> average(List<Point<T>> bucket) {
+        double x = 0;
+        double y = 0;
+        for (Point<T> point : bucket) {
+            x += point.x;
+            y += point.y;
+        }
+        return new Point<>(x / bucket.size(), y / bucket.size(), null);
+    }
+
+    private static final class Point<T> {
+        private final double x;
+
+        private final double y;
+
+        private final T payload;
+
+        Point(double x, double y, T payload) {
+            this.x = x;
+            this.y = y;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,403 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.values.series;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.n52.iceland.binding.BindingRepository;
+import org.n52.iceland.ds.ConnectionProvider;
+import org.n52.janmayen.http.HTTPStatus;
+import org.n52.series.db.beans.CountDataEntity;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.series.db.beans.dataset.ValueType;
+import org.n52.shetland.ogc.UoM;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.om.ObservationStream;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.TimeValuePair;
+import org.n52.shetland.ogc.om.values.CountValue;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.om.values.Value;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.exception.ResponseExceedsSizeLimitException;
+import org.n52.shetland.ogc.sos.request.AbstractObservationRequest;
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
+import org.n52.shetland.util.OMHelper;
+import org.n52.sos.ds.hibernate.cache.QuantityRollupStore;
+import org.n52.sos.ds.hibernate.dao.DaoFactory;
+import org.n52.sos.ds.hibernate.values.ChunkSizeTuner;
+import org.n52.sos.ds.hibernate.values.IntervalAggregator;
+import org.n52.sos.ds.hibernate.values.LttbDownsampler;
+import org.n52.sos.request.TemporalAggregation;
+import org.n52.sos.request.TemporalAggregation.Function;
+
+/**
+ * Hibernate series streaming value implementation that returns the values of
+ * a series aggregated by a {@link TemporalAggregation}. The interval functions
+ * {@code min}, {@code max}, {@code mean} and {@code count} are computed in the
+ * database if it is supported, otherwise the values are streamed in chunks and
+ * aggregated on the fly, keeping only the current bucket in memory.
+ */
+public class HibernateAggregatingSeriesStreamingValue extends HibernateChunkSeriesStreamingValue {
+
+    private static final String ERROR_LOG = "Error while aggregating observation data!";
+
+    private final TemporalAggregation aggregation;
+
+    private final Class<?> numericValueClass;
+
+    private final UoM unit;
+
+    private final Deque<TimeValuePair> values = new ArrayDeque<>();
+
+    private IntervalAggregator<TimeValuePair> intervalAggregator;
+
+    private LttbDownsampler<TimeValuePair> downsampler;
+
+    private Iterator<Object[]> aggregatedResult;
+
+    private boolean initialized;
+
+    private boolean finished;
+
+    private boolean rollup;
+
+    private Date rollupStart;
+
+    private Date rollupEnd;
+
+    private int maxNumberOfAggregatedValues;
+
+    private int numberOfAggregatedValues;
+
+    /**
+     * constructor
+     *
+     * @param connectionProvider
+     *            the connection provider
+     * @param daoFactory
+     *            the DAO factory
+     * @param request
+     *            {@link AbstractObservationRequest}
+     * @param dataset
+     *            the series to aggregate
+     * @param bindingRepository
+     *            the binding repository
+     * @param chunkSize
+     *            the chunk size for streamed aggregation
+     * @param chunkSizeTuner
+     *            the tuner to adjust the chunk size, may be {@code null}
+     * @param aggregation
+     *            the requested aggregation
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    public HibernateAggregatingSeriesStreamingValue(ConnectionProvider connectionProvider, DaoFactory daoFactory,
+            AbstractObservationRequest request, DatasetEntity dataset, BindingRepository bindingRepository,
+            int chunkSize, ChunkSizeTuner chunkSizeTuner, TemporalAggregation aggregation)
+            throws OwsExceptionReport {
+        super(connectionProvider, daoFactory, request, dataset.getId(), bindingRepository, chunkSize,
+                chunkSizeTuner);
+        this.aggregation = aggregation;
+        this.numericValueClass = getNumericValueClass(dataset);
+        this.unit = dataset.hasUnit() ? new UoM(dataset.getUnit().getIdentifier()) : null;
+    }
+
+    /**
+     * Check if the aggregation can be applied to the series. Numeric functions
+     * require a quantity or count series, {@code count}, {@code first} and
+     * {@code last} can be applied to every series.
+     *
+     * @param dataset
+     *            the series
+     * @param aggregation
+     *            the requested aggregation
+     * @return if the aggregation is applicable
+     */
+    public static boolean isApplicable(DatasetEntity dataset, TemporalAggregation aggregation) {
+        return !aggregation.getFunction().isNumeric() || getNumericValueClass(dataset) != null;
+    }
+
+    private static Class<?> getNumericValueClass(DatasetEntity dataset) {
+        if (ValueType.quantity.equals(dataset.getValueType())) {
+            return QuantityDataEntity.class;
+        } else if (ValueType.count.equals(dataset.getValueType())) {
+            return CountDataEntity.class;
+        }
+        return null;
+    }
+
+    /**
+     * Set the max number of aggregated values. The number of raw values is not
+     * limited as they are reduced by the aggregation.
+     *
+     * @param maxNumberOfAggregatedValues
+     *            the max number, values &lt;= 0 disable the check
+     */
+    public void setMaxNumberOfAggregatedValues(int maxNumberOfAggregatedValues) {
+        this.maxNumberOfAggregatedValues = maxNumberOfAggregatedValues;
+    }
+
+    /**
+     * Answer the aggregation from the {@link QuantityRollupStore} instead of
+     * the observations. The caller has to check that the rollup supports the
+     * aggregation and that the temporal filter of the request is either
+     * absent or a during filter of the given period. The buckets containing
+     * the start and the end of the period are queried from the observations
+     * with the temporal filter, the buckets in between from the rollup.
+     *
+     * @param start
+     *            the start of the filter period, {@code null} without filter
+     * @param end
+     *            the end of the filter period, {@code null} without filter
+     */
+    public void useRollup(Date start, Date end) {
+        this.rollup = true;
+        this.rollupStart = start;
+        this.rollupEnd = end;
+    }
+
+    @Override
+    public boolean hasNext() throws OwsExceptionReport {
+        try {
+            if (!initialized) {
+                initialize();
+            }
+            while (values.isEmpty() && !finished) {
+                if (aggregatedResult != null) {
+                    nextAggregatedResult();
+                } else {
+                    nextStreamedValue();
+                }
+            }
+            return !values.isEmpty();
+        } catch (final HibernateException he) {
+            returnSession(getSession());
+            throw new NoApplicableCodeException().causedBy(he).withMessage(ERROR_LOG)
+                    .setStatus(HTTPStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Override
+    public DataEntity<?> nextEntity() throws OwsExceptionReport {
+        throw new NoApplicableCodeException().withMessage("Aggregated values are not backed by entities!");
+    }
+
+    @Override
+    public TimeValuePair nextValue() throws OwsExceptionReport {
+        if (hasNext()) {
+            return values.poll();
+        }
+        return null;
+    }
+
+    @Override
+    public OmObservation next() throws OwsExceptionReport {
+        if (hasNext()) {
+            TimeValuePair value = values.poll();
+            OmObservation observation = getObservationTemplate().cloneTemplate();
+            observation.getObservationConstellation()
+                    .setObservationType(OMHelper.getObservationTypeFor(value.getValue()));
+            observation.setValue(createObservationValue(value));
+            checkForModifications(observation);
+            return observation;
+        }
+        return null;
+    }
+
+    @Override
+    public ObservationStream merge() throws OwsExceptionReport {
+        OmObservation observation = null;
+        while (hasNext()) {
+            if (observation == null) {
+                observation = next();
+            } else {
+                observation.getObservationConstellation()
+                        .setObservationType(OmConstants.OBS_TYPE_SWE_ARRAY_OBSERVATION);
+                observation.mergeWithObservation(createObservationValue(values.poll()));
+            }
+        }
+        return observation != null ? ObservationStream.of(observation) : ObservationStream.empty();
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private SingleObservationValue createObservationValue(TimeValuePair value) {
+        return new SingleObservationValue(value.getTime(), value.getValue());
+    }
+
+    private void initialize() throws OwsExceptionReport {
+        initialized = true;
+        Function function = aggregation.getFunction();
+        if (function == Function.LTTB) {
+            long total =
+                    seriesValueDAO.getSeriesValueCount(request, series, temporalFilterCriterion, getSession());
+            downsampler = new LttbDownsampler<>(total, aggregation.getPoints());
+        } else if (rollup) {
+            aggregatedResult = getRollupResult().iterator();
+        } else if (isDatabaseAggregation()) {
+            Session session = getSession();
+            List<Object[]> result = seriesValueDAO.getAggregatedSeriesValuesFor(request, series,
+                    temporalFilterCriterion, getValueClass(), aggregation, session);
+            returnSession(session);
+            aggregatedResult = result.iterator();
+        } else {
+            intervalAggregator = new IntervalAggregator<>(aggregation);
+        }
+    }
+
+    private List<Object[]> getRollupResult() throws OwsExceptionReport {
+        Session session = getSession();
+        QuantityRollupStore store = getDaoFactory().getQuantityRollupStore();
+        List<Object[]> result;
+        if (rollupStart == null || rollupEnd == null) {
+            result = store.aggregate(series, aggregation, null, null, session);
+        } else {
+            result = new ArrayList<>();
+            long head = aggregation.getBucketStart(rollupStart.getTime());
+            long tail = aggregation.getBucketStart(rollupEnd.getTime());
+            addEdgeBucket(result, head, session);
+            if (tail > head) {
+                result.addAll(store.aggregate(series, aggregation, new Date(head + aggregation.getInterval()),
+                        new Date(tail), session));
+                addEdgeBucket(result, tail, session);
+            }
+        }
+        returnSession(session);
+        return result;
+    }
+
+    private void addEdgeBucket(List<Object[]> result, long start, Session session) throws OwsExceptionReport {
+        Number value = seriesValueDAO.getAggregatedSeriesValueFor(request, series, temporalFilterCriterion,
+                numericValueClass, aggregation.getFunction(), new Date(start),
+                new Date(start + aggregation.getInterval()), session);
+        if (value != null && (aggregation.getFunction() != Function.COUNT || value.longValue() > 0)) {
+            result.add(new Object[] { start, value });
+        }
+    }
+
+    private boolean isDatabaseAggregation() throws OwsExceptionReport {
+        return !aggregation.getFunction().isSelecting()
+                && !(request instanceof GetObservationRequest && ((GetObservationRequest) request).hasResultFilter())
+                && getValueClass() != null && seriesValueDAO.isAggregationSupported(getSession());
+    }
+
+    private Class<?> getValueClass() {
+        if (aggregation.getFunction() == Function.COUNT && numericValueClass == null) {
+            return DataEntity.class;
+        }
+        return numericValueClass;
+    }
+
+    private void nextAggregatedResult() throws OwsExceptionReport {
+        if (aggregatedResult.hasNext()) {
+            Object[] row = aggregatedResult.next();
+            long start = (Long) row[0];
+            addComputedValue(start, start + aggregation.getInterval(), ((Number) row[1]).doubleValue());
+        } else {
+            finished = true;
+        }
+    }
+
+    private void nextStreamedValue() throws OwsExceptionReport {
+        if (super.hasNext()) {
+            DataEntity<?> entity = super.nextEntity();
+            long time = entity.getSamplingTimeStart().getTime();
+            double value = entity.getValue() instanceof Number ? ((Number) entity.getValue()).doubleValue()
+                    : Double.NaN;
+            TimeValuePair payload =
+                    aggregation.getFunction().isSelecting() ? createTimeValuePairFrom(entity) : null;
+            getSession().evict(entity);
+            if (downsampler != null) {
+                addSelectedValues(downsampler.add(time, value, payload));
+            } else {
+                addBucket(intervalAggregator.add(time, value, payload));
+            }
+        } else {
+            if (downsampler != null) {
+                addSelectedValues(downsampler.finish());
+            } else {
+                addBucket(intervalAggregator.finish());
+            }
+            finished = true;
+        }
+    }
+
+    private void addSelectedValues(List<TimeValuePair> selected) throws OwsExceptionReport {
+        for (TimeValuePair value : selected) {
+            addValue(value);
+        }
+    }
+
+    private void addBucket(IntervalAggregator.Bucket<TimeValuePair> bucket) throws OwsExceptionReport {
+        if (bucket != null) {
+            if (aggregation.getFunction().isSelecting()) {
+                addValue(bucket.getSelected(aggregation.getFunction()));
+            } else {
+                addComputedValue(bucket.getStart(), bucket.getEnd(), bucket.getValue(aggregation.getFunction()));
+            }
+        }
+    }
+
+    private void addComputedValue(long start, long end, double value) throws OwsExceptionReport {
+        if (!Double.isNaN(value)) {
+            addValue(new TimeValuePair(new TimePeriod(new DateTime(start, DateTimeZone.UTC),
+                    new DateTime(end, DateTimeZone.UTC)), createValue(value)));
+        }
+    }
+
+    private Value<?> createValue(double value) {
+        if (aggregation.getFunction() == Function.COUNT) {
+            return new CountValue((int) value);
+        }
+        return new QuantityValue(Double.valueOf(value), unit);
+    }
+
+    private void addValue(TimeValuePair value) throws OwsExceptionReport {
+        if (maxNumberOfAggregatedValues > 0 && ++numberOfAggregatedValues > maxNumberOfAggregatedValues) {
+            returnSession(getSession());
+            throw new ResponseExceedsSizeLimitException().at("maxNumberOfReturnedValues");
+        }
+        values.add(value);
+    }
+
+}
@@ -31,6 +31,7 @@ package org.n52.sos.ds.hibernate.values.series;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
@@ -46,6 +47,7 @@ import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.ogc.sos.request.AbstractObservationRequest;
 import org.n52.shetland.util.CollectionHelper;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
+import org.n52.sos.ds.hibernate.values.ChunkSizeTuner;
 
 /**
  * Hibernate series streaming value implementation for chunk results
@@ -64,10 +66,16 @@ public class HibernateChunkSeriesStreamingValue extends HibernateSeriesStreaming
 
     private int currentRow;
 
+    private DataEntity<?> lastValue;
+
     private boolean noChunk;
 
     private int currentResultSize;
 
+    private int queriedChunkSize;
+
+    private ChunkSizeTuner chunkSizeTuner;
+
     /**
      * constructor
      *
@@ -89,13 +97,37 @@ public class HibernateChunkSeriesStreamingValue extends HibernateSeriesStreaming
         this.chunkSize = chunkSize;
     }
 
+    /**
+     * constructor
+     *
+     * @param connectionProvider
+     *            the connection provider
+     * @param daoFactory
+     *            the DAO factory
+     * @param request
+     *            {@link AbstractObservationRequest}
+     * @param series
+     *            Datasource series id
+     * @param chunkSizeTuner
+     *            the tuner to adjust the chunk size, may be {@code null}
+     * @throws CodedException
+     *             If an error occurs
+     */
+    public HibernateChunkSeriesStreamingValue(ConnectionProvider connectionProvider, DaoFactory daoFactory,
+            AbstractObservationRequest request, long series, BindingRepository bindingRepository, int chunkSize,
+            ChunkSizeTuner chunkSizeTuner) throws OwsExceptionReport {
+        this(connectionProvider, daoFactory, request, series, bindingRepository,
+                chunkSizeTuner != null ? chunkSizeTuner.getChunkSize(series, chunkSize) : chunkSize);
+        this.chunkSizeTuner = chunkSizeTuner;
+    }
+
     @Override
     public boolean hasNext() throws OwsExceptionReport {
         boolean next = false;
         if ((seriesValuesResult == null || !seriesValuesResult.hasNext()) && getSession().isOpen()) {
             if (!noChunk) {
                 getNextResults();
-                if (chunkSize <= 0 || currentResultSize < chunkSize) {
+                if (queriedChunkSize <= 0 || currentResultSize < queriedChunkSize) {
                     noChunk = true;
                 }
             }
@@ -161,9 +193,17 @@ public class HibernateChunkSeriesStreamingValue extends HibernateSeriesStreaming
         Session session = null;
         try {
             session = getSession();
+            long start = System.currentTimeMillis();
+            queriedChunkSize = chunkSize;
             // query with temporal filter
-            Collection<DataEntity<?>> resutltValues = new ArrayList<>();
-            if (temporalFilterCriterion != null) {
+            List<DataEntity<?>> resutltValues = new ArrayList<>();
+            if (seriesValueDAO.isKeysetPagingSupported(request)) {
+                resutltValues.addAll(seriesValueDAO.getStreamingSeriesValuesAfter(request, series,
+                        temporalFilterCriterion, chunkSize, lastValue, session));
+                if (!resutltValues.isEmpty()) {
+                    lastValue = resutltValues.get(resutltValues.size() - 1);
+                }
+            } else if (temporalFilterCriterion != null) {
                 resutltValues.addAll(seriesValueDAO.getStreamingSeriesValuesFor(request, series,
                         temporalFilterCriterion, chunkSize, currentRow, session));
             } else {
@@ -171,7 +211,11 @@ public class HibernateChunkSeriesStreamingValue extends HibernateSeriesStreaming
                 resutltValues.addAll(seriesValueDAO.getStreamingSeriesValuesFor(request, series, chunkSize, currentRow,
                         getSession()));
             }
-            currentRow += chunkSize;
+            currentRow += queriedChunkSize;
+            if (chunkSizeTuner != null) {
+                chunkSize = chunkSizeTuner.adjust(series, queriedChunkSize, resutltValues,
+                        System.currentTimeMillis() - start);
+            }
             checkMaxNumberOfReturnedValues(resutltValues.size());
             setSeriesValuesResult(resutltValues);
         } catch (final HibernateException he) {
@@ -50,13 +50,24 @@ import org.n52.shetland.ogc.om.values.ProfileLevel;
 import org.n52.shetland.ogc.om.values.ProfileValue;
 import org.n52.shetland.ogc.om.values.QuantityValue;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.SosResultEncoding;
+import org.n52.shetland.ogc.sos.SosResultStructure;
 import org.n52.shetland.ogc.sos.request.GetObservationRequest;
 import org.n52.shetland.ogc.sos.request.InsertObservationRequest;
+import org.n52.shetland.ogc.sos.request.InsertResultRequest;
+import org.n52.shetland.ogc.sos.request.InsertResultTemplateRequest;
 import org.n52.shetland.ogc.sos.response.GetObservationResponse;
 import org.n52.shetland.ogc.sos.response.InsertObservationResponse;
+import org.n52.shetland.ogc.sos.response.InsertResultResponse;
+import org.n52.shetland.ogc.sos.response.InsertResultTemplateResponse;
+import org.n52.shetland.ogc.swe.SweDataRecord;
+import org.n52.shetland.ogc.swe.SweField;
 import org.n52.shetland.ogc.swe.simpleType.SweQuantity;
+import org.n52.shetland.ogc.swe.simpleType.SweTime;
 import org.n52.sos.ds.hibernate.util.HibernateMetadataCache;
 import org.n52.sos.event.events.ObservationInsertion;
+import org.n52.sos.event.events.ResultInsertion;
+import org.n52.sos.event.events.ResultTemplateInsertion;
 import org.n52.svalbard.encode.exception.EncodingException;
 
 import com.google.common.collect.Lists;
@@ -160,7 +171,70 @@ public class ProfileObservationInsertDAOTest extends AbstractInsertDAOTest {
         checkObservation(false);
     }
 
+    @Test
+    public void testInsertProfileResultLargerThanChunk()
+            throws OwsExceptionReport, InterruptedException, ConverterException, EncodingException {
+        insertProfileResultTemplate();
+        insertResultDAO.setPipelineChunkSize(2);
+        InsertResultRequest req = new InsertResultRequest();
+        req.setTemplateIdentifier(RESULT_TEMPLATE);
+        StringBuilder values = new StringBuilder();
+        Double[] depths = { VERTICAL_5, VERTICAL_10, VERTICAL_15, VERTICAL_20 };
+        Double[] results = { PROFILE_VAL1, PROFILE_VAL2, PROFILE_VAL3, PROFILE_VAL4 };
+        for (int i = 0; i < depths.length; i++) {
+            if (i > 0) {
+                values.append(BLOCK_SEPARATOR);
+            }
+            values.append(OBS_TIME).append(TOKEN_SEPARATOR).append(depths[i]).append(TOKEN_SEPARATOR)
+                    .append(results[i]);
+        }
+        req.setResultValues(values.toString());
+        InsertResultResponse resp = insertResultDAO.insertResult(req);
+        this.serviceEventBus.submit(new ResultInsertion(req, resp));
+        assertInsertionAftermathBeforeAndAfterCacheReload();
+
+        ProfileValue profile = getProfileValue();
+        assertThat(profile.getValue().size(), is(4));
+        for (int i = 0; i < depths.length; i++) {
+            checkProfileLevel(profile.getValue().get(i), results[i], false, null, depths[i]);
+        }
+    }
+
+    private void insertProfileResultTemplate() throws OwsExceptionReport, ConverterException, EncodingException {
+        InsertResultTemplateRequest req = new InsertResultTemplateRequest();
+        req.setIdentifier(RESULT_TEMPLATE);
+        Session session = null;
+        try {
+            session = getSession();
+            req.setObservationTemplate(getOmObsConst(PROCEDURE3, OBSPROP3, TEMP_UNIT, OFFERING3, FEATURE3,
+                    OmConstants.OBS_TYPE_PROFILE_OBSERVATION, session));
+        } finally {
+            returnSession(session);
+        }
+        req.setResultEncoding(new SosResultEncoding(getTextEncoding(), createTextEncodingString(getTextEncoding())));
+        SweDataRecord dataRecord = new SweDataRecord();
+        SweTime sweTime = new SweTime();
+        sweTime.setUom(OmConstants.PHEN_UOM_ISO8601);
+        sweTime.setDefinition(OmConstants.PHENOMENON_TIME);
+        dataRecord.addField(new SweField("time", sweTime));
+        SweQuantity depth = new SweQuantity();
+        depth.setDefinition(DEPTH);
+        depth.setUom(VERTICAL_UNIT);
+        dataRecord.addField(new SweField(DEPTH, depth));
+        SweQuantity temperature = new SweQuantity();
+        temperature.setDefinition(OBSPROP3);
+        temperature.setUom(TEMP_UNIT);
+        dataRecord.addField(new SweField("temperature", temperature));
+        req.setResultStructure(new SosResultStructure(dataRecord, createDataRecordString(dataRecord)));
+        InsertResultTemplateResponse resp = insertResultTemplateDAO.insertResultTemplate(req);
+        this.serviceEventBus.submit(new ResultTemplateInsertion(req, resp));
+    }
+
     protected void checkObservation(boolean interval) throws OwsExceptionReport {
+        checkProfileValue(getProfileValue(), interval);
+    }
+
+    private ProfileValue getProfileValue() throws OwsExceptionReport {
         GetObservationRequest getObsReq =
                 createDefaultGetObservationRequest(OFFERING3, PROCEDURE3, OBSPROP3, OBS_TIME, FEATURE3);
         GetObservationResponse getObsResponse =
@@ -180,8 +254,7 @@ public class ProfileObservationInsertDAOTest extends AbstractInsertDAOTest {
 
         assertNotNull(value.getValue());
         assertThat(value.getValue() instanceof ProfileValue, is(true));
-        ProfileValue profile = (ProfileValue) value.getValue();
-        checkProfileValue(profile, interval);
+        return (ProfileValue) value.getValue();
     }
 
     private void checkProfileValue(ProfileValue profile, boolean interval) {
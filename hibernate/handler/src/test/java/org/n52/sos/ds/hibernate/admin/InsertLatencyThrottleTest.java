@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.admin;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.n52.sos.metrics.Timer;
+
+public class InsertLatencyThrottleTest {
+
+    @Test
+    public void should_not_pause_without_inserts() {
+        InsertLatencyThrottle throttle = new InsertLatencyThrottle(new Timer(), 100);
+        Assert.assertEquals(0, throttle.next());
+    }
+
+    @Test
+    public void should_ignore_inserts_before_start() {
+        Timer timer = new Timer();
+        timer.record(1, TimeUnit.SECONDS);
+        InsertLatencyThrottle throttle = new InsertLatencyThrottle(timer, 100);
+        Assert.assertEquals(0, throttle.next());
+    }
+
+    @Test
+    public void should_increase_and_decrease_pause() {
+        Timer timer = new Timer();
+        InsertLatencyThrottle throttle = new InsertLatencyThrottle(timer, 100);
+        timer.record(500, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(InsertLatencyThrottle.MIN_PAUSE, throttle.next());
+        timer.record(500, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(2 * InsertLatencyThrottle.MIN_PAUSE, throttle.next());
+        timer.record(10, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(InsertLatencyThrottle.MIN_PAUSE, throttle.next());
+        Assert.assertEquals(0, throttle.next());
+    }
+
+    @Test
+    public void should_limit_pause() {
+        Timer timer = new Timer();
+        InsertLatencyThrottle throttle = new InsertLatencyThrottle(timer, 100);
+        for (int i = 0; i < 20; i++) {
+            timer.record(1, TimeUnit.SECONDS);
+            throttle.next();
+        }
+        Assert.assertEquals(InsertLatencyThrottle.MAX_PAUSE, throttle.getPause());
+    }
+
+    @Test
+    public void should_not_pause_if_disabled() {
+        Timer timer = new Timer();
+        InsertLatencyThrottle throttle = new InsertLatencyThrottle(timer, 0);
+        timer.record(1, TimeUnit.SECONDS);
+        Assert.assertEquals(0, throttle.next());
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.admin;
+
+import java.util.List;
+
+import org.hibernate.Session;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Restrictions;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.iceland.convert.ConverterException;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.SosResultEncoding;
+import org.n52.shetland.ogc.sos.SosResultStructure;
+import org.n52.shetland.ogc.sos.request.InsertResultRequest;
+import org.n52.shetland.ogc.sos.request.InsertResultTemplateRequest;
+import org.n52.shetland.ogc.swe.SweDataRecord;
+import org.n52.shetland.ogc.swe.SweField;
+import org.n52.shetland.ogc.swe.simpleType.SweQuantity;
+import org.n52.shetland.ogc.swe.simpleType.SweTime;
+import org.n52.sos.ds.hibernate.AbstractInsertDAOTest;
+import org.n52.sos.ds.hibernate.util.HibernateMetadataCache;
+import org.n52.svalbard.encode.exception.EncodingException;
+
+public class ObservationRetentionJobTest extends AbstractInsertDAOTest {
+
+    private final ObservationRetentionJob job = new ObservationRetentionJob();
+
+    @Before
+    public void setUp() throws OwsExceptionReport, ConverterException, EncodingException {
+        super.setUp();
+        Session session = null;
+        try {
+            session = getSession();
+            HibernateMetadataCache.init(session);
+            insertSensor(PROCEDURE1, OFFERING1, OBSPROP1, null, OmConstants.OBS_TYPE_MEASUREMENT);
+        } finally {
+            returnSession(session);
+        }
+        job.setConnectionProvider(this);
+        job.setDaoFactory(daoFactory);
+        job.setCacheFeederHandler(cacheFeeder);
+        job.setContentCacheController(contentCacheController);
+    }
+
+    @Test
+    public void shouldDownsampleIntervalLargerThanBatch()
+            throws OwsExceptionReport, ConverterException, EncodingException {
+        // five values in the first hour and one in the second
+        insertValues(TIME1, 1.0, TIME1.plusMinutes(10), 2.0, TIME1.plusMinutes(20), 3.0, TIME1.plusMinutes(30),
+                4.0, TIME1.plusMinutes(40), 5.0, TIME2, 10.0);
+        job.setBatchSize(2);
+        job.setRules("*," + OBSPROP1 + ",P1D,PT1H");
+        job.run();
+
+        List<QuantityDataEntity> values = getValues();
+        assertThat(values.size(), is(2));
+        assertThat(values.get(0).getSamplingTimeStart().getTime(), is(TIME1.getMillis()));
+        assertThat(values.get(0).getSamplingTimeEnd().getTime(), is(TIME2.getMillis()));
+        assertThat(values.get(0).getValue().doubleValue(), is(3.0));
+        assertThat(values.get(1).getSamplingTimeStart().getTime(), is(TIME2.getMillis()));
+        assertThat(values.get(1).getSamplingTimeEnd().getTime(), is(TIME3.getMillis()));
+        assertThat(values.get(1).getValue().doubleValue(), is(10.0));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<QuantityDataEntity> getValues() {
+        Session session = null;
+        try {
+            session = getSession();
+            return session.createCriteria(QuantityDataEntity.class)
+                    .add(Restrictions.eq(DataEntity.PROPERTY_DELETED, false))
+                    .addOrder(Order.asc(DataEntity.PROPERTY_SAMPLING_TIME_START)).list();
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    private void insertValues(Object... timesAndValues)
+            throws OwsExceptionReport, ConverterException, EncodingException {
+        InsertResultTemplateRequest template = new InsertResultTemplateRequest();
+        template.setIdentifier(RESULT_TEMPLATE);
+        Session session = null;
+        try {
+            session = getSession();
+            template.setObservationTemplate(getOmObsConst(PROCEDURE1, OBSPROP1, TEMP_UNIT, OFFERING1, FEATURE3,
+                    OmConstants.OBS_TYPE_MEASUREMENT, session));
+        } finally {
+            returnSession(session);
+        }
+        template.setResultEncoding(
+                new SosResultEncoding(getTextEncoding(), createTextEncodingString(getTextEncoding())));
+        SweDataRecord dataRecord = new SweDataRecord();
+        SweTime sweTime = new SweTime();
+        sweTime.setUom(OmConstants.PHEN_UOM_ISO8601);
+        sweTime.setDefinition(OmConstants.PHENOMENON_TIME);
+        dataRecord.addField(new SweField("time", sweTime));
+        SweQuantity temperature = new SweQuantity();
+        temperature.setDefinition(OBSPROP1);
+        temperature.setUom(TEMP_UNIT);
+        dataRecord.addField(new SweField("temperature", temperature));
+        template.setResultStructure(new SosResultStructure(dataRecord, createDataRecordString(dataRecord)));
+        insertResultTemplateDAO.insertResultTemplate(template);
+
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < timesAndValues.length; i += 2) {
+            if (i > 0) {
+                values.append(BLOCK_SEPARATOR);
+            }
+            values.append((DateTime) timesAndValues[i]).append(TOKEN_SEPARATOR).append(timesAndValues[i + 1]);
+        }
+        InsertResultRequest insert = new InsertResultRequest();
+        insert.setTemplateIdentifier(RESULT_TEMPLATE);
+        insert.setResultValues(values.toString());
+        insertResultDAO.insertResult(insert);
+    }
+}
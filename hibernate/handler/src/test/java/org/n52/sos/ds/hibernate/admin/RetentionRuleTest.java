@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.admin;
+
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RetentionRuleTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    @Test
+    public void should_parse_rules() {
+        List<RetentionRule> rules = RetentionRule.parse("off1,temperature,P1Y;\n *,*,P30D,PT1H ");
+        Assert.assertEquals(2, rules.size());
+        RetentionRule delete = rules.get(0);
+        Assert.assertEquals("off1", delete.getOffering());
+        Assert.assertEquals("temperature", delete.getObservableProperty());
+        Assert.assertEquals(Period.years(1), delete.getRetention());
+        Assert.assertFalse(delete.isDownsampling());
+        RetentionRule downsample = rules.get(1);
+        Assert.assertNull(downsample.getOffering());
+        Assert.assertNull(downsample.getObservableProperty());
+        Assert.assertEquals(Period.days(30), downsample.getRetention());
+        Assert.assertTrue(downsample.isDownsampling());
+        Assert.assertEquals(HOUR, downsample.getDownsamplingInterval());
+    }
+
+    @Test
+    public void should_parse_empty_rules() {
+        Assert.assertTrue(RetentionRule.parse(null).isEmpty());
+        Assert.assertTrue(RetentionRule.parse(" ; ").isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_missing_retention() {
+        RetentionRule.parse("off1,temperature");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_invalid_period() {
+        RetentionRule.parse("off1,temperature,one year");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_empty_interval() {
+        RetentionRule.parse("off1,temperature,P1Y,PT0S");
+    }
+
+    @Test
+    public void should_align_cutoff_to_interval() {
+        DateTime now = new DateTime(2020, 6, 15, 10, 42, DateTimeZone.UTC);
+        RetentionRule delete = RetentionRule.parse("*,*,P1D").get(0);
+        Assert.assertEquals(new DateTime(2020, 6, 14, 10, 42, DateTimeZone.UTC), delete.getCutoff(now));
+        RetentionRule downsample = RetentionRule.parse("*,*,P1D,PT1H").get(0);
+        Assert.assertEquals(new DateTime(2020, 6, 14, 10, 0, DateTimeZone.UTC), downsample.getCutoff(now));
+    }
+
+    @Test
+    public void should_compute_interval_start() {
+        RetentionRule rule = RetentionRule.parse("*,*,P1D,PT1H").get(0);
+        Assert.assertEquals(2 * HOUR, rule.getIntervalStart(2 * HOUR + 1));
+        Assert.assertEquals(2 * HOUR, rule.getIntervalStart(2 * HOUR));
+        Assert.assertEquals(-HOUR, rule.getIntervalStart(-1));
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.series.db.beans.ResultTemplateEntity;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.drt.DeleteResultTemplateRequest;
+import org.n52.shetland.ogc.sos.drt.DeleteResultTemplateResponse;
+import org.n52.sos.event.events.ResultTemplatesDeletion;
+
+import com.google.common.collect.Lists;
+
+public class ResultTemplatePlanCacheTest {
+
+    private static final String TEMPLATE = "template";
+
+    private ResultTemplatePlanCache cache;
+
+    private AtomicInteger compilations;
+
+    @Before
+    public void setUp() {
+        cache = new ResultTemplatePlanCache();
+        compilations = new AtomicInteger(0);
+    }
+
+    @Test
+    public void shouldReuseCompiledPlan() throws OwsExceptionReport {
+        ResultTemplateEntity resultTemplate = createResultTemplate(1L, "structure");
+        ResultTemplatePlan plan = get(resultTemplate);
+        Assert.assertSame(plan, get(resultTemplate));
+        Assert.assertEquals(1, compilations.get());
+    }
+
+    @Test
+    public void shouldCompileChangedTemplate() throws OwsExceptionReport {
+        ResultTemplatePlan plan = get(createResultTemplate(1L, "structure"));
+        Assert.assertNotSame(plan, get(createResultTemplate(2L, "structure")));
+        Assert.assertNotSame(plan, get(createResultTemplate(2L, "other structure")));
+        Assert.assertEquals(3, compilations.get());
+    }
+
+    @Test
+    public void shouldInvalidateDeletedTemplate() throws OwsExceptionReport {
+        ResultTemplateEntity resultTemplate = createResultTemplate(1L, "structure");
+        get(resultTemplate);
+        DeleteResultTemplateResponse response = new DeleteResultTemplateResponse();
+        response.addDeletedResultTemplates(Lists.newArrayList(TEMPLATE));
+        cache.handle(new ResultTemplatesDeletion(new DeleteResultTemplateRequest(), response));
+        Assert.assertEquals(0, cache.size());
+        get(resultTemplate);
+        Assert.assertEquals(2, compilations.get());
+    }
+
+    @Test
+    public void shouldNotCacheIfDisabled() throws OwsExceptionReport {
+        cache.setEnabled(false);
+        ResultTemplateEntity resultTemplate = createResultTemplate(1L, "structure");
+        get(resultTemplate);
+        get(resultTemplate);
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(2, compilations.get());
+    }
+
+    private ResultTemplatePlan get(ResultTemplateEntity resultTemplate) throws OwsExceptionReport {
+        return cache.get(resultTemplate, () -> {
+            compilations.incrementAndGet();
+            return new ResultTemplatePlan(resultTemplate, null, null, new OmObservation());
+        });
+    }
+
+    private ResultTemplateEntity createResultTemplate(Long id, String structure) {
+        ResultTemplateEntity resultTemplate = new ResultTemplateEntity();
+        resultTemplate.setId(id);
+        resultTemplate.setIdentifier(TEMPLATE);
+        resultTemplate.setStructure(structure);
+        resultTemplate.setEncoding("encoding");
+        return resultTemplate;
+    }
+}
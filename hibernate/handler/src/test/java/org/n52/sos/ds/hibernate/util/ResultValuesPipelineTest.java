@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.shetland.ogc.ows.exception.InvalidParameterValueException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+
+import com.google.common.collect.Lists;
+
+public class ResultValuesPipelineTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldSkipCountValue() {
+        Assert.assertEquals(Arrays.asList("a,1", "b,2"),
+                Lists.newArrayList(ResultValuesPipeline.blocks("2@a,1@b,2", "@", ",")));
+        Assert.assertEquals(Arrays.asList("a,1", "b,2"),
+                Lists.newArrayList(ResultValuesPipeline.blocks("a,1@b,2", "@", ",")));
+    }
+
+    @Test
+    public void shouldConsumeChunksInOrder() throws OwsExceptionReport {
+        List<String> blocks = new ArrayList<>();
+        for (int i = 0; i < 1001; i++) {
+            blocks.add(Integer.toString(i));
+        }
+        List<Integer> sizes = new ArrayList<>();
+        List<String> consumed = new ArrayList<>();
+        new ResultValuesPipeline(executor, 100, 2).process(blocks.iterator(), chunk -> chunk, chunk -> {
+            sizes.add(chunk.size());
+            consumed.addAll(chunk);
+        });
+        Assert.assertEquals(blocks, consumed);
+        Assert.assertEquals(11, sizes.size());
+        Assert.assertEquals(Integer.valueOf(1), sizes.get(10));
+    }
+
+    @Test
+    public void shouldProcessInlineWithoutQueue() throws OwsExceptionReport {
+        List<String> consumed = new ArrayList<>();
+        new ResultValuesPipeline(executor, 2, 0).process(Arrays.asList("a", "b", "c").iterator(), chunk -> chunk,
+                consumed::addAll);
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), consumed);
+    }
+
+    @Test(expected = InvalidParameterValueException.class)
+    public void shouldPropagateParserErrors() throws OwsExceptionReport {
+        new ResultValuesPipeline(executor, 1, 1).process(Arrays.asList("a", "b").iterator(), chunk -> {
+            if ("b".equals(chunk.get(0))) {
+                throw new InvalidParameterValueException("resultValues", "b");
+            }
+            return chunk;
+        }, chunk -> {
+        });
+    }
+
+    @Test(timeout = 10000, expected = AssertionError.class)
+    public void shouldPropagateParserErrorsThrownAsError() throws OwsExceptionReport {
+        new ResultValuesPipeline(executor, 1, 1).process(Arrays.asList("a", "b").iterator(), chunk -> {
+            throw new AssertionError();
+        }, chunk -> {
+        });
+    }
+
+    @Test
+    public void shouldParseAllBlocksAtOnce() throws OwsExceptionReport {
+        List<Integer> sizes = new ArrayList<>();
+        new ResultValuesPipeline(executor, 2, 2).processAtOnce(Arrays.asList("a", "b", "c", "d", "e").iterator(),
+                chunk -> chunk, chunk -> sizes.add(chunk.size()));
+        Assert.assertEquals(Collections.singletonList(5), sizes);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldStopProducerWhenConsumerFails() throws OwsExceptionReport {
+        new ResultValuesPipeline(executor, 1, 1).process(Collections.nCopies(1000, "a").iterator(), chunk -> chunk,
+                chunk -> {
+                    throw new IllegalStateException();
+                });
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.values;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+
+public class ChunkSizeTunerTest {
+
+    private ChunkSizeTuner tuner;
+
+    @Before
+    public void setUp() {
+        tuner = new ChunkSizeTuner();
+        tuner.setAdaptive(true);
+        tuner.setMinChunkSize(10);
+        tuner.setMaxChunkSize(1000);
+        tuner.setTargetFetchTime(100);
+        tuner.setMaxValuesPerChunk(10000);
+    }
+
+    @Test
+    public void shouldGrowForFastFullChunks() {
+        Assert.assertEquals(200, tuner.adjust(1L, 100, createValues(100), 10));
+        Assert.assertEquals(200, tuner.getChunkSize(1L, 100));
+    }
+
+    @Test
+    public void shouldShrinkForSlowChunks() {
+        Assert.assertEquals(50, tuner.adjust(1L, 100, createValues(100), 200));
+    }
+
+    @Test
+    public void shouldKeepLimits() {
+        Assert.assertEquals(1000, tuner.adjust(1L, 1000, createValues(1000), 10));
+        Assert.assertEquals(10, tuner.adjust(1L, 10, createValues(10), 200));
+        Assert.assertEquals(1000, tuner.getChunkSize(2L, 5000));
+    }
+
+    @Test
+    public void shouldBeDisabledByDefault() {
+        Assert.assertFalse(new ChunkSizeTuner().isAdaptive());
+    }
+
+    @Test
+    public void shouldNotAdjustIfDisabled() {
+        tuner.setAdaptive(false);
+        Assert.assertEquals(100, tuner.adjust(1L, 100, createValues(100), 10));
+        Assert.assertEquals(5000, tuner.getChunkSize(1L, 5000));
+        Assert.assertTrue(tuner.getChunkSizes().isEmpty());
+    }
+
+    private List<DataEntity<?>> createValues(int size) {
+        List<DataEntity<?>> values = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            values.add(new QuantityDataEntity());
+        }
+        return values;
+    }
+}
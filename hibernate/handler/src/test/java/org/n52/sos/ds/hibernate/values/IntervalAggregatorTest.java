@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.values;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.n52.sos.request.TemporalAggregation;
+import org.n52.sos.request.TemporalAggregation.Function;
+
+public class IntervalAggregatorTest {
+
+    private static final double DELTA = 0.000001;
+
+    @Test
+    public void shouldAggregateIntoBuckets() {
+        List<IntervalAggregator.Bucket<Integer>> buckets =
+                aggregate(TemporalAggregation.interval(Function.MEAN, 10), 0, 5, 9, 10, 25, 29);
+        Assert.assertEquals(3, buckets.size());
+        Assert.assertEquals(0, buckets.get(0).getStart());
+        Assert.assertEquals(10, buckets.get(0).getEnd());
+        Assert.assertEquals(3, buckets.get(0).getCount());
+        Assert.assertEquals(0, buckets.get(0).getMin(), DELTA);
+        Assert.assertEquals(9, buckets.get(0).getMax(), DELTA);
+        Assert.assertEquals(14.0 / 3, buckets.get(0).getValue(Function.MEAN), DELTA);
+        Assert.assertEquals(10, buckets.get(1).getStart());
+        Assert.assertEquals(1, buckets.get(1).getValue(Function.COUNT), DELTA);
+        Assert.assertEquals(20, buckets.get(2).getStart());
+        Assert.assertEquals(Integer.valueOf(25), buckets.get(2).getSelected(Function.FIRST));
+        Assert.assertEquals(Integer.valueOf(29), buckets.get(2).getSelected(Function.LAST));
+    }
+
+    @Test
+    public void shouldIgnoreNonNumericValues() {
+        IntervalAggregator<Integer> aggregator =
+                new IntervalAggregator<>(TemporalAggregation.interval(Function.MEAN, 10));
+        Assert.assertNull(aggregator.add(1, Double.NaN, 1));
+        Assert.assertNull(aggregator.add(2, 4, 2));
+        IntervalAggregator.Bucket<Integer> bucket = aggregator.finish();
+        Assert.assertEquals(2, bucket.getCount());
+        Assert.assertEquals(4, bucket.getMean(), DELTA);
+        Assert.assertNull(aggregator.finish());
+    }
+
+    @Test
+    public void shouldHandleNegativeTimes() {
+        List<IntervalAggregator.Bucket<Integer>> buckets =
+                aggregate(TemporalAggregation.interval(Function.MIN, 10), -5, -1, 1);
+        Assert.assertEquals(2, buckets.size());
+        Assert.assertEquals(-10, buckets.get(0).getStart());
+        Assert.assertEquals(-5, buckets.get(0).getValue(Function.MIN), DELTA);
+    }
+
+    private List<IntervalAggregator.Bucket<Integer>> aggregate(TemporalAggregation aggregation, int... times) {
+        IntervalAggregator<Integer> aggregator = new IntervalAggregator<>(aggregation);
+        List<IntervalAggregator.Bucket<Integer>> buckets = new ArrayList<>();
+        for (int time : times) {
+            IntervalAggregator.Bucket<Integer> bucket = aggregator.add(time, time, time);
+            if (bucket != null) {
+                buckets.add(bucket);
+            }
+        }
+        buckets.add(aggregator.finish());
+        return buckets;
+    }
+
+}
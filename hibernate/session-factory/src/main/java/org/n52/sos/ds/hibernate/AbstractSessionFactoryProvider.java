@@ -28,8 +28,13 @@
  */
 package org.n52.sos.ds.hibernate;
 
+import java.util.Optional;
+
+import javax.sql.DataSource;
+
 import org.hibernate.HibernateException;
 import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.n52.iceland.ds.ConnectionProvider;
 import org.n52.janmayen.lifecycle.Destroyable;
 import org.slf4j.Logger;
@@ -67,4 +72,22 @@ public abstract class AbstractSessionFactoryProvider implements Destroyable, Con
 
     protected abstract SessionFactory getSessionFactory();
 
+    /**
+     * @return the pooled data source of the session factory, if the session
+     *         factory is initialized and its connection provider exposes it
+     */
+    public Optional<DataSource> getDataSource() {
+        SessionFactory sessionFactory = getSessionFactory();
+        if (!(sessionFactory instanceof SessionFactoryImplementor) || sessionFactory.isClosed()) {
+            return Optional.empty();
+        }
+        org.hibernate.engine.jdbc.connections.spi.ConnectionProvider connectionProvider =
+                ((SessionFactoryImplementor) sessionFactory).getServiceRegistry()
+                        .getService(org.hibernate.engine.jdbc.connections.spi.ConnectionProvider.class);
+        if (connectionProvider == null || !connectionProvider.isUnwrappableAs(DataSource.class)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(connectionProvider.unwrap(DataSource.class));
+    }
+
 }
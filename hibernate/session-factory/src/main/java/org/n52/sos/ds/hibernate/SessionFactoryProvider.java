@@ -115,6 +115,9 @@ public class SessionFactoryProvider extends UnspecifiedSessionFactoryProvider im
             Configuration configuration = new Configuration().configure("/hibernate.cfg.xml");
             if (properties.containsKey(HibernateConstants.C3P0_MAX_SIZE)) {
                 this.maxConnections = Integer.parseInt(properties.getProperty(HibernateConstants.C3P0_MAX_SIZE, "-1"));
+            } else if (properties.containsKey(HibernateConstants.HIKARI_MAXIMUM_POOL_SIZE)) {
+                this.maxConnections =
+                        Integer.parseInt(properties.getProperty(HibernateConstants.HIKARI_MAXIMUM_POOL_SIZE, "-1"));
             }
             if (properties.containsKey(HIBERNATE_RESOURCES)) {
                 List<String> resources = (List<String>) properties.get(HIBERNATE_RESOURCES);
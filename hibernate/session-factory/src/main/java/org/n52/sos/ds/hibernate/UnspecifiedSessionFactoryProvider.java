@@ -99,6 +99,7 @@ public abstract class UnspecifiedSessionFactoryProvider
                 return null;
             }
             Session session = sessionFactory.openSession();
+            session.addEventListeners(new DatabaseTimeListener());
             session.setCacheMode(CacheMode.IGNORE);
             session.setHibernateFlushMode(FlushMode.COMMIT);
             return session;
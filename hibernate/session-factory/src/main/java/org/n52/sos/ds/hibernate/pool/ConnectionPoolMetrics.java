@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.pool;
+
+import java.sql.SQLException;
+import java.util.Optional;
+
+import javax.inject.Inject;
+import javax.sql.DataSource;
+
+import org.n52.iceland.ds.ConnectionProvider;
+import org.n52.janmayen.lifecycle.Constructable;
+import org.n52.sos.ds.hibernate.AbstractSessionFactoryProvider;
+import org.n52.sos.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mchange.v2.c3p0.PooledDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+/**
+ * Registers the state of the connection pool (active, idle, pending and total
+ * connections) as gauges in the {@link MetricRegistry}. For HikariCP the
+ * connection acquisition and usage times are recorded by the
+ * {@link HikariMetricsTrackerFactory}.
+ */
+public class ConnectionPoolMetrics implements Constructable {
+
+    public static final String ACQUIRE = "connectionPool.acquire";
+
+    public static final String USAGE = "connectionPool.usage";
+
+    public static final String TIMEOUTS = "connectionPool.timeouts";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionPoolMetrics.class);
+
+    private MetricRegistry metricRegistry;
+
+    private ConnectionProvider connectionProvider;
+
+    @Inject
+    public void setMetricRegistry(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    @Inject
+    public void setConnectionProvider(ConnectionProvider connectionProvider) {
+        this.connectionProvider = connectionProvider;
+    }
+
+    @Override
+    public void init() {
+        HikariMetricsTrackerFactory.setMetricRegistry(metricRegistry);
+        for (PoolValue value : PoolValue.values()) {
+            metricRegistry.gauge(value.getName(), () -> getValue(value));
+        }
+    }
+
+    private int getValue(PoolValue value) {
+        Optional<DataSource> dataSource = getDataSource();
+        if (!dataSource.isPresent()) {
+            return 0;
+        }
+        try {
+            if (dataSource.get() instanceof HikariDataSource) {
+                HikariPoolMXBean pool = ((HikariDataSource) dataSource.get()).getHikariPoolMXBean();
+                return pool != null ? value.get(pool) : 0;
+            } else if (dataSource.get() instanceof PooledDataSource) {
+                return value.get((PooledDataSource) dataSource.get());
+            }
+        } catch (SQLException e) {
+            LOGGER.debug("Could not read the connection pool state", e);
+        }
+        return 0;
+    }
+
+    private Optional<DataSource> getDataSource() {
+        if (connectionProvider instanceof AbstractSessionFactoryProvider) {
+            return ((AbstractSessionFactoryProvider) connectionProvider).getDataSource();
+        }
+        return Optional.empty();
+    }
+
+    private enum PoolValue {
+        ACTIVE("connectionPool.active") {
+            @Override
+            int get(HikariPoolMXBean pool) {
+                return pool.getActiveConnections();
+            }
+
+            @Override
+            int get(PooledDataSource pool) throws SQLException {
+                return pool.getNumBusyConnectionsDefaultUser();
+            }
+        },
+        IDLE("connectionPool.idle") {
+            @Override
+            int get(HikariPoolMXBean pool) {
+                return pool.getIdleConnections();
+            }
+
+            @Override
+            int get(PooledDataSource pool) throws SQLException {
+                return pool.getNumIdleConnectionsDefaultUser();
+            }
+        },
+        PENDING("connectionPool.pending") {
+            @Override
+            int get(HikariPoolMXBean pool) {
+                return pool.getThreadsAwaitingConnection();
+            }
+
+            @Override
+            int get(PooledDataSource pool) throws SQLException {
+                return pool.getNumThreadsAwaitingCheckoutDefaultUser();
+            }
+        },
+        TOTAL("connectionPool.total") {
+            @Override
+            int get(HikariPoolMXBean pool) {
+                return pool.getTotalConnections();
+            }
+
+            @Override
+            int get(PooledDataSource pool) throws SQLException {
+                return pool.getNumConnectionsDefaultUser();
+            }
+        };
+
+        private final String name;
+
+        PoolValue(String name) {
+            this.name = name;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        abstract int get(HikariPoolMXBean pool);
+
+        abstract int get(PooledDataSource pool) throws SQLException;
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.pool;
+
+import java.util.concurrent.TimeUnit;
+
+import org.n52.sos.metrics.MetricRegistry;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+/**
+ * Records the connection acquisition and usage times and the connection
+ * timeouts of HikariCP in the {@link MetricRegistry}. HikariCP instantiates
+ * the factory by its class name, so the registry is set by the
+ * {@link ConnectionPoolMetrics}.
+ */
+public class HikariMetricsTrackerFactory implements MetricsTrackerFactory {
+
+    private static volatile MetricRegistry metricRegistry;
+
+    static void setMetricRegistry(MetricRegistry registry) {
+        metricRegistry = registry;
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        return new Tracker();
+    }
+
+    private static class Tracker implements IMetricsTracker {
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            MetricRegistry registry = metricRegistry;
+            if (registry != null) {
+                registry.timer(ConnectionPoolMetrics.ACQUIRE).record(elapsedAcquiredNanos);
+            }
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            MetricRegistry registry = metricRegistry;
+            if (registry != null) {
+                registry.timer(ConnectionPoolMetrics.USAGE).record(elapsedBorrowedMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            MetricRegistry registry = metricRegistry;
+            if (registry != null) {
+                registry.counter(ConnectionPoolMetrics.TIMEOUTS).increment();
+            }
+        }
+    }
+
+}
@@ -152,6 +152,26 @@ public interface HibernateConstants {
      */
     String C3P0_PRIVILEGE_SPAWNED_THREAD = "hibernate.c3p0.privilegeSpawnedThreads";
 
+    String HIKARI_PREFIX = "hibernate.hikari.";
+
+    String HIKARI_MINIMUM_IDLE = HIKARI_PREFIX + "minimumIdle";
+
+    String HIKARI_MAXIMUM_POOL_SIZE = HIKARI_PREFIX + "maximumPoolSize";
+
+    String HIKARI_POOL_NAME = HIKARI_PREFIX + "poolName";
+
+    /*
+     * Class name of a com.zaxxer.hikari.metrics.MetricsTrackerFactory with a
+     * default constructor, instantiated by HikariCP.
+     */
+    String HIKARI_METRICS_TRACKER_FACTORY = HIKARI_PREFIX + "metricsTrackerFactory";
+
+    /*
+     * Prefix of the properties passed by HikariCP to the JDBC driver, e.g.
+     * hibernate.hikari.dataSource.cachePrepStmts
+     */
+    String HIKARI_DATA_SOURCE_PREFIX = HIKARI_PREFIX + "dataSource.";
+
     String JDBC_BATCH_SIZE = AvailableSettings.STATEMENT_BATCH_SIZE;
 
     //FIXME Not a valid property, remove?
@@ -58,6 +58,7 @@ import org.n52.shetland.util.CollectionHelper;
 import org.n52.sos.ds.AbstractGetObservationHandler;
 import org.n52.sos.exception.ows.concrete.InvalidOfferingParameterException;
 import org.n52.sos.exception.ows.concrete.MissingOfferingParameterException;
+import org.n52.sos.request.TemporalAggregation;
 import org.n52.sos.wsdl.WSDLConstants;
 import org.n52.sos.wsdl.WSDLOperation;
 import org.n52.svalbard.ConformanceClasses;
@@ -221,6 +222,11 @@ public class SosGetObservationOperatorV20 extends
         } catch (OwsExceptionReport owse) {
             exceptions.add(owse);
         }
+        try {
+            TemporalAggregation.fromRequest(request);
+        } catch (OwsExceptionReport owse) {
+            exceptions.add(owse);
+        }
         checkExtensions(request, exceptions);
         exceptions.throwIfNotEmpty();
 
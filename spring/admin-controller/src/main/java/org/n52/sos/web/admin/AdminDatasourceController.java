@@ -58,6 +58,7 @@ import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.ogc.ows.service.OwsServiceRequestContext;
 import org.n52.sos.ds.PredefinedInsertionHandler;
 import org.n52.sos.ds.GeneralQueryDAO;
+import org.n52.sos.ds.ObservationIndexDAO;
 import org.n52.sos.exception.MissingServiceOperatorException;
 import org.n52.sos.predefined.AbstractPredefined;
 import org.n52.sos.predefined.PhenomenonPredefined;
@@ -103,6 +104,8 @@ public class AdminDatasourceController extends AbstractDatasourceController {
 
     private static final String SUPPORTS_DELETE_DELETED = "supportsDeleteDeleted";
 
+    private static final String SUPPORTS_INDEX_CHECK = "supportsIndexCheck";
+
     private static final String PREDEFINED_PHENOMENA = "predefinedPhenomena";
 
     private static final String PREDEFINED_UNITS = "predefinedUnits";
@@ -112,6 +115,9 @@ public class AdminDatasourceController extends AbstractDatasourceController {
     @Inject
     private Optional<GeneralQueryDAO> generalQueryDAO;
 
+    @Inject
+    private Optional<ObservationIndexDAO> observationIndexDAO;
+
     @Inject
     private DecoderRepository decoderRepository;
 
@@ -130,6 +136,7 @@ public class AdminDatasourceController extends AbstractDatasourceController {
         Map<String, Object> model = Maps.newHashMap();
         model.put(SUPPORTS_CLEAR, getDatasource().supportsClear());
         model.put(SUPPORTS_DELETE_DELETED, generalQueryDAO != null);
+        model.put(SUPPORTS_INDEX_CHECK, observationIndexDAO.isPresent());
         model.put(PREDEFINED_PHENOMENA, getPredefinedObservedProperties());
         model.put(PREDEFINED_UNITS, getPredefinedUnits());
         return new ModelAndView(ControllerConstants.Views.ADMIN_DATASOURCE, model);
@@ -165,6 +172,21 @@ public class AdminDatasourceController extends AbstractDatasourceController {
         }
     }
 
+    @ResponseBody
+    @RequestMapping(value = ControllerConstants.Paths.ADMIN_DATABASE_CHECK_INDEXES, method = RequestMethod.GET,
+                    produces = ControllerConstants.MEDIA_TYPE_APPLICATION_JSON)
+    public String checkIndexes() throws OwsExceptionReport {
+        if (!observationIndexDAO.isPresent()) {
+            throw new UnsupportedOperationException();
+        }
+        ArrayNode indexes = Json.nodeFactory().arrayNode();
+        for (ObservationIndexDAO.IndexState state : observationIndexDAO.get().checkIndexes()) {
+            indexes.addObject().put("name", state.getName()).put("present", state.isPresent()).put("statement",
+                    state.getStatement());
+        }
+        return Json.print(indexes);
+    }
+
     @ResponseBody
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     @ExceptionHandler(UnsupportedOperationException.class)
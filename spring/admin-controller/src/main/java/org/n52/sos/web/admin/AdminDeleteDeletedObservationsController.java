@@ -33,8 +33,10 @@ import java.util.Optional;
 import javax.inject.Inject;
 
 import org.n52.iceland.exception.ows.concrete.NoImplementationFoundException;
+import org.n52.janmayen.Json;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.sos.ds.DeleteDeletedObservationDAO;
+import org.n52.sos.ds.DeleteDeletedObservationDAO.DeletionProgress;
 import org.n52.sos.web.common.ControllerConstants;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
@@ -44,6 +46,8 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
 /**
  * @author <a href="mailto:c.autermann@52north.org">Christian Autermann</a>
  * @since 4.0.0
@@ -70,9 +74,36 @@ public class AdminDeleteDeletedObservationsController extends AbstractAdminContr
         return "The operation is not supported by this SOS";
     }
 
-    @RequestMapping(method = RequestMethod.POST)
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void delete() throws NoImplementationFoundException, OwsExceptionReport {
+    @ResponseBody
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @RequestMapping(method = RequestMethod.POST, produces = ControllerConstants.MEDIA_TYPE_APPLICATION_JSON)
+    public String delete() throws NoImplementationFoundException, OwsExceptionReport {
         getDAO().deleteDeletedObservations();
+        return progress();
+    }
+
+    @ResponseBody
+    @RequestMapping(method = RequestMethod.GET, produces = ControllerConstants.MEDIA_TYPE_APPLICATION_JSON)
+    public String progress() throws NoImplementationFoundException {
+        DeletionProgress progress = getDAO().getProgress();
+        ObjectNode json = Json.nodeFactory().objectNode()
+                .put("state", progress.getState().name())
+                .put("active", progress.getState().isActive())
+                .put("total", progress.getTotal())
+                .put("deleted", progress.getDeleted())
+                .put("batches", progress.getBatches())
+                .put("duration", progress.getDuration())
+                .put("throughput", progress.getThroughput())
+                .put("throttle", progress.getThrottle());
+        if (progress.getMessage() != null) {
+            json.put("message", progress.getMessage());
+        }
+        return Json.print(json);
+    }
+
+    @RequestMapping(method = RequestMethod.DELETE)
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void cancel() throws NoImplementationFoundException {
+        getDAO().cancel();
     }
 }
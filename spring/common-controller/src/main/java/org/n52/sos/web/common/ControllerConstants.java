@@ -201,6 +201,8 @@ public interface ControllerConstants {
 
         String ADMIN_CACHE_DUMP = "/admin/cache/dump";
 
+        String ADMIN_METRICS = "/admin/metrics";
+
         String ADMIN_RELOAD_CAPABILITIES_CACHE = "/admin/cache/reload";
 
         String ADMIN_DATABASE_UPDATE_SCRIPT = "/admin/datasource/updatescript";
@@ -213,6 +215,8 @@ public interface ControllerConstants {
 
         String ADMIN_DATABASE_DELETE_DELETED_OBSERVATIONS = "/admin/datasource/deleteDeletedObservations";
 
+        String ADMIN_DATABASE_CHECK_INDEXES = "/admin/datasource/indexes";
+
         String ADMIN_DATABASE_LOAD_PREDEFINED_UNITS = "/admin/datasource/loadPredefinedUnits";
 
         String ADMIN_DATABASE_LOAD_PREDEFINED_PHENOMENA = "/admin/datasource/loadPredefinedPhenomena";
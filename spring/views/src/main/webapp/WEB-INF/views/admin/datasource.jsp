@@ -51,8 +51,18 @@
         <button data-target="#confirmDialogAddSampledata" data-toggle="modal" title="Insert sample data" class="btn ">Insert sample data</button>
         <button data-target="#confirmDialogDelete" data-toggle="modal" title="Delete deleted Observations" class="btn btn-danger">Delete deleted Observations</button>
         <button data-target="#confirmDialogClear" data-toggle="modal" title="Clear Datasource" class="btn btn-danger">Clear Datasource</button>
+        <button id="checkIndexes" title="Check for missing observation indexes" class="btn">Check indexes</button>
         <a href="<c:url value="/admin/reset" />" title="Reset Datasource Configuration" class="btn btn-warning">Reset Datasource Configuration</a>
     </div>
+    <div id="deleteProgress" class="hide" style="margin-top: 10px;">
+        <div class="progress progress-striped active">
+            <div class="bar" style="width: 0%;"></div>
+        </div>
+        <p>
+            <span id="deleteProgressText"></span>
+            <button id="cancelDelete" type="button" title="Cancel the deletion of deleted observations" class="btn btn-small">Cancel</button>
+        </p>
+    </div>
 </div>
 
 <div>
@@ -171,6 +181,7 @@
         var $addSampledataDialog = $("#confirmDialogAddSampledata")
         var supportsClear = ${supportsClear};
         var supportsDeleteDeleted = ${supportsDeleteDeleted};
+        var supportsIndexCheck = ${supportsIndexCheck};
         /*var supportsAddSampledata = ${supportsAddSampledata};*/
 
         $('#wait').ajaxStart(function() {
@@ -223,11 +234,54 @@
         }*/
 
         if (supportsDeleteDeleted) {
+            var deleteUrl = "<c:url value="/admin/datasource/deleteDeletedObservations" />";
+            var $deleteProgress = $("#deleteProgress");
+            var showDeleteProgress = function(progress) {
+                var percent = progress.total > 0 ? Math.min(100, Math.round(100 * progress.deleted / progress.total)) : 100;
+                var text = progress.deleted + " of " + progress.total + " observations deleted in "
+                    + progress.batches + " batches (" + Math.round(progress.throughput) + " per second)";
+                if (progress.throttle > 0) {
+                    text += ", throttled by " + progress.throttle + " ms per batch";
+                }
+                $deleteProgress.find(".bar").css("width", percent + "%");
+                $("#deleteProgressText").text(text);
+                $deleteProgress.show();
+                if (progress.active) {
+                    $("button[data-target=#confirmDialogDelete]").attr("disabled", true);
+                    $("#cancelDelete").attr("disabled", progress.state === "CANCELLING");
+                    setTimeout(pollDeleteProgress, 1000);
+                } else {
+                    $("button[data-target=#confirmDialogDelete]").removeAttr("disabled");
+                    $("#cancelDelete").hide();
+                    $deleteProgress.find(".progress").removeClass("active");
+                }
+                return progress;
+            };
+            var pollDeleteProgress = function() {
+                $.ajax({
+                    "url": deleteUrl,
+                    "type": "GET",
+                    "dataType": "json",
+                    "global": false
+                }).fail(function(error) {
+                    showError("Request failed: " + error.status + " " + error.statusText);
+                }).done(function(progress) {
+                    showDeleteProgress(progress);
+                    if (progress.state === "FINISHED") {
+                        showSuccess("The deleted observation were deleted.");
+                    } else if (progress.state === "CANCELLED") {
+                        showSuccess("The deletion of the deleted observations was cancelled.");
+                    } else if (progress.state === "FAILED") {
+                        showError("The deletion of the deleted observations failed: " + (progress.message || "unknown error"));
+                    }
+                });
+            };
             $("#delete").click(function() {
                 $deleteDeletedDialog.find("button").attr("disabled", true);
                 $.ajax({
-                    "url": "<c:url value="/admin/datasource/deleteDeletedObservations" />",
-                    "type": "POST"
+                    "url": deleteUrl,
+                    "type": "POST",
+                    "dataType": "json"
                 }).fail(function(error) {
                     if (error.responseText) {
                         showError(error.responseText);
@@ -237,15 +291,62 @@
 
                     $deleteDeletedDialog.find("button").removeAttr("disabled");
                     $deleteDeletedDialog.modal("hide");
-                }).done(function() {
-                    showSuccess("The deleted observation were deleted.");
+                }).done(function(progress) {
                     $deleteDeletedDialog.find("button").removeAttr("disabled");
                     $deleteDeletedDialog.modal("hide");
+                    $("#cancelDelete").show();
+                    $deleteProgress.find(".progress").addClass("active");
+                    showDeleteProgress(progress);
                 });
             });
+            $("#cancelDelete").click(function() {
+                $(this).attr("disabled", true);
+                $.ajax({
+                    "url": deleteUrl,
+                    "type": "DELETE",
+                    "global": false
+                }).fail(function(error) {
+                    showError("Request failed: " + error.status + " " + error.statusText);
+                });
+            });
+            $.ajax({
+                "url": deleteUrl,
+                "type": "GET",
+                "dataType": "json",
+                "global": false
+            }).done(function(progress) {
+                if (progress.active) {
+                    showDeleteProgress(progress);
+                }
+            });
         } else {
             $("button[data-target=#confirmDialogDelete]").attr("disabled", true);
         }
+
+        if (supportsIndexCheck) {
+            $("#checkIndexes").click(function() {
+                $.ajax({
+                    "url": "<c:url value="/admin/datasource/indexes" />",
+                    "type": "GET",
+                    "dataType": "json"
+                }).fail(function(error) {
+                    showError("Request failed: " + error.status + " " + error.statusText);
+                }).done(function(indexes) {
+                    var missing = $.grep(indexes, function(index) {
+                        return !index.present;
+                    });
+                    if (missing.length === 0) {
+                        showSuccess("All recommended observation indexes exist.");
+                    } else {
+                        showError("Missing observation indexes, create them with:<br/>" + $.map(missing, function(index) {
+                            return $("<div>").text(index.statement).html();
+                        }).join("<br/>"));
+                    }
+                });
+            });
+        } else {
+            $("#checkIndexes").attr("disabled", true);
+        }
     });
 </script>
 
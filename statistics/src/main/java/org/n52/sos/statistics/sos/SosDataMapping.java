@@ -299,4 +299,52 @@ public class SosDataMapping {
             new Description(InformationOrigin.RequestEvent, Operation.GetDataAvailability, "Procedure"),
             ElasticsearchTypeRegistry.STRING_FIELD);
 
+    // --------------- RESPONSE --------------//
+    public static final AbstractEsParameter RESP_OPERATION = new SingleEsParameter("response-operation",
+            new Description(InformationOrigin.ResponseEvent, Operation.Default, "Operation of the response"),
+            ElasticsearchTypeRegistry.STRING_FIELD);
+
+    public static final AbstractEsParameter RESP_RESULT_COUNT = new SingleEsParameter("response-result-count",
+            new Description(InformationOrigin.ResponseEvent, Operation.Default,
+                    "Number of returned features, procedure descriptions or data availabilities"),
+            ElasticsearchTypeRegistry.LONG_FIELD);
+
+    // --------------- OPERATION TIMING --------------//
+    public static final AbstractEsParameter OT_CHECK_TIME = new SingleEsParameter("operation-check-time",
+            new Description(InformationOrigin.ResponseEvent, Operation.Default,
+                    "Milliseconds spent in request modifiers and parameter checks"),
+            ElasticsearchTypeRegistry.LONG_FIELD);
+
+    public static final AbstractEsParameter OT_HANDLE_TIME = new SingleEsParameter("operation-handle-time",
+            new Description(InformationOrigin.ResponseEvent, Operation.Default,
+                    "Milliseconds spent in the operation handler (database and conversion)"),
+            ElasticsearchTypeRegistry.LONG_FIELD);
+
+    public static final AbstractEsParameter OT_MODIFY_TIME = new SingleEsParameter("operation-modify-time",
+            new Description(InformationOrigin.ResponseEvent, Operation.Default,
+                    "Milliseconds spent in response modifiers"),
+            ElasticsearchTypeRegistry.LONG_FIELD);
+
+    public static final AbstractEsParameter OT_TOTAL_TIME = new SingleEsParameter("operation-total-time",
+            new Description(InformationOrigin.ResponseEvent, Operation.Default,
+                    "Milliseconds spent in the operation before encoding"),
+            ElasticsearchTypeRegistry.LONG_FIELD);
+
+    // --------------- RESPONSE ENCODING --------------//
+    public static final AbstractEsParameter RE_ENCODE_TIME = new SingleEsParameter("response-encode-time",
+            new Description(InformationOrigin.ResponseEvent, Operation.Default,
+                    "Milliseconds spent encoding the response, without database access while streaming"),
+            ElasticsearchTypeRegistry.LONG_FIELD);
+
+    public static final AbstractEsParameter RE_DATABASE_TIME = new SingleEsParameter("response-database-time",
+            new Description(InformationOrigin.ResponseEvent, Operation.Default,
+                    "Milliseconds spent executing database statements during the operation and the encoding"),
+            ElasticsearchTypeRegistry.LONG_FIELD);
+
+    public static final AbstractEsParameter RE_OBSERVATION_COUNT = new SingleEsParameter(
+            "response-observation-count",
+            new Description(InformationOrigin.ResponseEvent, Operation.Default,
+                    "Number of encoded observations of observation responses"),
+            ElasticsearchTypeRegistry.LONG_FIELD);
+
 }
@@ -28,6 +28,8 @@
  */
 package org.n52.sos.statistics.sos;
 
+import java.util.List;
+
 import javax.inject.Inject;
 
 import org.n52.iceland.event.events.RequestEvent;
@@ -35,20 +37,50 @@ import org.n52.iceland.event.events.ResponseEvent;
 import org.n52.iceland.statistics.api.interfaces.StatisticsServiceEventResolver;
 import org.n52.iceland.statistics.impl.AbstractStatisticsServiceEventListener;
 import org.n52.iceland.statistics.impl.StatisticsResolverFactory;
+import org.n52.sos.event.events.OperationTimingEvent;
+import org.n52.sos.event.events.ResponseEncodingEvent;
+import org.n52.sos.statistics.sos.pipeline.StatisticsEventPipeline;
+import org.n52.sos.statistics.sos.pipeline.StatisticsEventSink;
+import org.n52.sos.statistics.sos.resolvers.SosOperationTimingEventResolver;
 import org.n52.sos.statistics.sos.resolvers.SosRequestEventResolver;
+import org.n52.sos.statistics.sos.resolvers.SosResponseEncodingEventResolver;
 import org.n52.sos.statistics.sos.resolvers.SosResponseEventResolver;
 
 import com.google.common.collect.ImmutableSet;
 
 import org.n52.janmayen.event.Event;
 
-public class SosStatisticsServiceEventListener extends AbstractStatisticsServiceEventListener {
+public class SosStatisticsServiceEventListener extends AbstractStatisticsServiceEventListener
+        implements StatisticsEventSink {
 
     @Inject
     private StatisticsResolverFactory resolverFactory;
 
+    private StatisticsEventPipeline pipeline;
+
     public SosStatisticsServiceEventListener() {
-        registerEventType(ImmutableSet.<Class<? extends Event>> of(RequestEvent.class, ResponseEvent.class));
+        registerEventType(ImmutableSet.<Class<? extends Event>> of(RequestEvent.class, ResponseEvent.class,
+                OperationTimingEvent.class, ResponseEncodingEvent.class));
+    }
+
+    @Inject
+    public void setPipeline(StatisticsEventPipeline pipeline) {
+        this.pipeline = pipeline;
+        pipeline.setSink(this);
+    }
+
+    @Override
+    public void handle(Event serviceEvent) {
+        if (pipeline != null && pipeline.isRunning()) {
+            pipeline.submit(serviceEvent);
+        } else {
+            super.handle(serviceEvent);
+        }
+    }
+
+    @Override
+    public void write(List<Event> events) {
+        events.forEach(super::handle);
     }
 
     @Override
@@ -64,6 +96,16 @@ public class SosStatisticsServiceEventListener extends AbstractStatisticsService
                     resolverFactory.getPrototypeBean(SosResponseEventResolver.class);
             responseEventResolver.setEvent((ResponseEvent) serviceEvent);
             evtResolver = responseEventResolver;
+        } else if (serviceEvent instanceof OperationTimingEvent) {
+            SosOperationTimingEventResolver timingEventResolver =
+                    resolverFactory.getPrototypeBean(SosOperationTimingEventResolver.class);
+            timingEventResolver.setEvent((OperationTimingEvent) serviceEvent);
+            evtResolver = timingEventResolver;
+        } else if (serviceEvent instanceof ResponseEncodingEvent) {
+            SosResponseEncodingEventResolver encodingEventResolver =
+                    resolverFactory.getPrototypeBean(SosResponseEncodingEventResolver.class);
+            encodingEventResolver.setEvent((ResponseEncodingEvent) serviceEvent);
+            evtResolver = encodingEventResolver;
         }
         return evtResolver;
     }
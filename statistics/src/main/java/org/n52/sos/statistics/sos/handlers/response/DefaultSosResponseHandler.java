@@ -28,13 +28,45 @@
  */
 package org.n52.sos.statistics.sos.handlers.response;
 
+import org.n52.shetland.ogc.gml.AbstractFeature;
+import org.n52.shetland.ogc.om.features.FeatureCollection;
 import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
+import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityResponse;
+import org.n52.shetland.ogc.sos.response.DescribeSensorResponse;
+import org.n52.shetland.ogc.sos.response.GetFeatureOfInterestResponse;
+import org.n52.sos.statistics.sos.SosDataMapping;
 
 public class DefaultSosResponseHandler extends AbstractSosResponseHandler<OwsServiceResponse> {
 
     @Override
     protected void resolveConcreteResponse() {
+        put(SosDataMapping.RESP_OPERATION, response.getOperationName());
+        Integer resultCount = getResultCount();
+        if (resultCount != null) {
+            put(SosDataMapping.RESP_RESULT_COUNT, resultCount);
+        }
+    }
 
+    /**
+     * Observation responses are streamed while encoding, so their size is not
+     * known at this point; the encoded observations are counted by the
+     * {@link org.n52.sos.event.events.ResponseEncodingEvent}.
+     *
+     * @return the number of returned elements or {@code null} if unknown
+     */
+    private Integer getResultCount() {
+        if (response instanceof GetFeatureOfInterestResponse) {
+            AbstractFeature feature = ((GetFeatureOfInterestResponse) response).getAbstractFeature();
+            if (feature instanceof FeatureCollection) {
+                return ((FeatureCollection) feature).getMembers().size();
+            }
+            return feature != null ? 1 : 0;
+        } else if (response instanceof DescribeSensorResponse) {
+            return ((DescribeSensorResponse) response).getProcedureDescriptions().size();
+        } else if (response instanceof GetDataAvailabilityResponse) {
+            return ((GetDataAvailabilityResponse) response).getDataAvailabilities().size();
+        }
+        return null;
     }
 
 }
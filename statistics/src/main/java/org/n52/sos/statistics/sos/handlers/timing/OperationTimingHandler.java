@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.statistics.sos.handlers.timing;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.n52.iceland.statistics.api.AbstractElasticSearchDataHolder;
+import org.n52.iceland.statistics.api.interfaces.StatisticsServiceEventHandler;
+import org.n52.sos.event.events.OperationTimingEvent;
+import org.n52.sos.event.events.OperationTimingEvent.Phase;
+import org.n52.sos.statistics.sos.SosDataMapping;
+
+public class OperationTimingHandler extends AbstractElasticSearchDataHolder
+        implements StatisticsServiceEventHandler<OperationTimingEvent> {
+
+    @Override
+    public Map<String, Object> resolveAsMap(OperationTimingEvent event) {
+        put(SosDataMapping.OT_CHECK_TIME, toMillis(event.getDuration(Phase.CHECK)));
+        put(SosDataMapping.OT_HANDLE_TIME, toMillis(event.getDuration(Phase.HANDLE)));
+        put(SosDataMapping.OT_MODIFY_TIME, toMillis(event.getDuration(Phase.MODIFY)));
+        put(SosDataMapping.OT_TOTAL_TIME, toMillis(event.getTotalDuration()));
+        return dataMap;
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+}
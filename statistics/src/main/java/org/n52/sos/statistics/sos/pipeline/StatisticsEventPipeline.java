@@ -0,0 +1,368 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.statistics.sos.pipeline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.n52.faroe.ConfigurationError;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.iceland.event.events.AbstractFlowEvent;
+import org.n52.iceland.event.events.OutgoingResponseEvent;
+import org.n52.iceland.event.events.RequestEvent;
+import org.n52.janmayen.event.Event;
+import org.n52.janmayen.lifecycle.Constructable;
+import org.n52.janmayen.lifecycle.Destroyable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+
+/**
+ * Decouples the statistics processing from the request threads. Submitted
+ * events are put into a bounded {@link EventRingBuffer} and written in
+ * batches to the {@link StatisticsEventSink} by a background thread. If the
+ * buffer is full the event is dropped and counted instead of blocking the
+ * request thread.
+ *
+ * Requests are sampled per operation when their {@link RequestEvent} is
+ * submitted; the following flow events of the same request thread share that
+ * decision until the {@link OutgoingResponseEvent} completes the request.
+ *
+ * The statistics listener correlates the events of a request by the thread
+ * handling them. The pipeline therefore records the submitting thread with
+ * each event and holds the events of a request back until it is completed.
+ * The sink receives the events of each request in one contiguous run, so the
+ * events of concurrent requests are not mixed on the writer thread. If the
+ * {@link OutgoingResponseEvent} of a request is lost, its events are dropped
+ * when the next request of the thread starts.
+ */
+@Configurable
+public class StatisticsEventPipeline implements Constructable, Destroyable {
+
+    public static final String ENABLED = "statistics.pipeline.enabled";
+
+    public static final String CAPACITY = "statistics.pipeline.capacity";
+
+    public static final String BATCH_SIZE = "statistics.pipeline.batch_size";
+
+    public static final String SAMPLING_RATES = "statistics.pipeline.sampling_rates";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatisticsEventPipeline.class);
+
+    private static final String DEFAULT_OPERATION = "*";
+
+    private static final long IDLE_WAIT = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private boolean enabled;
+
+    private int capacity = 8192;
+
+    private int batchSize = 256;
+
+    private volatile Map<String, Double> samplingRates = Collections.emptyMap();
+
+    private volatile StatisticsEventSink sink;
+
+    private EventRingBuffer<SubmittedEvent> buffer;
+
+    private volatile boolean running;
+
+    private Thread writer;
+
+    private final ConcurrentMap<Long, Boolean> skippedRequests = new ConcurrentHashMap<>();
+
+    /**
+     * The events of the incomplete requests per submitting thread, only
+     * accessed by the writer thread.
+     */
+    private final Map<Long, List<Event>> openRequests = new HashMap<>();
+
+    private final LongAdder submitted = new LongAdder();
+
+    private final LongAdder sampledOut = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder written = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    @Setting(ENABLED)
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Setting(CAPACITY)
+    public void setCapacity(int capacity) {
+        if (capacity < 1) {
+            throw new ConfigurationError(String.format("'%s' has to be positive: %d", CAPACITY, capacity));
+        }
+        this.capacity = capacity;
+    }
+
+    @Setting(BATCH_SIZE)
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new ConfigurationError(String.format("'%s' has to be positive: %d", BATCH_SIZE, batchSize));
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param rates
+     *            comma separated {@code operation=rate} pairs with rates in
+     *            {@code [0, 1]}, {@code *} sets the rate of all other
+     *            operations, e.g. {@code GetCapabilities=0.1,*=0.5}
+     */
+    @Setting(SAMPLING_RATES)
+    public void setSamplingRates(String rates) {
+        if (Strings.isNullOrEmpty(rates)) {
+            this.samplingRates = Collections.emptyMap();
+            return;
+        }
+        Map<String, Double> parsed = new HashMap<>();
+        try {
+            Splitter.on(',').omitEmptyStrings().trimResults()
+                    .withKeyValueSeparator(Splitter.on('=').trimResults()).split(rates)
+                    .forEach((operation, value) -> parsed.put(operation, Double.parseDouble(value)));
+        } catch (IllegalArgumentException e) {
+            throw new ConfigurationError(String.format("Invalid format of '%s': %s", SAMPLING_RATES, rates), e);
+        }
+        parsed.forEach((operation, rate) -> {
+            if (rate < 0 || rate > 1) {
+                throw new ConfigurationError(String.format("Invalid sampling rate in '%s': %s=%s",
+                        SAMPLING_RATES, operation, rate));
+            }
+        });
+        this.samplingRates = Collections.unmodifiableMap(parsed);
+    }
+
+    public void setSink(StatisticsEventSink sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public synchronized void init() {
+        if (!enabled || running) {
+            return;
+        }
+        this.buffer = new EventRingBuffer<>(capacity);
+        this.running = true;
+        this.writer = new Thread(this::write, "statistics-event-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        LOGGER.info("Started statistics event pipeline with capacity {} and batch size {}", buffer.capacity(),
+                batchSize);
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (!running) {
+            return;
+        }
+        this.running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LOGGER.info("Stopped statistics event pipeline: {} submitted, {} sampled out, {} dropped, {} written",
+                getSubmitted(), getSampledOut(), getDropped(), getWritten());
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @param event
+     *            the event
+     * @return if the event was accepted for writing
+     */
+    public boolean submit(Event event) {
+        if (!running) {
+            return false;
+        }
+        submitted.increment();
+        if (!isSampled(event)) {
+            sampledOut.increment();
+            return false;
+        }
+        if (!buffer.offer(new SubmittedEvent(Thread.currentThread().getId(), event))) {
+            dropped.increment();
+            if (event instanceof RequestEvent) {
+                skippedRequests.put(((RequestEvent) event).getThreadId(), Boolean.TRUE);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isSampled(Event event) {
+        if (event instanceof RequestEvent) {
+            RequestEvent requestEvent = (RequestEvent) event;
+            String operation = requestEvent.getRequest() != null ? requestEvent.getRequest().getOperationName()
+                    : null;
+            double rate = samplingRates.getOrDefault(operation, samplingRates.getOrDefault(DEFAULT_OPERATION, 1.0));
+            if (rate < 1 && ThreadLocalRandom.current().nextDouble() >= rate) {
+                skippedRequests.put(requestEvent.getThreadId(), Boolean.TRUE);
+                return false;
+            }
+            skippedRequests.remove(requestEvent.getThreadId());
+        } else if (event instanceof AbstractFlowEvent) {
+            long threadId = ((AbstractFlowEvent) event).getThreadId();
+            if (event instanceof OutgoingResponseEvent) {
+                return skippedRequests.remove(threadId) == null;
+            }
+            return !skippedRequests.containsKey(threadId);
+        }
+        return true;
+    }
+
+    private void write() {
+        List<SubmittedEvent> drained = new ArrayList<>(batchSize);
+        List<Event> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            if (buffer.drainTo(drained, batchSize) == 0) {
+                LockSupport.parkNanos(IDLE_WAIT);
+                continue;
+            }
+            drained.forEach(submitted -> collect(submitted, batch));
+            drained.clear();
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+        openRequests.values().forEach(events -> dropped.add(events.size()));
+        openRequests.clear();
+    }
+
+    /**
+     * Add the event to the request of its thread and move the request to the
+     * batch once it is completed. Events outside of a request are added to
+     * the batch directly.
+     */
+    private void collect(SubmittedEvent submitted, List<Event> batch) {
+        Event event = submitted.getEvent();
+        List<Event> request = openRequests.get(submitted.getThreadId());
+        if (event instanceof RequestEvent) {
+            if (request != null) {
+                dropped.add(request.size());
+            }
+            request = new ArrayList<>();
+            openRequests.put(submitted.getThreadId(), request);
+        } else if (request == null) {
+            batch.add(event);
+            return;
+        }
+        request.add(event);
+        if (event instanceof OutgoingResponseEvent) {
+            batch.addAll(openRequests.remove(submitted.getThreadId()));
+        }
+    }
+
+    private void writeBatch(List<Event> batch) {
+        if (sink == null) {
+            failed.add(batch.size());
+            return;
+        }
+        try {
+            sink.write(batch);
+            written.add(batch.size());
+        } catch (RuntimeException e) {
+            failed.add(batch.size());
+            LOGGER.warn("Could not write {} statistics events", batch.size(), e);
+        }
+    }
+
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    public long getSampledOut() {
+        return sampledOut.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public int getBuffered() {
+        return buffer == null ? 0 : buffer.size();
+    }
+
+    /**
+     * An event together with the thread that submitted it.
+     */
+    private static final class SubmittedEvent {
+
+        private final long threadId;
+
+        private final Event event;
+
+        SubmittedEvent(long threadId, Event event) {
+            this.threadId = threadId;
+            this.event = event;
+        }
+
+        long getThreadId() {
+            return threadId;
+        }
+
+        Event getEvent() {
+            return event;
+        }
+    }
+
+}
@@ -35,7 +35,7 @@ public class SosElasticsearchSchemas extends DefaultElasticsearchSchemas {
 
     @Override
     public int getSchemaVersion() {
-        return 1;
+        return 2;
     }
 
     @Override
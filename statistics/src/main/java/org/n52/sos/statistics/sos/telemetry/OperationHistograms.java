@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.statistics.sos.telemetry;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.n52.iceland.event.events.CountingOutputStreamEvent;
+import org.n52.iceland.event.events.OutgoingResponseEvent;
+import org.n52.janmayen.event.Event;
+import org.n52.janmayen.event.EventListener;
+import org.n52.sos.event.events.OperationTimingEvent;
+import org.n52.sos.event.events.OperationTimingEvent.Phase;
+import org.n52.sos.event.events.ResponseEncodingEvent;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * In-process histograms per operation, independent of the Elasticsearch sink.
+ * Durations are recorded in microseconds, payload sizes in bytes. The phases
+ * of {@link OperationTimingEvent} are recorded under their lower case name,
+ * the summed phases as {@value #TOTAL}, the written bytes as {@value #BYTES}
+ * and the complete request time including decoding and encoding as
+ * {@value #ELAPSED}. The {@link ResponseEncodingEvent} adds the encoding time
+ * without database access as {@value #ENCODE}, the database time of the
+ * request as {@value #DATABASE} and the number of encoded observations as
+ * {@value #OBSERVATIONS}.
+ */
+public class OperationHistograms implements EventListener {
+
+    public static final String TOTAL = "total";
+
+    public static final String BYTES = "bytes";
+
+    public static final String ELAPSED = "elapsed";
+
+    public static final String ENCODE = "encode";
+
+    public static final String DATABASE = "database";
+
+    public static final String OBSERVATIONS = "observations";
+
+    private static final Set<Class<? extends Event>> TYPES = ImmutableSet.<Class<? extends Event>> of(
+            OperationTimingEvent.class, ResponseEncodingEvent.class, CountingOutputStreamEvent.class,
+            OutgoingResponseEvent.class);
+
+    private final ConcurrentMap<String, ConcurrentMap<String, Histogram>> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * The operation currently processed by a request thread, used to assign
+     * the byte count and the elapsed time which do not know the operation.
+     */
+    private final ConcurrentMap<Long, String> operations = new ConcurrentHashMap<>();
+
+    @Override
+    public Set<Class<? extends Event>> getTypes() {
+        return TYPES;
+    }
+
+    @Override
+    public void handle(Event event) {
+        if (event instanceof OperationTimingEvent) {
+            OperationTimingEvent timing = (OperationTimingEvent) event;
+            String operation = timing.getOperationName();
+            if (operation == null) {
+                return;
+            }
+            for (Phase phase : Phase.values()) {
+                record(operation, phase.name().toLowerCase(Locale.ROOT), toMicros(timing.getDuration(phase)));
+            }
+            record(operation, TOTAL, toMicros(timing.getTotalDuration()));
+            operations.put(timing.getThreadId(), operation);
+        } else if (event instanceof ResponseEncodingEvent) {
+            ResponseEncodingEvent encoding = (ResponseEncodingEvent) event;
+            String operation = encoding.getOperationName();
+            if (operation != null) {
+                record(operation, ENCODE, toMicros(encoding.getEncodingDuration()));
+                record(operation, DATABASE, toMicros(encoding.getDatabaseDuration()));
+                if (encoding.isSetObservationCount()) {
+                    record(operation, OBSERVATIONS, encoding.getObservationCount());
+                }
+            }
+        } else if (event instanceof CountingOutputStreamEvent) {
+            CountingOutputStreamEvent counting = (CountingOutputStreamEvent) event;
+            String operation = operations.get(counting.getThreadId());
+            if (operation != null) {
+                record(operation, BYTES, counting.getBytesWritten());
+            }
+        } else if (event instanceof OutgoingResponseEvent) {
+            OutgoingResponseEvent outgoing = (OutgoingResponseEvent) event;
+            String operation = operations.remove(outgoing.getThreadId());
+            if (operation != null) {
+                record(operation, ELAPSED, TimeUnit.MILLISECONDS.toMicros(outgoing.getElapsedTime()));
+            }
+        }
+    }
+
+    public void record(String operation, String metric, long value) {
+        histograms.computeIfAbsent(operation, o -> new ConcurrentHashMap<>())
+                .computeIfAbsent(metric, m -> new Histogram()).record(value);
+    }
+
+    /**
+     * @param operation
+     *            the operation name
+     * @param metric
+     *            the metric name
+     * @return the histogram or {@code null} if nothing was recorded
+     */
+    public Histogram get(String operation, String metric) {
+        Map<String, Histogram> metrics = histograms.get(operation);
+        return metrics == null ? null : metrics.get(metric);
+    }
+
+    public Set<String> getOperations() {
+        return Collections.unmodifiableSet(histograms.keySet());
+    }
+
+    public Map<String, Histogram> getMetrics(String operation) {
+        Map<String, Histogram> metrics = histograms.get(operation);
+        return metrics == null ? Collections.emptyMap() : Collections.unmodifiableMap(metrics);
+    }
+
+    public void clear() {
+        histograms.clear();
+    }
+
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.statistics.sos;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.n52.iceland.event.events.OutgoingResponseEvent;
+import org.n52.iceland.event.events.RequestEvent;
+import org.n52.iceland.event.events.ResponseEvent;
+import org.n52.iceland.statistics.api.interfaces.StatisticsServiceEventResolver;
+import org.n52.iceland.statistics.api.interfaces.datahandler.IStatisticsDataHandler;
+import org.n52.janmayen.event.Event;
+import org.n52.shetland.ogc.sos.request.DescribeSensorRequest;
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
+import org.n52.shetland.ogc.sos.response.DescribeSensorResponse;
+import org.n52.shetland.ogc.sos.response.GetObservationResponse;
+import org.n52.sos.statistics.sos.pipeline.StatisticsEventPipeline;
+
+import basetest.MockitoBaseTest;
+
+public class SosStatisticsServiceEventListenerTest extends MockitoBaseTest {
+
+    @Mock
+    private IStatisticsDataHandler dataHandler;
+
+    @InjectMocks
+    private RecordingListener listener;
+
+    private StatisticsEventPipeline pipeline;
+
+    @Before
+    public void setUp() {
+        Mockito.lenient().when(dataHandler.isLoggingEnabled()).thenReturn(true);
+        pipeline = new StatisticsEventPipeline();
+        pipeline.setEnabled(true);
+        pipeline.setBatchSize(1);
+        listener.setPipeline(pipeline);
+        pipeline.init();
+    }
+
+    @After
+    public void tearDown() {
+        pipeline.destroy();
+    }
+
+    @Test
+    public void replaysConcurrentRequestsOneAfterAnother() throws InterruptedException {
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch secondStarted = new CountDownLatch(1);
+        List<Event> first = Collections.synchronizedList(new ArrayList<>());
+        List<Event> second = Collections.synchronizedList(new ArrayList<>());
+
+        Thread firstThread = new Thread(() -> {
+            first.add(submit(new RequestEvent(new DescribeSensorRequest())));
+            firstStarted.countDown();
+            await(secondStarted);
+            first.add(submit(new ResponseEvent(new DescribeSensorResponse())));
+            first.add(submit(new OutgoingResponseEvent(null, null, 1L, 1L)));
+        });
+        Thread secondThread = new Thread(() -> {
+            await(firstStarted);
+            second.add(submit(new RequestEvent(new GetObservationRequest())));
+            secondStarted.countDown();
+            second.add(submit(new ResponseEvent(new GetObservationResponse())));
+            second.add(submit(new OutgoingResponseEvent(null, null, 1L, 1L)));
+        });
+        firstThread.start();
+        secondThread.start();
+        firstThread.join(TimeUnit.SECONDS.toMillis(5));
+        secondThread.join(TimeUnit.SECONDS.toMillis(5));
+        awaitWritten(6);
+
+        List<Event> resolved = listener.getResolved();
+        MatcherAssert.assertThat(resolved, CoreMatchers.hasItems(first.get(0), first.get(1), second.get(0),
+                second.get(1)));
+        MatcherAssert.assertThat(listener.getThreads().size(), CoreMatchers.is(1));
+        first.retainAll(resolved);
+        second.retainAll(resolved);
+        if (resolved.get(0) == first.get(0)) {
+            MatcherAssert.assertThat(resolved, CoreMatchers.is(concat(first, second)));
+        } else {
+            MatcherAssert.assertThat(resolved, CoreMatchers.is(concat(second, first)));
+        }
+    }
+
+    @Test
+    public void handlesEventsDirectlyIfPipelineIsStopped() {
+        pipeline.destroy();
+        RequestEvent event = new RequestEvent(new DescribeSensorRequest());
+        listener.handle(event);
+        MatcherAssert.assertThat(listener.getResolved(), CoreMatchers.hasItem(event));
+        MatcherAssert.assertThat(listener.getThreads(), CoreMatchers.hasItem(Thread.currentThread().getId()));
+    }
+
+    private Event submit(Event event) {
+        listener.handle(event);
+        return event;
+    }
+
+    private static List<Event> concat(List<Event> first, List<Event> second) {
+        List<Event> events = new ArrayList<>(first);
+        events.addAll(second);
+        return events;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void awaitWritten(long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (pipeline.getWritten() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Records the events the statistics listener resolves and the threads
+     * resolving them. The resolution itself is not part of this test.
+     */
+    static class RecordingListener extends SosStatisticsServiceEventListener {
+
+        private final List<Event> resolved = Collections.synchronizedList(new ArrayList<>());
+
+        private final List<Long> threads = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        protected StatisticsServiceEventResolver<?> findResolver(Event serviceEvent) {
+            resolved.add(serviceEvent);
+            if (!threads.contains(Thread.currentThread().getId())) {
+                threads.add(Thread.currentThread().getId());
+            }
+            return null;
+        }
+
+        List<Event> getResolved() {
+            return new ArrayList<>(resolved);
+        }
+
+        List<Long> getThreads() {
+            return threads;
+        }
+    }
+}
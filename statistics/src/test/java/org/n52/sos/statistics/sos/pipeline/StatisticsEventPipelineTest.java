@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.statistics.sos.pipeline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.iceland.event.events.OutgoingResponseEvent;
+import org.n52.iceland.event.events.RequestEvent;
+import org.n52.iceland.event.events.ResponseEvent;
+import org.n52.janmayen.event.Event;
+import org.n52.shetland.ogc.sos.request.DescribeSensorRequest;
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
+import org.n52.shetland.ogc.sos.response.DescribeSensorResponse;
+
+public class StatisticsEventPipelineTest {
+
+    private StatisticsEventPipeline pipeline;
+
+    private InMemoryStatisticsEventSink sink;
+
+    @Before
+    public void setUp() {
+        sink = new InMemoryStatisticsEventSink();
+        pipeline = new StatisticsEventPipeline();
+        pipeline.setEnabled(true);
+        pipeline.setBatchSize(2);
+        pipeline.setSink(sink);
+    }
+
+    @After
+    public void tearDown() {
+        pipeline.destroy();
+    }
+
+    @Test
+    public void writesCompletedRequestsInOrder() throws InterruptedException {
+        pipeline.init();
+        List<Event> events = new ArrayList<>();
+        events.add(new RequestEvent(new DescribeSensorRequest()));
+        events.add(new ResponseEvent(new DescribeSensorResponse()));
+        events.add(new OutgoingResponseEvent(null, null, 1L, 1L));
+        events.forEach(pipeline::submit);
+
+        awaitWritten(3);
+        MatcherAssert.assertThat(sink.getEvents(), CoreMatchers.is(events));
+        MatcherAssert.assertThat(sink.getBatchSizes(), CoreMatchers.is(Arrays.asList(3)));
+    }
+
+    @Test
+    public void keepsEventsOfConcurrentRequestsTogether() throws InterruptedException {
+        pipeline.init();
+        RequestEvent first = new RequestEvent(new DescribeSensorRequest());
+        ResponseEvent firstResponse = new ResponseEvent(new DescribeSensorResponse());
+        OutgoingResponseEvent firstOutgoing = new OutgoingResponseEvent(null, null, 1L, 1L);
+        List<Event> second = new ArrayList<>();
+        pipeline.submit(first);
+        Thread thread = new Thread(() -> {
+            second.add(new RequestEvent(new GetObservationRequest()));
+            second.add(new OutgoingResponseEvent(null, null, 1L, 1L));
+            second.forEach(pipeline::submit);
+        });
+        thread.start();
+        thread.join(TimeUnit.SECONDS.toMillis(5));
+        pipeline.submit(firstResponse);
+        pipeline.submit(firstOutgoing);
+
+        awaitWritten(5);
+        List<Event> expected = new ArrayList<>(second);
+        expected.addAll(Arrays.asList(first, firstResponse, firstOutgoing));
+        MatcherAssert.assertThat(sink.getEvents(), CoreMatchers.is(expected));
+    }
+
+    @Test
+    public void dropsIncompleteRequests() throws InterruptedException {
+        pipeline.init();
+        pipeline.submit(new RequestEvent(new DescribeSensorRequest()));
+        pipeline.submit(new ResponseEvent(new DescribeSensorResponse()));
+        RequestEvent next = new RequestEvent(new GetObservationRequest());
+        pipeline.submit(next);
+        pipeline.submit(new OutgoingResponseEvent(null, null, 1L, 1L));
+
+        awaitWritten(2);
+        MatcherAssert.assertThat(sink.getEvents().get(0), CoreMatchers.is(next));
+        MatcherAssert.assertThat(sink.getEvents().size(), CoreMatchers.is(2));
+        MatcherAssert.assertThat(pipeline.getDropped(), CoreMatchers.is(2L));
+    }
+
+    @Test
+    public void samplesWholeRequestsPerOperation() throws InterruptedException {
+        pipeline.setSamplingRates("DescribeSensor=0, *=1");
+        pipeline.init();
+        pipeline.submit(new RequestEvent(new DescribeSensorRequest()));
+        pipeline.submit(new ResponseEvent(new DescribeSensorResponse()));
+        pipeline.submit(new OutgoingResponseEvent(null, null, 1L, 1L));
+        RequestEvent kept = new RequestEvent(new GetObservationRequest());
+        pipeline.submit(kept);
+        pipeline.submit(new OutgoingResponseEvent(null, null, 1L, 1L));
+
+        awaitWritten(2);
+        MatcherAssert.assertThat(sink.getEvents(), CoreMatchers.hasItem(kept));
+        MatcherAssert.assertThat(sink.getEvents().size(), CoreMatchers.is(2));
+        MatcherAssert.assertThat(pipeline.getSampledOut(), CoreMatchers.is(3L));
+    }
+
+    @Test
+    public void ignoresEventsIfNotStarted() {
+        MatcherAssert.assertThat(pipeline.submit(new RequestEvent(new DescribeSensorRequest())),
+                CoreMatchers.is(false));
+        MatcherAssert.assertThat(pipeline.getSubmitted(), CoreMatchers.is(0L));
+    }
+
+    @Test
+    public void ringBufferRejectsWhenFull() {
+        EventRingBuffer<Integer> buffer = new EventRingBuffer<>(3);
+        MatcherAssert.assertThat(buffer.capacity(), CoreMatchers.is(4));
+        for (int i = 0; i < 4; i++) {
+            MatcherAssert.assertThat(buffer.offer(i), CoreMatchers.is(true));
+        }
+        MatcherAssert.assertThat(buffer.offer(4), CoreMatchers.is(false));
+        MatcherAssert.assertThat(buffer.poll(), CoreMatchers.is(0));
+        MatcherAssert.assertThat(buffer.offer(4), CoreMatchers.is(true));
+        List<Integer> drained = new ArrayList<>();
+        MatcherAssert.assertThat(buffer.drainTo(drained, 10), CoreMatchers.is(4));
+        MatcherAssert.assertThat(drained, CoreMatchers.is(Arrays.asList(1, 2, 3, 4)));
+        MatcherAssert.assertThat(buffer.poll(), CoreMatchers.nullValue());
+    }
+
+    @Test
+    public void ringBufferAcceptsConcurrentProducers() throws InterruptedException {
+        EventRingBuffer<Integer> buffer = new EventRingBuffer<>(1024);
+        AtomicInteger accepted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 500; i++) {
+                    if (buffer.offer(i)) {
+                        accepted.incrementAndGet();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        MatcherAssert.assertThat(accepted.get(), CoreMatchers.is(1024));
+        MatcherAssert.assertThat(buffer.size(), CoreMatchers.is(1024));
+    }
+
+    private void awaitWritten(long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (pipeline.getWritten() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2012-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.statistics.sos.telemetry;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.Test;
+import org.n52.iceland.event.events.CountingOutputStreamEvent;
+import org.n52.iceland.event.events.OutgoingResponseEvent;
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
+import org.n52.shetland.ogc.sos.response.GetObservationResponse;
+import org.n52.sos.event.events.OperationTimingEvent;
+import org.n52.sos.event.events.OperationTimingEvent.Phase;
+import org.n52.sos.event.events.ResponseEncodingEvent;
+
+public class OperationHistogramsTest {
+
+    @Test
+    public void histogramQuantiles() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        MatcherAssert.assertThat(histogram.getCount(), CoreMatchers.is(100L));
+        MatcherAssert.assertThat(histogram.getSum(), CoreMatchers.is(5050L));
+        MatcherAssert.assertThat(histogram.getMax(), CoreMatchers.is(100L));
+        MatcherAssert.assertThat(histogram.getQuantile(0.5), CoreMatchers.is(63L));
+        MatcherAssert.assertThat(histogram.getQuantile(1.0), CoreMatchers.is(100L));
+    }
+
+    @Test
+    public void emptyHistogram() {
+        Histogram histogram = new Histogram();
+        MatcherAssert.assertThat(histogram.getQuantile(0.99), CoreMatchers.is(0L));
+        MatcherAssert.assertThat(histogram.getMean(), CoreMatchers.is(0.0));
+    }
+
+    @Test
+    public void recordsPhasesBytesAndElapsedTimePerOperation() {
+        OperationHistograms histograms = new OperationHistograms();
+        Map<Phase, Long> durations = new EnumMap<>(Phase.class);
+        durations.put(Phase.CHECK, 1000L);
+        durations.put(Phase.HANDLE, 5000000L);
+        durations.put(Phase.MODIFY, 2000L);
+        GetObservationRequest request = new GetObservationRequest();
+
+        histograms.handle(new OperationTimingEvent(request, null, durations));
+        histograms.handle(new CountingOutputStreamEvent(1234L));
+        histograms.handle(new OutgoingResponseEvent(null, null, 1L, 12L));
+
+        String operation = request.getOperationName();
+        MatcherAssert.assertThat(histograms.get(operation, "handle").getMax(), CoreMatchers.is(5000L));
+        MatcherAssert.assertThat(histograms.get(operation, OperationHistograms.TOTAL).getMax(),
+                CoreMatchers.is(5003L));
+        MatcherAssert.assertThat(histograms.get(operation, OperationHistograms.BYTES).getSum(),
+                CoreMatchers.is(1234L));
+        MatcherAssert.assertThat(histograms.get(operation, OperationHistograms.ELAPSED).getSum(),
+                CoreMatchers.is(12000L));
+    }
+
+    @Test
+    public void recordsEncodingDatabaseTimeAndObservations() {
+        OperationHistograms histograms = new OperationHistograms();
+        GetObservationResponse response = new GetObservationResponse();
+
+        histograms.handle(new ResponseEncodingEvent(response, 3000000L, 2000000L, 42L));
+
+        String operation = response.getOperationName();
+        MatcherAssert.assertThat(histograms.get(operation, OperationHistograms.ENCODE).getMax(),
+                CoreMatchers.is(3000L));
+        MatcherAssert.assertThat(histograms.get(operation, OperationHistograms.DATABASE).getMax(),
+                CoreMatchers.is(2000L));
+        MatcherAssert.assertThat(histograms.get(operation, OperationHistograms.OBSERVATIONS).getSum(),
+                CoreMatchers.is(42L));
+    }
+
+    @Test
+    public void ignoresEventsWithoutOperation() {
+        OperationHistograms histograms = new OperationHistograms();
+        histograms.handle(new CountingOutputStreamEvent(1234L));
+        histograms.handle(new OutgoingResponseEvent(null, null, 1L, 12L));
+        MatcherAssert.assertThat(histograms.getOperations().isEmpty(), CoreMatchers.is(true));
+    }
+}